@@ -0,0 +1,87 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import com.example.mdviewer.backend.config.NotesProperties;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+import com.example.mdviewer.benchmarks.SyntheticVault;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 笔记 ID 编解码与标题清理，不涉及文件读写
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteIdBenchmark {
+
+    private static final int SAMPLE = 256;
+
+    @Param({"ASCII", "CJK"})
+    public SyntheticVault.Names names;
+
+    private NotesService service;
+    private Path[] paths;
+    private String[] ids;
+    private String[] titles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NotesProperties properties = new NotesProperties();
+        properties.setRoot(Files.createTempDirectory("mdviewer-bench-ids"));
+        service = new NotesService(properties, new SimpleMeterRegistry(), new OperationTracer(new DiagnosticsProperties()));
+
+        paths = new Path[SAMPLE];
+        ids = new String[SAMPLE];
+        titles = new String[SAMPLE];
+        for (int i = 0; i < SAMPLE; i++) {
+            String title = SyntheticVault.title(i * 3907, names);
+            String folder = names == SyntheticVault.Names.ASCII ? "projects/2024/q" + (i % 4) : "项目/二〇二四/第" + (i % 4) + "季度";
+            paths[i] = Path.of(folder, title + ".md");
+            ids[i] = service.encodeId(paths[i]);
+            // 用户输入的标题：首尾空白、连续空白和文件名中不允许的字符
+            titles[i] = "  " + title.replace("-", " :  ") + (i % 2 == 0 ? "/草稿?" : " <v2>") + "  ";
+        }
+    }
+
+    @Benchmark
+    public String encodeId() {
+        return service.encodeId(paths[nextIndex()]);
+    }
+
+    @Benchmark
+    public Path decodeId() {
+        return service.decodeId(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public String sanitizeTitle() {
+        return service.sanitizeTitle(titles[nextIndex()], "未命名");
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (SAMPLE - 1);
+        return index;
+    }
+}
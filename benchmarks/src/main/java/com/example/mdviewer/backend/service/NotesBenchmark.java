@@ -0,0 +1,107 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import com.example.mdviewer.backend.config.NotesProperties;
+import com.example.mdviewer.backend.dto.FolderNodeDto;
+import com.example.mdviewer.backend.dto.NoteDetailDto;
+import com.example.mdviewer.backend.dto.NoteSummaryDto;
+import com.example.mdviewer.backend.dto.UpdateNoteRequest;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+import com.example.mdviewer.benchmarks.SyntheticVault;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 笔记存储热点路径：列表、文件树、读取和保存
+ * 默认规模 1k–100k，百万级笔记库用 -p notes=1000000（首次生成需要数分钟）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class NotesBenchmark {
+
+    // 读写操作轮流使用的笔记数
+    private static final int SAMPLE = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int notes;
+
+    @Param({"FLAT", "DEEP"})
+    public SyntheticVault.Layout layout;
+
+    @Param({"ASCII", "CJK"})
+    public SyntheticVault.Names names;
+
+    private NotesService service;
+    private String[] ids;
+    private UpdateNoteRequest[] updates;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        NotesProperties properties = new NotesProperties();
+        properties.setRoot(SyntheticVault.prepare(notes, layout, names));
+        service = new NotesService(properties, new SimpleMeterRegistry(), new OperationTracer(new DiagnosticsProperties()));
+
+        List<Path> files = service.listMarkdownFiles();
+        int count = Math.min(SAMPLE, files.size());
+        ids = new String[count];
+        updates = new UpdateNoteRequest[count];
+        int step = Math.max(1, files.size() / count);
+        for (int i = 0; i < count; i++) {
+            Path file = files.get(i * step);
+            ids[i] = service.noteIdFor(file);
+            // 写回原内容，笔记库在多次运行之间保持不变
+            updates[i] = new UpdateNoteRequest(null, Files.readString(file), null);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<NoteSummaryDto> listNotes() {
+        return service.listNotes();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<FolderNodeDto> loadFolderTree() {
+        return service.loadFolderTree();
+    }
+
+    @Benchmark
+    public NoteDetailDto getNote() {
+        return service.getNote(ids[nextIndex()]);
+    }
+
+    @Benchmark
+    public NoteDetailDto updateNote() {
+        int index = nextIndex();
+        return service.updateNote(ids[index], updates[index]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == ids.length ? 0 : index + 1;
+        return index;
+    }
+}
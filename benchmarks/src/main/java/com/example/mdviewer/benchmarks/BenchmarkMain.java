@@ -0,0 +1,48 @@
+package com.example.mdviewer.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基准测试入口，参数与 JMH 命令行相同
+ * 未指定时默认启用 GC 分析器（gc.alloc.rate.norm 即每次操作的分配字节数），
+ * 结果以 JSON 写入 results/{版本}.json，便于比较不同版本
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams()
+                || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!cli.getResult().hasValue()) {
+            Path result = Path.of("results", version() + ".json");
+            Files.createDirectories(result.getParent());
+            options.resultFormat(ResultFormatType.JSON).result(result.toString());
+            System.out.println("结果将写入 " + result.toAbsolutePath());
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String version() {
+        String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.mdviewer.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+
+/**
+ * 生成基准测试用的合成笔记库
+ * 笔记库按（布局, 命名, 数量）存放在临时目录下，生成完成后写入标记文件，后续运行直接复用；
+ * 目录位置可用 -Dbench.vaults=... 指定
+ *
+ * FLAT：所有笔记位于根目录；DEEP：5 层、每层 8 个子目录，每个叶子目录约 32 篇笔记
+ */
+public final class SyntheticVault {
+
+    public enum Layout { FLAT, DEEP }
+
+    public enum Names { ASCII, CJK }
+
+    private static final String COMPLETE_MARKER = ".complete";
+    private static final int DEPTH = 5;
+    private static final int FANOUT = 8;
+    private static final int NOTES_PER_FOLDER = 32;
+
+    private SyntheticVault() {
+    }
+
+    public static Path prepare(int notes, Layout layout, Names names) throws IOException {
+        Path base = Path.of(System.getProperty("bench.vaults",
+                Path.of(System.getProperty("java.io.tmpdir"), "mdviewer-bench-vaults").toString()));
+        Path root = base.resolve(layout.name().toLowerCase(Locale.ROOT) + "-" + names.name().toLowerCase(Locale.ROOT)
+                + "-" + notes);
+        if (Files.exists(root.resolve(COMPLETE_MARKER))) {
+            return root;
+        }
+        // 上次生成被中断时目录不完整，清空后重新生成
+        deleteRecursively(root);
+        Files.createDirectories(root);
+        int leaves = (int) Math.min((long) Math.pow(FANOUT, DEPTH), Math.max(1, notes / NOTES_PER_FOLDER));
+        long start = System.nanoTime();
+        for (int i = 0; i < notes; i++) {
+            Path folder = layout == Layout.FLAT ? root : root.resolve(folderPath(i % leaves, names));
+            if (layout == Layout.DEEP && i < leaves) {
+                Files.createDirectories(folder);
+            }
+            Files.writeString(folder.resolve(title(i, names) + ".md"), content(i, notes, names), StandardCharsets.UTF_8);
+        }
+        Files.writeString(root.resolve(COMPLETE_MARKER), Integer.toString(notes));
+        System.out.printf("已生成笔记库 %s（%d 篇，%.1f s）%n", root, notes, (System.nanoTime() - start) / 1e9);
+        return root;
+    }
+
+    /**
+     * 笔记标题，也是文件名（不含扩展名）
+     */
+    public static String title(int index, Names names) {
+        return names == Names.ASCII
+                ? String.format(Locale.ROOT, "note-%07d", index)
+                : String.format(Locale.ROOT, "笔记-第%07d篇-读书摘要", index);
+    }
+
+    private static String folderPath(int leaf, Names names) {
+        StringBuilder path = new StringBuilder();
+        int value = leaf;
+        for (int level = 0; level < DEPTH; level++) {
+            if (level > 0) {
+                path.append('/');
+            }
+            path.append(names == Names.ASCII ? "dir-" : "目录-").append(value % FANOUT);
+            value /= FANOUT;
+        }
+        return path.toString();
+    }
+
+    /**
+     * 约 1.5 KB 的笔记内容：标题、段落、列表、代码块和指向其他笔记的链接
+     */
+    private static String content(int index, int notes, Names names) {
+        String title = title(index, names);
+        String linked = title((index * 31 + 7) % notes, names);
+        StringBuilder text = new StringBuilder(2048).append("# ").append(title).append("\n\n");
+        String paragraph = names == Names.ASCII
+                ? "The quick brown fox jumps over the lazy dog while the notes service walks the vault. "
+                : "这是一段用于基准测试的正文，包含中文标点、English words 和数字 12345。";
+        for (int p = 0; p < 3; p++) {
+            for (int s = 0; s < 4; s++) {
+                text.append(paragraph);
+            }
+            text.append("\n\n");
+        }
+        text.append("- 条目一\n- 条目二\n- [相关笔记](").append(linked.replace(" ", "%20")).append(".md)\n\n");
+        text.append("```java\nSystem.out.println(").append(index).append(");\n```\n");
+        return text.toString();
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
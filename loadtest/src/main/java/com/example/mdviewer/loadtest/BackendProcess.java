@@ -0,0 +1,84 @@
+package com.example.mdviewer.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在子进程中启动被测后端（MarkdownBackendApplication 的可执行 JAR），使用随机空闲端口和给定的笔记目录，
+ * 等到 /actuator/health 返回 200 后才开始压测；与压测工具分属不同 JVM，互不影响 GC 和 CPU 统计
+ */
+final class BackendProcess implements AutoCloseable {
+
+    private final Process process;
+    private final URI uri;
+
+    private BackendProcess(Process process, URI uri) {
+        this.process = process;
+        this.uri = uri;
+    }
+
+    static BackendProcess start(Path jar, Path notesRoot, List<String> extraArgs, Path log, Duration timeout)
+            throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>(List.of(java, "-jar", jar.toString(),
+                "--server.port=" + port, "--notes.root=" + notesRoot));
+        command.addAll(extraArgs);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        BackendProcess backend = new BackendProcess(process, URI.create("http://localhost:" + port));
+        try {
+            backend.awaitHealthy(timeout);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            backend.close();
+            throw e;
+        }
+        return backend;
+    }
+
+    URI uri() {
+        return uri;
+    }
+
+    private void awaitHealthy(Duration timeout) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri.resolve("/actuator/health")).timeout(Duration.ofSeconds(5)).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("后端启动失败，退出码 " + process.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 端口尚未监听
+            }
+            Thread.sleep(200);
+        }
+        throw new IOException("后端在 " + timeout.toSeconds() + " 秒内未就绪");
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(20, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mdviewer.loadtest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * 模拟提供商的行为配置：首字节延迟分布、流式输出节奏、错误率与 429 注入
+ */
+final class FakeProviderConfig {
+
+    // 首字节（非流式时即整个响应）之前的延迟
+    Latency latency = Latency.parse("lognormal:300:0.5");
+    // 流式输出时每段之间的间隔
+    Duration chunkDelay = Duration.ofMillis(20);
+    // 每次回复的词数，流式时每段 4 个词
+    int outputTokens = 120;
+    // 返回 500 的比例
+    double errorRate = 0;
+    // 返回 429 的比例
+    double rateLimitRate = 0;
+    // 429 响应的 Retry-After 秒数
+    int retryAfterSeconds = 1;
+    int embeddingDimensions = 256;
+
+    static FakeProviderConfig from(Map<String, String> options) {
+        FakeProviderConfig config = new FakeProviderConfig();
+        if (options.containsKey("latency")) {
+            config.latency = Latency.parse(options.get("latency"));
+        }
+        if (options.containsKey("chunk-delay")) {
+            config.chunkDelay = LoadTestMain.parseDuration(options.get("chunk-delay"));
+        }
+        if (options.containsKey("output-tokens")) {
+            config.outputTokens = Integer.parseInt(options.get("output-tokens"));
+        }
+        if (options.containsKey("error-rate")) {
+            config.errorRate = Double.parseDouble(options.get("error-rate"));
+        }
+        if (options.containsKey("rate-limit-rate")) {
+            config.rateLimitRate = Double.parseDouble(options.get("rate-limit-rate"));
+        }
+        if (options.containsKey("retry-after")) {
+            config.retryAfterSeconds = Integer.parseInt(options.get("retry-after"));
+        }
+        if (options.containsKey("embedding-dims")) {
+            config.embeddingDimensions = Integer.parseInt(options.get("embedding-dims"));
+        }
+        return config;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latency + " chunk-delay=" + chunkDelay.toMillis() + "ms output-tokens=" + outputTokens
+                + " error-rate=" + errorRate + " rate-limit-rate=" + rateLimitRate;
+    }
+
+    /**
+     * 延迟分布（毫秒）
+     * fixed:MS、uniform:MIN:MAX、lognormal:MEDIAN:SIGMA、none
+     */
+    record Latency(String kind, double a, double b) {
+
+        static Latency parse(String spec) {
+            String[] parts = spec.split(":");
+            return switch (parts[0]) {
+                case "none" -> new Latency("none", 0, 0);
+                case "fixed" -> new Latency("fixed", Double.parseDouble(parts[1]), 0);
+                case "uniform" -> new Latency("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal" -> new Latency("lognormal", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default -> throw new IllegalArgumentException("未知的延迟分布: " + spec);
+            };
+        }
+
+        long sampleMillis(RandomGenerator random) {
+            double value = switch (kind) {
+                case "fixed" -> a;
+                case "uniform" -> a + random.nextDouble() * (b - a);
+                // 中位数为 a，对数标准差为 b；sigma 越大长尾越明显
+                case "lognormal" -> a * Math.exp(b * random.nextGaussian());
+                default -> 0;
+            };
+            return Math.max(0, Math.round(value));
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case "fixed" -> "fixed:" + (long) a;
+                case "uniform" -> "uniform:" + (long) a + ":" + (long) b;
+                case "lognormal" -> "lognormal:" + (long) a + ":" + b;
+                default -> kind;
+            };
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.mdviewer.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模拟 AI 提供商
+ * 基于 JDK HttpServer，按 OpenAI 兼容、智谱和 Gemini 的接口格式应答（含流式与 Embedding），
+ * 可配置延迟分布、错误率和 429 注入，用于在不消耗真实额度的情况下压测 AI 链路
+ *
+ * 路径：
+ *   /openai/v1/chat/completions、/openai/v1/embeddings
+ *   /zhipu/api/paas/v4/chat/completions、/zhipu/api/paas/v4/embeddings（要求 JWT 形式的 Bearer Token）
+ *   /gemini/v1beta/models/{model}:generateContent、:streamGenerateContent、:batchEmbedContents（要求 key 参数）
+ */
+final class FakeProviderServer implements AutoCloseable {
+
+    private static final int WORDS_PER_CHUNK = 4;
+
+    private final FakeProviderConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong injectedRateLimits = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong maxInFlight = new AtomicLong();
+
+    FakeProviderServer(FakeProviderConfig config, int port) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    FakeProviderServer start() {
+        server.start();
+        return this;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 指定提供商在本服务上的对话接口地址
+     */
+    String apiUrl(String provider) {
+        String base = "http://127.0.0.1:" + port();
+        return switch (provider) {
+            case "gemini" -> base + "/gemini/v1beta/models/{model}:generateContent";
+            case "zhipu" -> base + "/zhipu/api/paas/v4/chat/completions";
+            default -> base + "/openai/v1/chat/completions";
+        };
+    }
+
+    String stats() {
+        return "requests=" + requests.get() + " streamed=" + streamed.get() + " injected500=" + injectedErrors.get()
+                + " injected429=" + injectedRateLimits.get() + " maxInFlight=" + maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendJson(exchange, 405, "{\"error\":{\"message\":\"method not allowed\"}}");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            Object body = Json.parse(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+
+            if (!authorized(exchange, path)) {
+                sendJson(exchange, 401, "{\"error\":{\"message\":\"invalid api key\"}}");
+                return;
+            }
+            if (injectFault(exchange)) {
+                return;
+            }
+
+            sleep(config.latency.sampleMillis(ThreadLocalRandom.current()));
+            if (path.endsWith("/chat/completions")) {
+                if (Boolean.TRUE.equals(Json.path(body, "stream"))) {
+                    streamChatCompletion(exchange);
+                } else {
+                    sendJson(exchange, 200, chatCompletion(reply()));
+                }
+            } else if (path.endsWith("/embeddings")) {
+                sendJson(exchange, 200, openAiEmbeddings(Json.path(body, "input")));
+            } else if (path.endsWith(":generateContent")) {
+                sendJson(exchange, 200, geminiContent(reply()));
+            } else if (path.endsWith(":streamGenerateContent")) {
+                streamGemini(exchange);
+            } else if (path.endsWith(":batchEmbedContents")) {
+                sendJson(exchange, 200, geminiEmbeddings(Json.path(body, "requests")));
+            } else {
+                sendJson(exchange, 404, "{\"error\":{\"message\":\"not found\"}}");
+            }
+        } catch (IllegalArgumentException e) {
+            sendJson(exchange, 400, "{\"error\":{\"message\":" + Json.quote(e.getMessage()) + "}}");
+        } finally {
+            exchange.close();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private boolean authorized(HttpExchange exchange, String path) {
+        if (path.startsWith("/gemini/")) {
+            String query = exchange.getRequestURI().getRawQuery();
+            return query != null && query.contains("key=");
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ") || authorization.length() <= 7) {
+            return false;
+        }
+        // 智谱使用 header.payload.signature 形式的 JWT
+        return !path.startsWith("/zhipu/") || authorization.substring(7).split("\\.").length == 3;
+    }
+
+    /**
+     * 按配置的比例注入 429 和 500
+     */
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < config.rateLimitRate) {
+            injectedRateLimits.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(config.retryAfterSeconds));
+            sendJson(exchange, 429, "{\"error\":{\"message\":\"rate limit exceeded\",\"type\":\"rate_limit\"}}");
+            return true;
+        }
+        if (roll < config.rateLimitRate + config.errorRate) {
+            injectedErrors.incrementAndGet();
+            sendJson(exchange, 500, "{\"error\":{\"message\":\"injected server error\"}}");
+            return true;
+        }
+        return false;
+    }
+
+    private void streamChatCompletion(HttpExchange exchange) throws IOException {
+        streamed.incrementAndGet();
+        try (OutputStream out = startEventStream(exchange)) {
+            for (String chunk : chunks(reply())) {
+                writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{\"content\":" + Json.quote(chunk) + "}}]}");
+                sleep(config.chunkDelay.toMillis());
+            }
+            writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}");
+            writeEvent(out, "[DONE]");
+        }
+    }
+
+    private void streamGemini(HttpExchange exchange) throws IOException {
+        streamed.incrementAndGet();
+        try (OutputStream out = startEventStream(exchange)) {
+            for (String chunk : chunks(reply())) {
+                writeEvent(out, geminiContent(chunk));
+                sleep(config.chunkDelay.toMillis());
+            }
+        }
+    }
+
+    private OutputStream startEventStream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String chatCompletion(String content) {
+        return "{\"id\":\"fake-" + System.nanoTime() + "\",\"object\":\"chat.completion\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":" + Json.quote(content)
+                + "},\"finish_reason\":\"stop\"}]}";
+    }
+
+    private static String geminiContent(String text) {
+        return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":" + Json.quote(text) + "}]}}]}";
+    }
+
+    private String openAiEmbeddings(Object input) {
+        List<?> texts = input instanceof List<?> list ? list : List.of(String.valueOf(input));
+        StringBuilder json = new StringBuilder("{\"object\":\"list\",\"data\":[");
+        for (int i = 0; i < texts.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"index\":").append(i).append(",\"embedding\":");
+            appendVector(json, String.valueOf(texts.get(i)));
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String geminiEmbeddings(Object requests) {
+        List<?> list = requests instanceof List<?> items ? items : List.of();
+        StringBuilder json = new StringBuilder("{\"embeddings\":[");
+        for (int i = 0; i < list.size(); i++) {
+            json.append(i == 0 ? "" : ",").append("{\"values\":");
+            appendVector(json, String.valueOf(Json.path(list.get(i), "content", "parts", 0, "text")));
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * 由文本哈希生成确定的向量，相同文本得到相同结果
+     */
+    private void appendVector(StringBuilder json, String text) {
+        Random random = new Random(text.hashCode());
+        json.append('[');
+        for (int d = 0; d < config.embeddingDimensions; d++) {
+            json.append(d == 0 ? "" : ",").append((float) random.nextGaussian());
+        }
+        json.append(']');
+    }
+
+    private String reply() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < config.outputTokens; i++) {
+            text.append(i == 0 ? "" : " ").append("token").append(i);
+        }
+        return text.toString();
+    }
+
+    private static List<String> chunks(String text) {
+        String[] words = text.split(" ");
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < words.length; i += WORDS_PER_CHUNK) {
+            String chunk = String.join(" ", Arrays.copyOfRange(words, i, Math.min(words.length, i + WORDS_PER_CHUNK)));
+            chunks.add(i == 0 ? chunk : " " + chunk);
+        }
+        return chunks;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.mdviewer.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 延迟记录（纳秒），单线程写入；各压测线程各持一个，结束后合并计算分位数
+ */
+final class LatencyRecorder {
+
+    private long[] values = new long[1024];
+    private int count;
+
+    void record(long nanos) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = nanos;
+    }
+
+    int count() {
+        return count;
+    }
+
+    static LatencyRecorder merge(Iterable<LatencyRecorder> recorders) {
+        LatencyRecorder merged = new LatencyRecorder();
+        for (LatencyRecorder recorder : recorders) {
+            for (int i = 0; i < recorder.count; i++) {
+                merged.record(recorder.values[i]);
+            }
+        }
+        Arrays.sort(merged.values, 0, merged.count);
+        return merged;
+    }
+
+    /**
+     * 分位数（毫秒），需先经过 merge 排序
+     */
+    double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return values[Math.clamp(index, 0, count - 1)] / 1_000_000.0;
+    }
+
+    double meanMillis() {
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return sum / count / 1_000_000.0;
+    }
+
+    String summary() {
+        return String.format("p50=%.1f p90=%.1f p99=%.1f max=%.1f mean=%.1f",
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100), meanMillis());
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.mdviewer.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对后端 AI 接口施加并发负载
+ * 每个虚拟线程循环发送请求，预热期之后的结果计入延迟分位数；
+ * 提示词逐次不同，避免命中响应缓存而测不到提供商链路
+ *
+ * 场景：complete、translate、chat（非流式），stream（SSE，额外统计首个 token 的时间），
+ * inline（流式内联补全），session（每个线程一个服务端会话），mixed（轮流执行 chat、stream、translate）
+ */
+final class LoadHarness {
+
+    static final List<String> SCENARIOS = List.of("complete", "translate", "chat", "stream", "inline", "session", "mixed");
+    private static final List<String> MIXED = List.of("chat", "stream", "translate");
+
+    record Options(URI target, String scenario, int concurrency, Duration duration, Duration warmup, int promptChars) {
+    }
+
+    record Report(Options options, long ok, long failed, Map<String, Long> errors,
+                  LatencyRecorder latency, LatencyRecorder firstToken, double elapsedSeconds) {
+
+        void print(String providerStats) {
+            System.out.printf("场景 %s  并发 %d  时长 %ds（预热 %ds）%n", options.scenario(), options.concurrency(),
+                    options.duration().toSeconds(), options.warmup().toSeconds());
+            System.out.printf("请求 %d  成功 %d  失败 %d  吞吐 %.1f req/s%n",
+                    ok + failed, ok, failed, (ok + failed) / elapsedSeconds);
+            System.out.println("延迟(ms)  " + latency.summary());
+            if (firstToken.count() > 0) {
+                System.out.println("首个 token(ms)  " + firstToken.summary());
+            }
+            if (!errors.isEmpty()) {
+                System.out.println("失败原因:");
+                errors.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                        .limit(10)
+                        .forEach(e -> System.out.printf("  %6d  %s%n", e.getValue(), e.getKey()));
+            }
+            if (providerStats != null) {
+                System.out.println("模拟提供商  " + providerStats);
+            }
+        }
+    }
+
+    private record Outcome(boolean ok, String error, long firstTokenNanos) {
+
+        static Outcome success(long firstTokenNanos) {
+            return new Outcome(true, null, firstTokenNanos);
+        }
+
+        static Outcome failure(String error) {
+            return new Outcome(false, error, -1);
+        }
+    }
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    LoadHarness(Options options) {
+        if (!SCENARIOS.contains(options.scenario())) {
+            throw new IllegalArgumentException("未知的场景: " + options.scenario() + "，可选 " + SCENARIOS);
+        }
+        this.options = options;
+    }
+
+    /**
+     * 将后端的 AI 配置指向给定提供商地址
+     * 配置会写入后端笔记根目录下的配置文件，原有的 API Key 和备用提供商无法恢复，
+     * 只应用于压测工具自己启动的后端或显式确认改写的目标。
+     * 同时清空备用提供商，避免对冲到后端已配置的真实提供商
+     */
+    void configureBackend(String provider, String apiUrl) throws IOException, InterruptedException {
+        String apiKey = "zhipu".equals(provider) ? "fakeid.fakesecret" : "fake-key";
+        String model = "gemini".equals(provider) ? "fake-gemini" : "fake-model";
+        String body = "{\"provider\":" + Json.quote(provider) + ",\"apiKey\":" + Json.quote(apiKey)
+                + ",\"apiUrl\":" + Json.quote(apiUrl) + ",\"model\":" + Json.quote(model) + ",\"fallbacks\":[]}";
+        HttpResponse<String> response = client.send(post("/api/ai/config", body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("配置后端失败: HTTP " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    Report run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        List<LatencyRecorder> latencies = new ArrayList<>();
+        List<LatencyRecorder> firstTokens = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                LatencyRecorder latency = new LatencyRecorder();
+                LatencyRecorder firstToken = new LatencyRecorder();
+                latencies.add(latency);
+                firstTokens.add(firstToken);
+                int worker = i;
+                workers.execute(() -> work(worker, measureFrom, end, latency, firstToken));
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(options.duration().plus(options.warmup()).toSeconds() + 120, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        }
+        // 只统计在测量窗口内开始并结束的请求，吞吐按窗口长度计算
+        double elapsed = options.duration().toNanos() / 1e9;
+
+        Map<String, Long> errorCounts = new ConcurrentHashMap<>();
+        errors.forEach((reason, count) -> errorCounts.put(reason, count.sum()));
+        return new Report(options, ok.sum(), failed.sum(), errorCounts,
+                LatencyRecorder.merge(latencies), LatencyRecorder.merge(firstTokens), elapsed);
+    }
+
+    private void work(int worker, long measureFrom, long end, LatencyRecorder latency, LatencyRecorder firstToken) {
+        String sessionId = null;
+        long sequence = 0;
+        while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+            String scenario = "mixed".equals(options.scenario())
+                    ? MIXED.get((int) (sequence % MIXED.size()))
+                    : options.scenario();
+            String prompt = prompt(worker, sequence++);
+            long begin = System.nanoTime();
+            Outcome outcome;
+            try {
+                if ("session".equals(scenario) && sessionId == null) {
+                    sessionId = createSession();
+                    begin = System.nanoTime();
+                }
+                outcome = execute(scenario, prompt, sessionId, begin);
+            } catch (IOException e) {
+                outcome = Outcome.failure(e.getClass().getSimpleName());
+            } catch (IllegalArgumentException e) {
+                outcome = Outcome.failure("响应无法解析");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            if (begin < measureFrom || finished > end) {
+                continue;
+            }
+            latency.record(finished - begin);
+            if (outcome.ok()) {
+                ok.increment();
+                if (outcome.firstTokenNanos() >= 0) {
+                    firstToken.record(outcome.firstTokenNanos());
+                }
+            } else {
+                failed.increment();
+                errors.computeIfAbsent(outcome.error(), k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private Outcome execute(String scenario, String prompt, String sessionId, long begin)
+            throws IOException, InterruptedException {
+        return switch (scenario) {
+            case "complete" -> postJson("/api/ai/complete", requestBody(prompt, null));
+            case "translate" -> postJson("/api/ai/translate", requestBody(prompt, "en"));
+            case "chat" -> postJson("/api/ai/chat", requestBody(prompt, null));
+            case "session" -> postJson("/api/ai/sessions/" + sessionId + "/messages", requestBody(prompt, null));
+            case "stream" -> postStream("/api/ai/stream/chat", requestBody(prompt, null), begin);
+            case "inline" -> postStream("/api/ai/inline/stream",
+                    "{\"prefix\":" + Json.quote(prompt) + ",\"suffix\":\"\"}", begin);
+            default -> throw new IllegalStateException(scenario);
+        };
+    }
+
+    private String createSession() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(post("/api/ai/sessions", "{}"), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("创建会话失败: HTTP " + response.statusCode());
+        }
+        return String.valueOf(Json.path(Json.parse(response.body()), "id"));
+    }
+
+    /**
+     * 非流式接口：HTTP 200 之外以及 success=false（如排队已满、提供商报错）均计为失败
+     */
+    private Outcome postJson(String path, String body) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(post(path, body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return Outcome.failure("HTTP " + response.statusCode());
+        }
+        Object json = Json.parse(response.body());
+        if (Boolean.TRUE.equals(Json.path(json, "success"))) {
+            return Outcome.success(-1);
+        }
+        return Outcome.failure(reason(Json.path(json, "error")));
+    }
+
+    /**
+     * SSE 接口：读到第一个 token 事件时记录首 token 时间，以 done 或 error 事件结束
+     */
+    private Outcome postStream(String path, String body, long begin) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(post(path, body), HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            if (response.statusCode() != 200) {
+                return Outcome.failure("HTTP " + response.statusCode());
+            }
+            long firstToken = -1;
+            String event = "message";
+            StringBuilder data = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    data.append(data.isEmpty() ? "" : "\n").append(line.substring(5));
+                } else if (line.isEmpty()) {
+                    if ("token".equals(event) && firstToken < 0) {
+                        firstToken = System.nanoTime() - begin;
+                    } else if ("done".equals(event)) {
+                        return Outcome.success(firstToken);
+                    } else if ("error".equals(event)) {
+                        return Outcome.failure(reason(Json.path(Json.parse(data.toString()), "error")));
+                    }
+                    event = "message";
+                    data.setLength(0);
+                }
+            }
+            return Outcome.failure("SSE 未收到 done 事件");
+        }
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(options.target().resolve(path))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String requestBody(String text, String targetLang) {
+        return "{\"text\":" + Json.quote(text) + (targetLang != null ? ",\"targetLang\":" + Json.quote(targetLang) : "") + "}";
+    }
+
+    /**
+     * 生成唯一的提示词，长度约为 promptChars
+     */
+    private String prompt(int worker, long sequence) {
+        StringBuilder text = new StringBuilder("压测请求 ").append(worker).append('-').append(sequence).append(' ')
+                .append(System.nanoTime()).append('\n');
+        while (text.length() < options.promptChars()) {
+            text.append("The quick brown fox jumps over the lazy dog. ");
+        }
+        return text.toString();
+    }
+
+    /**
+     * 错误信息归类：去掉数字以合并同类原因，并截断过长的内容
+     */
+    private static String reason(Object error) {
+        String message = error == null ? "未知错误" : String.valueOf(error).replaceAll("\\d+", "N");
+        return message.length() > 80 ? message.substring(0, 80) + "…" : message;
+    }
+}
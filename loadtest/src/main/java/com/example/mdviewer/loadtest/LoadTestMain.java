@@ -0,0 +1,269 @@
+package com.example.mdviewer.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测入口
+ *
+ *   fake-provider [--port=9090] [模拟提供商参数]
+ *       单独运行模拟提供商，直到进程结束
+ *   run [--backend-jar=target/markdown-viewer-1.2.0.jar] [--provider=openai] [--scenario=chat] [--concurrency=16]
+ *       [--duration=30s] [--warmup=5s] [--prompt-chars=200] [--backend-args="..."]
+ *       [--target=URL [--no-fake | --overwrite-config]] [模拟提供商参数]
+ *       在本进程内启动模拟提供商，在随机端口以临时笔记目录启动后端并把其 AI 配置指向模拟提供商后施加负载；
+ *       指定 --target 时压测已运行的后端：--no-fake 不改动其配置，直接压测当前配置的提供商；
+ *       --overwrite-config 才会把其配置改为模拟提供商（API Key 与备用提供商无法恢复，须自行重新配置）
+ *   notes [--backend-jar=target/markdown-viewer-1.2.0.jar] [--notes=2000] [--seed=42] [--mix=...]
+ *       [--concurrency=64] [--duration=60s] [--warmup=10s] [--vault=目录] [--keep-vault] [--report=文件]
+ *       [--backend-args="..."] [--target=URL [--allow-writes]]
+ *       生成笔记库并在随机端口启动后端，压测笔记与文件夹接口；指定 --target 时直接压测已运行的后端，
+ *       配比包含 update、create、delete 时须加 --allow-writes（update 覆盖的笔记内容不会恢复）
+ *
+ * 模拟提供商参数：--latency=lognormal:300:0.5 --chunk-delay=20ms --output-tokens=120
+ *   --error-rate=0 --rate-limit-rate=0 --retry-after=1 --embedding-dims=256
+ */
+public final class LoadTestMain {
+
+    private LoadTestMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            usage();
+            return;
+        }
+        Map<String, String> options = parseOptions(args);
+        switch (args[0]) {
+            case "fake-provider" -> runFakeProvider(options);
+            case "run" -> runLoad(options);
+            case "notes" -> runNotesLoad(options);
+            default -> usage();
+        }
+    }
+
+    private static void runFakeProvider(Map<String, String> options) throws Exception {
+        FakeProviderConfig config = FakeProviderConfig.from(options);
+        FakeProviderServer server = new FakeProviderServer(config, Integer.parseInt(options.getOrDefault("port", "9090")))
+                .start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(server.stats())));
+        System.out.println("模拟提供商已启动: " + config);
+        for (String provider : new String[] {"openai", "zhipu", "gemini"}) {
+            System.out.printf("  %-7s %s%n", provider, server.apiUrl(provider));
+        }
+        Thread.currentThread().join();
+    }
+
+    private static void runLoad(Map<String, String> options) throws Exception {
+        if (options.containsKey("target")) {
+            URI target = URI.create(options.get("target"));
+            if (options.containsKey("no-fake")) {
+                harness(options, target).run().print(null);
+                return;
+            }
+            // 已运行的后端可能配置了真实的提供商和 API Key，改写后无法从接口读回，必须显式确认
+            if (!options.containsKey("overwrite-config")) {
+                throw new IllegalArgumentException("--target 会改写该后端的 AI 配置且无法恢复 API Key，"
+                        + "请加 --no-fake 压测其现有配置，或加 --overwrite-config 确认改写");
+            }
+            System.out.println("警告: 将改写 " + target + " 的 AI 配置，压测结束后需重新配置提供商和 API Key");
+            runAgainstFakeProvider(options, target);
+            return;
+        }
+        if (options.containsKey("no-fake")) {
+            throw new IllegalArgumentException("--no-fake 需要配合 --target 压测已配置好提供商的后端");
+        }
+        // 未指定 --target 时只改写自己启动的后端，配置写在临时笔记目录中，结束后一并删除
+        Path vault = Files.createTempDirectory("mdviewer-loadtest-");
+        try {
+            Path notesRoot = Files.createDirectories(vault.resolve("notes"));
+            Path log = vault.resolve("backend.log");
+            try (BackendProcess backend = startBackend(options, notesRoot, log)) {
+                System.out.println("后端已启动: " + backend.uri() + "（日志 " + log + "）");
+                runAgainstFakeProvider(options, backend.uri());
+            }
+        } finally {
+            deleteRecursively(vault);
+        }
+    }
+
+    private static void runAgainstFakeProvider(Map<String, String> options, URI target) throws Exception {
+        LoadHarness harness = harness(options, target);
+        String provider = options.getOrDefault("provider", "openai");
+        FakeProviderConfig config = FakeProviderConfig.from(options);
+        try (FakeProviderServer server = new FakeProviderServer(config, Integer.parseInt(options.getOrDefault("fake-port", "0")))
+                .start()) {
+            System.out.println("模拟提供商: " + server.apiUrl(provider) + "  " + config);
+            harness.configureBackend(provider, server.apiUrl(provider));
+            harness.run().print(server.stats());
+        }
+    }
+
+    private static LoadHarness harness(Map<String, String> options, URI target) {
+        return new LoadHarness(new LoadHarness.Options(
+                target,
+                options.getOrDefault("scenario", "chat"),
+                Integer.parseInt(options.getOrDefault("concurrency", "16")),
+                parseDuration(options.getOrDefault("duration", "30s")),
+                parseDuration(options.getOrDefault("warmup", "5s")),
+                Integer.parseInt(options.getOrDefault("prompt-chars", "200"))));
+    }
+
+    /**
+     * 以给定笔记目录在随机端口启动后端 JAR
+     */
+    private static BackendProcess startBackend(Map<String, String> options, Path notesRoot, Path log)
+            throws IOException, InterruptedException {
+        Path jar = Path.of(options.getOrDefault("backend-jar", "target/markdown-viewer-1.2.0.jar"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("找不到后端 JAR: " + jar + "，请先执行 mvn package 或用 --backend-jar 指定");
+        }
+        List<String> backendArgs = options.containsKey("backend-args")
+                ? Arrays.asList(options.get("backend-args").trim().split("\\s+"))
+                : List.of();
+        return BackendProcess.start(jar, notesRoot, backendArgs, log, Duration.ofSeconds(90));
+    }
+
+    private static void runNotesLoad(Map<String, String> options) throws Exception {
+        Map<String, Integer> mix = NotesLoadHarness.parseMix(options.getOrDefault("mix", NotesLoadHarness.DEFAULT_MIX));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration duration = parseDuration(options.getOrDefault("duration", "60s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        NotesLoadHarness.Report report;
+        if (options.containsKey("target")) {
+            URI target = URI.create(options.get("target"));
+            // update 会用压测内容覆盖目标后端的已有笔记，必须显式确认
+            if (NotesLoadHarness.writes(mix) && !options.containsKey("allow-writes")) {
+                throw new IllegalArgumentException("配比包含 " + NotesLoadHarness.WRITES + "，会改写 " + target
+                        + " 的笔记且不会恢复；请改用只读配比（如 --mix=list:10,tree:5,get:85），或加 --allow-writes 确认");
+            }
+            report = new NotesLoadHarness(new NotesLoadHarness.Options(target, mix, concurrency, duration, warmup, seed)).run();
+        } else {
+            Path vault = options.containsKey("vault")
+                    ? Path.of(options.get("vault"))
+                    : Files.createTempDirectory("mdviewer-loadtest-");
+            Path notesRoot = vault.resolve("notes");
+            try {
+                int notes = Integer.parseInt(options.getOrDefault("notes", "2000"));
+                long started = System.nanoTime();
+                long bytes = new VaultGenerator(seed).generate(notesRoot, notes);
+                System.out.printf("已生成笔记库 %s：%d 篇，%.1f MB，用时 %.1f s%n", notesRoot, notes, bytes / 1048576.0,
+                        (System.nanoTime() - started) / 1e9);
+                Path log = vault.resolve("backend.log");
+                try (BackendProcess backend = startBackend(options, notesRoot, log)) {
+                    System.out.println("后端已启动: " + backend.uri() + "（日志 " + log + "）");
+                    report = new NotesLoadHarness(
+                            new NotesLoadHarness.Options(backend.uri(), mix, concurrency, duration, warmup, seed)).run();
+                }
+            } finally {
+                if (!options.containsKey("keep-vault") && !options.containsKey("vault")) {
+                    deleteRecursively(vault);
+                }
+            }
+        }
+        report.print();
+        if (options.containsKey("report")) {
+            String label = options.getOrDefault("label", "1.2.0");
+            Files.writeString(Path.of(options.get("report")), report.toJson(label) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 解析 --key=value 形式的参数，只有 --key 时值为 "true"
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 解析 500ms、30s、2m 形式的时长，纯数字按秒处理
+     */
+    static Duration parseDuration(String value) {
+        String text = value.trim();
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(text));
+    }
+
+    private static void usage() {
+        System.out.println("""
+                用法:
+                  java -jar markdown-viewer-loadtest.jar fake-provider [--port=9090] [模拟提供商参数]
+                  java -jar markdown-viewer-loadtest.jar run [--backend-jar=target/markdown-viewer-1.2.0.jar]
+                      [--provider=openai|zhipu|gemini] [--scenario=complete|translate|chat|stream|inline|session|mixed]
+                      [--concurrency=16] [--duration=30s] [--warmup=5s] [--prompt-chars=200] [--fake-port=0]
+                      [--backend-args="--ai.limits.requests-per-minute=100000"]
+                      [--target=http://localhost:8080 --no-fake|--overwrite-config] [模拟提供商参数]
+                      未指定 --target 时在临时笔记目录启动后端；--overwrite-config 会改写目标后端的 AI 配置且无法恢复 API Key
+                  java -jar markdown-viewer-loadtest.jar notes [--backend-jar=target/markdown-viewer-1.2.0.jar]
+                      [--notes=2000] [--seed=42] [--mix=list:10,tree:5,get:55,update:20,create:5,delete:5]
+                      [--concurrency=64] [--duration=60s] [--warmup=10s] [--vault=目录] [--keep-vault]
+                      [--backend-args="--ai.embedding.enabled=false"] [--report=results.jsonl --label=1.2.0]
+                      [--target=http://localhost:8080 [--allow-writes]]
+                      --target 的配比包含 update、create、delete 时须加 --allow-writes，被 update 覆盖的笔记不会恢复
+
+                模拟提供商参数:
+                  --latency=lognormal:300:0.5   首字节延迟，支持 none、fixed:MS、uniform:MIN:MAX、lognormal:MEDIAN:SIGMA
+                  --chunk-delay=20ms            流式输出每段间隔
+                  --output-tokens=120           每次回复的词数
+                  --error-rate=0                返回 500 的比例
+                  --rate-limit-rate=0           返回 429 的比例
+                  --retry-after=1               429 的 Retry-After 秒数
+                  --embedding-dims=256          Embedding 维度
+                """);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.mdviewer.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对笔记接口施加并发负载
+ * 每个虚拟线程按配比随机选择操作；读取和更新从启动时已有的笔记中随机挑选，
+ * 删除只针对本线程创建的笔记（没有时改为创建），结束时删除本线程创建且仍存在的笔记，笔记库规模大致保持不变；
+ * update 会改写已有笔记的内容，不会恢复
+ *
+ * 操作：list（GET /api/notes）、tree（GET /api/folders）、get、update、create、delete
+ */
+final class NotesLoadHarness {
+
+    static final List<String> OPERATIONS = List.of("list", "tree", "get", "update", "create", "delete");
+    static final String DEFAULT_MIX = "list:10,tree:5,get:55,update:20,create:5,delete:5";
+    static final List<String> WRITES = List.of("update", "create", "delete");
+
+    record Options(URI target, Map<String, Integer> mix, int concurrency, Duration duration, Duration warmup, long seed) {
+    }
+
+    record OperationStats(String operation, long ok, long failed, LatencyRecorder latency) {
+
+        long requests() {
+            return ok + failed;
+        }
+
+        double errorRate() {
+            return requests() == 0 ? 0 : (double) failed / requests();
+        }
+    }
+
+    record Report(Options options, List<OperationStats> operations, Map<String, Long> errors, double elapsedSeconds) {
+
+        long requests() {
+            return operations.stream().mapToLong(OperationStats::requests).sum();
+        }
+
+        long failed() {
+            return operations.stream().mapToLong(OperationStats::failed).sum();
+        }
+
+        void print() {
+            System.out.printf("笔记接口  并发 %d  时长 %ds（预热 %ds）  配比 %s%n", options.concurrency(),
+                    options.duration().toSeconds(), options.warmup().toSeconds(), options.mix());
+            System.out.printf("%-8s %9s %9s %10s %8s %8s %8s %8s%n",
+                    "操作", "请求", "错误率", "吞吐/s", "p50", "p90", "p99", "max(ms)");
+            for (OperationStats stats : operations) {
+                if (stats.requests() == 0) {
+                    continue;
+                }
+                LatencyRecorder latency = stats.latency();
+                System.out.printf("%-8s %9d %8.2f%% %10.1f %8.1f %8.1f %8.1f %8.1f%n", stats.operation(), stats.requests(),
+                        stats.errorRate() * 100, stats.requests() / elapsedSeconds, latency.percentileMillis(50),
+                        latency.percentileMillis(90), latency.percentileMillis(99), latency.percentileMillis(100));
+            }
+            System.out.printf("合计     %9d %8.2f%% %10.1f%n", requests(),
+                    requests() == 0 ? 0.0 : 100.0 * failed() / requests(), requests() / elapsedSeconds);
+            if (!errors.isEmpty()) {
+                System.out.println("失败原因:");
+                errors.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                        .limit(10)
+                        .forEach(e -> System.out.printf("  %6d  %s%n", e.getValue(), e.getKey()));
+            }
+        }
+
+        /**
+         * 单行 JSON，便于按版本追加保存、比较容量
+         */
+        String toJson(String label) {
+            StringBuilder json = new StringBuilder("{\"label\":").append(Json.quote(label))
+                    .append(",\"concurrency\":").append(options.concurrency())
+                    .append(",\"durationSeconds\":").append(options.duration().toSeconds())
+                    .append(",\"throughput\":").append(format(requests() / elapsedSeconds))
+                    .append(",\"errorRate\":").append(format(requests() == 0 ? 0 : (double) failed() / requests()))
+                    .append(",\"operations\":{");
+            boolean first = true;
+            for (OperationStats stats : operations) {
+                if (stats.requests() == 0) {
+                    continue;
+                }
+                LatencyRecorder latency = stats.latency();
+                json.append(first ? "" : ",").append(Json.quote(stats.operation()))
+                        .append(":{\"requests\":").append(stats.requests())
+                        .append(",\"throughput\":").append(format(stats.requests() / elapsedSeconds))
+                        .append(",\"errorRate\":").append(format(stats.errorRate()))
+                        .append(",\"p50\":").append(format(latency.percentileMillis(50)))
+                        .append(",\"p90\":").append(format(latency.percentileMillis(90)))
+                        .append(",\"p99\":").append(format(latency.percentileMillis(99)))
+                        .append('}');
+                first = false;
+            }
+            return json.append("}}").toString();
+        }
+
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.4f", value);
+        }
+    }
+
+    private final Options options;
+    private final int[] cumulativeWeights;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final LongAdder[] ok = new LongAdder[OPERATIONS.size()];
+    private final LongAdder[] failed = new LongAdder[OPERATIONS.size()];
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private List<String> noteIds = List.of();
+
+    NotesLoadHarness(Options options) {
+        this.options = options;
+        this.cumulativeWeights = new int[OPERATIONS.size()];
+        int total = 0;
+        for (int i = 0; i < OPERATIONS.size(); i++) {
+            total += options.mix().getOrDefault(OPERATIONS.get(i), 0);
+            cumulativeWeights[i] = total;
+            ok[i] = new LongAdder();
+            failed[i] = new LongAdder();
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("操作配比不能全为 0");
+        }
+    }
+
+    /**
+     * 解析 list:10,get:60 形式的配比，未列出的操作权重为 0
+     */
+    static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2 || !OPERATIONS.contains(pair[0])) {
+                throw new IllegalArgumentException("无法识别的操作配比: " + part + "，可选操作 " + OPERATIONS);
+            }
+            mix.put(pair[0], Integer.parseInt(pair[1]));
+        }
+        return mix;
+    }
+
+    Report run() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get("/api/notes"), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("读取笔记列表失败: HTTP " + response.statusCode());
+        }
+        List<String> ids = new ArrayList<>();
+        if (Json.parse(response.body()) instanceof List<?> notes) {
+            for (Object note : notes) {
+                ids.add(String.valueOf(Json.path(note, "id")));
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IOException("笔记库为空，无法压测读取与更新");
+        }
+        noteIds = List.copyOf(ids);
+
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        List<LatencyRecorder[]> latencies = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                LatencyRecorder[] latency = new LatencyRecorder[OPERATIONS.size()];
+                for (int op = 0; op < latency.length; op++) {
+                    latency[op] = new LatencyRecorder();
+                }
+                latencies.add(latency);
+                Random random = new Random(options.seed() + i);
+                int worker = i;
+                workers.execute(() -> work(worker, random, measureFrom, end, latency));
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(options.duration().plus(options.warmup()).toSeconds() + 120, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        }
+
+        List<OperationStats> operations = new ArrayList<>();
+        for (int op = 0; op < OPERATIONS.size(); op++) {
+            int index = op;
+            LatencyRecorder merged = LatencyRecorder.merge(latencies.stream().map(l -> l[index]).toList());
+            operations.add(new OperationStats(OPERATIONS.get(op), ok[op].sum(), failed[op].sum(), merged));
+        }
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((reason, count) -> errorCounts.put(reason, count.sum()));
+        return new Report(options, operations, errorCounts, options.duration().toNanos() / 1e9);
+    }
+
+    /**
+     * 配比中是否包含会改写笔记库的操作
+     */
+    static boolean writes(Map<String, Integer> mix) {
+        return WRITES.stream().anyMatch(operation -> mix.getOrDefault(operation, 0) > 0);
+    }
+
+    private void work(int worker, Random random, long measureFrom, long end, LatencyRecorder[] latency) {
+        List<String> created = new ArrayList<>();
+        try {
+            load(worker, random, measureFrom, end, latency, created);
+        } finally {
+            cleanUp(created);
+        }
+    }
+
+    private void load(int worker, Random random, long measureFrom, long end, LatencyRecorder[] latency, List<String> created) {
+        long sequence = 0;
+        while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+            int op = pickOperation(random);
+            if (OPERATIONS.get(op).equals("delete") && created.isEmpty()) {
+                op = OPERATIONS.indexOf("create");
+            }
+            String operation = OPERATIONS.get(op);
+            long begin = System.nanoTime();
+            String error;
+            try {
+                error = execute(operation, worker, sequence++, random, created);
+            } catch (IOException e) {
+                error = e.getClass().getSimpleName();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            if (begin < measureFrom || finished > end) {
+                continue;
+            }
+            latency[op].record(finished - begin);
+            if (error == null) {
+                ok[op].increment();
+            } else {
+                failed[op].increment();
+                errors.computeIfAbsent(operation + " " + error, k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * 删除本线程创建后尚未删除的笔记，不计入统计
+     */
+    private void cleanUp(List<String> created) {
+        // 被中断时也要清理，先清除中断标记，否则请求会立即失败
+        boolean interrupted = Thread.interrupted();
+        for (String id : created) {
+            try {
+                HttpResponse<Void> response = client.send(send("DELETE", "/api/notes/" + id, null),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+                    System.err.println("清理压测笔记失败: " + id + " HTTP " + response.statusCode());
+                }
+            } catch (IOException | InterruptedException e) {
+                System.err.println("清理压测笔记失败: " + id + " " + e.getClass().getSimpleName());
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int pickOperation(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    /**
+     * 执行一次操作，成功返回 null，否则返回失败原因
+     */
+    private String execute(String operation, int worker, long sequence, Random random, List<String> created)
+            throws IOException, InterruptedException {
+        String id = noteIds.get(random.nextInt(noteIds.size()));
+        HttpRequest request = switch (operation) {
+            case "list" -> get("/api/notes");
+            case "tree" -> get("/api/folders");
+            case "get" -> get("/api/notes/" + id);
+            case "update" -> send("PUT", "/api/notes/" + id, "{\"content\":" + Json.quote(content(worker, sequence)) + "}");
+            case "create" -> send("POST", "/api/notes", "{\"title\":" + Json.quote("压测 " + worker + "-" + sequence) + "}");
+            case "delete" -> send("DELETE", "/api/notes/" + created.getLast(), null);
+            default -> throw new IllegalStateException(operation);
+        };
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            return "HTTP " + response.statusCode();
+        }
+        if (operation.equals("create")) {
+            created.add(String.valueOf(Json.path(Json.parse(response.body()), "id")));
+        } else if (operation.equals("delete")) {
+            created.removeLast();
+        }
+        return null;
+    }
+
+    private static String content(int worker, long sequence) {
+        StringBuilder text = new StringBuilder("# 压测更新 ").append(worker).append('-').append(sequence).append("\n\n");
+        while (text.length() < 1500) {
+            text.append("Load test paragraph with 中文内容 and some English words. ");
+        }
+        return text.append('\n').toString();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(options.target().resolve(path)).timeout(Duration.ofMinutes(1)).GET().build();
+    }
+
+    private HttpRequest send(String method, String path, String body) {
+        return HttpRequest.newBuilder(options.target().resolve(path))
+                .timeout(Duration.ofMinutes(1))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
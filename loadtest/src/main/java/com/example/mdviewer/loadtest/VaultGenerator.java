@@ -0,0 +1,108 @@
+package com.example.mdviewer.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 生成接近真实使用情况的笔记库
+ * 文件夹深度 0–4 层，中英文名称混合；笔记大小按对数正态分布（中位数约 1.5 KB，少量几十 KB 的长文），
+ * 内容包含标题、列表、代码块、表格和笔记间链接。相同的种子生成相同的笔记库
+ */
+final class VaultGenerator {
+
+    private static final String[] FOLDER_WORDS = {
+        "projects", "journal", "archive", "reading", "research", "inbox", "work", "2024",
+        "读书笔记", "工作", "日记", "项目", "学习资料", "会议纪要", "灵感", "旅行"
+    };
+    private static final String[] TITLE_WORDS = {
+        "design", "notes", "weekly", "review", "plan", "draft", "ideas", "todo", "meeting", "summary",
+        "周报", "设计", "方案", "总结", "草稿", "复盘", "计划", "笔记", "待办", "想法"
+    };
+    private static final String[] SENTENCES = {
+        "The quick brown fox jumps over the lazy dog. ",
+        "Markdown notes are plain text files that stay readable everywhere. ",
+        "今天整理了上周的会议记录，补充了几条待办事项。",
+        "这个方案的关键在于把读写路径分开，减少锁竞争。",
+        "See the appendix for benchmark numbers and raw data. ",
+        "中文和 English 混排的段落，也会出现数字 2024 和符号。"
+    };
+
+    private final Random random;
+
+    VaultGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 在 root 下生成 notes 篇笔记，返回生成的字节数
+     */
+    long generate(Path root, int notes) throws IOException {
+        Files.createDirectories(root);
+        List<Path> folders = new ArrayList<>();
+        folders.add(root);
+        int folderCount = Math.max(1, notes / 25);
+        for (int i = 0; i < folderCount; i++) {
+            // 新文件夹挂在已有文件夹下，浅层文件夹更多
+            Path parent = folders.get(random.nextInt(folders.size()));
+            if (root.relativize(parent).getNameCount() >= 4) {
+                parent = root;
+            }
+            Path folder = parent.resolve(pick(FOLDER_WORDS) + "-" + i);
+            Files.createDirectories(folder);
+            folders.add(folder);
+        }
+
+        List<String> titles = new ArrayList<>(notes);
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < notes; i++) {
+            String title;
+            do {
+                title = pick(TITLE_WORDS) + " " + pick(TITLE_WORDS) + " " + random.nextInt(100_000);
+            } while (!used.add(title));
+            titles.add(title);
+        }
+
+        long bytes = 0;
+        for (int i = 0; i < notes; i++) {
+            Path folder = folders.get(random.nextInt(folders.size()));
+            byte[] content = content(titles.get(i), titles).getBytes(StandardCharsets.UTF_8);
+            Files.write(folder.resolve(titles.get(i) + ".md"), content);
+            bytes += content.length;
+        }
+        return bytes;
+    }
+
+    private String content(String title, List<String> titles) {
+        int target = (int) Math.min(64 * 1024, 1500 * Math.exp(0.8 * random.nextGaussian()));
+        StringBuilder text = new StringBuilder(target + 256).append("# ").append(title).append("\n\n");
+        while (text.length() < target) {
+            switch (random.nextInt(6)) {
+                case 0 -> text.append("## ").append(pick(TITLE_WORDS)).append("\n\n");
+                case 1 -> text.append("- ").append(pick(SENTENCES)).append("\n- ").append(pick(SENTENCES)).append("\n\n");
+                case 2 -> text.append("```java\nfor (int i = 0; i < ").append(random.nextInt(100))
+                        .append("; i++) {\n    System.out.println(i);\n}\n```\n\n");
+                case 3 -> text.append("| 项目 | 状态 |\n| --- | --- |\n| ").append(pick(TITLE_WORDS)).append(" | 进行中 |\n\n");
+                case 4 -> text.append("参见 [").append(titles.get(random.nextInt(titles.size()))).append("](")
+                        .append(titles.get(random.nextInt(titles.size())).replace(" ", "%20")).append(".md)\n\n");
+                default -> {
+                    for (int i = 0; i < 4; i++) {
+                        text.append(pick(SENTENCES));
+                    }
+                    text.append("\n\n");
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private String pick(String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
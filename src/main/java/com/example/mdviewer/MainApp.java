@@ -2,7 +2,9 @@ package com.example.mdviewer;
 
 import com.vladsch.flexmark.ast.BulletList;
 import com.vladsch.flexmark.ast.Emphasis;
+import com.vladsch.flexmark.ast.FencedCodeBlock;
 import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.ast.IndentedCodeBlock;
 import com.vladsch.flexmark.ast.ListItem;
 import com.vladsch.flexmark.ast.OrderedList;
 import com.vladsch.flexmark.ast.StrongEmphasis;
@@ -10,6 +12,10 @@ import com.vladsch.flexmark.ast.Text;
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.html.HtmlWriter;
+import com.vladsch.flexmark.html.renderer.NodeRenderer;
+import com.vladsch.flexmark.html.renderer.NodeRendererContext;
+import com.vladsch.flexmark.html.renderer.NodeRenderingHandler;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import javafx.application.Application;
 import javafx.geometry.Insets;
@@ -24,6 +30,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Separator;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.TextArea;
@@ -38,7 +45,7 @@ import javafx.scene.web.WebView;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.concurrent.Worker;
+import javafx.concurrent.Task;
 import javafx.animation.KeyFrame;
 import javafx.animation.PauseTransition;
 import javafx.animation.Timeline;
@@ -54,16 +61,31 @@ import org.openpdf.text.Phrase;
 import org.openpdf.text.pdf.PdfWriter;
 import org.openpdf.text.List;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -73,12 +95,15 @@ public class MainApp extends Application {
     private final MutableDataSet markdownOptions = new MutableDataSet();
     private final Parser parser;
     private final HtmlRenderer htmlRenderer;
+    private final CodeHighlighter codeHighlighter = new CodeHighlighter(512);
     private final WebView webView = new WebView();
     private final TextArea editor = new TextArea();
     private final Label fileLabel = new Label("未打开文件");
     private final Label wordCountLabel = new Label("字数: 0");
     private final Label autoSaveLabel = new Label("自动保存: 关闭");
     private final CheckBox autoSaveCheckBox = new CheckBox("自动保存");
+    private final Label exportLabel = new Label();
+    private final ProgressBar exportProgress = new ProgressBar();
     private final TreeView<Path> fileTree = new TreeView<>();
 
     private String currentMarkdown = "";
@@ -95,27 +120,26 @@ public class MainApp extends Application {
     private final Timeline autoSaveTimer = new Timeline(new KeyFrame(Duration.seconds(30), e -> autoSaveNow()));
     private static final Pattern WORD_PATTERN = Pattern.compile("[A-Za-z0-9]+");
     private static final DateTimeFormatter BACKUP_TIME = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final String BACKUP_DIR = ".mdviewer-backups";
+
+    // PDF 导出在后台线程池执行，线程数与 CPU 核数一致；文件夹导出时各笔记并行渲染
+    private final ExecutorService exportExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()), daemonThreads("pdf-export"));
 
     public MainApp() {
         markdownOptions.set(HtmlRenderer.FENCED_CODE_LANGUAGE_CLASS_PREFIX, "language-");
         parser = Parser.builder(markdownOptions).build();
-        htmlRenderer = HtmlRenderer.builder(markdownOptions).build();
+        // 代码块在 Java 侧完成高亮并按 (语言, 代码哈希) 缓存，预览不再依赖 CDN 上的 highlight.js
+        htmlRenderer = HtmlRenderer.builder(markdownOptions)
+                .nodeRendererFactory(options -> new HighlightedCodeRenderer(codeHighlighter))
+                .build();
     }
 
     @Override
     public void start(Stage stage) {
         this.primaryStage = stage;
-        WebEngine engine = webView.getEngine();
-        engine.setJavaScriptEnabled(true);
-        engine.getLoadWorker().stateProperty().addListener((obs, oldState, newState) -> {
-            if (newState == Worker.State.SUCCEEDED) {
-                try {
-                    engine.executeScript("if (window.hljs) { hljs.highlightAll(); }");
-                } catch (Exception ignored) {
-                    // JS 加载失败时保持预览可用
-                }
-            }
-        });
+        // 预览为纯静态 HTML（高亮已在渲染时完成），无需执行脚本
+        webView.getEngine().setJavaScriptEnabled(false);
         Button newButton = new Button("新建");
         Button openButton = new Button("打开 .md");
         Button openFolderButton = new Button("打开文件夹");
@@ -169,7 +193,10 @@ public class MainApp extends Application {
         mainSplit.getItems().addAll(fileTree, editorPreview);
         mainSplit.setDividerPositions(0.2);
 
-        HBox statusBar = new HBox(16, wordCountLabel, autoSaveLabel);
+        exportProgress.setPrefWidth(160);
+        exportProgress.setVisible(false);
+        exportLabel.setVisible(false);
+        HBox statusBar = new HBox(16, wordCountLabel, autoSaveLabel, exportProgress, exportLabel);
         statusBar.setAlignment(Pos.CENTER_LEFT);
         statusBar.setPadding(new Insets(6, 10, 6, 10));
 
@@ -218,18 +245,21 @@ public class MainApp extends Application {
         MenuItem openFolderItem = new MenuItem("打开文件夹");
         MenuItem saveItem = new MenuItem("保存");
         MenuItem saveAsItem = new MenuItem("另存为");
+        MenuItem exportFolderItem = new MenuItem("导出文件夹为 PDF");
         MenuItem exitItem = new MenuItem("退出");
         newItem.setOnAction(e -> newMarkdown(stage));
         openItem.setOnAction(e -> openMarkdown(stage));
         openFolderItem.setOnAction(e -> chooseNotebookFolder(stage));
         saveItem.setOnAction(e -> saveMarkdown(stage));
         saveAsItem.setOnAction(e -> saveMarkdownAs(stage));
+        exportFolderItem.setOnAction(e -> exportFolderPdf(stage));
         exitItem.setOnAction(e -> {
             if (confirmContinueIfDirty(stage)) {
                 stage.close();
             }
         });
-        fileMenu.getItems().addAll(newItem, openItem, openFolderItem, saveItem, saveAsItem, exitItem);
+        fileMenu.getItems().addAll(newItem, openItem, openFolderItem, saveItem, saveAsItem,
+                exportFolderItem, exitItem);
 
         Menu viewMenu = new Menu("视图");
         MenuItem lightTheme = new MenuItem("浅色主题");
@@ -398,14 +428,155 @@ public class MainApp extends Application {
             return;
         }
 
-        try {
-            // 将 Markdown 解析为 AST，然后转换为 PDF 文档
-            Node document = parser.parse(currentMarkdown);
-            writePdf(document, file.toPath());
+        if (exportProgress.isVisible()) {
+            showInfo("已有导出任务在进行中，请稍候。");
+            return;
+        }
+
+        // 解析与渲染都放到后台线程，避免大文档导出时界面卡死
+        String markdown = currentMarkdown;
+        Path output = file.toPath();
+        Task<Void> task = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                updateMessage("正在导出 PDF…");
+                // 将 Markdown 解析为 AST，然后转换为 PDF 文档
+                Node document = parser.parse(markdown);
+                writePdf(document, output, (done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage("正在导出 PDF… " + (done * 100 / Math.max(1, total)) + "%");
+                });
+                return null;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            finishExportProgress();
             showInfo("PDF 导出成功：" + file.getAbsolutePath());
-        } catch (Exception ex) {
-            showError("导出失败", ex.getMessage());
+        });
+        task.setOnFailed(e -> {
+            finishExportProgress();
+            showError("导出失败", task.getException().getMessage());
+        });
+        startExportProgress(task);
+        exportExecutor.submit(task);
+    }
+
+    private void exportFolderPdf(Stage stage) {
+        if (notebookRoot == null) {
+            showInfo("请先打开笔记本文件夹。");
+            return;
+        }
+        if (exportProgress.isVisible()) {
+            showInfo("已有导出任务在进行中，请稍候。");
+            return;
+        }
+        DirectoryChooser chooser = new DirectoryChooser();
+        chooser.setTitle("选择 PDF 输出目录");
+        File folder = chooser.showDialog(stage);
+        if (folder == null) {
+            return;
+        }
+
+        Path sourceRoot = notebookRoot;
+        Path outputRoot = folder.toPath();
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        Task<Integer> task = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                java.util.List<Path> notes = collectMarkdownFiles(sourceRoot);
+                int total = notes.size();
+                updateProgress(0, total);
+                updateMessage("正在导出 0/" + total);
+
+                // 每篇笔记独立渲染为一个 PDF，多核并行；完成一篇就更新一次进度
+                CompletionService<Path> completion = new ExecutorCompletionService<>(exportExecutor);
+                for (Path note : notes) {
+                    completion.submit(() -> {
+                        Path target = toPdfPath(sourceRoot, outputRoot, note);
+                        try {
+                            Files.createDirectories(target.getParent());
+                            Node document = parser.parse(Files.readString(note, StandardCharsets.UTF_8));
+                            writePdf(document, target, ProgressListener.NONE);
+                        } catch (Exception ex) {
+                            failures.add(sourceRoot.relativize(note) + "：" + ex.getMessage());
+                        }
+                        return note;
+                    });
+                }
+                for (int finished = 1; finished <= total; finished++) {
+                    completion.take();
+                    updateProgress(finished, total);
+                    updateMessage("正在导出 " + finished + "/" + total);
+                }
+                return total;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            finishExportProgress();
+            int total = task.getValue();
+            if (failures.isEmpty()) {
+                showInfo("已导出 " + total + " 篇笔记到：" + outputRoot.toAbsolutePath());
+            } else {
+                showError("部分笔记导出失败", (total - failures.size()) + "/" + total + " 篇导出成功。\n"
+                        + String.join("\n", failures));
+            }
+        });
+        task.setOnFailed(e -> {
+            finishExportProgress();
+            showError("导出失败", task.getException().getMessage());
+        });
+        startExportProgress(task);
+        // 协调任务单独占一个线程，避免占满导出线程池后等待自己提交的子任务
+        Thread coordinator = daemonThreads("pdf-export-folder").newThread(task);
+        coordinator.start();
+    }
+
+    private java.util.List<Path> collectMarkdownFiles(Path folder) throws IOException {
+        try (Stream<Path> stream = Files.walk(folder)) {
+            return stream
+                    .filter(path -> !isInBackupDir(folder.relativize(path)))
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".md"))
+                    .toList();
+        }
+    }
+
+    private boolean isInBackupDir(Path relative) {
+        for (Path name : relative) {
+            if (name.toString().equals(BACKUP_DIR)) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    private Path toPdfPath(Path sourceRoot, Path outputRoot, Path note) {
+        String relative = sourceRoot.relativize(note).toString();
+        String baseName = relative.substring(0, relative.length() - ".md".length());
+        return outputRoot.resolve(baseName + ".pdf");
+    }
+
+    private void startExportProgress(Task<?> task) {
+        exportProgress.progressProperty().bind(task.progressProperty());
+        exportLabel.textProperty().bind(task.messageProperty());
+        exportProgress.setVisible(true);
+        exportLabel.setVisible(true);
+    }
+
+    private void finishExportProgress() {
+        exportProgress.progressProperty().unbind();
+        exportLabel.textProperty().unbind();
+        exportProgress.setVisible(false);
+        exportLabel.setVisible(false);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
     private void toggleAutoSave(boolean enabled) {
@@ -571,7 +742,7 @@ public class MainApp extends Application {
             return;
         }
         try {
-            Path backupDir = path.getParent().resolve(".mdviewer-backups");
+            Path backupDir = path.getParent().resolve(BACKUP_DIR);
             Files.createDirectories(backupDir);
             String baseName = path.getFileName().toString();
             String time = LocalDateTime.now().format(BACKUP_TIME);
@@ -597,18 +768,8 @@ public class MainApp extends Application {
                 <html>
                   <head>
                     <meta charset="UTF-8">
-                    <link rel="stylesheet"
-                          href="https://cdn.jsdelivr.net/npm/highlight.js@11.9.0/styles/%s.min.css">
-                    <script src="https://cdn.jsdelivr.net/npm/highlight.js@11.9.0/lib/highlight.min.js"></script>
-                    <script>
-                      window.onload = () => {
-                        // 自动识别语言并高亮（同时支持 ```java 这种语言标记）
-                        if (window.hljs) {
-                          hljs.highlightAll();
-                        }
-                      };
-                    </script>
                     <style>
+                      %s
                       :root {
                         --text-normal: %s;
                         --text-muted: %s;
@@ -665,7 +826,7 @@ public class MainApp extends Application {
                   </head>
                   <body>
                 """.formatted(
-                darkTheme ? "github-dark" : "github",
+                CodeHighlighter.themeCss(darkTheme),
                 darkTheme ? "#e6e6e6" : "#1f2328",
                 darkTheme ? "#b0b0b0" : "#57606a",
                 darkTheme ? "#1e1e1e" : "#ffffff",
@@ -696,17 +857,39 @@ public class MainApp extends Application {
         return markdown.replace("｀｀｀", "```");
     }
 
-    private void writePdf(Node document, Path outputPath) throws IOException, DocumentException {
+    private void writePdf(Node document, Path outputPath, ProgressListener progress)
+            throws IOException, DocumentException {
         Document pdf = new Document(PageSize.A4, 36, 36, 36, 36);
-        try (FileOutputStream out = new FileOutputStream(outputPath.toFile())) {
+        boolean written = false;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputPath), 64 * 1024)) {
             PdfWriter.getInstance(pdf, out);
             pdf.open();
-
-            PdfRenderer renderer = new PdfRenderer(pdf);
-            renderer.render(document);
+            try {
+                // 按顶层块逐个渲染：PdfWriter 每写满一页就把该页输出到磁盘，内存中只保留当前页
+                PdfRenderer renderer = new PdfRenderer(pdf, PdfFonts.SHARED);
+                long total = 0;
+                for (Node child = document.getFirstChild(); child != null; child = child.getNext()) {
+                    total++;
+                }
+                long done = 0;
+                for (Node child = document.getFirstChild(); child != null; child = child.getNext()) {
+                    renderer.renderBlock(child);
+                    progress.onProgress(++done, total);
+                }
+            } finally {
+                // 无论成功与否，都尽量关闭文档，避免文件句柄被占用
+                pdf.close();
+            }
+            written = true;
         } finally {
-            // 无论成功与否，都尽量关闭文档，避免文件句柄被占用
-            pdf.close();
+            // 渲染失败时删除写了一半的 PDF
+            if (!written) {
+                try {
+                    Files.deleteIfExists(outputPath);
+                } catch (IOException ignored) {
+                    // 保留原始异常
+                }
+            }
         }
     }
 
@@ -726,46 +909,281 @@ public class MainApp extends Application {
         alert.showAndWait();
     }
 
+    /**
+     * flexmark 代码块渲染器：用 {@link CodeHighlighter} 输出带 hljs 样式类的 HTML。
+     * 缩进代码块没有语言标记，按无语言的 hljs 代码块输出，与不带语言的围栏代码块一致。
+     */
+    private static class HighlightedCodeRenderer implements NodeRenderer {
+        private final CodeHighlighter highlighter;
+
+        private HighlightedCodeRenderer(CodeHighlighter highlighter) {
+            this.highlighter = highlighter;
+        }
+
+        @Override
+        public Set<NodeRenderingHandler<?>> getNodeRenderingHandlers() {
+            return Set.of(new NodeRenderingHandler<>(FencedCodeBlock.class, this::renderFenced),
+                    new NodeRenderingHandler<>(IndentedCodeBlock.class, this::renderIndented));
+        }
+
+        private void renderFenced(FencedCodeBlock node, NodeRendererContext context, HtmlWriter html) {
+            String info = node.getInfo().toString().trim();
+            String language = info.isEmpty() ? "" : info.split("\\s+")[0].toLowerCase(Locale.ROOT);
+            render(language, node.getContentChars().toString(), html);
+        }
+
+        private void renderIndented(IndentedCodeBlock node, NodeRendererContext context, HtmlWriter html) {
+            render("", node.getContentChars().trimTailBlankLines().toString(), html);
+        }
+
+        private void render(String language, String code, HtmlWriter html) {
+            String cssClass = language.isEmpty() ? "hljs" : "hljs language-" + CodeHighlighter.escape(language);
+            html.line();
+            html.raw("<pre><code class=\"" + cssClass + "\">");
+            html.raw(highlighter.highlight(language, code));
+            html.raw("</code></pre>");
+            html.line();
+        }
+    }
+
+    /**
+     * 轻量级代码高亮：按语言族识别注释、字符串、数字和关键字，输出 highlight.js 兼容的样式类。
+     * 结果按 (语言, 代码 SHA-256) 做 LRU 缓存，编辑其他段落时未改动的代码块不会重复处理。
+     */
+    private static class CodeHighlighter {
+        private static final Set<String> C_LIKE_KEYWORDS = Set.of(
+                "abstract", "async", "await", "boolean", "break", "byte", "case", "catch", "char", "class",
+                "const", "continue", "default", "do", "double", "else", "enum", "export", "extends", "false",
+                "final", "finally", "float", "for", "func", "function", "go", "if", "implements", "import",
+                "instanceof", "int", "interface", "let", "long", "new", "null", "package", "private",
+                "protected", "public", "record", "return", "short", "static", "struct", "super", "switch",
+                "this", "throw", "throws", "true", "try", "type", "typeof", "var", "void", "while", "yield",
+                "fn", "impl", "mut", "pub", "use", "match", "mod", "trait", "undefined", "nil", "chan");
+        private static final Set<String> SCRIPT_KEYWORDS = Set.of(
+                "and", "as", "assert", "break", "class", "continue", "def", "del", "elif", "else", "except",
+                "False", "finally", "for", "from", "if", "import", "in", "is", "lambda", "None", "not", "or",
+                "pass", "raise", "return", "True", "try", "while", "with", "yield", "then", "fi", "do", "done",
+                "case", "esac", "function", "local", "export", "echo");
+        private static final Set<String> SQL_KEYWORDS = Set.of(
+                "select", "from", "where", "insert", "into", "values", "update", "set", "delete", "create",
+                "table", "drop", "alter", "join", "left", "right", "inner", "outer", "on", "group", "by",
+                "order", "having", "limit", "and", "or", "not", "null", "as", "distinct", "union", "index");
+
+        private static final String NUMBER_AND_WORD =
+                "|(?<number>\\b\\d+(?:\\.\\d+)?\\b)|(?<word>\\b[A-Za-z_][A-Za-z0-9_]*\\b)";
+        private static final Pattern C_LIKE = Pattern.compile(
+                "(?<comment>//[^\\n]*|/\\*[\\s\\S]*?\\*/)"
+                        + "|(?<string>\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'|`[^`]*`)"
+                        + NUMBER_AND_WORD);
+        private static final Pattern SCRIPT = Pattern.compile(
+                "(?<comment>#[^\\n]*)"
+                        + "|(?<string>\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*')"
+                        + NUMBER_AND_WORD);
+        private static final Pattern SQL = Pattern.compile(
+                "(?<comment>--[^\\n]*)"
+                        + "|(?<string>'(?:''|[^'])*')"
+                        + NUMBER_AND_WORD);
+
+        private final Map<String, String> cache;
+
+        private CodeHighlighter(int capacity) {
+            this.cache = new LinkedHashMap<>(capacity, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private String highlight(String language, String code) {
+            String key = language + ":" + sha256(code);
+            synchronized (cache) {
+                String cached = cache.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            String html = tokenize(language, code);
+            synchronized (cache) {
+                cache.put(key, html);
+            }
+            return html;
+        }
+
+        private String tokenize(String language, String code) {
+            Pattern pattern;
+            Set<String> keywords;
+            boolean caseInsensitive = false;
+            switch (language) {
+                case "python", "py", "bash", "sh", "shell", "zsh", "yaml", "yml", "ruby", "rb", "toml" -> {
+                    pattern = SCRIPT;
+                    keywords = SCRIPT_KEYWORDS;
+                }
+                case "sql" -> {
+                    pattern = SQL;
+                    keywords = SQL_KEYWORDS;
+                    caseInsensitive = true;
+                }
+                case "", "text", "plain", "txt", "markdown", "md" -> {
+                    return escape(code);
+                }
+                default -> {
+                    pattern = C_LIKE;
+                    keywords = C_LIKE_KEYWORDS;
+                }
+            }
+
+            StringBuilder out = new StringBuilder(code.length() + code.length() / 4);
+            Matcher matcher = pattern.matcher(code);
+            int last = 0;
+            while (matcher.find()) {
+                out.append(escape(code.substring(last, matcher.start())));
+                String token = matcher.group();
+                String cssClass = null;
+                if (matcher.group("comment") != null) {
+                    cssClass = "hljs-comment";
+                } else if (matcher.group("string") != null) {
+                    cssClass = "hljs-string";
+                } else if (matcher.group("number") != null) {
+                    cssClass = "hljs-number";
+                } else if (keywords.contains(caseInsensitive ? token.toLowerCase(Locale.ROOT) : token)) {
+                    cssClass = "hljs-keyword";
+                }
+                if (cssClass == null) {
+                    out.append(escape(token));
+                } else {
+                    out.append("<span class=\"").append(cssClass).append("\">")
+                            .append(escape(token)).append("</span>");
+                }
+                last = matcher.end();
+            }
+            out.append(escape(code.substring(last)));
+            return out.toString();
+        }
+
+        private static String themeCss(boolean dark) {
+            return dark
+                    ? ".hljs-comment{color:#8b949e;font-style:italic}.hljs-string{color:#a5d6ff}"
+                    + ".hljs-number{color:#79c0ff}.hljs-keyword{color:#ff7b72}"
+                    : ".hljs-comment{color:#6e7781;font-style:italic}.hljs-string{color:#0a3069}"
+                    + ".hljs-number{color:#0550ae}.hljs-keyword{color:#cf222e}";
+        }
+
+        private static String escape(String text) {
+            StringBuilder out = null;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                String replacement = switch (c) {
+                    case '<' -> "&lt;";
+                    case '>' -> "&gt;";
+                    case '&' -> "&amp;";
+                    case '"' -> "&quot;";
+                    default -> null;
+                };
+                if (replacement != null && out == null) {
+                    out = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                if (out != null) {
+                    if (replacement != null) {
+                        out.append(replacement);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+            return out == null ? text : out.toString();
+        }
+
+        private static String sha256(String text) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        exportExecutor.shutdownNow();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
 
+    /**
+     * PDF 导出进度回调：已完成块数 / 总块数。
+     */
+    @FunctionalInterface
+    private interface ProgressListener {
+        ProgressListener NONE = (done, total) -> {
+        };
+
+        void onProgress(long done, long total);
+    }
+
+    /**
+     * PDF 字体只初始化一次，所有导出线程共享，避免每次导出都重新走 FontFactory 查找。
+     */
+    private record PdfFonts(Font normal, Font bold, Font italic, Font h1, Font h2, Font h3) {
+        private static final PdfFonts SHARED = new PdfFonts(
+                FontFactory.getFont(FontFactory.HELVETICA, 12),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12),
+                FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 12),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 22),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16)
+        );
+    }
+
     /**
      * 将 flexmark 的 AST 渲染为 OpenPDF 文档。
      * 这里只处理常见元素：标题、段落、粗体、斜体、列表。
      */
     private static class PdfRenderer {
         private final Document pdf;
-        private final Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 12);
-        private final Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
-        private final Font italicFont = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 12);
-        private final Font h1Font = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 22);
-        private final Font h2Font = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
-        private final Font h3Font = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
-
-        private PdfRenderer(Document pdf) {
+        private final Font normalFont;
+        private final Font boldFont;
+        private final Font italicFont;
+        private final Font h1Font;
+        private final Font h2Font;
+        private final Font h3Font;
+
+        private PdfRenderer(Document pdf, PdfFonts fonts) {
             this.pdf = pdf;
+            this.normalFont = fonts.normal();
+            this.boldFont = fonts.bold();
+            this.italicFont = fonts.italic();
+            this.h1Font = fonts.h1();
+            this.h2Font = fonts.h2();
+            this.h3Font = fonts.h3();
         }
 
         private void render(Node node) throws DocumentException {
             Node child = node.getFirstChild();
             while (child != null) {
-                if (child instanceof Heading heading) {
-                    renderHeading(heading);
-                } else if (child instanceof com.vladsch.flexmark.ast.Paragraph paragraph) {
-                    renderParagraph(paragraph);
-                } else if (child instanceof BulletList bulletList) {
-                    renderList(bulletList, false);
-                } else if (child instanceof OrderedList orderedList) {
-                    renderList(orderedList, true);
-                } else {
-                    // 其他节点继续向下遍历
-                    render(child);
-                }
+                renderBlock(child);
                 child = child.getNext();
             }
         }
 
+        private void renderBlock(Node child) throws DocumentException {
+            if (child instanceof Heading heading) {
+                renderHeading(heading);
+            } else if (child instanceof com.vladsch.flexmark.ast.Paragraph paragraph) {
+                renderParagraph(paragraph);
+            } else if (child instanceof BulletList bulletList) {
+                renderList(bulletList, false);
+            } else if (child instanceof OrderedList orderedList) {
+                renderList(orderedList, true);
+            } else {
+                // 其他节点继续向下遍历
+                render(child);
+            }
+        }
+
         private void renderHeading(Heading heading) throws DocumentException {
             int level = heading.getLevel();
             Font font = switch (level) {
@@ -3,9 +3,11 @@ package com.example.mdviewer.backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ConfigurationPropertiesScan
+@EnableScheduling
 public class MarkdownBackendApplication {
     public static void main(String[] args) {
         SpringApplication.run(MarkdownBackendApplication.class, args);
@@ -0,0 +1,743 @@
+package com.example.mdviewer.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AI 调用相关配置
+ */
+@ConfigurationProperties(prefix = "ai")
+public class AIProperties {
+    // 建立连接的超时时间
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    // 等待响应的超时时间（大模型生成较慢，默认放宽）
+    private Duration readTimeout = Duration.ofSeconds(60);
+    // 智谱 JWT 的有效期
+    private Duration tokenTtl = Duration.ofHours(1);
+    // 在 Token 过期前提前刷新的时间
+    private Duration tokenRefreshMargin = Duration.ofMinutes(1);
+    // 长文本分块处理时每块的 Token 预算
+    private int chunkTokens = 1500;
+    // 响应缓存
+    private final Cache cache = new Cache();
+    // 语义检索向量化
+    private final Embedding embedding = new Embedding();
+    // 基于笔记库的对话
+    private final VaultChat vaultChat = new VaultChat();
+    // 多轮对话会话
+    private final Sessions sessions = new Sessions();
+    // 后台批量任务
+    private final Jobs jobs = new Jobs();
+    // 编辑器内联补全
+    private final Inline inline = new Inline();
+    // 多提供商对冲与熔断
+    private final Failover failover = new Failover();
+    // 后台预生成笔记摘要
+    private final Summaries summaries = new Summaries();
+    // 默认的提供商并发与限流配置
+    private Limits limits = new Limits();
+    // 按提供商覆盖的限流配置，如 ai.provider-limits.openai.max-in-flight=8
+    private Map<String, Limits> providerLimits = new HashMap<>();
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Duration getTokenTtl() {
+        return tokenTtl;
+    }
+
+    public void setTokenTtl(Duration tokenTtl) {
+        this.tokenTtl = tokenTtl;
+    }
+
+    public Duration getTokenRefreshMargin() {
+        return tokenRefreshMargin;
+    }
+
+    public void setTokenRefreshMargin(Duration tokenRefreshMargin) {
+        this.tokenRefreshMargin = tokenRefreshMargin;
+    }
+
+    public int getChunkTokens() {
+        return chunkTokens;
+    }
+
+    public void setChunkTokens(int chunkTokens) {
+        this.chunkTokens = chunkTokens;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Embedding getEmbedding() {
+        return embedding;
+    }
+
+    public VaultChat getVaultChat() {
+        return vaultChat;
+    }
+
+    public Sessions getSessions() {
+        return sessions;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public Inline getInline() {
+        return inline;
+    }
+
+    public Failover getFailover() {
+        return failover;
+    }
+
+    public Summaries getSummaries() {
+        return summaries;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(Limits limits) {
+        this.limits = limits;
+    }
+
+    public Map<String, Limits> getProviderLimits() {
+        return providerLimits;
+    }
+
+    public void setProviderLimits(Map<String, Limits> providerLimits) {
+        this.providerLimits = providerLimits;
+    }
+
+    /**
+     * 取某个提供商生效的限流配置
+     */
+    public Limits limitsFor(String provider) {
+        return providerLimits.getOrDefault(provider, limits);
+    }
+
+    /**
+     * AI 响应缓存配置
+     */
+    public static class Cache {
+        private boolean enabled = true;
+        // 内存 LRU 最多保留的条目数
+        private int maxEntries = 512;
+        // 缓存有效期（内存与磁盘一致）
+        private Duration ttl = Duration.ofDays(7);
+        // 对话默认不缓存
+        private boolean includeChat = false;
+        // 磁盘缓存总大小上限，超出时按最近使用时间淘汰
+        private DataSize maxDiskSize = DataSize.ofMegabytes(64);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public boolean isIncludeChat() {
+            return includeChat;
+        }
+
+        public void setIncludeChat(boolean includeChat) {
+            this.includeChat = includeChat;
+        }
+
+        public DataSize getMaxDiskSize() {
+            return maxDiskSize;
+        }
+
+        public void setMaxDiskSize(DataSize maxDiskSize) {
+            this.maxDiskSize = maxDiskSize;
+        }
+    }
+
+    /**
+     * 单个提供商的准入控制配置
+     */
+    public static class Limits {
+        // 同时在途的最大请求数
+        private int maxInFlight = 4;
+        // 等待队列上限，超过后直接拒绝
+        private int maxQueue = 32;
+        // 排队等待的最长时间
+        private Duration maxWait = Duration.ofSeconds(30);
+        // 每分钟请求数上限
+        private int requestsPerMinute = 60;
+        // 每分钟 Token 数上限（按提示词估算 + 最大输出）
+        private int tokensPerMinute = 90_000;
+        // 429 / 5xx / 网络错误的最大重试次数
+        private int maxRetries = 3;
+        // 指数退避的基础间隔
+        private Duration retryBaseDelay = Duration.ofMillis(500);
+        // 单次退避的最长间隔
+        private Duration retryMaxDelay = Duration.ofSeconds(20);
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public int getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(int requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+
+        public int getTokensPerMinute() {
+            return tokensPerMinute;
+        }
+
+        public void setTokensPerMinute(int tokensPerMinute) {
+            this.tokensPerMinute = tokensPerMinute;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+
+        public Duration getRetryBaseDelay() {
+            return retryBaseDelay;
+        }
+
+        public void setRetryBaseDelay(Duration retryBaseDelay) {
+            this.retryBaseDelay = retryBaseDelay;
+        }
+
+        public Duration getRetryMaxDelay() {
+            return retryMaxDelay;
+        }
+
+        public void setRetryMaxDelay(Duration retryMaxDelay) {
+            this.retryMaxDelay = retryMaxDelay;
+        }
+    }
+
+    /**
+     * 语义检索的向量化配置
+     */
+    public static class Embedding {
+        private boolean enabled = true;
+        // Embedding 模型，为空时按提供商选择默认模型
+        private String model = "";
+        // 本地（演示模式）向量维度
+        private int localDimensions = 256;
+        // 每次请求向量化的文本条数
+        private int batchSize = 32;
+        // 笔记切分为段落的 Token 预算
+        private int chunkTokens = 400;
+        // 后台扫描变更笔记的间隔
+        private Duration scanInterval = Duration.ofMinutes(1);
+        // HNSW 查询宽度
+        private int efSearch = 64;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public int getLocalDimensions() {
+            return localDimensions;
+        }
+
+        public void setLocalDimensions(int localDimensions) {
+            this.localDimensions = localDimensions;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getChunkTokens() {
+            return chunkTokens;
+        }
+
+        public void setChunkTokens(int chunkTokens) {
+            this.chunkTokens = chunkTokens;
+        }
+
+        public Duration getScanInterval() {
+            return scanInterval;
+        }
+
+        public void setScanInterval(Duration scanInterval) {
+            this.scanInterval = scanInterval;
+        }
+
+        public int getEfSearch() {
+            return efSearch;
+        }
+
+        public void setEfSearch(int efSearch) {
+            this.efSearch = efSearch;
+        }
+    }
+
+    /**
+     * 基于笔记库对话的检索配置
+     */
+    public static class VaultChat {
+        // 检索到的笔记片段在提示词中最多占用的 Token 数
+        private int contextTokens = 3000;
+        // 最多引用的片段数
+        private int maxPassages = 8;
+        // 笔记切分为片段的 Token 预算
+        private int passageTokens = 300;
+        // 后台刷新检索索引的间隔
+        private Duration refreshInterval = Duration.ofSeconds(30);
+
+        public int getContextTokens() {
+            return contextTokens;
+        }
+
+        public void setContextTokens(int contextTokens) {
+            this.contextTokens = contextTokens;
+        }
+
+        public int getMaxPassages() {
+            return maxPassages;
+        }
+
+        public void setMaxPassages(int maxPassages) {
+            this.maxPassages = maxPassages;
+        }
+
+        public int getPassageTokens() {
+            return passageTokens;
+        }
+
+        public void setPassageTokens(int passageTokens) {
+            this.passageTokens = passageTokens;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+    }
+
+    /**
+     * 多轮对话会话配置
+     */
+    public static class Sessions {
+        // 每次请求携带的历史（摘要 + 最近对话）Token 上限
+        private int historyTokens = 4000;
+        // 历史超过上限的该比例时在后台压缩
+        private double compactRatio = 0.75;
+        // 压缩时至少保留的最近消息条数
+        private int keepRecentMessages = 4;
+        // 滚动摘要的 Token 上限
+        private int summaryTokens = 600;
+        // 压缩方式：summarize（较早的对话并入滚动摘要）或 drop（直接丢弃最早的对话）
+        private String compaction = "summarize";
+        // 最多保留的会话数，超出时淘汰最久未使用的
+        private int maxSessions = 200;
+        // 会话闲置超过该时长后清除
+        private Duration idleTimeout = Duration.ofHours(24);
+
+        public int getHistoryTokens() {
+            return historyTokens;
+        }
+
+        public void setHistoryTokens(int historyTokens) {
+            this.historyTokens = historyTokens;
+        }
+
+        public double getCompactRatio() {
+            return compactRatio;
+        }
+
+        public void setCompactRatio(double compactRatio) {
+            this.compactRatio = compactRatio;
+        }
+
+        public int getKeepRecentMessages() {
+            return keepRecentMessages;
+        }
+
+        public void setKeepRecentMessages(int keepRecentMessages) {
+            this.keepRecentMessages = keepRecentMessages;
+        }
+
+        public int getSummaryTokens() {
+            return summaryTokens;
+        }
+
+        public void setSummaryTokens(int summaryTokens) {
+            this.summaryTokens = summaryTokens;
+        }
+
+        public String getCompaction() {
+            return compaction;
+        }
+
+        public void setCompaction(String compaction) {
+            this.compaction = compaction;
+        }
+
+        public int getMaxSessions() {
+            return maxSessions;
+        }
+
+        public void setMaxSessions(int maxSessions) {
+            this.maxSessions = maxSessions;
+        }
+
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    /**
+     * 后台批量 AI 任务配置
+     */
+    public static class Jobs {
+        // 所有任务合计同时处理的笔记数（提供商限流仍然生效）
+        private int concurrency = 4;
+        // 未通过准入控制的笔记重新排队的次数和首次退避时间（之后按指数增长）
+        private int maxRequeues = 5;
+        private Duration requeueDelay = Duration.ofSeconds(10);
+        // 已结束任务的保留时长
+        private Duration retention = Duration.ofDays(7);
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public int getMaxRequeues() {
+            return maxRequeues;
+        }
+
+        public void setMaxRequeues(int maxRequeues) {
+            this.maxRequeues = maxRequeues;
+        }
+
+        public Duration getRequeueDelay() {
+            return requeueDelay;
+        }
+
+        public void setRequeueDelay(Duration requeueDelay) {
+            this.requeueDelay = requeueDelay;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    /**
+     * 编辑器内联补全（ghost text）配置
+     */
+    public static class Inline {
+        // 发送给提供商的光标前、后上下文字符数
+        private int prefixChars = 1500;
+        private int suffixChars = 300;
+        // 输出上限，建议只有一小段
+        private int maxTokens = 48;
+        private int maxChars = 240;
+        // 前缀缓存保留的建议数
+        private int cacheEntries = 512;
+
+        public int getPrefixChars() {
+            return prefixChars;
+        }
+
+        public void setPrefixChars(int prefixChars) {
+            this.prefixChars = prefixChars;
+        }
+
+        public int getSuffixChars() {
+            return suffixChars;
+        }
+
+        public void setSuffixChars(int suffixChars) {
+            this.suffixChars = suffixChars;
+        }
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+
+        public int getMaxChars() {
+            return maxChars;
+        }
+
+        public void setMaxChars(int maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        public int getCacheEntries() {
+            return cacheEntries;
+        }
+
+        public void setCacheEntries(int cacheEntries) {
+            this.cacheEntries = cacheEntries;
+        }
+    }
+
+    /**
+     * 后台预生成笔记摘要配置
+     */
+    public static class Summaries {
+        private boolean enabled = true;
+        private Duration scanInterval = Duration.ofMinutes(1);
+        // 最近这段时间内没有前台 AI 请求才视为空闲
+        private Duration idleDelay = Duration.ofSeconds(30);
+        // 笔记停止修改这么久之后才生成摘要，避免编辑过程中反复生成
+        private Duration settleDelay = Duration.ofMinutes(2);
+        // 每个预算周期内后台摘要可消耗的 Token 数（输入与输出的估算值）
+        private int tokenBudget = 20_000;
+        private Duration budgetWindow = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getScanInterval() {
+            return scanInterval;
+        }
+
+        public void setScanInterval(Duration scanInterval) {
+            this.scanInterval = scanInterval;
+        }
+
+        public Duration getIdleDelay() {
+            return idleDelay;
+        }
+
+        public void setIdleDelay(Duration idleDelay) {
+            this.idleDelay = idleDelay;
+        }
+
+        public Duration getSettleDelay() {
+            return settleDelay;
+        }
+
+        public void setSettleDelay(Duration settleDelay) {
+            this.settleDelay = settleDelay;
+        }
+
+        public int getTokenBudget() {
+            return tokenBudget;
+        }
+
+        public void setTokenBudget(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+
+        public Duration getBudgetWindow() {
+            return budgetWindow;
+        }
+
+        public void setBudgetWindow(Duration budgetWindow) {
+            this.budgetWindow = budgetWindow;
+        }
+    }
+
+    /**
+     * 多提供商的对冲请求与熔断配置
+     */
+    public static class Failover {
+        // 主提供商超过延迟分位数仍未应答时，是否向下一个提供商发出对冲请求
+        private boolean hedgeEnabled = true;
+        // 同一次调用最多同时进行的提供商请求数
+        private int maxParallel = 2;
+        // 对冲等待时间取近期延迟的该分位数
+        private double hedgeQuantile = 0.95;
+        private Duration hedgeMinDelay = Duration.ofMillis(500);
+        private Duration hedgeMaxDelay = Duration.ofSeconds(15);
+        // 延迟样本不足 minSamples 时使用的对冲等待时间
+        private Duration hedgeInitialDelay = Duration.ofSeconds(5);
+        private int minSamples = 20;
+        // 每个提供商保留的最近延迟样本数
+        private int latencyWindow = 200;
+        // 连续失败多少次后熔断
+        private int failureThreshold = 5;
+        // 熔断持续时间，期满后放行一个探测请求
+        private Duration openDuration = Duration.ofSeconds(30);
+
+        public boolean isHedgeEnabled() {
+            return hedgeEnabled;
+        }
+
+        public void setHedgeEnabled(boolean hedgeEnabled) {
+            this.hedgeEnabled = hedgeEnabled;
+        }
+
+        public int getMaxParallel() {
+            return maxParallel;
+        }
+
+        public void setMaxParallel(int maxParallel) {
+            this.maxParallel = maxParallel;
+        }
+
+        public double getHedgeQuantile() {
+            return hedgeQuantile;
+        }
+
+        public void setHedgeQuantile(double hedgeQuantile) {
+            this.hedgeQuantile = hedgeQuantile;
+        }
+
+        public Duration getHedgeMinDelay() {
+            return hedgeMinDelay;
+        }
+
+        public void setHedgeMinDelay(Duration hedgeMinDelay) {
+            this.hedgeMinDelay = hedgeMinDelay;
+        }
+
+        public Duration getHedgeMaxDelay() {
+            return hedgeMaxDelay;
+        }
+
+        public void setHedgeMaxDelay(Duration hedgeMaxDelay) {
+            this.hedgeMaxDelay = hedgeMaxDelay;
+        }
+
+        public Duration getHedgeInitialDelay() {
+            return hedgeInitialDelay;
+        }
+
+        public void setHedgeInitialDelay(Duration hedgeInitialDelay) {
+            this.hedgeInitialDelay = hedgeInitialDelay;
+        }
+
+        public int getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public int getLatencyWindow() {
+            return latencyWindow;
+        }
+
+        public void setLatencyWindow(int latencyWindow) {
+            this.latencyWindow = latencyWindow;
+        }
+
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+    }
+}
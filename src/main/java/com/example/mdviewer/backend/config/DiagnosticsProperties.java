@@ -0,0 +1,102 @@
+package com.example.mdviewer.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 诊断相关配置：慢操作日志与 JFR 录制
+ */
+@ConfigurationProperties(prefix = "diagnostics")
+public class DiagnosticsProperties {
+    // 单次文件操作超过该耗时时输出慢操作日志，0 表示关闭
+    private Duration slowFileThreshold = Duration.ofMillis(200);
+    // 单次提供商调用超过该耗时时输出慢操作日志，0 表示关闭
+    private Duration slowAiThreshold = Duration.ofSeconds(30);
+    // JFR 录制
+    private final Jfr jfr = new Jfr();
+
+    public Duration getSlowFileThreshold() {
+        return slowFileThreshold;
+    }
+
+    public void setSlowFileThreshold(Duration slowFileThreshold) {
+        this.slowFileThreshold = slowFileThreshold;
+    }
+
+    public Duration getSlowAiThreshold() {
+        return slowAiThreshold;
+    }
+
+    public void setSlowAiThreshold(Duration slowAiThreshold) {
+        this.slowAiThreshold = slowAiThreshold;
+    }
+
+    public Jfr getJfr() {
+        return jfr;
+    }
+
+    public static class Jfr {
+        // 录制文件的保存目录
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "mdviewer-jfr");
+        // 默认使用的 JFR 配置：default（开销约 1%）或 profile（更详细）
+        private String settings = "profile";
+        // 忘记停止时自动结束录制的时长
+        private Duration maxDuration = Duration.ofMinutes(30);
+        // 录制数据在磁盘上的大小上限
+        private long maxSize = 256L * 1024 * 1024;
+        // 保留的录制文件个数，超出时删除最早的
+        private int maxFiles = 10;
+        // 是否允许非本机访问录制接口；录制文件包含线程栈、类路径等运行细节，默认只允许本机
+        private boolean allowRemote = false;
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public String getSettings() {
+            return settings;
+        }
+
+        public void setSettings(String settings) {
+            this.settings = settings;
+        }
+
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+
+        public void setMaxDuration(Duration maxDuration) {
+            this.maxDuration = maxDuration;
+        }
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public int getMaxFiles() {
+            return maxFiles;
+        }
+
+        public void setMaxFiles(int maxFiles) {
+            this.maxFiles = maxFiles;
+        }
+
+        public boolean isAllowRemote() {
+            return allowRemote;
+        }
+
+        public void setAllowRemote(boolean allowRemote) {
+            this.allowRemote = allowRemote;
+        }
+    }
+}
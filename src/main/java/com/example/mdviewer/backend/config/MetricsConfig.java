@@ -0,0 +1,57 @@
+package com.example.mdviewer.backend.config;
+
+import com.example.mdviewer.backend.service.InlineCompletionService;
+import com.example.mdviewer.backend.service.MarkdownLintService;
+import com.example.mdviewer.backend.service.ai.AIResponseCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 缓存指标：各缓存的命中、未命中次数（cache.gets）和命中率（cache.hit.ratio），采集时从缓存自身的统计读取
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(AIResponseCache responseCache, InlineCompletionService inlineCompletionService,
+                                    MarkdownLintService lintService) {
+        return registry -> {
+            bindCache(registry, "ai-response", responseCache, AIResponseCache::stats, "memoryHits", "diskHits");
+            bindCache(registry, "inline-suggestion", inlineCompletionService, InlineCompletionService::stats, "hits");
+            bindCache(registry, "markdown-lint", lintService, MarkdownLintService::stats, "hits");
+        };
+    }
+
+    // 指标持有缓存对象本身（Spring Bean 不会被回收），而不是临时的 lambda
+    private static <T> void bindCache(MeterRegistry registry, String cache, T source,
+                                      Function<T, Map<String, Object>> stats, String... hitKeys) {
+        FunctionCounter.builder("cache.gets", source, s -> sum(stats.apply(s), hitKeys))
+            .tag("cache", cache).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", source, s -> sum(stats.apply(s), "misses"))
+            .tag("cache", cache).tag("result", "miss").register(registry);
+        Gauge.builder("cache.hit.ratio", source, s -> {
+                Map<String, Object> values = stats.apply(s);
+                double hits = sum(values, hitKeys);
+                double total = hits + sum(values, "misses");
+                return total == 0 ? 0 : hits / total;
+            })
+            .tag("cache", cache).register(registry);
+    }
+
+    private static double sum(Map<String, Object> stats, String... keys) {
+        double sum = 0;
+        for (String key : keys) {
+            if (stats.get(key) instanceof Number number) {
+                sum += number.doubleValue();
+            }
+        }
+        return sum;
+    }
+}
@@ -3,10 +3,15 @@ package com.example.mdviewer.backend.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.nio.file.Path;
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "notes")
 public class NotesProperties {
     private Path root = Path.of("notes");
+    // 并行扫描笔记目录的线程数，0 表示按 CPU 核数自动选择
+    private int scanParallelism = 0;
+    // 回收站
+    private final Trash trash = new Trash();
 
     public Path getRoot() {
         return root;
@@ -15,4 +20,49 @@ public class NotesProperties {
     public void setRoot(Path root) {
         this.root = root;
     }
+
+    public int getScanParallelism() {
+        return scanParallelism;
+    }
+
+    public void setScanParallelism(int scanParallelism) {
+        this.scanParallelism = scanParallelism;
+    }
+
+    public Trash getTrash() {
+        return trash;
+    }
+
+    public static class Trash {
+        // 删除的笔记在回收站中保留的时长，过期后彻底删除
+        private Duration retention = Duration.ofDays(30);
+        // 清理过期条目的间隔
+        private Duration purgeInterval = Duration.ofHours(1);
+        // 同时删除的条目数
+        private int purgeParallelism = 4;
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+
+        public Duration getPurgeInterval() {
+            return purgeInterval;
+        }
+
+        public void setPurgeInterval(Duration purgeInterval) {
+            this.purgeInterval = purgeInterval;
+        }
+
+        public int getPurgeParallelism() {
+            return purgeParallelism;
+        }
+
+        public void setPurgeParallelism(int purgeParallelism) {
+            this.purgeParallelism = purgeParallelism;
+        }
+    }
 }
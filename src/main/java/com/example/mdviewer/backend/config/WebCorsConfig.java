@@ -8,6 +8,9 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebCorsConfig implements WebMvcConfigurer {
     @Override
     public void addCorsMappings(CorsRegistry registry) {
+        // 按注册顺序匹配：诊断接口不允许任何跨域来源，避免网页借本机浏览器下载录制文件
+        registry.addMapping("/api/diagnostics/**")
+                .allowedOrigins();
         registry.addMapping("/api/**")
                 .allowedOriginPatterns("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
@@ -3,10 +3,33 @@ package com.example.mdviewer.backend.controller;
 import com.example.mdviewer.backend.dto.AIConfigRequest;
 import com.example.mdviewer.backend.dto.AIRequest;
 import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.dto.ChatSessionDto;
+import com.example.mdviewer.backend.dto.GrammarResponse;
+import com.example.mdviewer.backend.dto.InlineCompletionRequest;
+import com.example.mdviewer.backend.dto.LintDiagnosticDto;
+import com.example.mdviewer.backend.dto.LintRequest;
+import com.example.mdviewer.backend.dto.VaultChatResponse;
 import com.example.mdviewer.backend.service.AIService;
+import com.example.mdviewer.backend.service.AISummaryService;
+import com.example.mdviewer.backend.service.ChatSessionService;
+import com.example.mdviewer.backend.service.InlineCompletionService;
+import com.example.mdviewer.backend.service.MarkdownLintService;
+import com.example.mdviewer.backend.service.VaultChatService;
+import com.example.mdviewer.backend.service.ai.AIRequestRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * AI API 控制器
@@ -16,10 +39,31 @@ import java.util.Map;
 @CrossOrigin
 public class AIController {
     
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
+    // 客户端请求键：同一请求键的新请求会取消尚未完成的旧请求
+    private static final String REQUEST_KEY_HEADER = "X-AI-Request-Key";
+    
     private final AIService aiService;
+    private final VaultChatService vaultChatService;
+    private final ChatSessionService chatSessionService;
+    private final InlineCompletionService inlineCompletionService;
+    private final MarkdownLintService lintService;
+    private final AISummaryService summaryService;
+    private final AIRequestRegistry requests;
+    // AI 请求在虚拟线程上等待上游响应，不占用 Servlet 请求线程
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
     
-    public AIController(AIService aiService) {
+    public AIController(AIService aiService, VaultChatService vaultChatService,
+                        ChatSessionService chatSessionService, InlineCompletionService inlineCompletionService,
+                        MarkdownLintService lintService, AISummaryService summaryService,
+                        AIRequestRegistry requests) {
         this.aiService = aiService;
+        this.vaultChatService = vaultChatService;
+        this.chatSessionService = chatSessionService;
+        this.inlineCompletionService = inlineCompletionService;
+        this.lintService = lintService;
+        this.summaryService = summaryService;
+        this.requests = requests;
     }
     
     /**
@@ -51,31 +95,300 @@ public class AIController {
      * 智能续写
      */
     @PostMapping("/complete")
-    public AIResponse complete(@RequestBody AIRequest request) {
-        return aiService.complete(request.text());
+    public DeferredResult<AIResponse> complete(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> aiService.complete(request.text()));
     }
     
     /**
      * 翻译
      */
     @PostMapping("/translate")
-    public AIResponse translate(@RequestBody AIRequest request) {
-        return aiService.translate(request.text(), request.targetLang());
+    public DeferredResult<AIResponse> translate(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> aiService.translate(request.text(), request.targetLang()));
     }
     
     /**
-     * 语法检查
+     * 语法检查：本地规则先自动修正机械性问题，修正项在 fixes 中返回，其余交给 AI
      */
     @PostMapping("/grammar")
-    public AIResponse grammar(@RequestBody AIRequest request) {
-        return aiService.checkGrammar(request.text());
+    public DeferredResult<GrammarResponse> grammar(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> GrammarResponse.of(aiService.checkGrammar(request.text()),
+            lintService.fixes(request.text())));
+    }
+    
+    /**
+     * 本地 Markdown 检查：多余空格、代码块围栏、链接、中英文标点混用，不调用 AI
+     * 只重新检查改动过的段落，可在输入时频繁调用；noteId 用于解析相对链接
+     */
+    @PostMapping("/lint")
+    public List<LintDiagnosticDto> lint(@RequestBody LintRequest request) {
+        return lintService.lint(request.text(), request.noteId());
+    }
+    
+    /**
+     * 获取本地检查的分块缓存统计
+     */
+    @GetMapping("/lint/stats")
+    public Map<String, Object> getLintStats() {
+        return lintService.stats();
+    }
+    
+    /**
+     * 总结
+     */
+    @PostMapping("/summarize")
+    public DeferredResult<AIResponse> summarize(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> aiService.summarize(request.text()));
     }
     
     /**
      * AI 对话
      */
     @PostMapping("/chat")
-    public AIResponse chat(@RequestBody AIRequest request) {
-        return aiService.chat(request.text());
+    public DeferredResult<AIResponse> chat(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> aiService.chat(request.text()));
+    }
+    
+    /**
+     * 编辑器内联补全：只根据光标附近的上下文生成一小段建议
+     * 建议随输入频繁请求，应带上 X-AI-Request-Key 以便新请求取消旧请求
+     */
+    @PostMapping("/inline")
+    public DeferredResult<AIResponse> inline(@RequestBody InlineCompletionRequest request,
+                                             @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> inlineCompletionService.complete(request.prefix(), request.suffix()));
+    }
+    
+    /**
+     * 内联补全（SSE）：token 事件为提供商返回的原始片段，done 事件中的结果为整理后的建议
+     */
+    @PostMapping(value = "/inline/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamInline(@RequestBody InlineCompletionRequest request,
+                                   @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return streamCancellable(requestKey, events -> inlineCompletionService.complete(request.prefix(), request.suffix(),
+            token -> events.send("token", token)));
+    }
+    
+    /**
+     * 获取内联补全前缀缓存的命中统计
+     */
+    @GetMapping("/inline/stats")
+    public Map<String, Object> getInlineStats() {
+        return inlineCompletionService.stats();
+    }
+    
+    /**
+     * 基于笔记库的对话：检索相关笔记片段作为上下文，并返回引用来源
+     */
+    @PostMapping("/chat/vault")
+    public DeferredResult<VaultChatResponse> chatWithVault(@RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> vaultChatService.chat(request.text()));
+    }
+    
+    /**
+     * 创建对话会话
+     */
+    @PostMapping("/sessions")
+    public ChatSessionDto createSession() {
+        return chatSessionService.create();
+    }
+    
+    /**
+     * 列出对话会话（最近使用的在前）
+     */
+    @GetMapping("/sessions")
+    public List<ChatSessionDto> listSessions() {
+        return chatSessionService.list();
+    }
+    
+    /**
+     * 获取会话的摘要和保留的历史
+     */
+    @GetMapping("/sessions/{id}")
+    public ChatSessionDto getSession(@PathVariable String id) {
+        return chatSessionService.get(id);
+    }
+    
+    @DeleteMapping("/sessions/{id}")
+    public void deleteSession(@PathVariable String id) {
+        chatSessionService.delete(id);
+    }
+    
+    /**
+     * 在会话中发送消息，历史由服务端保存，客户端只需发送本条消息
+     */
+    @PostMapping("/sessions/{id}/messages")
+    public DeferredResult<AIResponse> sendSessionMessage(@PathVariable String id, @RequestBody AIRequest request,
+                                                         @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return cancellable(requestKey, () -> chatSessionService.send(id, request.text()));
+    }
+    
+    /**
+     * 在会话中发送消息（SSE），事件同 /stream/{action}
+     */
+    @PostMapping(value = "/sessions/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSessionMessage(@PathVariable String id, @RequestBody AIRequest request,
+                                           @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return streamCancellable(requestKey,
+            events -> chatSessionService.send(id, request.text(), token -> events.send("token", token)));
+    }
+    
+    /**
+     * 获取 AI 响应缓存统计
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return aiService.getCacheStats();
+    }
+    
+    /**
+     * 获取各提供商的排队、等待和重试统计
+     */
+    @GetMapping("/limits/stats")
+    public Map<String, Object> getLimiterStats() {
+        return aiService.getLimiterStats();
+    }
+    
+    /**
+     * 获取各提供商的熔断状态和对冲统计
+     */
+    @GetMapping("/failover/stats")
+    public Map<String, Object> getFailoverStats() {
+        return aiService.getFailoverStats();
+    }
+    
+    /**
+     * 获取后台摘要的进度和 Token 预算使用情况
+     */
+    @GetMapping("/summaries/stats")
+    public Map<String, Object> getSummaryStats() {
+        return summaryService.stats();
+    }
+    
+    /**
+     * 清空 AI 响应缓存
+     */
+    @DeleteMapping("/cache")
+    public AIResponse clearCache() {
+        aiService.clearCache();
+        return AIResponse.success("缓存已清空");
+    }
+    
+    /**
+     * 流式 AI 调用（SSE）
+     * action: complete, translate, grammar, chat
+     * 事件：fixes（语法检查时本地自动修正的问题，在输出之前推送）、token（增量内容）、done（完整结果）、error（失败信息）
+     */
+    @PostMapping(value = "/stream/{action}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable String action, @RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return streamCancellable(requestKey, events -> {
+            sendGrammarFixes(action, request.text(), events);
+            return aiService.stream(action, request.text(), request.targetLang(), token -> events.send("token", token));
+        });
+    }
+    
+    /**
+     * 长文本分块处理（SSE）
+     * action: translate, grammar, summarize
+     * 事件：fixes（同 stream）、progress（{index, completed, total}）、done（完整结果）、error（失败信息）
+     */
+    @PostMapping(value = "/chunked/{action}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter chunked(@PathVariable String action, @RequestBody AIRequest request, @RequestHeader(value = REQUEST_KEY_HEADER, required = false) String requestKey) {
+        return streamCancellable(requestKey, events -> {
+            sendGrammarFixes(action, request.text(), events);
+            return aiService.processLongText(action, request.text(), request.targetLang(),
+                (index, completed, total) -> events.send("progress",
+                    Map.of("index", index, "completed", completed, "total", total)));
+        });
+    }
+    
+    /**
+     * 语法检查会先静默应用本地修正，把修正项推送给客户端
+     */
+    private void sendGrammarFixes(String action, String text, EventSender events) {
+        if (!"grammar".equals(action)) {
+            return;
+        }
+        List<LintDiagnosticDto> fixes = lintService.fixes(text);
+        if (!fixes.isEmpty()) {
+            events.send("fixes", fixes);
+        }
+    }
+    
+    /**
+     * 取消某个请求键下尚未完成的请求（如用户关闭了 AI 面板）
+     */
+    @DeleteMapping("/requests/{key}")
+    public AIResponse cancelRequest(@PathVariable String key) {
+        return requests.cancel(key) ? AIResponse.success("请求已取消") : AIResponse.error("没有进行中的请求");
+    }
+    
+    /**
+     * 获取在途请求数和按原因统计的取消次数
+     */
+    @GetMapping("/requests/stats")
+    public Map<String, Object> getRequestStats() {
+        return requests.stats();
+    }
+    
+    /**
+     * 在虚拟线程上执行可取消的 AI 请求：超时、被同一请求键的新请求取代或主动取消时中断执行，
+     * 正在进行的上游调用随之取消。
+     * 非流式请求在结果写出前不向连接写任何数据，客户端断开通常要到超时才能发现（容器很少触发 onError），
+     * 放弃请求的客户端应调用 DELETE /api/ai/requests/{key}
+     */
+    private <T> DeferredResult<T> cancellable(String requestKey, Supplier<T> call) {
+        DeferredResult<T> result = new DeferredResult<>(STREAM_TIMEOUT_MS);
+        streamExecutor.execute(() -> {
+            try (AIRequestRegistry.Handle handle = requests.register(requestKey)) {
+                result.onTimeout(() -> handle.cancel(AIRequestRegistry.Reason.TIMEOUT));
+                result.onError(e -> handle.cancel(AIRequestRegistry.Reason.DISCONNECTED));
+                result.setResult(call.get());
+            } catch (Exception e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * 可取消的 SSE 请求，取消条件同 cancellable；推送事件失败说明客户端已断开，同样取消，
+     * 因此流式请求在下一次推送时就能发现断开
+     */
+    private SseEmitter streamCancellable(String requestKey, Function<EventSender, AIResponse> call) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        streamExecutor.execute(() -> {
+            try (AIRequestRegistry.Handle handle = requests.register(requestKey)) {
+                emitter.onTimeout(() -> handle.cancel(AIRequestRegistry.Reason.TIMEOUT));
+                emitter.onError(e -> handle.cancel(AIRequestRegistry.Reason.DISCONNECTED));
+                AIResponse response = call.apply((event, data) -> {
+                    try {
+                        emitter.send(SseEmitter.event().name(event).data(data));
+                    } catch (IOException e) {
+                        // 客户端已断开，中止上游读取
+                        handle.cancel(AIRequestRegistry.Reason.DISCONNECTED);
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                emitter.send(SseEmitter.event().name(response.success() ? "done" : "error").data(response));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+    
+    /**
+     * 向 SSE 客户端推送一个事件
+     */
+    @FunctionalInterface
+    private interface EventSender {
+        void send(String event, Object data);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
     }
 }
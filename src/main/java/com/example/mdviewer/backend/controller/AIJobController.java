@@ -0,0 +1,98 @@
+package com.example.mdviewer.backend.controller;
+
+import com.example.mdviewer.backend.dto.AIJobDto;
+import com.example.mdviewer.backend.dto.AIJobItemDto;
+import com.example.mdviewer.backend.dto.AIJobRequest;
+import com.example.mdviewer.backend.service.AIJobService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 批量 AI 任务 API
+ */
+@RestController
+@RequestMapping("/api/ai/jobs")
+@CrossOrigin
+public class AIJobController {
+
+    private static final long EVENTS_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final AIJobService jobService;
+
+    public AIJobController(AIJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * 提交批量任务，立即返回任务信息，处理在后台进行
+     */
+    @PostMapping
+    public AIJobDto submit(@RequestBody AIJobRequest request) {
+        return jobService.submit(request);
+    }
+
+    @GetMapping
+    public List<AIJobDto> list() {
+        return jobService.list();
+    }
+
+    /**
+     * 查询任务进度（轮询），results=true 时附带已完成笔记的结果
+     */
+    @GetMapping("/{id}")
+    public AIJobDto get(@PathVariable String id, @RequestParam(defaultValue = "false") boolean results) {
+        return jobService.get(id, results);
+    }
+
+    @GetMapping("/{id}/items/{index}")
+    public AIJobItemDto getItem(@PathVariable String id, @PathVariable int index) {
+        return jobService.getItem(id, index);
+    }
+
+    @PostMapping("/{id}/cancel")
+    public AIJobDto cancel(@PathVariable String id) {
+        return jobService.cancel(id);
+    }
+
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable String id) {
+        jobService.delete(id);
+    }
+
+    /**
+     * 任务进度（SSE）：先推送当前状态（progress），之后推送 item、progress，结束时推送 done
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id) throws IOException {
+        SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MS);
+        Runnable unsubscribe = jobService.subscribe(id, (event, data) -> {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+                if ("done".equals(event)) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(jobService.get(id, false)));
+            if (jobService.isFinished(id)) {
+                emitter.send(SseEmitter.event().name("done").data(jobService.get(id, false)));
+                emitter.complete();
+            }
+        } catch (IllegalStateException e) {
+            // 订阅后任务恰好结束，done 事件已由任务线程推送
+        }
+        return emitter;
+    }
+}
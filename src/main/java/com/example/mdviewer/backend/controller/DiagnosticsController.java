@@ -0,0 +1,90 @@
+package com.example.mdviewer.backend.controller;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import com.example.mdviewer.backend.dto.JfrRecordingDto;
+import com.example.mdviewer.backend.service.diagnostics.JfrRecordingService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 诊断 API：启停 JFR 录制并下载录制文件
+ * 默认只接受本机请求（diagnostics.jfr.allow-remote），且不允许跨域访问（见 WebCorsConfig）
+ */
+@RestController
+@RequestMapping("/api/diagnostics/jfr")
+public class DiagnosticsController {
+
+    private final JfrRecordingService recordingService;
+    private final boolean allowRemote;
+
+    public DiagnosticsController(JfrRecordingService recordingService, DiagnosticsProperties properties) {
+        this.recordingService = recordingService;
+        this.allowRemote = properties.getJfr().isAllowRemote();
+    }
+
+    @ModelAttribute
+    public void requireLocal(HttpServletRequest request) {
+        if (allowRemote) {
+            return;
+        }
+        try {
+            if (InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+                return;
+            }
+        } catch (UnknownHostException e) {
+            // 无法解析的地址按非本机处理
+        }
+        throw new ResponseStatusException(HttpStatus.FORBIDDEN, "诊断接口只允许本机访问");
+    }
+
+    /**
+     * 开始录制，duration 如 5m、30s
+     */
+    @PostMapping("/start")
+    public JfrRecordingDto start(@RequestParam(required = false) String settings,
+                                 @RequestParam(required = false) Duration duration) {
+        return recordingService.start(settings, duration);
+    }
+
+    @PostMapping("/stop")
+    public JfrRecordingDto stop() {
+        return recordingService.stop();
+    }
+
+    /**
+     * 当前录制，没有录制时返回 204
+     */
+    @GetMapping
+    public ResponseEntity<JfrRecordingDto> current() {
+        JfrRecordingDto current = recordingService.current();
+        return current == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(current);
+    }
+
+    @GetMapping("/recordings")
+    public List<JfrRecordingDto> recordings() {
+        return recordingService.recordings();
+    }
+
+    @GetMapping("/recordings/{name}")
+    public ResponseEntity<Resource> download(@PathVariable String name) {
+        Path file = recordingService.recordingFile(name);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(name).build().toString())
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .body(new FileSystemResource(file));
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.mdviewer.backend.controller;
 
+import com.example.mdviewer.backend.dto.AISummaryDto;
 import com.example.mdviewer.backend.dto.CreateFolderRequest;
 import com.example.mdviewer.backend.dto.CreateNoteRequest;
 import com.example.mdviewer.backend.dto.FolderNodeDto;
 import com.example.mdviewer.backend.dto.NoteDetailDto;
 import com.example.mdviewer.backend.dto.NoteSummaryDto;
+import com.example.mdviewer.backend.dto.TrashItemDto;
 import com.example.mdviewer.backend.dto.UpdateFolderRequest;
 import com.example.mdviewer.backend.dto.UpdateNoteRequest;
+import com.example.mdviewer.backend.service.AISummaryService;
 import com.example.mdviewer.backend.service.NotesService;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,9 +20,11 @@ import java.util.List;
 @CrossOrigin
 public class NotesController {
     private final NotesService notesService;
+    private final AISummaryService summaryService;
 
-    public NotesController(NotesService notesService) {
+    public NotesController(NotesService notesService, AISummaryService summaryService) {
         this.notesService = notesService;
+        this.summaryService = summaryService;
     }
 
     @GetMapping("/notes")
@@ -32,6 +37,14 @@ public class NotesController {
         return notesService.getNote(id);
     }
 
+    /**
+     * 笔记的预生成摘要，只读取已保存的结果，不会同步调用 AI
+     */
+    @GetMapping("/notes/{id}/summary")
+    public AISummaryDto getSummary(@PathVariable String id) {
+        return summaryService.get(id);
+    }
+
     @PostMapping("/notes")
     public NoteDetailDto createNote(@RequestBody CreateNoteRequest request) {
         return notesService.createNote(request);
@@ -66,4 +79,22 @@ public class NotesController {
     public void deleteFolder(@PathVariable String id) {
         notesService.deleteFolder(id);
     }
+
+    @GetMapping("/trash")
+    public List<TrashItemDto> listTrash() {
+        return notesService.listTrash();
+    }
+
+    /**
+     * 恢复到删除前的位置，返回恢复后的文件树节点
+     */
+    @PostMapping("/trash/{id}/restore")
+    public FolderNodeDto restoreFromTrash(@PathVariable String id) {
+        return notesService.restoreFromTrash(id);
+    }
+
+    @DeleteMapping("/trash/{id}")
+    public void deleteFromTrash(@PathVariable String id) {
+        notesService.deleteFromTrash(id);
+    }
 }
@@ -0,0 +1,24 @@
+package com.example.mdviewer.backend.controller;
+
+import com.example.mdviewer.backend.dto.SemanticSearchHitDto;
+import com.example.mdviewer.backend.service.SemanticSearchService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin
+public class SearchController {
+    private final SemanticSearchService semanticSearchService;
+
+    public SearchController(SemanticSearchService semanticSearchService) {
+        this.semanticSearchService = semanticSearchService;
+    }
+
+    @GetMapping("/semantic")
+    public List<SemanticSearchHitDto> semanticSearch(@RequestParam String q,
+                                                     @RequestParam(defaultValue = "10") int k) {
+        return semanticSearchService.search(q, k);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.mdviewer.backend.dto;
 
+import java.util.List;
+
 /**
  * AI 配置请求 DTO
  */
@@ -7,5 +9,6 @@ public record AIConfigRequest(
     String provider,
     String apiKey,
     String apiUrl,
-    String model
+    String model,
+    List<AIConfigRequest> fallbacks // 备用提供商，按优先级排列；null 时保持原有配置，空列表表示清除
 ) {}
@@ -0,0 +1,20 @@
+package com.example.mdviewer.backend.dto;
+
+import java.util.List;
+
+/**
+ * 批量 AI 任务 DTO
+ * status: queued, running, completed, cancelled
+ */
+public record AIJobDto(
+    String id,
+    String operation,
+    String targetLang,
+    String status,
+    int total,
+    int completed,
+    int failed,
+    String createdAt,
+    String updatedAt,
+    List<AIJobItemDto> items
+) {}
@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 批量任务中单篇笔记的处理状态
+ * status: pending, running, done, failed, cancelled；result 仅在请求结果时返回
+ */
+public record AIJobItemDto(
+    int index,
+    String noteId,
+    String title,
+    String status,
+    String result,
+    String error
+) {}
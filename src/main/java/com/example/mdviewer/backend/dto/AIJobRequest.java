@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.dto;
+
+import java.util.List;
+
+/**
+ * 批量 AI 任务请求
+ * operation: summarize, translate, grammar；noteIds 与 folderIds（含子文件夹）合并去重后逐篇处理
+ */
+public record AIJobRequest(
+    String operation,
+    List<String> noteIds,
+    List<String> folderIds,
+    String targetLang
+) {}
@@ -2,17 +2,29 @@ package com.example.mdviewer.backend.dto;
 
 /**
  * AI 响应 DTO
+ * retryable 表示请求未通过提供商准入控制（排队已满、等待超时或熔断），稍后重试可能成功；
+ * cancelled 表示请求被用户取消或被同一请求键的新请求取代，不应重试
  */
 public record AIResponse(
     boolean success,
     String result,
-    String error
+    String error,
+    boolean retryable,
+    boolean cancelled
 ) {
     public static AIResponse success(String result) {
-        return new AIResponse(true, result, null);
+        return new AIResponse(true, result, null, false, false);
     }
     
     public static AIResponse error(String message) {
-        return new AIResponse(false, null, message);
+        return new AIResponse(false, null, message, false, false);
+    }
+    
+    public static AIResponse rejected(String message) {
+        return new AIResponse(false, null, message, true, false);
+    }
+    
+    public static AIResponse cancelled(String message) {
+        return new AIResponse(false, null, message, false, true);
     }
 }
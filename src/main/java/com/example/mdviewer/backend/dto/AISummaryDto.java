@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 笔记的预生成摘要
+ * status: ready（与当前内容一致）, stale（内容已修改，返回上一版摘要）, pending（等待后台生成）, unavailable（未配置 AI 或已关闭）,
+ *         too-large（笔记超出 ai.summaries.token-budget，不会生成）
+ */
+public record AISummaryDto(
+    String noteId,
+    String status,
+    String summary,
+    String contentHash,
+    String generatedAt
+) {}
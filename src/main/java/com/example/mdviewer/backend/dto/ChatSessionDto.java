@@ -0,0 +1,16 @@
+package com.example.mdviewer.backend.dto;
+
+import java.util.List;
+
+/**
+ * 对话会话 DTO
+ * summary 为已压缩的较早对话摘要，turns 为仍完整保留的最近对话，contextTokens 为下一轮请求携带的历史估算 Token 数
+ */
+public record ChatSessionDto(
+    String id,
+    String createdAt,
+    String updatedAt,
+    String summary,
+    List<ChatTurnDto> turns,
+    int contextTokens
+) {}
@@ -0,0 +1,9 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 会话中的一条消息，role: user 或 assistant
+ */
+public record ChatTurnDto(
+    String role,
+    String content
+) {}
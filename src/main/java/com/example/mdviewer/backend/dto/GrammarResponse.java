@@ -0,0 +1,22 @@
+package com.example.mdviewer.backend.dto;
+
+import java.util.List;
+
+/**
+ * 语法检查响应 DTO
+ * 提交给 AI 之前已由本地规则自动修正的问题放在 fixes 中，位置指向提交的原文；
+ * result 是修正后再经 AI 检查的全文
+ */
+public record GrammarResponse(
+    boolean success,
+    String result,
+    String error,
+    boolean retryable,
+    boolean cancelled,
+    List<LintDiagnosticDto> fixes
+) {
+    public static GrammarResponse of(AIResponse response, List<LintDiagnosticDto> fixes) {
+        return new GrammarResponse(response.success(), response.result(), response.error(), response.retryable(),
+            response.cancelled(), fixes);
+    }
+}
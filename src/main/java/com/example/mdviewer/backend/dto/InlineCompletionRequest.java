@@ -0,0 +1,9 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 内联补全请求 DTO
+ */
+public record InlineCompletionRequest(
+    String prefix, // 光标前的文本
+    String suffix  // 光标后的文本
+) {}
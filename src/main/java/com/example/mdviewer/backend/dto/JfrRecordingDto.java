@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * JFR 录制 DTO
+ * state: running, stopped；size 为录制文件大小，录制进行中时为已写入磁盘的数据量
+ */
+public record JfrRecordingDto(
+    String name,
+    String state,
+    String settings,
+    String startedAt,
+    String file,
+    long size
+) {}
@@ -0,0 +1,13 @@
+package com.example.mdviewer.backend.dto;
+
+public record LintDiagnosticDto(
+        String rule,
+        String severity,
+        int line,
+        int column,
+        int offset,
+        int length,
+        String message,
+        String replacement
+) {
+}
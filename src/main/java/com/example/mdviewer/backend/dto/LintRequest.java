@@ -0,0 +1,7 @@
+package com.example.mdviewer.backend.dto;
+
+public record LintRequest(
+        String text,
+        String noteId
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.mdviewer.backend.dto;
+
+public record SemanticSearchHitDto(
+        String noteId,
+        String title,
+        String snippet,
+        double score
+) {
+}
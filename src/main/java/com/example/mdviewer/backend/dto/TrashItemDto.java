@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 回收站条目 DTO
+ * type: note, folder；path 为删除前相对笔记根目录的路径
+ */
+public record TrashItemDto(
+    String id,
+    String name,
+    String type,
+    String path,
+    String deletedAt,
+    String expiresAt
+) {}
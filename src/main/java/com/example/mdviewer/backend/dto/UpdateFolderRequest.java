@@ -1,6 +1,10 @@
 package com.example.mdviewer.backend.dto;
 
+/**
+ * updateLinks 为 true 时，改名的同时改写其他笔记中指向该文件夹及其下内容的链接
+ */
 public record UpdateFolderRequest(
-        String name
+        String name,
+        Boolean updateLinks
 ) {
 }
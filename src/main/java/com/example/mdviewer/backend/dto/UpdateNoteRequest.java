@@ -1,7 +1,11 @@
 package com.example.mdviewer.backend.dto;
 
+/**
+ * updateLinks 为 true 时，改名的同时改写其他笔记中指向这篇笔记的链接
+ */
 public record UpdateNoteRequest(
         String title,
-        String content
+        String content,
+        Boolean updateLinks
 ) {
 }
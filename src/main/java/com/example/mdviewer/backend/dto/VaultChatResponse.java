@@ -0,0 +1,18 @@
+package com.example.mdviewer.backend.dto;
+
+import java.util.List;
+
+/**
+ * 笔记库对话响应 DTO，citations 的顺序与回答中的 [编号] 对应
+ */
+public record VaultChatResponse(
+    boolean success,
+    String result,
+    String error,
+    List<VaultCitationDto> citations
+) {
+    public static VaultChatResponse of(AIResponse response, List<VaultCitationDto> citations) {
+        return new VaultChatResponse(response.success(), response.result(), response.error(),
+            response.success() ? citations : List.of());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.mdviewer.backend.dto;
+
+/**
+ * 笔记库对话的引用来源
+ */
+public record VaultCitationDto(
+    String noteId,
+    String title,
+    String snippet,
+    double score
+) {}
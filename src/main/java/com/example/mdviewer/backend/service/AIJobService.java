@@ -0,0 +1,538 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.dto.AIJobDto;
+import com.example.mdviewer.backend.dto.AIJobItemDto;
+import com.example.mdviewer.backend.dto.AIJobRequest;
+import com.example.mdviewer.backend.dto.AIResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * 后台批量 AI 任务
+ * 任务在虚拟线程上逐篇处理笔记（经过提供商准入控制），每完成一篇就把状态和结果写入
+ * 笔记根目录下的 .ai-jobs/{id}，服务重启后继续处理未完成的笔记。
+ * 所有任务共用同一组并发名额；未通过准入控制的笔记让出名额，退避后重新排队
+ */
+@Service
+public class AIJobService {
+
+    private static final String JOBS_DIR = ".ai-jobs";
+    private static final String JOB_FILE = "job.properties";
+    private static final Set<String> OPERATIONS = Set.of("summarize", "translate", "grammar");
+    private static final long MAX_REQUEUE_DELAY_MS = 300_000;
+
+    private final NotesService notesService;
+    private final AIService aiService;
+    private final AIProperties.Jobs config;
+    private final Path jobsDir;
+    private final Map<String, AIJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // 所有任务共用，多个任务同时运行时合计不超过配置的并发数；公平模式下按提交顺序处理
+    private final Semaphore permits;
+
+    public AIJobService(NotesService notesService, AIService aiService, AIProperties aiProperties) {
+        this.notesService = notesService;
+        this.aiService = aiService;
+        this.config = aiProperties.getJobs();
+        this.jobsDir = notesService.getRoot().resolve(JOBS_DIR);
+        this.permits = new Semaphore(Math.max(1, config.getConcurrency()), true);
+    }
+
+    /**
+     * 恢复已保存的任务，未完成的继续执行
+     */
+    @PostConstruct
+    public void restore() {
+        if (!Files.isDirectory(jobsDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(jobsDir, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                AIJob job = load(dir);
+                if (job == null) {
+                    continue;
+                }
+                jobs.put(job.id, job);
+                if (!job.isFinished()) {
+                    start(job);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("读取 AI 任务失败: " + e.getMessage());
+        }
+    }
+
+    public AIJobDto submit(AIJobRequest request) {
+        String operation = request.operation() == null ? "" : request.operation().trim();
+        if (!OPERATIONS.contains(operation)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "不支持的操作: " + operation);
+        }
+
+        Set<Path> files = new LinkedHashSet<>();
+        if (request.noteIds() != null) {
+            request.noteIds().forEach(id -> files.add(notesService.noteFile(id)));
+        }
+        if (request.folderIds() != null) {
+            request.folderIds().forEach(id -> files.addAll(notesService.listMarkdownFiles(id)));
+        }
+        if (files.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "没有需要处理的笔记");
+        }
+
+        List<Item> items = new ArrayList<>(files.size());
+        for (Path file : files) {
+            items.add(new Item(items.size(), notesService.noteIdFor(file), notesService.titleFor(file), "pending", null));
+        }
+        AIJob job = new AIJob(UUID.randomUUID().toString(), operation, request.targetLang(), Instant.now(), items);
+        jobs.put(job.id, job);
+        persist(job);
+        start(job);
+        return job.toDto(true);
+    }
+
+    public List<AIJobDto> list() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((AIJob job) -> job.createdAt).reversed())
+                .map(AIJob::toSummaryDto)
+                .toList();
+    }
+
+    public AIJobDto get(String id, boolean includeResults) {
+        AIJob job = require(id);
+        if (!includeResults) {
+            return job.toDto(true);
+        }
+        List<AIJobItemDto> items = job.items.stream()
+                .map(item -> item.toDto("done".equals(item.status) ? readResult(job, item) : null))
+                .toList();
+        return job.toDto(items);
+    }
+
+    /**
+     * 单篇笔记的处理结果
+     */
+    public AIJobItemDto getItem(String id, int index) {
+        AIJob job = require(id);
+        if (index < 0 || index >= job.items.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务项不存在");
+        }
+        Item item = job.items.get(index);
+        return item.toDto("done".equals(item.status) ? readResult(job, item) : null);
+    }
+
+    /**
+     * 取消任务：不再开始新的笔记，正在处理的调用被中断
+     */
+    public AIJobDto cancel(String id) {
+        AIJob job = require(id);
+        job.cancelled = true;
+        job.running.values().forEach(Thread::interrupt);
+        return job.toDto(true);
+    }
+
+    public void delete(String id) {
+        AIJob job = require(id);
+        cancel(id);
+        jobs.remove(job.id);
+        deleteDirectory(jobsDir.resolve(job.id));
+    }
+
+    /**
+     * 订阅任务进度，返回取消订阅的操作
+     * 事件：item（单篇笔记状态变化）、progress（任务计数）、done（任务结束）
+     */
+    public Runnable subscribe(String id, BiConsumer<String, Object> listener) {
+        AIJob job = require(id);
+        job.listeners.add(listener);
+        return () -> job.listeners.remove(listener);
+    }
+
+    public boolean isFinished(String id) {
+        return require(id).isFinished();
+    }
+
+    /**
+     * 清理超过保留期的已结束任务
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(config.getRetention());
+        for (AIJob job : List.copyOf(jobs.values())) {
+            if (job.isFinished() && job.updatedAt.isBefore(cutoff)) {
+                jobs.remove(job.id);
+                deleteDirectory(jobsDir.resolve(job.id));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private AIJob require(String id) {
+        AIJob job = id == null ? null : jobs.get(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "任务不存在");
+        }
+        return job;
+    }
+
+    private void start(AIJob job) {
+        job.status = "running";
+        executor.execute(() -> run(job));
+    }
+
+    private void run(AIJob job) {
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Item item : job.items) {
+            // 恢复执行时跳过已处理的笔记；上次中断时正在处理的重新开始
+            if (!"pending".equals(item.status) && !"running".equals(item.status)) {
+                continue;
+            }
+            tasks.add(executor.submit(() -> process(job, item)));
+        }
+        try {
+            // 等待所有笔记处理结束
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    System.err.println("AI 任务处理失败: " + e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        job.running.clear();
+        if (job.cancelled) {
+            job.items.stream()
+                    .filter(item -> "pending".equals(item.status) || "running".equals(item.status))
+                    .forEach(item -> item.status = "cancelled");
+        }
+        job.status = job.cancelled ? "cancelled" : "completed";
+        persist(job);
+        notify(job, "done", job.toDto(true));
+    }
+
+    /**
+     * 处理一篇笔记：占用一个共享名额调用 AI；未通过准入控制时让出名额，退避后重新排队
+     */
+    private void process(AIJob job, Item item) {
+        job.running.put(item.index, Thread.currentThread());
+        try {
+            for (int attempt = 0; !job.cancelled; attempt++) {
+                permits.acquire();
+                AIResponse response;
+                try {
+                    if (job.cancelled) {
+                        break;
+                    }
+                    item.status = "running";
+                    notify(job, "item", item.toDto(null));
+                    response = call(job, item);
+                } finally {
+                    permits.release();
+                }
+                if (response.retryable() && !job.cancelled && attempt < config.getMaxRequeues()) {
+                    item.status = "pending";
+                    notify(job, "item", item.toDto(null));
+                    Thread.sleep(requeueDelay(attempt));
+                    continue;
+                }
+                // 开始保存结果后不再接受取消的中断
+                job.running.remove(item.index);
+                finish(job, item, response);
+                return;
+            }
+        } catch (InterruptedException e) {
+            // 任务被取消，或服务关闭（未完成的笔记在重启后继续）
+        } finally {
+            job.running.remove(item.index);
+        }
+        if (job.cancelled) {
+            finish(job, item, null);
+        }
+    }
+
+    private AIResponse call(AIJob job, Item item) {
+        try {
+            String content = Files.readString(notesService.noteFile(item.noteId), StandardCharsets.UTF_8);
+            return switch (job.operation) {
+                case "summarize" -> aiService.summarize(content);
+                case "translate" -> aiService.translate(content, job.targetLang);
+                default -> aiService.checkGrammar(content);
+            };
+        } catch (IOException e) {
+            return AIResponse.error("读取笔记失败");
+        } catch (ResponseStatusException e) {
+            return AIResponse.error(e.getReason());
+        } catch (RuntimeException e) {
+            System.err.println("AI 任务处理笔记失败: " + item.noteId + " " + e);
+            return AIResponse.error("处理失败: " + e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * 记录一篇笔记的最终状态；response 为 null 表示任务已取消
+     */
+    private void finish(AIJob job, Item item, AIResponse response) {
+        // 取消时线程被中断，清除中断标记以便保存状态
+        Thread.interrupted();
+
+        if (job.cancelled || response == null) {
+            item.status = "cancelled";
+        } else if (response.success()) {
+            // 先写临时文件再替换，写入中断不会留下不完整的结果
+            Path dir = jobsDir.resolve(job.id);
+            Path temp = null;
+            try {
+                temp = Files.createTempFile(dir, item.index + ".md", ".tmp");
+                Files.writeString(temp, response.result(), StandardCharsets.UTF_8);
+                Files.move(temp, dir.resolve(item.index + ".md"), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                item.status = "done";
+            } catch (ClosedByInterruptException e) {
+                // 保存期间仍收到了中断：取消时按取消处理，服务关闭时重启后重新处理
+                Thread.interrupted();
+                item.status = job.cancelled ? "cancelled" : "pending";
+            } catch (IOException e) {
+                item.status = "failed";
+                item.error = "保存结果失败";
+            } finally {
+                deleteQuietly(temp);
+            }
+        } else {
+            item.status = "failed";
+            item.error = response.error();
+        }
+        persist(job);
+        notify(job, "item", item.toDto(null));
+        notify(job, "progress", job.toSummaryDto());
+    }
+
+    /**
+     * 重新排队前的退避时间：指数增长，带抖动，最长 5 分钟
+     */
+    private long requeueDelay(int attempt) {
+        long ceiling = Math.min(config.getRequeueDelay().toMillis() << Math.min(attempt, 20), MAX_REQUEUE_DELAY_MS);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void notify(AIJob job, String event, Object data) {
+        for (BiConsumer<String, Object> listener : job.listeners) {
+            try {
+                listener.accept(event, data);
+            } catch (RuntimeException e) {
+                // 订阅方已断开
+                job.listeners.remove(listener);
+            }
+        }
+    }
+
+    private String readResult(AIJob job, Item item) {
+        try {
+            return Files.readString(jobsDir.resolve(job.id).resolve(item.index + ".md"), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 保存任务状态（先写临时文件再替换），多篇笔记并发完成时串行写入
+     */
+    private void persist(AIJob job) {
+        synchronized (job) {
+            // 已删除的任务不再写回
+            if (jobs.get(job.id) != job) {
+                return;
+            }
+            job.updatedAt = Instant.now();
+            Properties properties = new Properties();
+            properties.setProperty("id", job.id);
+            properties.setProperty("operation", job.operation);
+            if (job.targetLang != null) {
+                properties.setProperty("targetLang", job.targetLang);
+            }
+            properties.setProperty("status", job.status);
+            properties.setProperty("createdAt", job.createdAt.toString());
+            properties.setProperty("updatedAt", job.updatedAt.toString());
+            properties.setProperty("items", String.valueOf(job.items.size()));
+            for (Item item : job.items) {
+                String prefix = "item." + item.index + ".";
+                properties.setProperty(prefix + "noteId", item.noteId);
+                properties.setProperty(prefix + "title", item.title);
+                properties.setProperty(prefix + "status", item.status);
+                if (item.error != null) {
+                    properties.setProperty(prefix + "error", item.error);
+                }
+            }
+            try {
+                Path dir = Files.createDirectories(jobsDir.resolve(job.id));
+                Path temp = Files.createTempFile(dir, JOB_FILE, ".tmp");
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    properties.store(out, "MDViewer AI Job");
+                }
+                Files.move(temp, dir.resolve(JOB_FILE), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("保存 AI 任务失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private AIJob load(Path dir) {
+        Path file = dir.resolve(JOB_FILE);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            int count = Integer.parseInt(properties.getProperty("items", "0"));
+            List<Item> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String prefix = "item." + i + ".";
+                items.add(new Item(i, properties.getProperty(prefix + "noteId"), properties.getProperty(prefix + "title"),
+                        properties.getProperty(prefix + "status", "pending"), properties.getProperty(prefix + "error")));
+            }
+            AIJob job = new AIJob(properties.getProperty("id"), properties.getProperty("operation"),
+                    properties.getProperty("targetLang"), Instant.parse(properties.getProperty("createdAt")), items);
+            job.status = properties.getProperty("status", "queued");
+            job.updatedAt = Instant.parse(properties.getProperty("updatedAt", job.createdAt.toString()));
+            return job;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("读取 AI 任务失败: " + dir + " " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 临时文件删除失败不影响结果
+        }
+    }
+
+    private void deleteDirectory(Path dir) {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            System.err.println("删除 AI 任务失败: " + e.getMessage());
+        }
+    }
+
+    private static final class AIJob {
+        private final String id;
+        private final String operation;
+        private final String targetLang;
+        private final Instant createdAt;
+        private final List<Item> items;
+        private final List<BiConsumer<String, Object>> listeners = new CopyOnWriteArrayList<>();
+        // 正在处理（含等待名额和退避）的笔记序号 -> 处理线程，取消时中断
+        private final Map<Integer, Thread> running = new ConcurrentHashMap<>();
+        private volatile String status = "queued";
+        private volatile Instant updatedAt;
+        private volatile boolean cancelled;
+
+        AIJob(String id, String operation, String targetLang, Instant createdAt, List<Item> items) {
+            this.id = id;
+            this.operation = operation;
+            this.targetLang = targetLang;
+            this.createdAt = createdAt;
+            this.updatedAt = createdAt;
+            this.items = items;
+        }
+
+        boolean isFinished() {
+            return "completed".equals(status) || "cancelled".equals(status);
+        }
+
+        AIJobDto toDto(boolean withItems) {
+            return toDto(withItems ? items.stream().map(item -> item.toDto(null)).toList() : List.of());
+        }
+
+        AIJobDto toSummaryDto() {
+            return toDto(List.of());
+        }
+
+        AIJobDto toDto(List<AIJobItemDto> itemDtos) {
+            int completed = 0;
+            int failed = 0;
+            for (Item item : items) {
+                if ("done".equals(item.status)) {
+                    completed++;
+                } else if ("failed".equals(item.status)) {
+                    failed++;
+                }
+            }
+            return new AIJobDto(id, operation, targetLang, status, items.size(), completed, failed,
+                    createdAt.toString(), updatedAt.toString(), itemDtos);
+        }
+    }
+
+    private static final class Item {
+        private final int index;
+        private final String noteId;
+        private final String title;
+        private volatile String status;
+        private volatile String error;
+
+        Item(int index, String noteId, String title, String status, String error) {
+            this.index = index;
+            this.noteId = noteId;
+            this.title = title;
+            this.status = status;
+            this.error = error;
+        }
+
+        AIJobItemDto toDto(String result) {
+            return new AIJobItemDto(index, noteId, title, status, result, error);
+        }
+    }
+}
@@ -1,46 +1,88 @@
 package com.example.mdviewer.backend.service;
 
+import com.example.mdviewer.backend.config.AIProperties;
 import com.example.mdviewer.backend.config.NotesProperties;
 import com.example.mdviewer.backend.dto.AIConfigRequest;
 import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.service.ai.AIAdmissionException;
+import com.example.mdviewer.backend.service.ai.AICancelledException;
+import com.example.mdviewer.backend.service.ai.AIMetrics;
+import com.example.mdviewer.backend.service.ai.AIResponseCache;
+import com.example.mdviewer.backend.service.ai.ChatTurn;
+import com.example.mdviewer.backend.service.ai.ChunkListener;
+import com.example.mdviewer.backend.service.ai.LocalEmbedding;
+import com.example.mdviewer.backend.service.ai.MarkdownChunker;
+import com.example.mdviewer.backend.service.ai.ProviderAdmission;
+import com.example.mdviewer.backend.service.ai.ProviderFailover;
+import com.example.mdviewer.backend.service.ai.TokenEstimator;
+import com.example.mdviewer.backend.service.ai.provider.AIProviderAdapter;
+import com.example.mdviewer.backend.service.ai.provider.AIProviderAdapters;
+import com.example.mdviewer.backend.service.ai.provider.ChatCompletion;
+import com.example.mdviewer.backend.service.ai.provider.ChatMessage;
+import com.example.mdviewer.backend.service.ai.provider.ChatRequest;
+import com.example.mdviewer.backend.service.ai.provider.EmbeddingRequest;
+import com.example.mdviewer.backend.service.ai.provider.ProviderEndpoint;
+import com.example.mdviewer.backend.service.ai.provider.ProviderResponseException;
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.PostConstruct;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * AI 服务
  * 支持多种 AI 提供商：OpenAI, DeepSeek, GLM, Gemini, Moonshot, Qwen 等
  */
 @Service
+@Timed(value = "ai.operation", histogram = true)
 public class AIService {
     
     private static final String CONFIG_FILE_NAME = ".ai-config.properties";
+    private static final int MAX_TOKENS = 2000;
+    private static final int MOCK_STREAM_CHUNK = 4;
+    private static final long MOCK_STREAM_DELAY_MS = 30;
     
     // 运行时配置存储
     private final Map<String, String> runtimeConfig = new ConcurrentHashMap<>();
     
-    private final RestTemplate restTemplate = new RestTemplate();
     private final NotesProperties notesProperties;
+    private final AIProperties aiProperties;
+    private final AIProviderAdapters adapters;
+    private final AIResponseCache responseCache;
+    private final ProviderAdmission admission;
+    private final ProviderFailover failover;
+    private final MarkdownLintService lintService;
+    private final AIMetrics metrics;
     
-    public AIService(NotesProperties notesProperties) {
+    public AIService(NotesProperties notesProperties, AIProperties aiProperties, AIProviderAdapters adapters,
+                     AIResponseCache responseCache, ProviderAdmission admission,
+                     ProviderFailover failover, MarkdownLintService lintService, AIMetrics metrics) {
         this.notesProperties = notesProperties;
+        this.aiProperties = aiProperties;
+        this.adapters = adapters;
+        this.responseCache = responseCache;
+        this.admission = admission;
+        this.failover = failover;
+        this.lintService = lintService;
+        this.metrics = metrics;
         // 默认配置
         runtimeConfig.put("provider", "mock");
         runtimeConfig.put("apiKey", "");
@@ -109,6 +151,23 @@ public class AIService {
         if (config.model() != null) {
             runtimeConfig.put("model", config.model());
         }
+        if (config.fallbacks() != null) {
+            // 备用提供商保存为 fallback.{序号}.{字段}
+            runtimeConfig.keySet().removeIf(key -> key.startsWith("fallback."));
+            int index = 1;
+            for (AIConfigRequest fallback : config.fallbacks()) {
+                if (fallback.provider() == null || fallback.provider().isBlank()) {
+                    continue;
+                }
+                String prefix = "fallback." + index++ + ".";
+                runtimeConfig.put(prefix + "provider", fallback.provider());
+                runtimeConfig.put(prefix + "apiKey", Optional.ofNullable(fallback.apiKey()).orElse(""));
+                runtimeConfig.put(prefix + "apiUrl", Optional.ofNullable(fallback.apiUrl()).orElse(""));
+                runtimeConfig.put(prefix + "model", Optional.ofNullable(fallback.model()).orElse(""));
+            }
+        }
+        // 配置变化后重新统计各提供商的健康状况
+        failover.reset();
         // 保存到文件
         saveConfigToFile();
     }
@@ -121,7 +180,8 @@ public class AIService {
             "provider", runtimeConfig.getOrDefault("provider", "mock"),
             "apiUrl", runtimeConfig.getOrDefault("apiUrl", ""),
             "model", runtimeConfig.getOrDefault("model", ""),
-            "hasApiKey", String.valueOf(!runtimeConfig.getOrDefault("apiKey", "").isBlank())
+            "hasApiKey", String.valueOf(!runtimeConfig.getOrDefault("apiKey", "").isBlank()),
+            "fallbacks", String.join(",", endpoints().stream().skip(1).map(ProviderEndpoint::provider).toList())
         );
     }
     
@@ -143,16 +203,12 @@ public class AIService {
         }
         
         try {
-            // 根据提供商调用测试
-            if ("gemini".equals(provider)) {
-                return testGemini(apiKey, apiUrl, model);
-            } else if ("zhipu".equals(provider)) {
-                return testZhipu(apiKey, apiUrl, model);
-            } else {
-                return testOpenAICompatible(apiKey, apiUrl, model);
-            }
+            ChatRequest request = new ChatRequest(new ProviderEndpoint(provider, apiKey, apiUrl, model),
+                userMessages("Hello, this is a test. Reply with 'OK'."), MAX_TOKENS);
+            adapters.forProvider(provider).chat(request);
+            return AIResponse.success("连接成功");
         } catch (Exception e) {
-            return AIResponse.error("连接失败: " + e.getMessage());
+            return AIResponse.error("连接失败: " + errorMessage(e));
         }
     }
     
@@ -164,13 +220,11 @@ public class AIService {
             return AIResponse.error("文本不能为空");
         }
         
-        String provider = runtimeConfig.get("provider");
-        if ("mock".equals(provider) || runtimeConfig.get("apiKey").isBlank()) {
+        if (isMockMode()) {
             return mockComplete(text);
         }
         
-        String prompt = "请续写以下文本，保持风格和语调一致，直接输出续写内容：\n\n" + text;
-        return callAI(prompt);
+        return callAI("complete", completePrompt(text));
     }
     
     /**
@@ -181,286 +235,697 @@ public class AIService {
             return AIResponse.error("文本不能为空");
         }
         
-        if (targetLang == null || (!targetLang.equals("zh") && !targetLang.equals("en"))) {
-            targetLang = "zh";
+        targetLang = normalizeTargetLang(targetLang);
+        if (needsChunking(text)) {
+            return processLongText("translate", text, targetLang, ChunkListener.NONE);
         }
         
-        String provider = runtimeConfig.get("provider");
-        if ("mock".equals(provider) || runtimeConfig.get("apiKey").isBlank()) {
+        if (isMockMode()) {
             return mockTranslate(text, targetLang);
         }
         
-        String lang = "zh".equals(targetLang) ? "中文" : "英文";
-        String prompt = "请将以下文本翻译成" + lang + "，只输出翻译结果：\n\n" + text;
-        return callAI(prompt);
+        return callAI("translate", translatePrompt(text, targetLang));
     }
     
     /**
      * 语法检查
+     * 机械性问题先由本地规则修正，只有仍含正文时才请求 AI
      */
     public AIResponse checkGrammar(String text) {
         if (text == null || text.isBlank()) {
             return AIResponse.error("文本不能为空");
         }
         
-        String provider = runtimeConfig.get("provider");
-        if ("mock".equals(provider) || runtimeConfig.get("apiKey").isBlank()) {
+        text = lintService.fix(text);
+        if (!lintService.hasProse(text)) {
+            return AIResponse.success(text);
+        }
+        
+        if (needsChunking(text)) {
+            return processLongText("grammar", text, null, ChunkListener.NONE);
+        }
+        
+        if (isMockMode()) {
             return mockGrammar(text);
         }
         
-        String prompt = "请检查以下文本的语法错误并改正，只返回修正后的文本：\n\n" + text;
-        return callAI(prompt);
+        return callAI("grammar", grammarPrompt(text));
     }
     
     /**
-     * AI 对话
+     * 总结
      */
-    public AIResponse chat(String text) {
+    public AIResponse summarize(String text) {
         if (text == null || text.isBlank()) {
-            return AIResponse.error("消息不能为空");
+            return AIResponse.error("文本不能为空");
         }
         
-        String provider = runtimeConfig.get("provider");
-        if ("mock".equals(provider) || runtimeConfig.get("apiKey").isBlank()) {
-            return mockChat(text);
+        if (needsChunking(text)) {
+            return processLongText("summarize", text, null, ChunkListener.NONE);
         }
-        
-        return callAI(text);
+        return runOperation("summarize", text, null);
     }
     
     /**
-     * 调用 AI API（OpenAI 兼容格式）
+     * 长文本分块处理（translate, grammar, summarize）
+     * 按标题和段落边界切分，在提供商并发上限内并行处理各块，再按原顺序拼接；代码块原样保留。
+     * 总结在各块摘要之上再做一次归并
      */
-    private AIResponse callAI(String prompt) {
-        String apiKey = runtimeConfig.get("apiKey");
-        String apiUrl = runtimeConfig.get("apiUrl");
-        String model = runtimeConfig.get("model");
-        String provider = runtimeConfig.get("provider");
+    public AIResponse processLongText(String action, String text, String targetLang, ChunkListener listener) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("文本不能为空");
+        }
+        if (!"translate".equals(action) && !"grammar".equals(action) && !"summarize".equals(action)) {
+            return AIResponse.error("不支持的操作: " + action);
+        }
+        String lang = normalizeTargetLang(targetLang);
+        boolean grammar = "grammar".equals(action);
+        if (grammar) {
+            text = lintService.fix(text);
+        }
         
-        if (apiKey == null || apiKey.isBlank()) {
-            return AIResponse.error("请先在 AI 设置中配置 API Key");
+        List<MarkdownChunker.Chunk> chunks = MarkdownChunker.split(text, aiProperties.getChunkTokens());
+        if ("summarize".equals(action)) {
+            // 总结时代码块不需要原样输出，也无需单独处理
+            chunks = chunks.stream().filter(chunk -> !chunk.passthrough()).toList();
         }
+        int total = chunks.size();
+        String[] results = new String[total];
+        AtomicInteger completed = new AtomicInteger();
+        List<AIResponse> errors = new CopyOnWriteArrayList<>();
         
-        try {
-            if ("gemini".equals(provider)) {
-                return callGemini(apiKey, apiUrl, model, prompt);
-            } else if ("zhipu".equals(provider)) {
-                return callZhipu(apiKey, apiUrl, model, prompt);
-            } else {
-                return callOpenAICompatible(apiKey, apiUrl, model, prompt);
+        int parallelism = Math.max(1, aiProperties.limitsFor(runtimeConfig.get("provider")).getMaxInFlight());
+        Semaphore permits = new Semaphore(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                int index = i;
+                MarkdownChunker.Chunk chunk = chunks.get(i);
+                executor.execute(() -> {
+                    // 语法检查时，本地规则已处理完、没有正文的分块同样原样保留
+                    if (chunk.passthrough() || (grammar && !lintService.hasProse(chunk.text()))) {
+                        results[index] = chunk.text();
+                    } else {
+                        try {
+                            permits.acquire();
+                        } catch (InterruptedException e) {
+                            // 请求已取消，剩余分块不再处理
+                            errors.add(AIResponse.error("AI 请求已取消"));
+                            return;
+                        }
+                        try {
+                            AIResponse response = runOperation(action, chunk.text().strip(), lang);
+                            if (response.success()) {
+                                results[index] = keepSurroundingWhitespace(chunk.text(), response.result());
+                            } else {
+                                errors.add(response);
+                            }
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    listener.onChunkDone(index, completed.incrementAndGet(), total);
+                });
             }
-        } catch (Exception e) {
-            return AIResponse.error("AI 调用失败: " + e.getMessage());
         }
+        
+        if (!errors.isEmpty()) {
+            return errors.get(0);
+        }
+        if (!"summarize".equals(action)) {
+            return AIResponse.success(String.join("", results));
+        }
+        if (total == 1) {
+            return AIResponse.success(results[0].strip());
+        }
+        
+        // 归并各块摘要；摘要本身过长时继续分块归并
+        String combined = String.join("\n\n", Arrays.stream(results).map(String::strip).toList());
+        if (needsChunking(combined)) {
+            return processLongText("summarize", combined, null, ChunkListener.NONE);
+        }
+        return runOperation("summarize", combined, null);
     }
     
     /**
-     * 调用 OpenAI 兼容 API（OpenAI, DeepSeek, GLM, Moonshot, Qwen 等）
+     * AI 对话
      */
-    private AIResponse callOpenAICompatible(String apiKey, String apiUrl, String model, String prompt) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-        
-        Map<String, Object> requestBody = Map.of(
-            "model", model != null && !model.isBlank() ? model : "gpt-3.5-turbo",
-            "messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ),
-            "max_tokens", 2000,
-            "temperature", 0.7
-        );
+    public AIResponse chat(String text) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("消息不能为空");
+        }
         
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+        if (isMockMode()) {
+            return mockChat(text);
+        }
         
-        @SuppressWarnings("unchecked")
-        Map<String, Object> response = restTemplate.postForObject(apiUrl, entity, Map.class);
+        return callAI("chat", text);
+    }
+    
+    /**
+     * 基于资料的对话：sources 为按相关度排序的笔记片段，回答中以 [编号] 标注出处
+     */
+    public AIResponse chatWithSources(String text, List<String> sources) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("消息不能为空");
+        }
+        if (sources.isEmpty()) {
+            return chat(text);
+        }
         
-        if (response != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
-                if (message != null) {
-                    return AIResponse.success(message.get("content"));
-                }
-            }
+        if (isMockMode()) {
+            return mockChatWithSources(text, sources);
         }
         
-        return AIResponse.error("AI 响应格式错误");
+        return callAI("chat", sourcesPrompt(text, sources));
     }
     
     /**
-     * 调用 Google Gemini API
+     * 多轮对话：summary 为较早对话的滚动摘要，history 为最近的对话
      */
-    private AIResponse callGemini(String apiKey, String apiUrl, String model, String prompt) {
-        // Gemini API 使用不同的格式
-        String url = apiUrl.replace("{model}", model != null ? model : "gemini-1.5-flash");
-        url = url + "?key=" + apiKey;
+    public AIResponse converse(String summary, List<ChatTurn> history, String text) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("消息不能为空");
+        }
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (isMockMode()) {
+            return mockConverse(history, text);
+        }
         
-        Map<String, Object> requestBody = Map.of(
-            "contents", List.of(
-                Map.of("parts", List.of(
-                    Map.of("text", prompt)
-                ))
-            )
-        );
+        return callAI("chat", conversationMessages(summary, history, text));
+    }
+    
+    /**
+     * 多轮对话的流式版本
+     */
+    public AIResponse streamConverse(String summary, List<ChatTurn> history, String text, Consumer<String> onToken) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("消息不能为空");
+        }
         
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        @SuppressWarnings("unchecked")
-        Map<String, Object> response = restTemplate.postForObject(url, entity, Map.class);
-        
-        if (response != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.get("candidates");
-            if (candidates != null && !candidates.isEmpty()) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> content = (Map<String, Object>) candidates.get(0).get("content");
-                if (content != null) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, String>> parts = (List<Map<String, String>>) content.get("parts");
-                    if (parts != null && !parts.isEmpty()) {
-                        return AIResponse.success(parts.get(0).get("text"));
-                    }
-                }
-            }
+        if (isMockMode()) {
+            AIResponse response = mockConverse(history, text);
+            mockStream(response.result(), onToken);
+            return response;
         }
         
-        return AIResponse.error("Gemini 响应格式错误");
+        return streamAI("chat", conversationMessages(summary, history, text), onToken);
+    }
+    
+    /**
+     * 内联补全：根据光标前后的上下文生成插入光标处的一小段文本，不回显原文
+     */
+    public AIResponse inlineComplete(String prefix, String suffix, int maxTokens) {
+        if (isMockMode()) {
+            return mockInline(prefix);
+        }
+        return callAI("inline", inlineMessages(prefix, suffix), maxTokens);
+    }
+    
+    /**
+     * 内联补全的流式版本
+     */
+    public AIResponse streamInlineComplete(String prefix, String suffix, int maxTokens, Consumer<String> onToken) {
+        if (isMockMode()) {
+            AIResponse response = mockInline(prefix);
+            mockStream(response.result(), onToken);
+            return response;
+        }
+        return streamAI("inline", inlineMessages(prefix, suffix), maxTokens, onToken);
+    }
+    
+    /**
+     * 对话压缩：把较早的对话并入滚动摘要，返回新的摘要
+     */
+    public AIResponse summarizeConversation(String summary, List<ChatTurn> turns, int maxTokens) {
+        if (isMockMode()) {
+            return mockSummarizeConversation(summary, turns, maxTokens);
+        }
+        return callAI("summarize", conversationSummaryPrompt(summary, turns, maxTokens));
     }
     
     /**
-     * 调用智谱 AI (GLM) API - 使用 JWT 认证
+     * 流式调用：提供商每返回一段内容就回调 onToken，结束后返回完整结果
+     * action: complete, translate, grammar, chat
      */
-    private AIResponse callZhipu(String apiKey, String apiUrl, String model, String prompt) {
-        String token = generateZhipuToken(apiKey);
-        if (token == null) {
-            return AIResponse.error("智谱 API Key 格式错误，应为 {id}.{secret} 格式");
+    public AIResponse stream(String action, String text, String targetLang, Consumer<String> onToken) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("文本不能为空");
+        }
+        String lang = normalizeTargetLang(targetLang);
+        if ("grammar".equals(action)) {
+            text = lintService.fix(text);
+            if (!lintService.hasProse(text)) {
+                onToken.accept(text);
+                return AIResponse.success(text);
+            }
         }
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(token);
+        if (isMockMode()) {
+            AIResponse response = mockOperation(action, text, lang);
+            if (response.success()) {
+                mockStream(response.result(), onToken);
+            }
+            return response;
+        }
         
-        Map<String, Object> requestBody = Map.of(
-            "model", model != null && !model.isBlank() ? model : "glm-4-flash",
-            "messages", List.of(
-                Map.of("role", "user", "content", prompt)
-            ),
-            "max_tokens", 2000,
-            "temperature", 0.7
+        String prompt = promptFor(action, text, lang);
+        if (prompt == null) {
+            return AIResponse.error("不支持的操作: " + action);
+        }
+        return streamAI(action, prompt, onToken);
+    }
+    
+    /**
+     * 执行单次操作（不分块）：演示模式返回示例结果，否则调用 AI
+     */
+    private AIResponse runOperation(String action, String text, String lang) {
+        if (isMockMode()) {
+            return mockOperation(action, text, lang);
+        }
+        String prompt = promptFor(action, text, lang);
+        if (prompt == null) {
+            return AIResponse.error("不支持的操作: " + action);
+        }
+        return callAI(action, prompt);
+    }
+    
+    private AIResponse mockOperation(String action, String text, String lang) {
+        return switch (action) {
+            case "complete" -> mockComplete(text);
+            case "translate" -> mockTranslate(text, lang);
+            case "grammar" -> mockGrammar(text);
+            case "summarize" -> mockSummarize(text);
+            case "chat" -> mockChat(text);
+            default -> AIResponse.error("不支持的操作: " + action);
+        };
+    }
+    
+    private String promptFor(String action, String text, String lang) {
+        return switch (action) {
+            case "complete" -> completePrompt(text);
+            case "translate" -> translatePrompt(text, lang);
+            case "grammar" -> grammarPrompt(text);
+            case "summarize" -> summarizePrompt(text);
+            case "chat" -> text;
+            default -> null;
+        };
+    }
+    
+    private boolean needsChunking(String text) {
+        return TokenEstimator.estimate(text) > aiProperties.getChunkTokens();
+    }
+    
+    /**
+     * 保留原分块首尾的空白（段落间空行、换行），使拼接结果维持原有结构
+     */
+    private static String keepSurroundingWhitespace(String original, String result) {
+        int start = 0;
+        while (start < original.length() && Character.isWhitespace(original.charAt(start))) {
+            start++;
+        }
+        int end = original.length();
+        while (end > start && Character.isWhitespace(original.charAt(end - 1))) {
+            end--;
+        }
+        return original.substring(0, start) + result.strip() + original.substring(end);
+    }
+    
+    private boolean isMockMode() {
+        return "mock".equals(runtimeConfig.get("provider")) || runtimeConfig.get("apiKey").isBlank();
+    }
+    
+    private String normalizeTargetLang(String targetLang) {
+        if (targetLang == null || (!targetLang.equals("zh") && !targetLang.equals("en"))) {
+            return "zh";
+        }
+        return targetLang;
+    }
+    
+    private String completePrompt(String text) {
+        return "请续写以下文本，保持风格和语调一致，直接输出续写内容：\n\n" + text;
+    }
+    
+    private static List<ChatMessage> inlineMessages(String prefix, String suffix) {
+        return List.of(
+            ChatMessage.system("你是编辑器中的内联补全引擎。用户消息中的 ▮ 表示光标位置。只输出应插入光标处的文本："
+                + "不要重复光标前后已有的内容，不要解释，不要用代码块包裹；通常不超过一句话或一行代码。"),
+            ChatMessage.user(prefix + "▮" + suffix)
         );
+    }
+    
+    private String translatePrompt(String text, String targetLang) {
+        String lang = "zh".equals(targetLang) ? "中文" : "英文";
+        return "请将以下文本翻译成" + lang + "，只输出翻译结果：\n\n" + text;
+    }
+    
+    private String grammarPrompt(String text) {
+        return "请检查以下文本的语法错误并改正，只返回修正后的文本：\n\n" + text;
+    }
+    
+    private String summarizePrompt(String text) {
+        return "请总结以下内容的要点，使用简洁的条目列出，只输出总结：\n\n" + text;
+    }
+    
+    private List<ChatMessage> conversationMessages(String summary, List<ChatTurn> history, String text) {
+        List<ChatMessage> messages = new ArrayList<>(history.size() + 2);
+        if (summary != null && !summary.isBlank()) {
+            messages.add(ChatMessage.system("以下是此前对话的摘要，请在回答时参考：\n" + summary));
+        }
+        for (ChatTurn turn : history) {
+            messages.add(new ChatMessage(turn.role(), turn.content()));
+        }
+        messages.add(ChatMessage.user(text));
+        return messages;
+    }
+    
+    private String conversationSummaryPrompt(String summary, List<ChatTurn> turns, int maxTokens) {
+        StringBuilder prompt = new StringBuilder("请把以下对话压缩为一段摘要，保留事实、结论、用户偏好和未解决的问题，"
+            + "不超过 " + maxTokens + " 个 Token，只输出摘要：\n\n");
+        if (summary != null && !summary.isBlank()) {
+            prompt.append("已有摘要：\n").append(summary).append("\n\n");
+        }
+        for (ChatTurn turn : turns) {
+            prompt.append("user".equals(turn.role()) ? "用户：" : "助手：").append(turn.content()).append("\n");
+        }
+        return prompt.toString();
+    }
+    
+    private String sourcesPrompt(String text, List<String> sources) {
+        StringBuilder prompt = new StringBuilder(
+            "以下是从用户笔记中检索到的资料。请优先依据这些资料回答问题，并在引用处用 [编号] 标注出处；资料不足时请说明。\n\n");
+        for (int i = 0; i < sources.size(); i++) {
+            prompt.append('[').append(i + 1).append("] ").append(sources.get(i).strip()).append("\n\n");
+        }
+        return prompt.append("问题：").append(text).toString();
+    }
+    
+    /**
+     * 获取 AI 响应缓存统计
+     */
+    public Map<String, Object> getCacheStats() {
+        return responseCache.stats();
+    }
+    
+    /**
+     * 清空 AI 响应缓存
+     */
+    public void clearCache() {
+        responseCache.clear();
+    }
+    
+    /**
+     * 获取各提供商的排队、等待和重试统计
+     */
+    public Map<String, Object> getLimiterStats() {
+        return admission.stats();
+    }
+    
+    /**
+     * 获取各提供商的熔断状态和对冲统计
+     */
+    public Map<String, Object> getFailoverStats() {
+        return failover.stats();
+    }
+    
+    /**
+     * 按优先级排列的提供商：当前提供商在前，其后为已配置 API Key 的备用提供商（同一提供商只取第一个）
+     */
+    private List<ProviderEndpoint> endpoints() {
+        List<ProviderEndpoint> endpoints = new ArrayList<>();
+        endpoints.add(new ProviderEndpoint(runtimeConfig.get("provider"), runtimeConfig.get("apiKey"),
+            runtimeConfig.get("apiUrl"), runtimeConfig.get("model")));
+        for (int index = 1; runtimeConfig.containsKey("fallback." + index + ".provider"); index++) {
+            String prefix = "fallback." + index + ".";
+            ProviderEndpoint fallback = new ProviderEndpoint(runtimeConfig.get(prefix + "provider"),
+                runtimeConfig.get(prefix + "apiKey"), runtimeConfig.get(prefix + "apiUrl"), runtimeConfig.get(prefix + "model"));
+            boolean duplicate = endpoints.stream().anyMatch(e -> e.provider().equals(fallback.provider()));
+            if (!duplicate && !"mock".equals(fallback.provider()) && !fallback.apiKey().isBlank()) {
+                endpoints.add(fallback);
+            }
+        }
+        return endpoints;
+    }
+    
+    /**
+     * 调用 AI API（OpenAI 兼容格式），相同提示词优先命中缓存
+     */
+    private AIResponse callAI(String operation, String prompt) {
+        return callAI(operation, userMessages(prompt), MAX_TOKENS);
+    }
+    
+    /**
+     * 以多条消息（system / user / assistant）调用 AI API
+     */
+    private AIResponse callAI(String operation, List<ChatMessage> messages) {
+        return callAI(operation, messages, MAX_TOKENS);
+    }
+    
+    /**
+     * 以多条消息调用 AI API，maxTokens 限制输出长度
+     */
+    private AIResponse callAI(String operation, List<ChatMessage> messages, int maxTokens) {
+        List<ProviderEndpoint> endpoints = endpoints();
+        ProviderEndpoint primary = endpoints.get(0);
         
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-        
-        @SuppressWarnings("unchecked")
-        Map<String, Object> response = restTemplate.postForObject(apiUrl, entity, Map.class);
+        if (primary.apiKey() == null || primary.apiKey().isBlank()) {
+            return AIResponse.error("请先在 AI 设置中配置 API Key");
+        }
         
-        if (response != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> message = (Map<String, String>) choices.get(0).get("message");
-                if (message != null) {
-                    return AIResponse.success(message.get("content"));
-                }
+        String prompt = transcript(messages);
+        boolean cacheable = responseCache.isCacheable(operation);
+        if (cacheable) {
+            Optional<String> cached = responseCache.get(cacheKey(endpoints, primary.provider(), operation, prompt));
+            if (cached.isPresent()) {
+                return AIResponse.success(cached.get());
             }
         }
         
-        return AIResponse.error("智谱 AI 响应格式错误");
+        Answer<AIResponse> answer;
+        try {
+            // 按优先级对冲与故障转移；每个提供商各自经过准入控制：并发上限、速率限制、排队和失败重试
+            answer = failover.execute(providerNames(endpoints), false, (provider, claim) -> {
+                ChatRequest request = new ChatRequest(endpoint(endpoints, provider), messages, maxTokens);
+                AIProviderAdapter adapter = adapters.forProvider(provider);
+                String model = request.endpoint().modelOr(adapter.defaultModel(provider));
+                int promptTokens = TokenEstimator.estimate(prompt);
+                return new Answer<>(provider, admission.execute(provider, promptTokens + maxTokens, () -> {
+                    try {
+                        ChatCompletion completion = metrics.time(provider, model, operation, promptTokens, () -> adapter.chat(request));
+                        metrics.tokens(provider, model, promptTokens, TokenEstimator.estimate(completion.content()));
+                        return AIResponse.success(completion.content());
+                    } catch (ProviderResponseException e) {
+                        return AIResponse.error(errorMessage(e));
+                    }
+                }));
+            }, result -> result.value().success() && !result.value().result().isBlank());
+        } catch (AICancelledException e) {
+            return AIResponse.cancelled(e.getMessage());
+        } catch (AIAdmissionException e) {
+            return AIResponse.rejected(errorMessage(e));
+        } catch (Exception e) {
+            return AIResponse.error("AI 调用失败: " + errorMessage(e));
+        }
+        
+        AIResponse response = answer.value();
+        if (cacheable && response.success() && !response.result().isBlank()) {
+            // 按实际应答的提供商缓存，备用提供商的结果不会在之后冒充主提供商的结果
+            responseCache.put(cacheKey(endpoints, answer.provider(), operation, prompt), response.result());
+        }
+        return response;
     }
     
     /**
-     * 生成智谱 AI JWT Token
-     * API Key 格式: {api_key_id}.{api_key_secret}
+     * 是否已配置真实的 AI 提供商（非演示模式）
      */
-    private String generateZhipuToken(String apiKey) {
-        try {
-            String[] parts = apiKey.split("\\.");
-            if (parts.length != 2) {
-                return null;
-            }
-            
-            String apiKeyId = parts[0];
-            String apiKeySecret = parts[1];
-            
-            long now = System.currentTimeMillis();
-            long exp = now + 3600 * 1000; // 1小时过期
-            
-            // JWT Header
-            String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
-                "{\"alg\":\"HS256\",\"sign_type\":\"SIGN\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8)
-            );
-            
-            // JWT Payload
-            String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
-                String.format("{\"api_key\":\"%s\",\"exp\":%d,\"timestamp\":%d}", apiKeyId, exp, now)
-                    .getBytes(StandardCharsets.UTF_8)
-            );
-            
-            // JWT Signature
-            String signContent = header + "." + payload;
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(apiKeySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            byte[] signatureBytes = mac.doFinal(signContent.getBytes(StandardCharsets.UTF_8));
-            String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(signatureBytes);
-            
-            return signContent + "." + signature;
-        } catch (Exception e) {
-            return null;
+    public boolean isConfigured() {
+        return !isMockMode();
+    }
+    
+    // ========== 向量化 ==========
+    
+    /**
+     * 当前向量化方案的标识（提供商 + 模型），变化时已有向量需要全部重建
+     */
+    public String embeddingSignature() {
+        if (isMockMode()) {
+            return "local:" + aiProperties.getEmbedding().getLocalDimensions();
         }
+        String provider = runtimeConfig.get("provider");
+        return provider + ":" + embeddingModel(provider);
     }
     
     /**
-     * 测试智谱 AI 连接
+     * 文本向量化：演示模式使用本地确定性向量，否则调用当前提供商的 Embedding 接口。
+     * 返回的向量均已归一化
      */
-    private AIResponse testZhipu(String apiKey, String apiUrl, String model) {
+    public List<float[]> embed(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        if (isMockMode()) {
+            int dimensions = aiProperties.getEmbedding().getLocalDimensions();
+            return texts.stream().map(text -> LocalEmbedding.embed(text, dimensions)).toList();
+        }
+        
+        ProviderEndpoint endpoint = endpoints().get(0);
+        String provider = endpoint.provider();
+        EmbeddingRequest request = new EmbeddingRequest(endpoint, embeddingModel(provider), texts);
+        int tokens = texts.stream().mapToInt(TokenEstimator::estimate).sum();
+        List<float[]> vectors = admission.execute(provider, tokens, () -> metrics.time(provider, request.model(),
+            "embedding", tokens, () -> adapters.forProvider(provider).embed(request)));
+        metrics.tokens(provider, request.model(), tokens, 0);
+        if (vectors.size() != texts.size()) {
+            throw new IllegalStateException("Embedding 响应条数不匹配");
+        }
+        vectors.forEach(AIService::normalize);
+        return vectors;
+    }
+    
+    private String embeddingModel(String provider) {
+        String configured = aiProperties.getEmbedding().getModel();
+        if (configured != null && !configured.isBlank()) {
+            return configured;
+        }
+        return adapters.forProvider(provider).defaultEmbeddingModel(provider);
+    }
+    
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum > 0) {
+            float scale = (float) (1 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+    }
+    
+    // ========== 流式调用 ==========
+    
+    private AIResponse streamAI(String operation, String prompt, Consumer<String> onToken) {
+        return streamAI(operation, userMessages(prompt), MAX_TOKENS, onToken);
+    }
+    
+    private AIResponse streamAI(String operation, List<ChatMessage> messages, Consumer<String> onToken) {
+        return streamAI(operation, messages, MAX_TOKENS, onToken);
+    }
+    
+    private AIResponse streamAI(String operation, List<ChatMessage> messages, int maxTokens,
+                                Consumer<String> onToken) {
+        List<ProviderEndpoint> endpoints = endpoints();
+        ProviderEndpoint primary = endpoints.get(0);
+        
+        if (primary.apiKey() == null || primary.apiKey().isBlank()) {
+            return AIResponse.error("请先在 AI 设置中配置 API Key");
+        }
+        
+        // 命中缓存时一次性推送完整结果
+        String prompt = transcript(messages);
+        boolean cacheable = responseCache.isCacheable(operation);
+        if (cacheable) {
+            Optional<String> cached = responseCache.get(cacheKey(endpoints, primary.provider(), operation, prompt));
+            if (cached.isPresent()) {
+                onToken.accept(cached.get());
+                return AIResponse.success(cached.get());
+            }
+        }
+        
         try {
-            AIResponse response = callZhipu(apiKey, apiUrl, model, "你好，请回复 OK");
-            if (response.success()) {
-                return AIResponse.success("连接成功");
+            // 以第一段输出定胜负：胜出的提供商继续向客户端输出，其余请求被取消
+            Answer<String> answer = failover.execute(providerNames(endpoints), true, (provider, claim) -> {
+                ChatRequest request = new ChatRequest(endpoint(endpoints, provider), messages, maxTokens);
+                AIProviderAdapter adapter = adapters.forProvider(provider);
+                String model = request.endpoint().modelOr(adapter.defaultModel(provider));
+                int promptTokens = TokenEstimator.estimate(prompt);
+                StringBuilder output = new StringBuilder();
+                Consumer<String> collector = token -> {
+                    if (!claim.getAsBoolean()) {
+                        throw new CancellationException("已由其他提供商应答");
+                    }
+                    output.append(token);
+                    onToken.accept(token);
+                };
+                // 已经向客户端输出内容后不再重试，避免重复输出
+                admission.execute(provider, promptTokens + maxTokens, () -> output.isEmpty(), () -> {
+                    metrics.time(provider, model, operation, promptTokens, () -> {
+                        adapter.stream(request, collector);
+                        return null;
+                    });
+                    return null;
+                });
+                metrics.tokens(provider, model, promptTokens, TokenEstimator.estimate(output.toString()));
+                return new Answer<>(provider, output.toString());
+            }, output -> !output.value().isBlank());
+            String full = answer.value();
+            if (full.isBlank()) {
+                return AIResponse.error("AI 未返回内容");
             }
-            return response;
+            if (cacheable) {
+                responseCache.put(cacheKey(endpoints, answer.provider(), operation, prompt), full);
+            }
+            return AIResponse.success(full);
+        } catch (AICancelledException e) {
+            return AIResponse.cancelled(e.getMessage());
+        } catch (AIAdmissionException e) {
+            return AIResponse.rejected(errorMessage(e));
         } catch (Exception e) {
-            return AIResponse.error("连接失败: " + e.getMessage());
+            return AIResponse.error("AI 调用失败: " + errorMessage(e));
         }
     }
     
     /**
-     * 测试 OpenAI 兼容 API
+     * 返回给用户的错误信息：取异常链上第一个非空的 message，
+     * 超时、中断等异常都没有 message 时使用最内层异常的类名
      */
-    private AIResponse testOpenAICompatible(String apiKey, String apiUrl, String model) {
-        try {
-            AIResponse response = callOpenAICompatible(apiKey, apiUrl, model, "Hello, this is a test. Reply with 'OK'.");
-            if (response.success()) {
-                return AIResponse.success("连接成功");
+    private static String errorMessage(Throwable e) {
+        Throwable current = e;
+        while (true) {
+            String message = current.getMessage();
+            if (message != null && !message.isBlank()) {
+                return message;
             }
-            return response;
-        } catch (Exception e) {
-            return AIResponse.error("连接失败: " + e.getMessage());
+            if (current.getCause() == null || current.getCause() == current) {
+                return current.getClass().getSimpleName();
+            }
+            current = current.getCause();
         }
     }
     
     /**
-     * 测试 Gemini API
+     * 某个提供商的调用结果，缓存按实际应答的提供商和模型分开
      */
-    private AIResponse testGemini(String apiKey, String apiUrl, String model) {
-        try {
-            AIResponse response = callGemini(apiKey, apiUrl, model, "Hello, this is a test. Reply with 'OK'.");
-            if (response.success()) {
-                return AIResponse.success("连接成功");
-            }
-            return response;
-        } catch (Exception e) {
-            return AIResponse.error("连接失败: " + e.getMessage());
+    private record Answer<T>(String provider, T value) {}
+    
+    private String cacheKey(List<ProviderEndpoint> endpoints, String provider, String operation, String prompt) {
+        return responseCache.key(provider, endpoint(endpoints, provider).model(), operation, prompt);
+    }
+    
+    private static List<String> providerNames(List<ProviderEndpoint> endpoints) {
+        return endpoints.stream().map(ProviderEndpoint::provider).toList();
+    }
+    
+    private static ProviderEndpoint endpoint(List<ProviderEndpoint> endpoints, String provider) {
+        return endpoints.stream().filter(e -> e.provider().equals(provider)).findFirst().orElseThrow();
+    }
+    
+    private static List<ChatMessage> userMessages(String prompt) {
+        return List.of(ChatMessage.user(prompt));
+    }
+    
+    /**
+     * 多条消息拼接为文本，用作缓存键和 Token 估算；单条用户消息时即为提示词本身
+     */
+    private static String transcript(List<ChatMessage> messages) {
+        if (messages.size() == 1) {
+            return messages.get(0).content();
+        }
+        StringBuilder text = new StringBuilder();
+        for (ChatMessage message : messages) {
+            text.append(message.role()).append(": ").append(message.content()).append('\n');
         }
+        return text.toString();
     }
     
     // ========== Mock 实现（演示用）==========
@@ -470,6 +935,10 @@ public class AIService {
         return AIResponse.success(text + continuation);
     }
     
+    private AIResponse mockInline(String prefix) {
+        return AIResponse.success(prefix.isBlank() || prefix.endsWith("\n") ? "" : "（内联补全示例）");
+    }
+    
     private AIResponse mockTranslate(String text, String targetLang) {
         if ("zh".equals(targetLang)) {
             return AIResponse.success("[翻译示例] 这是 \"" + text + "\" 的中文翻译。请配置 AI API 以获得真实翻译。");
@@ -482,6 +951,56 @@ public class AIService {
         return AIResponse.success("[语法检查示例]\n" + text + "\n\n请配置 AI API 以获得真实的语法检查结果。");
     }
     
+    /**
+     * 演示模式下模拟流式输出：按小段逐步回调，方便前端和测试在无网络时验证流式链路
+     */
+    private void mockStream(String result, Consumer<String> onToken) {
+        for (int i = 0; i < result.length(); i += MOCK_STREAM_CHUNK) {
+            onToken.accept(result.substring(i, Math.min(result.length(), i + MOCK_STREAM_CHUNK)));
+            try {
+                Thread.sleep(MOCK_STREAM_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private AIResponse mockSummarize(String text) {
+        String preview = text.strip().substring(0, Math.min(60, text.strip().length()));
+        return AIResponse.success("[总结示例] " + preview + "...\n\n请配置 AI API 以获得真实的总结结果。");
+    }
+    
+    private AIResponse mockChatWithSources(String text, List<String> sources) {
+        String first = sources.get(0).strip();
+        String preview = first.substring(0, Math.min(60, first.length()));
+        return AIResponse.success("（演示模式）根据笔记中检索到的 " + sources.size() + " 条资料回答：\n\n"
+            + preview + "... [1]\n\n请在 AI 设置中配置 API Key 以启用真实的 AI 对话功能。");
+    }
+    
+    private AIResponse mockConverse(List<ChatTurn> history, String text) {
+        return AIResponse.success("你好！我是 AI 助手（演示模式）。\n\n这是本会话的第 " + (history.size() / 2 + 1)
+            + " 轮对话，你说的是：\"" + text.substring(0, Math.min(50, text.length()))
+            + "...\"\n\n请在 AI 设置中配置 API Key 以启用真实的 AI 对话功能。");
+    }
+    
+    /**
+     * 演示模式的对话压缩：每条消息保留开头部分，超出上限时截去最早的内容
+     */
+    private AIResponse mockSummarizeConversation(String summary, List<ChatTurn> turns, int maxTokens) {
+        StringBuilder text = new StringBuilder(summary == null ? "" : summary);
+        for (ChatTurn turn : turns) {
+            String content = turn.content().strip().replaceAll("\\s+", " ");
+            text.append(text.isEmpty() ? "" : "\n")
+                .append("user".equals(turn.role()) ? "用户：" : "助手：")
+                .append(content, 0, Math.min(40, content.length()));
+        }
+        while (TokenEstimator.estimate(text.toString()) > maxTokens && text.indexOf("\n") >= 0) {
+            text.delete(0, text.indexOf("\n") + 1);
+        }
+        return AIResponse.success(text.toString());
+    }
+    
     private AIResponse mockChat(String text) {
         return AIResponse.success("你好！我是 AI 助手（演示模式）。\n\n你说的是：\"" + text.substring(0, Math.min(50, text.length())) + "...\"\n\n请在 AI 设置中配置 API Key 以启用真实的 AI 对话功能。");
     }
@@ -0,0 +1,409 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.dto.AISummaryDto;
+import com.example.mdviewer.backend.service.ai.AIRequestRegistry;
+import com.example.mdviewer.backend.service.ai.TokenEstimator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 后台预生成的笔记摘要
+ * 摘要以笔记内容的 SHA-256 为键保存在笔记根目录下的 .ai-summaries，内容不变时直接返回，不再请求 AI。
+ * 后台定时扫描修改过的笔记，只在前台没有 AI 请求时、并在每个周期的 Token 预算内逐篇生成，
+ * 最近修改和被请求过的笔记优先；生成失败的笔记按指数退避稍后重试，不阻塞其他笔记，
+ * 单篇就超出周期预算的笔记不生成，报告为 too-large
+ */
+@Service
+public class AISummaryService {
+
+    private static final String SUMMARIES_DIR = ".ai-summaries";
+    private static final String INDEX_FILE = "index.properties";
+    private static final String EXTENSION = ".md";
+    // 摘要输出的 Token 估算，用于生成前判断预算是否足够
+    private static final int OUTPUT_TOKENS = 400;
+    // 连续这么多篇失败时认为提供商出错或限流，停止本轮
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private final NotesService notesService;
+    private final AIService aiService;
+    private final AIRequestRegistry requests;
+    private final AIProperties.Summaries config;
+    private final Path dir;
+    private final Map<String, NoteState> notes = new ConcurrentHashMap<>();
+    // 每篇笔记最近一次生成摘要时的内容哈希：内容修改后、新摘要生成前仍返回这一版
+    private final Map<String, String> summarized = new ConcurrentHashMap<>();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long windowStart = System.nanoTime();
+    private long spentTokens;
+    private volatile int pending;
+    private volatile String lastRunAt;
+
+    public AISummaryService(NotesService notesService, AIService aiService, AIRequestRegistry requests,
+                            AIProperties aiProperties) {
+        this.notesService = notesService;
+        this.aiService = aiService;
+        this.requests = requests;
+        this.config = aiProperties.getSummaries();
+        this.dir = notesService.getRoot().resolve(SUMMARIES_DIR);
+    }
+
+    @PostConstruct
+    public void restore() {
+        Path index = dir.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(index)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(index)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("读取笔记摘要索引失败: " + e.getMessage());
+            return;
+        }
+        for (String noteId : properties.stringPropertyNames()) {
+            summarized.put(noteId, properties.getProperty(noteId));
+        }
+    }
+
+    /**
+     * 返回笔记的摘要，不会同步调用 AI；还没有摘要时登记为优先生成
+     */
+    public AISummaryDto get(String id) {
+        Path file = notesService.noteFile(id);
+        NoteState state;
+        try {
+            state = currentState(id, file);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取笔记失败", e);
+        }
+        String hash = state.hash();
+        AISummaryDto ready = read(id, "ready", hash);
+        if (ready != null) {
+            return ready;
+        }
+        if (!config.isEnabled() || !aiService.isConfigured()) {
+            return new AISummaryDto(id, "unavailable", null, hash, null);
+        }
+        if (tooLarge(state)) {
+            return new AISummaryDto(id, "too-large", null, hash, null);
+        }
+        requested.add(id);
+        String previous = summarized.get(id);
+        AISummaryDto stale = previous == null ? null : read(id, "stale", previous);
+        return stale != null ? stale : new AISummaryDto(id, "pending", null, hash, null);
+    }
+
+    /**
+     * 后台生成摘要：扫描变化的笔记，空闲且预算允许时逐篇生成
+     */
+    @Scheduled(initialDelayString = "${ai.summaries.scan-interval:1m}",
+            fixedDelayString = "${ai.summaries.scan-interval:1m}")
+    public void refresh() {
+        if (!config.isEnabled() || !aiService.isConfigured() || !scanLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Candidate> candidates = scan();
+            pending = candidates.size();
+            summarize(candidates);
+            prune();
+            lastRunAt = Instant.now().toString();
+        } catch (RuntimeException e) {
+            System.err.println("更新笔记摘要失败: " + e.getMessage());
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled() && aiService.isConfigured());
+        stats.put("notes", notes.size());
+        stats.put("pending", pending);
+        stats.put("requested", requested.size());
+        stats.put("generated", generated.get());
+        stats.put("failed", failed.get());
+        stats.put("backingOff", failures.size());
+        synchronized (this) {
+            resetWindowIfElapsed();
+            stats.put("budgetTokens", config.getTokenBudget());
+            stats.put("spentTokens", spentTokens);
+        }
+        stats.put("lastRunAt", lastRunAt);
+        return stats;
+    }
+
+    /**
+     * 找出内容哈希还没有摘要的笔记：被请求过的优先，其余按修改时间从新到旧；
+     * 仍在编辑中的笔记（修改时间在 settleDelay 之内）暂不处理，除非它被请求过且还没有任何一版摘要；
+     * 超出预算的笔记和失败后仍在退避期内的笔记跳过
+     */
+    private List<Candidate> scan() {
+        long settledBefore = System.currentTimeMillis() - config.getSettleDelay().toMillis();
+        long now = System.nanoTime();
+        Set<String> seen = new HashSet<>();
+        List<Candidate> candidates = new ArrayList<>();
+        boolean indexChanged = false;
+        for (VaultScanner.Note note : notesService.scanNotes()) {
+            Path file = note.path();
+            String noteId = notesService.noteIdFor(file);
+            seen.add(noteId);
+            NoteState state;
+            try {
+                state = currentState(noteId, file, note.lastModified().toMillis(), note.size());
+            } catch (IOException e) {
+                // 笔记可能正在被移动或删除，下次扫描再处理
+                continue;
+            }
+            if (Files.exists(summaryFile(state.hash()))) {
+                // 内容与已有摘要一致（如重命名或改回原样），记下以便之后修改时返回这一版
+                indexChanged |= !state.hash().equals(summarized.put(noteId, state.hash()));
+                continue;
+            }
+            if (tooLarge(state)) {
+                continue;
+            }
+            Failure failure = failures.get(noteId);
+            if (failure != null && failure.hash().equals(state.hash()) && now - failure.retryAt() < 0) {
+                continue;
+            }
+            boolean wanted = requested.contains(noteId);
+            boolean settled = state.modified() <= settledBefore || (wanted && !summarized.containsKey(noteId));
+            if (!settled) {
+                continue;
+            }
+            candidates.add(new Candidate(noteId, file, state, wanted));
+        }
+        notes.keySet().retainAll(seen);
+        requested.retainAll(seen);
+        failures.keySet().retainAll(seen);
+        if (summarized.keySet().retainAll(seen) || indexChanged) {
+            persistIndex();
+        }
+        candidates.sort(Comparator.comparing(Candidate::wanted).reversed()
+                .thenComparing(Comparator.comparingLong((Candidate c) -> c.state().modified()).reversed()));
+        return candidates;
+    }
+
+    private void summarize(List<Candidate> candidates) {
+        int consecutiveFailures = 0;
+        for (Candidate candidate : candidates) {
+            if (!requests.isIdle(config.getIdleDelay())) {
+                // 前台有 AI 请求，把提供商额度让给用户，下次扫描再继续
+                return;
+            }
+            if (!reserve(candidate.state().tokens() + OUTPUT_TOKENS)) {
+                // 预算不足以处理这篇，继续尝试更短的笔记
+                continue;
+            }
+            String content;
+            try {
+                content = Files.readString(candidate.file(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                continue;
+            }
+            String hash = sha256(content);
+            if (!hash.equals(candidate.state().hash())) {
+                // 扫描之后笔记又被修改，等它稳定下来再生成
+                continue;
+            }
+            AIResponse response = aiService.summarize(content);
+            if (!response.success()) {
+                failed.incrementAndGet();
+                charge(TokenEstimator.estimate(content));
+                backOff(candidate.noteId(), hash);
+                // 单篇失败只推迟这一篇；连续多篇失败多半是提供商出错或限流，停止本轮避免继续消耗额度
+                if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                    return;
+                }
+                continue;
+            }
+            consecutiveFailures = 0;
+            failures.remove(candidate.noteId());
+            charge(TokenEstimator.estimate(content) + TokenEstimator.estimate(response.result()));
+            if (save(hash, response.result())) {
+                generated.incrementAndGet();
+                summarized.put(candidate.noteId(), hash);
+                requested.remove(candidate.noteId());
+                pending = Math.max(0, pending - 1);
+                persistIndex();
+            }
+        }
+    }
+
+    /**
+     * 记录一次失败：同一内容连续失败时退避时间从扫描间隔起逐次翻倍，最长一个预算周期；内容修改后重新计数
+     */
+    private void backOff(String noteId, String hash) {
+        failures.compute(noteId, (id, previous) -> {
+            int count = previous != null && previous.hash().equals(hash) ? previous.count() + 1 : 1;
+            long delay = Math.min(config.getScanInterval().toNanos() << Math.min(count - 1, 20),
+                    config.getBudgetWindow().toNanos());
+            return new Failure(hash, count, System.nanoTime() + delay);
+        });
+    }
+
+    /**
+     * 笔记加上摘要输出超过整个周期的预算，永远无法生成
+     */
+    private boolean tooLarge(NoteState state) {
+        return (long) state.tokens() + OUTPUT_TOKENS > config.getTokenBudget();
+    }
+
+    /**
+     * 删除不再被任何笔记引用的摘要
+     */
+    private void prune() {
+        Set<String> referenced = new HashSet<>(summarized.values());
+        notes.values().forEach(state -> referenced.add(state.hash()));
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!referenced.contains(name.substring(0, name.length() - EXTENSION.length()))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("清理笔记摘要失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 笔记当前的内容哈希；修改时间和大小都没变时沿用上次的结果，不重新读取
+     */
+    private NoteState currentState(String noteId, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return currentState(noteId, file, attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    /**
+     * 同上，使用扫描时已读取的修改时间和大小
+     */
+    private NoteState currentState(String noteId, Path file, long modified, long size) throws IOException {
+        NoteState state = notes.get(noteId);
+        if (state != null && state.modified() == modified && state.size() == size) {
+            return state;
+        }
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        state = new NoteState(modified, size, sha256(content), TokenEstimator.estimate(content));
+        notes.put(noteId, state);
+        return state;
+    }
+
+    private AISummaryDto read(String noteId, String status, String hash) {
+        Path file = summaryFile(hash);
+        try {
+            String summary = Files.readString(file, StandardCharsets.UTF_8);
+            String generatedAt = Files.getLastModifiedTime(file).toInstant().toString();
+            return new AISummaryDto(noteId, status, summary, hash, generatedAt);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean save(String hash, String summary) {
+        try {
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, hash, ".tmp");
+            Files.writeString(temp, summary, StandardCharsets.UTF_8);
+            Files.move(temp, summaryFile(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            System.err.println("保存笔记摘要失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void persistIndex() {
+        Properties properties = new Properties();
+        summarized.forEach(properties::setProperty);
+        try {
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, INDEX_FILE, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "MDViewer AI Summaries");
+            }
+            Files.move(temp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("保存笔记摘要索引失败: " + e.getMessage());
+        }
+    }
+
+    private Path summaryFile(String hash) {
+        return dir.resolve(hash + EXTENSION);
+    }
+
+    /**
+     * 当前预算周期内剩余的 Token 是否足够
+     */
+    private synchronized boolean reserve(long tokens) {
+        resetWindowIfElapsed();
+        return spentTokens + tokens <= config.getTokenBudget();
+    }
+
+    private synchronized void charge(long tokens) {
+        resetWindowIfElapsed();
+        spentTokens += tokens;
+    }
+
+    private void resetWindowIfElapsed() {
+        long now = System.nanoTime();
+        if (now - windowStart >= config.getBudgetWindow().toNanos()) {
+            windowStart = now;
+            spentTokens = 0;
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record NoteState(long modified, long size, String hash, int tokens) {}
+
+    private record Candidate(String noteId, Path file, NoteState state, boolean wanted) {}
+
+    private record Failure(String hash, int count, long retryAt) {}
+}
@@ -0,0 +1,233 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.dto.ChatSessionDto;
+import com.example.mdviewer.backend.dto.ChatTurnDto;
+import com.example.mdviewer.backend.service.ai.ChatTurn;
+import com.example.mdviewer.backend.service.ai.TokenEstimator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 服务端多轮对话会话
+ * 每个会话保存滚动摘要和最近的对话；历史接近 Token 上限时在后台压缩（并入摘要或丢弃最早的对话），
+ * 请求前仍超出上限时直接丢弃最早的对话，使每轮请求的提示词大小保持稳定
+ */
+@Service
+public class ChatSessionService {
+
+    private final AIService aiService;
+    private final AIProperties.Sessions config;
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    // 压缩在虚拟线程上进行，不占用对话请求的时间
+    private final ExecutorService compactionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ChatSessionService(AIService aiService, AIProperties aiProperties) {
+        this.aiService = aiService;
+        this.config = aiProperties.getSessions();
+    }
+
+    public ChatSessionDto create() {
+        evictOverflow();
+        ChatSession session = new ChatSession(UUID.randomUUID().toString());
+        sessions.put(session.id, session);
+        return session.toDto();
+    }
+
+    public List<ChatSessionDto> list() {
+        return sessions.values().stream()
+                .sorted(Comparator.comparing((ChatSession s) -> s.updatedAt).reversed())
+                .map(ChatSession::toDto)
+                .toList();
+    }
+
+    public ChatSessionDto get(String id) {
+        return require(id).toDto();
+    }
+
+    public void delete(String id) {
+        if (sessions.remove(id) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "会话不存在");
+        }
+    }
+
+    /**
+     * 发送一条消息，返回助手回复
+     */
+    public AIResponse send(String id, String text) {
+        return send(id, text, null);
+    }
+
+    /**
+     * 发送一条消息；onToken 不为空时以流式方式返回
+     */
+    public AIResponse send(String id, String text, Consumer<String> onToken) {
+        if (text == null || text.isBlank()) {
+            return AIResponse.error("消息不能为空");
+        }
+        ChatSession session = require(id);
+        // 同一会话的对话按顺序进行
+        session.lock.lock();
+        try {
+            trimToBudget(session, TokenEstimator.estimate(text));
+            List<ChatTurn> history = List.copyOf(session.turns);
+            AIResponse response = onToken == null
+                    ? aiService.converse(session.summary, history, text)
+                    : aiService.streamConverse(session.summary, history, text, onToken);
+            if (response.success()) {
+                session.turns.add(ChatTurn.user(text));
+                session.turns.add(ChatTurn.assistant(response.result()));
+                session.updatedAt = Instant.now();
+                if (session.contextTokens() > config.getHistoryTokens() * config.getCompactRatio()) {
+                    scheduleCompaction(session);
+                }
+            }
+            return response;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * 清理闲置会话
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void evictIdle() {
+        Instant cutoff = Instant.now().minus(config.getIdleTimeout());
+        sessions.values().removeIf(session -> session.updatedAt.isBefore(cutoff));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactionExecutor.shutdownNow();
+    }
+
+    private ChatSession require(String id) {
+        ChatSession session = id == null ? null : sessions.get(id);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "会话不存在");
+        }
+        return session;
+    }
+
+    private void evictOverflow() {
+        int overflow = sessions.size() - Math.max(1, config.getMaxSessions()) + 1;
+        if (overflow <= 0) {
+            return;
+        }
+        sessions.values().stream()
+                .sorted(Comparator.comparing((ChatSession s) -> s.updatedAt))
+                .limit(overflow)
+                .toList()
+                .forEach(session -> sessions.remove(session.id));
+    }
+
+    /**
+     * 请求前的兜底：历史加本条消息超出上限时，丢弃最早的对话（成对丢弃），摘要过长时截断
+     */
+    private void trimToBudget(ChatSession session, int messageTokens) {
+        int budget = config.getHistoryTokens();
+        while (!session.turns.isEmpty() && session.contextTokens() + messageTokens > budget) {
+            session.turns.removeFirst();
+            if (!session.turns.isEmpty() && "assistant".equals(session.turns.getFirst().role())) {
+                session.turns.removeFirst();
+            }
+        }
+        int summaryBudget = Math.max(0, budget - messageTokens);
+        while (!session.summary.isEmpty() && TokenEstimator.estimate(session.summary) > summaryBudget) {
+            session.summary = session.summary.substring(Math.min(session.summary.length(), 200));
+        }
+    }
+
+    /**
+     * 后台压缩：保留最近的若干条消息，其余的并入滚动摘要或直接丢弃
+     */
+    private void scheduleCompaction(ChatSession session) {
+        if (session.compacting) {
+            return;
+        }
+        int keep = Math.max(2, config.getKeepRecentMessages());
+        // 保证保留部分从用户消息开始
+        int foldCount = session.turns.size() - keep;
+        if (foldCount % 2 != 0) {
+            foldCount--;
+        }
+        if (foldCount <= 0) {
+            return;
+        }
+        List<ChatTurn> folded = List.copyOf(session.turns.subList(0, foldCount));
+        if (!"summarize".equalsIgnoreCase(config.getCompaction())) {
+            session.turns.subList(0, foldCount).clear();
+            return;
+        }
+
+        session.compacting = true;
+        String previousSummary = session.summary;
+        compactionExecutor.execute(() -> {
+            AIResponse summary = aiService.summarizeConversation(previousSummary, folded, config.getSummaryTokens());
+            session.lock.lock();
+            try {
+                // 压缩期间被兜底裁剪过的部分不再重复处理
+                boolean unchanged = session.turns.size() >= folded.size()
+                        && session.turns.subList(0, folded.size()).equals(folded)
+                        && session.summary.equals(previousSummary);
+                if (summary.success() && unchanged) {
+                    session.summary = summary.result().strip();
+                    session.turns.subList(0, folded.size()).clear();
+                } else if (!summary.success()) {
+                    System.err.println("压缩对话历史失败: " + summary.error());
+                }
+            } finally {
+                session.compacting = false;
+                session.lock.unlock();
+            }
+        });
+    }
+
+    private static final class ChatSession {
+        private final String id;
+        private final Instant createdAt = Instant.now();
+        // 修改都在 lock 内进行；读取（查看会话）不加锁，不会被进行中的对话阻塞
+        private final List<ChatTurn> turns = new CopyOnWriteArrayList<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Instant updatedAt = createdAt;
+        private volatile String summary = "";
+        private volatile boolean compacting;
+
+        ChatSession(String id) {
+            this.id = id;
+        }
+
+        int contextTokens() {
+            int tokens = TokenEstimator.estimate(summary);
+            for (ChatTurn turn : turns) {
+                tokens += turn.tokens();
+            }
+            return tokens;
+        }
+
+        ChatSessionDto toDto() {
+            List<ChatTurnDto> turnDtos = turns.stream()
+                    .map(turn -> new ChatTurnDto(turn.role(), turn.content()))
+                    .toList();
+            return new ChatSessionDto(id, createdAt.toString(), updatedAt.toString(), summary,
+                    turnDtos, contextTokens());
+        }
+    }
+}
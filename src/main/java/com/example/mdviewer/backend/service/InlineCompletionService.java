@@ -0,0 +1,115 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.service.ai.InlineSuggestionCache;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 编辑器内联补全（ghost text）
+ * 只把光标附近有限的上下文发给提供商并限制输出长度；用户按建议继续输入时由前缀缓存在本地直接应答
+ */
+@Service
+public class InlineCompletionService {
+
+    private final AIService aiService;
+    private final AIProperties.Inline config;
+    private final InlineSuggestionCache cache;
+
+    public InlineCompletionService(AIService aiService, AIProperties aiProperties) {
+        this.aiService = aiService;
+        this.config = aiProperties.getInline();
+        this.cache = new InlineSuggestionCache(config.getCacheEntries());
+    }
+
+    public AIResponse complete(String prefix, String suffix) {
+        return complete(prefix, suffix, null);
+    }
+
+    /**
+     * 生成光标处的补全建议；onToken 不为空时流式输出提供商返回的原始片段，结果以返回值为准
+     */
+    public AIResponse complete(String prefix, String suffix, Consumer<String> onToken) {
+        if (prefix == null) {
+            return AIResponse.error("光标前文本不能为空");
+        }
+        String before = tail(prefix, config.getPrefixChars());
+        String after = suffix == null ? "" : head(suffix, config.getSuffixChars());
+        if (before.isBlank()) {
+            return AIResponse.success("");
+        }
+
+        Optional<String> cached = cache.lookup(before, after);
+        if (cached.isPresent()) {
+            if (onToken != null) {
+                onToken.accept(cached.get());
+            }
+            return AIResponse.success(cached.get());
+        }
+
+        AIResponse response = onToken == null
+            ? aiService.inlineComplete(before, after, config.getMaxTokens())
+            : aiService.streamInlineComplete(before, after, config.getMaxTokens(), onToken);
+        if (!response.success()) {
+            return response;
+        }
+        String suggestion = clean(response.result());
+        cache.put(before, after, suggestion);
+        return AIResponse.success(suggestion);
+    }
+
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 整理模型输出：去掉代码块包裹，在第一个空行处截断，并限制长度
+     */
+    private String clean(String text) {
+        String suggestion = text == null ? "" : text.replace("▮", "");
+        if (suggestion.strip().startsWith("```") && suggestion.strip().endsWith("```")) {
+            String inner = suggestion.strip();
+            int firstLine = inner.indexOf('\n');
+            int lastFence = inner.lastIndexOf("```");
+            suggestion = firstLine > 0 && firstLine < lastFence ? inner.substring(firstLine + 1, lastFence) : "";
+        }
+        int contentStart = 0;
+        while (contentStart < suggestion.length() && Character.isWhitespace(suggestion.charAt(contentStart))) {
+            contentStart++;
+        }
+        int blankLine = suggestion.indexOf("\n\n", contentStart);
+        if (blankLine >= 0) {
+            suggestion = suggestion.substring(0, blankLine);
+        }
+        return head(suggestion, config.getMaxChars()).stripTrailing();
+    }
+
+    /**
+     * 取末尾 max 个字符，不截断代理对
+     */
+    private static String tail(String text, int max) {
+        if (text.length() <= max) {
+            return text;
+        }
+        int start = text.length() - max;
+        if (Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        return text.substring(start);
+    }
+
+    private static String head(String text, int max) {
+        if (text.length() <= max) {
+            return text;
+        }
+        int end = max;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.dto.LintDiagnosticDto;
+import com.example.mdviewer.backend.service.ai.MarkdownLinter;
+import org.springframework.stereotype.Service;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Markdown 本地检查
+ * 编辑器输入时调用，只重新检查改动过的块；相对链接按笔记所在目录解析并检查目标是否存在。
+ * 语法检查先由本地规则修正机械性问题，剩余的正文才交给 AI；自动修正的内容随结果返回给调用方
+ */
+@Service
+public class MarkdownLintService {
+
+    private static final int CACHE_BLOCKS = 4096;
+
+    private final NotesService notesService;
+    private final MarkdownLinter linter = new MarkdownLinter(CACHE_BLOCKS);
+
+    public MarkdownLintService(NotesService notesService) {
+        this.notesService = notesService;
+    }
+
+    /**
+     * 检查文本，noteId 为空时相对链接按笔记根目录解析
+     */
+    public List<LintDiagnosticDto> lint(String text, String noteId) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        MarkdownLinter.Result result = linter.lint(text);
+        List<LintDiagnosticDto> diagnostics = new ArrayList<>(result.diagnostics().size());
+        for (MarkdownLinter.Diagnostic diagnostic : result.diagnostics()) {
+            diagnostics.add(toDto(diagnostic));
+        }
+        if (!result.links().isEmpty()) {
+            Path base = noteId == null || noteId.isBlank() ? notesService.getRoot() : notesService.noteFile(noteId).getParent();
+            for (MarkdownLinter.Link link : result.links()) {
+                if (!exists(base, link.target())) {
+                    diagnostics.add(new LintDiagnosticDto("link", "error", link.line(), link.column(), link.offset(),
+                        link.length(), "链接目标不存在: " + link.target(), null));
+                }
+            }
+            diagnostics.sort(Comparator.comparingInt(LintDiagnosticDto::offset));
+        }
+        return diagnostics;
+    }
+
+    /**
+     * 修正本地规则能自动修正的问题
+     */
+    public String fix(String text) {
+        return MarkdownLinter.applyFixes(text, linter.lint(text).diagnostics());
+    }
+
+    /**
+     * fix 会自动修正的问题，位置指向修正前的原文
+     */
+    public List<LintDiagnosticDto> fixes(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        return MarkdownLinter.fixes(linter.lint(text).diagnostics()).stream()
+            .map(MarkdownLintService::toDto)
+            .toList();
+    }
+
+    /**
+     * 文本中是否有需要 AI 检查的正文；只有代码、链接地址和标点时不必请求 AI
+     */
+    public boolean hasProse(String text) {
+        return linter.lint(text).prose();
+    }
+
+    public Map<String, Object> stats() {
+        return linter.stats();
+    }
+
+    private boolean exists(Path base, String target) {
+        String path = target;
+        int end = indexOfAny(path, '#', '?');
+        if (end >= 0) {
+            path = path.substring(0, end);
+        }
+        if (path.isEmpty()) {
+            return true;
+        }
+        try {
+            path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // 不合法的转义按原样解析
+        }
+        Path root = notesService.getRoot();
+        try {
+            Path resolved = (path.startsWith("/") ? root.resolve(path.substring(1)) : base.resolve(path)).normalize();
+            return resolved.startsWith(root) && Files.exists(resolved);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static int indexOfAny(String text, char first, char second) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == first || text.charAt(i) == second) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static LintDiagnosticDto toDto(MarkdownLinter.Diagnostic diagnostic) {
+        return new LintDiagnosticDto(diagnostic.rule(), diagnostic.severity(), diagnostic.line(), diagnostic.column(),
+            diagnostic.offset(), diagnostic.length(), diagnostic.message(), diagnostic.replacement());
+    }
+}
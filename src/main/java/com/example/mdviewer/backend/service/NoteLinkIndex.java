@@ -0,0 +1,228 @@
+package com.example.mdviewer.backend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 笔记间链接的反向索引：链接目标 → 引用它的笔记
+ * 首次使用时全量扫描并行解析；之后由 NotesService 标记自身创建、修改、删除、移动过的笔记，使用前只重新解析这些笔记。
+ * 文件夹整体变化后，或距上次全量扫描超过 FULL_REFRESH_INTERVAL（发现笔记库之外的修改）时退回全量扫描，
+ * 全量扫描也只重新解析修改时间或大小变化过的笔记
+ */
+final class NoteLinkIndex {
+
+    static final long FULL_REFRESH_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * 读取笔记内容
+     */
+    @FunctionalInterface
+    interface Reader {
+        String read(Path file) throws IOException;
+    }
+
+    private record Entry(long modified, long size, Set<String> keys) {
+    }
+
+    private record Parsed(String path, long modified, long size, Set<String> keys) {
+    }
+
+    private final Path root;
+    private final Reader reader;
+    private final Map<String, Entry> notes = new HashMap<>();
+    // 有序，重命名文件夹时按前缀取出其下所有目标
+    private final TreeMap<String, Set<String>> sources = new TreeMap<>();
+    // 小写文件名（不含 .md）→ 笔记数，判断 [[标题]] 是否唯一
+    private final Map<String, Integer> names = new HashMap<>();
+    // 自上次更新以来被标记的笔记（相对路径）
+    private final Set<String> dirty = new HashSet<>();
+    private boolean stale = true;
+    private long refreshedAt;
+
+    NoteLinkIndex(Path root, Reader reader) {
+        this.root = root;
+        this.reader = reader;
+    }
+
+    /**
+     * 使索引反映笔记库的当前状态：需要全量扫描时调用 scan，否则只重新解析标记过的笔记
+     */
+    synchronized void update(Supplier<List<VaultScanner.Note>> scan) {
+        if (stale || System.nanoTime() - refreshedAt >= FULL_REFRESH_INTERVAL_NANOS) {
+            refresh(scan.get());
+            return;
+        }
+        for (String path : dirty) {
+            reparse(path);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * 笔记被创建、修改、删除或移动（新旧路径都要标记）；索引尚未建立时不需要记录
+     */
+    synchronized void changed(Path file) {
+        if (!stale) {
+            dirty.add(relative(file));
+        }
+    }
+
+    /**
+     * 文件夹整体移动、删除或恢复后，下次使用前全量扫描
+     */
+    synchronized void invalidate() {
+        stale = true;
+        dirty.clear();
+    }
+
+    /**
+     * 按扫描结果更新索引：新增或修改时间、大小变化的笔记重新解析，已不存在的笔记移除
+     */
+    synchronized void refresh(List<VaultScanner.Note> scanned) {
+        // 扫描之前标记的变化都已反映在扫描结果中
+        dirty.clear();
+        Set<String> seen = new HashSet<>();
+        List<VaultScanner.Note> changed = new ArrayList<>();
+        for (VaultScanner.Note note : scanned) {
+            String path = relative(note.path());
+            seen.add(path);
+            Entry entry = notes.get(path);
+            if (entry == null || entry.modified() != note.lastModified().toMillis() || entry.size() != note.size()) {
+                changed.add(note);
+            }
+        }
+        for (String path : List.copyOf(notes.keySet())) {
+            if (!seen.contains(path)) {
+                remove(path);
+            }
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Parsed>> tasks = new ArrayList<>(changed.size());
+            for (VaultScanner.Note note : changed) {
+                tasks.add(executor.submit(() -> {
+                    String path = relative(note.path());
+                    return new Parsed(path, note.lastModified().toMillis(), note.size(),
+                        NoteLinks.keys(path, reader.read(note.path())));
+                }));
+            }
+            for (Future<Parsed> task : tasks) {
+                try {
+                    Parsed parsed = task.get();
+                    remove(parsed.path());
+                    add(parsed);
+                } catch (ExecutionException e) {
+                    // 笔记可能正在被移动或删除，下次更新再处理
+                }
+            }
+            stale = false;
+            refreshedAt = System.nanoTime();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 链接到被重命名的笔记或文件夹（含其下内容）的笔记
+     */
+    synchronized Set<String> referencing(NoteLinks.Rename rename) {
+        Set<String> result = new TreeSet<>();
+        String from = rename.from();
+        addSources(result, sources.get(from));
+        String wikiPath = NoteLinks.wikiKey(from);
+        addSources(result, sources.get(wikiPath));
+        if (rename.folder()) {
+            sources.subMap(from + "/", from + "0").values().forEach(set -> addSources(result, set));
+            sources.subMap(wikiPath + "/", wikiPath + "0").values().forEach(set -> addSources(result, set));
+        } else if (rename.bareWiki()) {
+            addSources(result, sources.get(NoteLinks.wikiKey(NoteLinks.fileName(from))));
+        }
+        return result;
+    }
+
+    /**
+     * 文件名（不含 .md，忽略大小写）在笔记库中是否唯一
+     */
+    synchronized boolean uniqueName(String path) {
+        return names.getOrDefault(nameKey(path), 0) == 1;
+    }
+
+    /**
+     * 按文件当前状态重新解析一篇标记过的笔记，文件已不存在时移除
+     */
+    private void reparse(String path) {
+        Path file = root.resolve(path);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                remove(path);
+                return;
+            }
+            long modified = attributes.lastModifiedTime().toMillis();
+            Entry entry = notes.get(path);
+            if (entry != null && entry.modified() == modified && entry.size() == attributes.size()) {
+                return;
+            }
+            Parsed parsed = new Parsed(path, modified, attributes.size(), NoteLinks.keys(path, reader.read(file)));
+            remove(path);
+            add(parsed);
+        } catch (NoSuchFileException e) {
+            remove(path);
+        } catch (IOException e) {
+            // 读取失败时下次使用前全量扫描
+            stale = true;
+        }
+    }
+
+    private void add(Parsed parsed) {
+        notes.put(parsed.path(), new Entry(parsed.modified(), parsed.size(), parsed.keys()));
+        names.merge(nameKey(parsed.path()), 1, Integer::sum);
+        for (String key : parsed.keys()) {
+            sources.computeIfAbsent(key, k -> new HashSet<>()).add(parsed.path());
+        }
+    }
+
+    private void remove(String path) {
+        Entry entry = notes.remove(path);
+        if (entry == null) {
+            return;
+        }
+        names.computeIfPresent(nameKey(path), (k, count) -> count > 1 ? count - 1 : null);
+        for (String key : entry.keys()) {
+            Set<String> set = sources.get(key);
+            if (set != null && set.remove(path) && set.isEmpty()) {
+                sources.remove(key);
+            }
+        }
+    }
+
+    private static void addSources(Set<String> result, Set<String> set) {
+        if (set != null) {
+            result.addAll(set);
+        }
+    }
+
+    private static String nameKey(String path) {
+        return NoteLinks.wikiKey(NoteLinks.fileName(path));
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.service.ai.MarkdownLinter;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 笔记中指向其他笔记的链接：相对 Markdown 链接（含图片和引用定义，由 MarkdownLinter 解析）和 [[维基链接]]
+ * 路径均为相对笔记根目录、以 / 分隔的形式
+ */
+final class NoteLinks {
+
+    private static final Pattern WIKI = Pattern.compile("\\[\\[([^\\[\\]\\n|#]+)([^\\[\\]\\n]*)\\]\\]");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})");
+    private static final String WIKI_KEY = "[[";
+    private static final String EXTENSION = ".md";
+
+    // 只用于提取链接，块缓存保持很小
+    private static final MarkdownLinter LINTER = new MarkdownLinter(64);
+
+    /**
+     * 链接在文中的位置：相对链接为地址部分（不含 <>），维基链接为目标名（不含 #标题 和 |别名）
+     */
+    record Ref(boolean wiki, String target, int offset, int length) {
+    }
+
+    /**
+     * 一次重命名：from、to 为重命名前后的路径；bareWiki 表示按文件名书写的维基链接（[[标题]]）可以唯一对应到被重命名的笔记
+     */
+    record Rename(String from, String to, boolean folder, boolean bareWiki) {
+    }
+
+    private NoteLinks() {
+    }
+
+    static List<Ref> parse(String content) {
+        List<Ref> refs = new ArrayList<>();
+        for (MarkdownLinter.Link link : LINTER.lint(content).links()) {
+            refs.add(new Ref(false, link.target(), link.offset(), link.length()));
+        }
+        parseWiki(content, refs);
+        return refs;
+    }
+
+    /**
+     * 笔记中链接的索引键：相对链接为解析后的目标路径，维基链接为 "[[" 加小写的目标名（可含路径，不含 .md）
+     */
+    static Set<String> keys(String source, String content) {
+        Set<String> keys = new HashSet<>();
+        for (Ref ref : parse(content)) {
+            String key = ref.wiki() ? wikiKey(ref.target()) : resolve(source, ref.target());
+            if (key != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    static String wikiKey(String name) {
+        return WIKI_KEY + stripExtension(name.strip().replace('\\', '/')).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 相对链接的目标路径；以 / 开头的按笔记根目录解析，超出根目录或无法解析时返回 null
+     */
+    static String resolve(String source, String target) {
+        String path = stripSuffix(target);
+        if (path.isEmpty()) {
+            return null;
+        }
+        try {
+            path = URLDecoder.decode(path.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            // 不合法的转义按原样解析
+        }
+        List<String> segments = new ArrayList<>();
+        if (!path.startsWith("/")) {
+            int slash = source.lastIndexOf('/');
+            if (slash > 0) {
+                segments.addAll(List.of(source.substring(0, slash).split("/")));
+            }
+        }
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                segments.remove(segments.size() - 1);
+            } else {
+                segments.add(segment);
+            }
+        }
+        return segments.isEmpty() ? null : String.join("/", segments);
+    }
+
+    /**
+     * 按重命名改写 content 中的链接；source、newSource 为这篇笔记改名前后的路径（不在被重命名的文件夹内时相同）。
+     * 没有需要改写的链接时返回 null
+     */
+    static String rewrite(String content, String source, String newSource, Rename rename) {
+        List<Ref> refs = parse(content);
+        refs.sort(Comparator.comparingInt(Ref::offset).reversed());
+        StringBuilder text = new StringBuilder(content);
+        boolean changed = false;
+        for (Ref ref : refs) {
+            String replacement = ref.wiki() ? rewriteWiki(ref.target(), rename)
+                : rewriteRelative(content, ref, source, newSource, rename);
+            if (replacement != null && !replacement.equals(ref.target())) {
+                text.replace(ref.offset(), ref.offset() + ref.length(), replacement);
+                changed = true;
+            }
+        }
+        return changed ? text.toString() : null;
+    }
+
+    /**
+     * 重命名后的路径；不受这次重命名影响时返回 null
+     */
+    static String renamed(String path, Rename rename) {
+        if (path.equals(rename.from())) {
+            return rename.to();
+        }
+        if (rename.folder() && path.startsWith(rename.from() + "/")) {
+            return rename.to() + path.substring(rename.from().length());
+        }
+        return null;
+    }
+
+    private static String rewriteRelative(String content, Ref ref, String source, String newSource, Rename rename) {
+        String target = ref.target();
+        String resolved = resolve(source, target);
+        String next = resolved == null ? null : renamed(resolved, rename);
+        if (next == null) {
+            // 重命名只改变同一级的名称，随文件夹移动的笔记指向文件夹外的相对链接仍然有效
+            return null;
+        }
+        String suffix = target.substring(stripSuffix(target).length());
+        String path = target.startsWith("/") ? "/" + next : relativize(newSource, next);
+        boolean bracketed = ref.offset() > 0 && content.charAt(ref.offset() - 1) == '<';
+        if (stripSuffix(target).contains("%") || (!bracketed && path.contains(" "))) {
+            path = encode(path);
+        }
+        return path + suffix;
+    }
+
+    private static String rewriteWiki(String name, Rename rename) {
+        String trimmed = name.strip().replace('\\', '/');
+        boolean extension = trimmed.toLowerCase(Locale.ROOT).endsWith(EXTENSION);
+        String bare = stripExtension(trimmed);
+        String from = stripExtension(rename.from());
+        String to = stripExtension(rename.to());
+        if (bare.contains("/")) {
+            String lower = bare.toLowerCase(Locale.ROOT);
+            String fromLower = from.toLowerCase(Locale.ROOT);
+            if (lower.equals(fromLower)) {
+                return to + (extension ? EXTENSION : "");
+            }
+            if (rename.folder() && lower.startsWith(fromLower + "/")) {
+                return to + bare.substring(from.length()) + (extension ? EXTENSION : "");
+            }
+            return null;
+        }
+        if (rename.folder() || !rename.bareWiki() || !bare.equalsIgnoreCase(fileName(from))) {
+            return null;
+        }
+        return fileName(to) + (extension ? EXTENSION : "");
+    }
+
+    /**
+     * 从 source 所在目录到 target 的相对路径
+     */
+    static String relativize(String source, String target) {
+        String[] from = source.split("/");
+        String[] to = target.split("/");
+        int common = 0;
+        // from 的最后一段是笔记文件名本身
+        while (common < from.length - 1 && common < to.length - 1 && from[common].equals(to[common])) {
+            common++;
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = common; i < from.length - 1; i++) {
+            path.append("../");
+        }
+        for (int i = common; i < to.length; i++) {
+            path.append(to[i]);
+            if (i < to.length - 1) {
+                path.append('/');
+            }
+        }
+        return path.toString();
+    }
+
+    static String fileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static void parseWiki(String content, List<Ref> refs) {
+        if (content.indexOf("[[") < 0) {
+            return;
+        }
+        int offset = 0;
+        String fence = null;
+        for (String line : content.split("\n", -1)) {
+            Matcher marker = FENCE.matcher(line);
+            if (marker.find()) {
+                String chars = marker.group(1);
+                if (fence == null) {
+                    fence = chars;
+                } else if (chars.charAt(0) == fence.charAt(0) && chars.length() >= fence.length()) {
+                    fence = null;
+                }
+            } else if (fence == null && line.contains("[[")) {
+                boolean[] code = codeSpans(line);
+                Matcher wiki = WIKI.matcher(line);
+                while (wiki.find()) {
+                    if (!code[wiki.start()]) {
+                        refs.add(new Ref(true, wiki.group(1), offset + wiki.start(1), wiki.group(1).length()));
+                    }
+                }
+            }
+            offset += line.length() + 1;
+        }
+    }
+
+    /**
+     * 行内代码 `...` 覆盖的位置
+     */
+    private static boolean[] codeSpans(String line) {
+        boolean[] code = new boolean[line.length()];
+        int i = 0;
+        while (i < line.length()) {
+            if (line.charAt(i) != '`') {
+                i++;
+                continue;
+            }
+            int run = 1;
+            while (i + run < line.length() && line.charAt(i + run) == '`') {
+                run++;
+            }
+            int close = line.indexOf("`".repeat(run), i + run);
+            if (close < 0) {
+                break;
+            }
+            for (int j = i; j < close + run; j++) {
+                code[j] = true;
+            }
+            i = close + run;
+        }
+        return code;
+    }
+
+    private static String stripSuffix(String target) {
+        for (int i = 0; i < target.length(); i++) {
+            if (target.charAt(i) == '#' || target.charAt(i) == '?') {
+                return target.substring(0, i);
+            }
+        }
+        return target;
+    }
+
+    private static String stripExtension(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+    }
+
+    private static String encode(String path) {
+        StringBuilder encoded = new StringBuilder();
+        for (char c : path.toCharArray()) {
+            switch (c) {
+                case ' ' -> encoded.append("%20");
+                case '(' -> encoded.append("%28");
+                case ')' -> encoded.append("%29");
+                default -> encoded.append(c);
+            }
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.service.diagnostics.FileTrace;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 笔记回收站
+ * 删除的笔记或文件夹连同一个记录原位置的 item.properties 放在回收站下各自的条目目录里，
+ * 删除本身只是一次原子移动，与文件夹大小无关。过期条目先整体移入 .purging 再并行删除，
+ * 列表和恢复不会看到删除到一半的条目
+ */
+final class NoteTrash {
+
+    static final String DIR = ".mdviewer-trash";
+    private static final String PURGING_DIR = ".purging";
+    private static final String META_FILE = "item.properties";
+    private static final Pattern ITEM_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    /**
+     * 回收站中的一项；path 为删除前相对笔记根目录的路径
+     */
+    record Item(String id, String path, boolean folder, Instant deletedAt, Path content) {
+    }
+
+    private final Path root;
+    private final Path dir;
+    private final OperationTracer tracer;
+    private final Function<Path, String> ids;
+
+    NoteTrash(Path root, OperationTracer tracer, Function<Path, String> ids) {
+        this.root = root;
+        this.dir = root.resolve(DIR);
+        this.tracer = tracer;
+        this.ids = ids;
+    }
+
+    /**
+     * 将笔记或文件夹移入回收站
+     */
+    Item moveIn(Path source) throws IOException {
+        String id = UUID.randomUUID().toString();
+        boolean folder = Files.isDirectory(source);
+        Instant deletedAt = Instant.now();
+        Path itemDir = Files.createDirectories(dir.resolve(id));
+        Path content = itemDir.resolve(source.getFileName().toString());
+        Properties meta = new Properties();
+        meta.setProperty("path", root.relativize(source).toString().replace('\\', '/'));
+        meta.setProperty("type", folder ? "folder" : "note");
+        meta.setProperty("deletedAt", deletedAt.toString());
+        try {
+            try (OutputStream out = Files.newOutputStream(itemDir.resolve(META_FILE))) {
+                meta.store(out, "MDViewer Trash");
+            }
+            move(source, content);
+        } catch (IOException e) {
+            deleteTree(itemDir);
+            throw e;
+        }
+        return new Item(id, meta.getProperty("path"), folder, deletedAt, content);
+    }
+
+    /**
+     * 回收站中的条目，最近删除的在前；原内容已不存在的残留条目不列出
+     */
+    List<Item> list() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        List<Item> items = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path itemDir : stream) {
+                if (!ITEM_ID.matcher(itemDir.getFileName().toString()).matches()) {
+                    continue;
+                }
+                Item item = read(itemDir);
+                if (item != null && Files.exists(item.content())) {
+                    items.add(item);
+                }
+            }
+        }
+        items.sort(Comparator.comparing(Item::deletedAt).reversed());
+        return items;
+    }
+
+    /**
+     * 取回收站中的条目，不存在时返回 null
+     */
+    Item get(String id) {
+        if (id == null || !ITEM_ID.matcher(id).matches()) {
+            return null;
+        }
+        Item item = read(dir.resolve(id));
+        return item != null && Files.exists(item.content()) ? item : null;
+    }
+
+    /**
+     * 将条目移回 target，并删除条目目录；target 已存在时抛出 FileAlreadyExistsException，不覆盖
+     * 先独占创建同名的空文件或空目录占住位置，再用条目内容替换它：POSIX 上的原子移动会静默覆盖已有文件，
+     * 只检查是否存在挡不住检查之后才出现的同名笔记
+     */
+    void restore(Item item, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        if (item.folder()) {
+            Files.createDirectory(target);
+        } else {
+            Files.createFile(target);
+        }
+        try {
+            replace(item.content(), target);
+        } catch (IOException e) {
+            deletePlaceholder(target, item.folder());
+            throw e;
+        }
+        deleteTree(dir.resolve(item.id()));
+    }
+
+    /**
+     * 立即彻底删除一项
+     */
+    void delete(Item item) throws IOException {
+        Path purging = Files.createDirectories(dir.resolve(PURGING_DIR));
+        move(dir.resolve(item.id()), purging.resolve(item.id()));
+        deleteTree(purging.resolve(item.id()));
+    }
+
+    /**
+     * 彻底删除 expiredBefore 之前删除的条目（以及上次清理中断留下的内容），parallelism 个条目同时删除
+     *
+     * @return 清理的条目数
+     */
+    int purge(Instant expiredBefore, int parallelism) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        Path purging = dir.resolve(PURGING_DIR);
+        int expired = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path itemDir : stream) {
+                if (!ITEM_ID.matcher(itemDir.getFileName().toString()).matches()) {
+                    continue;
+                }
+                Item item = read(itemDir);
+                Instant deletedAt = item != null ? item.deletedAt() : Files.getLastModifiedTime(itemDir).toInstant();
+                if (deletedAt.isBefore(expiredBefore)) {
+                    Files.createDirectories(purging);
+                    move(itemDir, purging.resolve(itemDir.getFileName()));
+                    expired++;
+                }
+            }
+        }
+        if (!Files.isDirectory(purging)) {
+            return expired;
+        }
+        List<Path> pending = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(purging)) {
+            stream.forEach(pending::add);
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism))) {
+            List<Future<?>> tasks = new ArrayList<>(pending.size());
+            for (Path itemDir : pending) {
+                tasks.add(executor.submit(() -> {
+                    deleteTree(itemDir);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    System.err.println("清理回收站失败: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return expired;
+    }
+
+    private Item read(Path itemDir) {
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(itemDir.resolve(META_FILE))) {
+            meta.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        String path = meta.getProperty("path");
+        String deletedAt = meta.getProperty("deletedAt");
+        if (path == null || path.isBlank() || deletedAt == null) {
+            return null;
+        }
+        Instant time;
+        try {
+            time = Instant.parse(deletedAt);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Path content = itemDir.resolve(Path.of(path).getFileName().toString());
+        return new Item(itemDir.getFileName().toString(), path, "folder".equals(meta.getProperty("type")), time, content);
+    }
+
+    /**
+     * 同一文件系统内原子移动；不支持时（如跨越挂载点的符号链接目录）退回普通移动
+     */
+    private void move(Path source, Path target) throws IOException {
+        try (FileTrace trace = tracer.file("move", root, source, ids)) {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target);
+            }
+            trace.succeeded();
+        }
+    }
+
+    /**
+     * 用 source 替换恢复时创建的占位；占位目录在此期间被写入内容时抛出 DirectoryNotEmptyException
+     */
+    private void replace(Path source, Path placeholder) throws IOException {
+        try (FileTrace trace = tracer.file("move", root, source, ids)) {
+            try {
+                Files.move(source, placeholder, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, placeholder, StandardCopyOption.REPLACE_EXISTING);
+            }
+            trace.succeeded();
+        }
+    }
+
+    /**
+     * 恢复失败时删除占位，占位已被写入内容时保留
+     */
+    private static void deletePlaceholder(Path placeholder, boolean folder) {
+        try {
+            if (folder || Files.size(placeholder) == 0) {
+                Files.deleteIfExists(placeholder);
+            }
+        } catch (IOException e) {
+            // 非空目录或已被删除，保留现状
+        }
+    }
+
+    private void deleteTree(Path start) throws IOException {
+        if (!Files.exists(start)) {
+            return;
+        }
+        try (FileTrace trace = tracer.file("delete", root, start, ids)) {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    trace.entry();
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    trace.entry();
+                    Files.deleteIfExists(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            trace.succeeded();
+        }
+    }
+}
@@ -6,80 +6,182 @@ import com.example.mdviewer.backend.dto.CreateNoteRequest;
 import com.example.mdviewer.backend.dto.FolderNodeDto;
 import com.example.mdviewer.backend.dto.NoteDetailDto;
 import com.example.mdviewer.backend.dto.NoteSummaryDto;
+import com.example.mdviewer.backend.dto.TrashItemDto;
 import com.example.mdviewer.backend.dto.UpdateFolderRequest;
 import com.example.mdviewer.backend.dto.UpdateNoteRequest;
+import com.example.mdviewer.backend.service.diagnostics.FileTrace;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileVisitOption;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 @Service
 public class NotesService {
     private static final String EXTENSION = ".md";
+    // 笔记库规模指标最多每分钟重新统计一次
+    private static final long VAULT_SIZE_TTL_MS = 60_000;
+    // 扫描以磁盘 IO 为主，线程数可以多于 CPU 核数
+    private static final int MAX_SCAN_PARALLELISM = 16;
     private final Path root;
-
-    public NotesService(NotesProperties properties) {
+    private final Counter filesScanned;
+    private final Counter bytesRead;
+    private final Counter bytesWritten;
+    private final OperationTracer tracer;
+    private final VaultScanner scanner;
+    private final NoteTrash trash;
+    private final NotesProperties.Trash trashConfig;
+    private final NoteLinkIndex links;
+    private volatile VaultSize vaultSize = new VaultSize(0, 0, 0);
+
+    private record VaultSize(long notes, long bytes, long measuredAt) {}
+
+    // 一篇引用笔记的改写：before、after 为这篇笔记在重命名前后的位置（不在被重命名的文件夹内时相同），
+    // 改写后的内容暂存在同目录的 tempName，modified、size 为读取内容前的文件属性，替换前据此确认笔记未被修改
+    private record LinkRewrite(Path before, Path after, String tempName, FileTime modified, long size) {}
+
+    public NotesService(NotesProperties properties, MeterRegistry registry, OperationTracer tracer) {
         this.root = properties.getRoot().toAbsolutePath().normalize();
+        this.tracer = tracer;
+        int parallelism = properties.getScanParallelism() > 0 ? properties.getScanParallelism()
+                : Math.min(MAX_SCAN_PARALLELISM, Runtime.getRuntime().availableProcessors() * 2);
+        this.scanner = new VaultScanner(parallelism, this::isMarkdown);
+        this.trash = new NoteTrash(root, tracer, this::encodeId);
+        this.trashConfig = properties.getTrash();
+        this.links = new NoteLinkIndex(root, this::readContent);
         try {
             Files.createDirectories(root);
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "无法创建笔记目录", ex);
         }
+        this.filesScanned = Counter.builder("notes.files.scanned").description("遍历笔记目录时访问的文件与目录数").register(registry);
+        this.bytesRead = Counter.builder("notes.read").baseUnit("bytes").register(registry);
+        this.bytesWritten = Counter.builder("notes.written").baseUnit("bytes").register(registry);
+        Gauge.builder("notes.vault.notes", this, service -> service.vaultSize().notes())
+                .description("笔记数量").register(registry);
+        Gauge.builder("notes.vault.bytes", this, service -> service.vaultSize().bytes())
+                .description("笔记总大小").baseUnit("bytes").register(registry);
+    }
+
+    /**
+     * 笔记根目录（绝对路径）
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 笔记文件对应的 ID
+     */
+    public String noteIdFor(Path file) {
+        return encodeId(root.relativize(file.toAbsolutePath().normalize()));
+    }
+
+    /**
+     * 笔记文件对应的标题
+     */
+    public String titleFor(Path file) {
+        return stripExtension(file.getFileName().toString());
+    }
+
+    /**
+     * 列出所有 Markdown 笔记文件及扫描时读取的大小和修改时间，后台索引据此判断笔记是否变化而不必再次读取属性
+     */
+    public List<VaultScanner.Note> scanNotes() {
+        return scan(root, "读取笔记列表失败").root().allNotes();
     }
 
+    /**
+     * 列出文件夹（含子文件夹）下的 Markdown 笔记文件
+     */
+    public List<Path> listMarkdownFiles(String folderId) {
+        return walkMarkdownFiles(resolveFolder(folderId));
+    }
+
+    /**
+     * 笔记 ID 对应的文件
+     */
+    public Path noteFile(String id) {
+        return resolveNoteFile(id);
+    }
+
+    private List<Path> walkMarkdownFiles(Path start) {
+        List<VaultScanner.Note> notes = scan(start, "读取笔记列表失败").root().allNotes();
+        List<Path> files = new ArrayList<>(notes.size());
+        for (VaultScanner.Note note : notes) {
+            files.add(note.path());
+        }
+        return files;
+    }
+
+    @Timed(value = "notes.operation", histogram = true)
     public List<FolderNodeDto> loadFolderTree() {
-        return listChildren(root);
+        return toNodes(scan(root, "读取目录失败").root());
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public List<NoteSummaryDto> listNotes() {
-        try (Stream<Path> stream = Files.walk(root, FileVisitOption.FOLLOW_LINKS)) {
-            return stream
-                    .filter(Files::isRegularFile)
-                    .filter(this::isMarkdown)
-                    .map(this::toSummary)
-                    .sorted(Comparator.comparing(NoteSummaryDto::updatedAt).reversed())
-                    .toList();
-        } catch (IOException ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取笔记列表失败", ex);
-        }
+        return scan(root, "读取笔记列表失败").root().allNotes().stream()
+                .map(this::toSummary)
+                .sorted(Comparator.comparing(NoteSummaryDto::updatedAt).reversed())
+                .toList();
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public NoteDetailDto getNote(String id) {
         Path file = resolveNoteFile(id);
         try {
-            String content = Files.readString(file, StandardCharsets.UTF_8);
+            String content = readContent(file);
             return toDetail(file, content);
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取笔记失败", ex);
         }
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public NoteDetailDto createNote(CreateNoteRequest request) {
         String title = sanitizeTitle(request.title(), "未命名");
         Path folder = request.folderId() == null ? root : resolveFolder(request.folderId());
         try {
-            Files.createDirectories(folder);
+            createDirectories(folder);
             Path file = ensureUniqueFile(folder, toFileBaseName(title));
             String content = "# " + title + System.lineSeparator() + System.lineSeparator();
-            Files.writeString(file, content, StandardCharsets.UTF_8);
+            writeContent(file, content);
+            links.changed(file);
             return toDetail(file, content);
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "创建笔记失败", ex);
         }
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public NoteDetailDto updateNote(String id, UpdateNoteRequest request) {
         Path file = resolveNoteFile(id);
         String existingTitle = stripExtension(file.getFileName().toString());
@@ -87,7 +189,7 @@ public class NotesService {
         String content;
         try {
             content = request.content() == null
-                    ? Files.readString(file, StandardCharsets.UTF_8)
+                    ? readContent(file)
                     : request.content();
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取笔记失败", ex);
@@ -95,27 +197,34 @@ public class NotesService {
 
         Path targetFile = file;
         if (!nextTitle.equals(existingTitle)) {
-            targetFile = renameFile(file, nextTitle);
+            targetFile = renameFile(file, nextTitle, Boolean.TRUE.equals(request.updateLinks()));
         }
 
         try {
-            Files.writeString(targetFile, content, StandardCharsets.UTF_8);
+            writeContent(targetFile, content);
+            links.changed(targetFile);
             return toDetail(targetFile, content);
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "更新笔记失败", ex);
         }
     }
 
+    /**
+     * 删除笔记：移入回收站，保留期内可以恢复
+     */
+    @Timed(value = "notes.operation", histogram = true)
     public void deleteNote(String id) {
         Path file = resolveNoteFile(id);
         try {
-            Files.deleteIfExists(file);
+            trash.moveIn(file);
+            links.changed(file);
             cleanupEmptyParents(file.getParent());
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "删除笔记失败", ex);
         }
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public FolderNodeDto createFolder(CreateFolderRequest request) {
         String name = sanitizeTitle(request.name(), "新建文件夹");
         Path parent = request.parentId() == null ? root : resolveFolder(request.parentId());
@@ -127,13 +236,14 @@ public class NotesService {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "文件夹已存在");
         }
         try {
-            Files.createDirectories(folder);
-            return toFolderNode(folder, listChildren(folder));
+            createDirectories(folder);
+            return toFolderNode(folder, toNodes(scan(folder, "读取目录失败").root()));
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "创建文件夹失败", ex);
         }
     }
 
+    @Timed(value = "notes.operation", histogram = true)
     public FolderNodeDto renameFolder(String id, UpdateFolderRequest request) {
         Path folder = resolveFolder(id);
         String name = sanitizeTitle(request.name(), folder.getFileName().toString());
@@ -145,57 +255,211 @@ public class NotesService {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "目标文件夹已存在");
         }
         try {
-            Files.move(folder, target);
-            return toFolderNode(target, listChildren(target));
+            if (Boolean.TRUE.equals(request.updateLinks())) {
+                moveWithLinks(folder, target, true);
+            } else {
+                move(folder, target);
+                links.invalidate();
+            }
+            return toFolderNode(target, toNodes(scan(target, "读取目录失败").root()));
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "重命名文件夹失败", ex);
         }
     }
 
+    /**
+     * 删除文件夹：整个文件夹一次移入回收站，不逐个删除其中的文件
+     */
+    @Timed(value = "notes.operation", histogram = true)
     public void deleteFolder(String id) {
         Path folder = resolveFolder(id);
-        try (Stream<Path> stream = Files.walk(folder)) {
-            stream.sorted(Comparator.reverseOrder()).forEach(path -> {
-                try {
-                    Files.deleteIfExists(path);
-                } catch (IOException ex) {
-                    throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "删除文件夹失败", ex);
-                }
-            });
+        if (folder.equals(root) || isInHiddenDirectory(folder)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "不能删除该文件夹");
+        }
+        try {
+            trash.moveIn(folder);
+            links.invalidate();
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "删除文件夹失败", ex);
         }
     }
 
-    private List<FolderNodeDto> listChildren(Path folder) {
-        if (!Files.isDirectory(folder)) {
-            return List.of();
+    @Timed(value = "notes.operation", histogram = true)
+    public List<TrashItemDto> listTrash() {
+        try {
+            return trash.list().stream().map(this::toTrashItem).toList();
+        } catch (IOException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取回收站失败", ex);
         }
-        try (Stream<Path> stream = Files.list(folder)) {
-            List<Path> directories = new ArrayList<>();
-            List<Path> files = new ArrayList<>();
-            stream.forEach(path -> {
-                if (Files.isDirectory(path)) {
-                    directories.add(path);
-                } else if (isMarkdown(path)) {
-                    files.add(path);
-                }
-            });
-            directories.sort(Comparator.comparing(path -> path.getFileName().toString().toLowerCase(Locale.ROOT)));
-            files.sort(Comparator.comparing(path -> path.getFileName().toString().toLowerCase(Locale.ROOT)));
-            List<FolderNodeDto> nodes = new ArrayList<>();
-            for (Path dir : directories) {
-                nodes.add(toFolderNode(dir, listChildren(dir)));
-            }
-            for (Path file : files) {
-                nodes.add(toFileNode(file));
+    }
+
+    /**
+     * 从回收站恢复到原位置；原位置已有同名笔记或文件夹时不覆盖
+     */
+    @Timed(value = "notes.operation", histogram = true)
+    public FolderNodeDto restoreFromTrash(String trashId) {
+        NoteTrash.Item item = trashItem(trashId);
+        Path target = root.resolve(item.path()).normalize();
+        if (!target.startsWith(root) || target.equals(root) || isInHiddenDirectory(target)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "非法的原路径");
+        }
+        try {
+            trash.restore(item, target);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "原位置已存在同名" + (item.folder() ? "文件夹" : "笔记"), ex);
+        } catch (IOException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "恢复失败", ex);
+        }
+        if (item.folder()) {
+            links.invalidate();
+        } else {
+            links.changed(target);
+        }
+        return item.folder() ? toFolderNode(target, toNodes(scan(target, "读取目录失败").root())) : toFileNode(target);
+    }
+
+    /**
+     * 从回收站中彻底删除
+     */
+    @Timed(value = "notes.operation", histogram = true)
+    public void deleteFromTrash(String trashId) {
+        NoteTrash.Item item = trashItem(trashId);
+        try {
+            trash.delete(item);
+        } catch (IOException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "删除失败", ex);
+        }
+    }
+
+    /**
+     * 定期彻底删除超过保留期的回收站条目
+     */
+    @Scheduled(initialDelayString = "${notes.trash.purge-interval:1h}",
+               fixedDelayString = "${notes.trash.purge-interval:1h}")
+    public void purgeTrash() {
+        try {
+            int purged = trash.purge(Instant.now().minus(trashConfig.getRetention()), trashConfig.getPurgeParallelism());
+            if (purged > 0) {
+                System.out.println("已清理回收站过期条目: " + purged);
             }
-            return nodes;
         } catch (IOException ex) {
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取目录失败", ex);
+            System.err.println("清理回收站失败: " + ex.getMessage());
+        }
+    }
+
+    private String readContent(Path file) throws IOException {
+        try (FileTrace trace = trace("read", file)) {
+            byte[] bytes = Files.readAllBytes(file);
+            trace.bytes(bytes.length);
+            trace.succeeded();
+            bytesRead.increment(bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private void writeContent(Path file, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try (FileTrace trace = trace("write", file)) {
+            trace.bytes(bytes.length);
+            Files.write(file, bytes);
+            trace.succeeded();
+        }
+        bytesWritten.increment(bytes.length);
+    }
+
+    private void createDirectories(Path dir) throws IOException {
+        try (FileTrace trace = trace("mkdirs", dir)) {
+            Files.createDirectories(dir);
+            trace.succeeded();
         }
     }
 
+    private void move(Path source, Path target) throws IOException {
+        try (FileTrace trace = trace("move", source)) {
+            Files.move(source, target);
+            trace.succeeded();
+        }
+    }
+
+    private void delete(Path path) throws IOException {
+        try (FileTrace trace = trace("delete", path)) {
+            Files.deleteIfExists(path);
+            trace.succeeded();
+        }
+    }
+
+    /**
+     * 并行扫描目录树，跳过隐藏目录
+     */
+    private VaultScanner.Result scan(Path start, String error) {
+        try (FileTrace trace = trace("walk", start)) {
+            VaultScanner.Result result = scanner.scan(start);
+            trace.entries(result.entries());
+            trace.succeeded();
+            filesScanned.increment(result.entries());
+            return result;
+        } catch (IOException ex) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, error, ex);
+        }
+    }
+
+    private FileTrace trace(String operation, Path path) {
+        return tracer.file(operation, root, path, this::encodeId);
+    }
+
+    /**
+     * 笔记数量与总大小（跳过隐藏目录），缓存一分钟，供指标采集时读取
+     */
+    private VaultSize vaultSize() {
+        VaultSize current = vaultSize;
+        if (System.currentTimeMillis() - current.measuredAt() < VAULT_SIZE_TTL_MS) {
+            return current;
+        }
+        synchronized (this) {
+            if (vaultSize != current) {
+                return vaultSize;
+            }
+            long notes = 0;
+            long bytes = 0;
+            try {
+                for (VaultScanner.Note note : scan(root, "统计笔记库失败").root().allNotes()) {
+                    notes++;
+                    bytes += note.size();
+                }
+            } catch (ResponseStatusException ex) {
+                // 统计失败时保留上一次的结果，稍后重试
+                return current;
+            }
+            vaultSize = new VaultSize(notes, bytes, System.currentTimeMillis());
+            return vaultSize;
+        }
+    }
+
+    private List<FolderNodeDto> toNodes(VaultScanner.Folder folder) {
+        List<FolderNodeDto> nodes = new ArrayList<>(folder.folders().size() + folder.notes().size());
+        for (VaultScanner.Folder child : folder.folders()) {
+            nodes.add(toFolderNode(child.path(), toNodes(child)));
+        }
+        for (VaultScanner.Note note : folder.notes()) {
+            nodes.add(toFileNode(note.path()));
+        }
+        return nodes;
+    }
+
+    private NoteTrash.Item trashItem(String trashId) {
+        NoteTrash.Item item = trash.get(trashId);
+        if (item == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "回收站中没有该项");
+        }
+        return item;
+    }
+
+    private TrashItemDto toTrashItem(NoteTrash.Item item) {
+        String name = Path.of(item.path()).getFileName().toString();
+        return new TrashItemDto(item.id(), item.folder() ? name : stripExtension(name), item.folder() ? "folder" : "note",
+                item.path(), item.deletedAt().toString(), item.deletedAt().plus(trashConfig.getRetention()).toString());
+    }
+
     private FolderNodeDto toFolderNode(Path folder, List<FolderNodeDto> children) {
         String id = encodeId(root.relativize(folder));
         return new FolderNodeDto(id, folder.getFileName().toString(), "folder", null, children);
@@ -206,15 +470,11 @@ public class NotesService {
         return new FolderNodeDto(id, file.getFileName().toString(), "file", id, null);
     }
 
-    private NoteSummaryDto toSummary(Path file) {
+    private NoteSummaryDto toSummary(VaultScanner.Note note) {
+        Path file = note.path();
         String id = encodeId(root.relativize(file));
         String title = stripExtension(file.getFileName().toString());
-        String updatedAt;
-        try {
-            updatedAt = Files.getLastModifiedTime(file).toInstant().toString();
-        } catch (IOException ex) {
-            updatedAt = Instant.now().toString();
-        }
+        String updatedAt = note.lastModified().toInstant().toString();
         String folderId = root.equals(file.getParent()) ? null : encodeId(root.relativize(file.getParent()));
         return new NoteSummaryDto(id, title, updatedAt, folderId);
     }
@@ -263,13 +523,13 @@ public class NotesService {
         return resolved;
     }
 
-    private String encodeId(Path relativePath) {
+    String encodeId(Path relativePath) {
         String normalized = relativePath.toString().replace('\\', '/');
         return Base64.getUrlEncoder().withoutPadding()
                 .encodeToString(normalized.getBytes(StandardCharsets.UTF_8));
     }
 
-    private Path decodeId(String id) {
+    Path decodeId(String id) {
         if (id == null || id.isBlank()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "缺少 ID");
         }
@@ -286,11 +546,20 @@ public class NotesService {
         return path;
     }
 
+    private boolean isInHiddenDirectory(Path path) {
+        for (Path segment : root.relativize(path)) {
+            if (segment.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean isMarkdown(Path path) {
         return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(EXTENSION);
     }
 
-    private String sanitizeTitle(String input, String fallback) {
+    String sanitizeTitle(String input, String fallback) {
         if (input == null) {
             return fallback;
         }
@@ -324,17 +593,211 @@ public class NotesService {
         throw new IOException("无法生成唯一文件名");
     }
 
-    private Path renameFile(Path file, String nextTitle) {
+    private Path renameFile(Path file, String nextTitle, boolean updateLinks) {
         Path folder = file.getParent();
         try {
             Path target = ensureUniqueFile(folder, toFileBaseName(nextTitle));
-            Files.move(file, target);
+            if (updateLinks) {
+                moveWithLinks(file, target, false);
+            } else {
+                move(file, target);
+                links.changed(file);
+                links.changed(target);
+            }
             return target;
         } catch (IOException ex) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "重命名笔记失败", ex);
         }
     }
 
+    /**
+     * 重命名笔记或文件夹，并改写其他笔记中指向它的链接
+     * 引用它的笔记取自链接索引（只重新解析本服务标记过的笔记，必要时才全量扫描）；改写后的内容先并行写入各笔记旁的临时文件，
+     * 全部写好后才重命名，再逐个原子替换原文件（替换前以硬链接保留原文件）。
+     * 任何一步失败，或某篇笔记在此期间被修改时，恢复已替换的笔记并撤销重命名，整批要么全部生效要么都不生效
+     */
+    private void moveWithLinks(Path source, Path target, boolean folder) throws IOException {
+        synchronized (links) {
+            links.update(() -> scan(root, "读取笔记列表失败").root().allNotes());
+            String from = relativePath(source);
+            NoteLinks.Rename rename = new NoteLinks.Rename(from, relativePath(target), folder,
+                    !folder && links.uniqueName(from));
+            Set<String> referencing = links.referencing(rename);
+            if (!folder) {
+                referencing.remove(from);
+            }
+            List<LinkRewrite> rewrites = stageLinkRewrites(referencing, rename);
+            // 已替换的笔记及其原文件
+            List<Path[]> replaced = new ArrayList<>();
+            List<Path> backups = new ArrayList<>();
+            boolean moved = false;
+            boolean keepBackups = false;
+            LinkRewrite current = null;
+            try {
+                for (LinkRewrite rewrite : rewrites) {
+                    current = rewrite;
+                    ensureUnchanged(rewrite, rewrite.before());
+                }
+                current = null;
+                move(source, target);
+                moved = true;
+                for (LinkRewrite rewrite : rewrites) {
+                    current = rewrite;
+                    ensureUnchanged(rewrite, rewrite.after());
+                    Path backup = rewrite.after().resolveSibling(hiddenName(rewrite.after(), ".bak"));
+                    backup(rewrite.after(), backup);
+                    backups.add(backup);
+                    try (FileTrace trace = trace("move", rewrite.after())) {
+                        Files.move(rewrite.after().resolveSibling(rewrite.tempName()), rewrite.after(),
+                                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        trace.succeeded();
+                    }
+                    replaced.add(new Path[] {rewrite.after(), backup});
+                }
+            } catch (IOException | ResponseStatusException ex) {
+                keepBackups = !rollbackLinkRewrites(replaced, moved ? target : null, source);
+                if (ex instanceof ResponseStatusException status) {
+                    throw status;
+                }
+                String note = current == null ? from : relativePath(current.before());
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "更新链接失败，已撤销重命名: " + note, ex);
+            } finally {
+                for (LinkRewrite rewrite : rewrites) {
+                    Path temp = (moved ? rewrite.after() : rewrite.before()).resolveSibling(rewrite.tempName());
+                    deleteQuietly(temp);
+                    links.changed(rewrite.before());
+                    links.changed(rewrite.after());
+                }
+                if (folder) {
+                    links.invalidate();
+                } else {
+                    links.changed(source);
+                    links.changed(target);
+                }
+                if (!keepBackups) {
+                    backups.forEach(this::deleteQuietly);
+                }
+            }
+        }
+    }
+
+    /**
+     * 某篇笔记在读取后被修改（大小或修改时间变化）时中止，避免用过期内容覆盖
+     */
+    private void ensureUnchanged(LinkRewrite rewrite, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attributes.lastModifiedTime().equals(rewrite.modified()) || attributes.size() != rewrite.size()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "笔记在重命名期间被修改，已撤销重命名，请重试: " + relativePath(rewrite.before()));
+        }
+    }
+
+    /**
+     * 保留原文件：优先建硬链接（不复制内容），文件系统不支持时复制
+     */
+    private void backup(Path file, Path backup) throws IOException {
+        try {
+            Files.createLink(backup, file);
+        } catch (UnsupportedOperationException | IOException ex) {
+            Files.copy(file, backup, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /**
+     * 恢复已替换的笔记并撤销重命名；全部恢复成功时返回 true，否则保留备份文件以便手工恢复
+     */
+    private boolean rollbackLinkRewrites(List<Path[]> replaced, Path target, Path source) {
+        boolean restored = true;
+        for (int i = replaced.size() - 1; i >= 0; i--) {
+            Path file = replaced.get(i)[0];
+            Path backup = replaced.get(i)[1];
+            try {
+                Files.move(backup, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                restored = false;
+                System.err.println("恢复笔记失败，原内容保留在 " + backup + ": " + ex.getMessage());
+            }
+        }
+        if (target != null) {
+            try {
+                move(target, source);
+            } catch (IOException ex) {
+                restored = false;
+                System.err.println("撤销重命名失败: " + relativePath(target) + " -> " + relativePath(source) + ": " + ex.getMessage());
+            }
+        }
+        return restored;
+    }
+
+    private List<LinkRewrite> stageLinkRewrites(Set<String> sources, NoteLinks.Rename rename) throws IOException {
+        List<LinkRewrite> staged = new ArrayList<>();
+        IOException failure = null;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<LinkRewrite>> tasks = new ArrayList<>(sources.size());
+            for (String source : sources) {
+                tasks.add(executor.submit(() -> stageLinkRewrite(source, rename)));
+            }
+            for (Future<LinkRewrite> task : tasks) {
+                try {
+                    LinkRewrite rewrite = task.get();
+                    if (rewrite != null) {
+                        staged.add(rewrite);
+                    }
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause() instanceof IOException io ? io : new IOException(ex.getCause());
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    failure = new IOException("改写链接被中断", ex);
+                    break;
+                }
+            }
+        }
+        if (failure != null) {
+            for (LinkRewrite rewrite : staged) {
+                deleteQuietly(rewrite.before().resolveSibling(rewrite.tempName()));
+            }
+            throw failure;
+        }
+        return staged;
+    }
+
+    /**
+     * 把 source 改写后的内容写入同目录的隐藏临时文件；没有需要改写的链接时返回 null
+     */
+    private LinkRewrite stageLinkRewrite(String source, NoteLinks.Rename rename) throws IOException {
+        Path file = root.resolve(source);
+        // 先取属性再读内容：读取之后的任何修改都会在替换前被发现
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String renamed = NoteLinks.renamed(source, rename);
+        String newSource = renamed == null ? source : renamed;
+        String content = NoteLinks.rewrite(readContent(file), source, newSource, rename);
+        if (content == null) {
+            return null;
+        }
+        String tempName = hiddenName(file, ".tmp");
+        writeContent(file.resolveSibling(tempName), content);
+        return new LinkRewrite(file, root.resolve(newSource), tempName, attributes.lastModifiedTime(), attributes.size());
+    }
+
+    private static String hiddenName(Path file, String suffix) {
+        return "." + file.getFileName() + "." + UUID.randomUUID() + suffix;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            delete(path);
+        } catch (IOException ex) {
+            System.err.println("删除临时文件失败: " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private String relativePath(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
     private String stripExtension(String filename) {
         String lower = filename.toLowerCase(Locale.ROOT);
         if (lower.endsWith(EXTENSION)) {
@@ -347,12 +810,14 @@ public class NotesService {
     private void cleanupEmptyParents(Path start) throws IOException {
         Path current = start;
         while (current != null && !current.equals(root)) {
-            try (Stream<Path> stream = Files.list(current)) {
-                if (stream.findAny().isPresent()) {
+            try (FileTrace trace = trace("list", current); Stream<Path> stream = Files.list(current)) {
+                boolean empty = stream.findAny().isEmpty();
+                trace.succeeded();
+                if (!empty) {
                     return;
                 }
             }
-            Files.deleteIfExists(current);
+            delete(current);
             current = current.getParent();
         }
     }
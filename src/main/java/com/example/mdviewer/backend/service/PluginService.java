@@ -1,6 +1,7 @@
 package com.example.mdviewer.backend.service;
 
 import com.example.mdviewer.backend.dto.PluginMetadataDto;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -11,6 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * 管理插件的安装、启用、禁用和市场信息
  */
 @Service
+@Timed(value = "plugins.operation", histogram = true)
 public class PluginService {
     
     // 已安装的插件（模拟数据库）
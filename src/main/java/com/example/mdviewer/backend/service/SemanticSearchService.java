@@ -0,0 +1,361 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.dto.SemanticSearchHitDto;
+import com.example.mdviewer.backend.service.ai.EmbeddingStore;
+import com.example.mdviewer.backend.service.ai.HnswIndex;
+import com.example.mdviewer.backend.service.ai.MarkdownChunker;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 语义检索
+ * 后台定时扫描笔记，只对内容有变化的笔记分段并批量向量化；向量持久化到
+ * 笔记根目录下的 .ai-index，查询由内存中的 HNSW 索引完成。
+ * 扫描只比较修改时间和大小，两者都没变的笔记不再读取内容
+ */
+@Service
+public class SemanticSearchService {
+
+    private static final String INDEX_DIR = ".ai-index";
+    private static final String INDEX_FILE = "embeddings.f32";
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int MAX_RESULTS = 50;
+    // 已删除节点超过该比例时重建 HNSW
+    private static final double REBUILD_DELETED_RATIO = 0.3;
+
+    private final NotesService notesService;
+    private final AIService aiService;
+    private final AIProperties.Embedding config;
+    private final Path indexFile;
+    private final ReentrantLock scanLock = new ReentrantLock();
+    // 上次读取时的修改时间、大小和内容哈希，只在扫描线程中访问；重启后首次扫描会重新读取全部笔记
+    private final Map<String, FileStamp> stamps = new HashMap<>();
+
+    private volatile Index index;
+
+    public SemanticSearchService(NotesService notesService, AIService aiService, AIProperties aiProperties) {
+        this.notesService = notesService;
+        this.aiService = aiService;
+        this.config = aiProperties.getEmbedding();
+        this.indexFile = notesService.getRoot().resolve(INDEX_DIR).resolve(INDEX_FILE);
+    }
+
+    /**
+     * 语义检索：返回与查询最相近的笔记，每篇笔记取最匹配的段落
+     */
+    public List<SemanticSearchHitDto> search(String query, int k) {
+        if (query == null || query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "查询内容不能为空");
+        }
+        Index current = index;
+        // 索引尚未建立或向量方案已切换（正在重建）时不返回结果
+        if (current == null || current.hnsw == null || !current.signature.equals(aiService.embeddingSignature())) {
+            return List.of();
+        }
+
+        float[] vector;
+        try {
+            vector = aiService.embed(List.of(query)).get(0);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "查询向量化失败: " + e.getMessage(), e);
+        }
+
+        int limit = Math.clamp(k, 1, MAX_RESULTS);
+        // 多取一些段落，按笔记去重后再截断
+        int candidates = limit * 4;
+        Map<String, SemanticSearchHitDto> byNote = new LinkedHashMap<>();
+        for (HnswIndex.Hit hit : current.hnsw.search(vector, candidates, Math.max(config.getEfSearch(), candidates))) {
+            EmbeddingStore.Passage passage = current.passages.get(hit.node());
+            NoteState note = passage == null ? null : current.notes.get(passage.noteId());
+            if (note == null || byNote.containsKey(passage.noteId())) {
+                continue;
+            }
+            byNote.put(passage.noteId(),
+                    new SemanticSearchHitDto(passage.noteId(), note.note().title(), passage.snippet(), hit.score()));
+            if (byNote.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(byNote.values());
+    }
+
+    /**
+     * 后台增量更新索引
+     */
+    @Scheduled(initialDelayString = "${ai.embedding.initial-delay:10s}",
+            fixedDelayString = "${ai.embedding.scan-interval:1m}")
+    public void refresh() {
+        if (!config.isEnabled() || !scanLock.tryLock()) {
+            return;
+        }
+        try {
+            refreshIndex();
+        } catch (RuntimeException e) {
+            System.err.println("更新语义索引失败: " + e.getMessage());
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    private void refreshIndex() {
+        String signature = aiService.embeddingSignature();
+        Index current = index;
+        if (current == null) {
+            current = load(signature);
+        }
+        if (!current.signature.equals(signature)) {
+            // 提供商或模型变化，旧向量不可比，全部重建
+            current = new Index(signature);
+        }
+        index = current;
+        long startVersion = current.version;
+
+        Set<String> seen = new HashSet<>();
+        List<PendingNote> changed = new ArrayList<>();
+        for (VaultScanner.Note scanned : notesService.scanNotes()) {
+            Path file = scanned.path();
+            String noteId = notesService.noteIdFor(file);
+            seen.add(noteId);
+            long modified = scanned.lastModified().toMillis();
+            NoteState state = current.notes.get(noteId);
+            FileStamp stamp = stamps.get(noteId);
+            // 文件未变且索引中是同一份内容（上次向量化没有失败）时跳过
+            if (state != null && stamp != null && stamp.modified() == modified && stamp.size() == scanned.size()
+                    && stamp.hash().equals(state.note().hash())) {
+                continue;
+            }
+            String content;
+            try {
+                content = Files.readString(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                continue;
+            }
+            String hash = sha256(content);
+            stamps.put(noteId, new FileStamp(modified, scanned.size(), hash));
+            if (state == null || !state.note().hash().equals(hash)) {
+                String title = notesService.titleFor(file);
+                changed.add(new PendingNote(new EmbeddingStore.Note(noteId, title, hash), passages(title, content)));
+            }
+        }
+
+        for (String noteId : List.copyOf(current.notes.keySet())) {
+            if (!seen.contains(noteId)) {
+                current.removeNote(noteId);
+            }
+        }
+        stamps.keySet().retainAll(seen);
+
+        try {
+            embedChanged(current, changed);
+        } finally {
+            // 向量化中途失败时，已完成的笔记同样保存
+            if (current.version != startVersion) {
+                if (current.hnsw != null && current.hnsw.deletedRatio() > REBUILD_DELETED_RATIO) {
+                    current = Index.from(current.snapshot());
+                    index = current;
+                }
+                persist(current);
+            }
+        }
+    }
+
+    /**
+     * 按批次向量化变更笔记的段落；一篇笔记的全部段落完成后才替换索引中的旧内容
+     */
+    private void embedChanged(Index current, List<PendingNote> changed) {
+        List<PendingPassage> batch = new ArrayList<>();
+        int batchSize = Math.max(1, config.getBatchSize());
+        for (PendingNote note : changed) {
+            if (note.texts.isEmpty()) {
+                current.putNote(note.note, List.of());
+                continue;
+            }
+            for (int i = 0; i < note.texts.size(); i++) {
+                batch.add(new PendingPassage(note, i));
+                if (batch.size() >= batchSize) {
+                    embedBatch(current, batch);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            embedBatch(current, batch);
+        }
+    }
+
+    private void embedBatch(Index current, List<PendingPassage> batch) {
+        List<float[]> vectors = aiService.embed(batch.stream().map(p -> p.note.texts.get(p.index)).toList());
+        for (int i = 0; i < batch.size(); i++) {
+            PendingPassage pending = batch.get(i);
+            PendingNote note = pending.note;
+            note.vectors[pending.index] = vectors.get(i);
+            if (--note.remaining == 0) {
+                List<EmbeddingStore.Passage> passages = new ArrayList<>(note.texts.size());
+                for (int chunk = 0; chunk < note.texts.size(); chunk++) {
+                    passages.add(new EmbeddingStore.Passage(
+                            note.note.noteId(), chunk, snippet(note.texts.get(chunk)), note.vectors[chunk]));
+                }
+                current.putNote(note.note, passages);
+            }
+        }
+        batch.clear();
+    }
+
+    private List<String> passages(String title, String content) {
+        List<String> texts = new ArrayList<>();
+        for (MarkdownChunker.Chunk chunk : MarkdownChunker.split(content, Math.max(64, config.getChunkTokens()))) {
+            if (!chunk.passthrough() && !chunk.text().isBlank()) {
+                // 段落前附上标题，提高短段落的可检索性
+                texts.add(title + "\n" + chunk.text().strip());
+            }
+        }
+        return texts;
+    }
+
+    private static String snippet(String text) {
+        int titleEnd = text.indexOf('\n');
+        String body = (titleEnd >= 0 ? text.substring(titleEnd + 1) : text).replaceAll("\\s+", " ").strip();
+        return body.length() <= SNIPPET_LENGTH ? body : body.substring(0, SNIPPET_LENGTH) + "…";
+    }
+
+    private Index load(String signature) {
+        try {
+            EmbeddingStore.Snapshot snapshot = EmbeddingStore.read(indexFile);
+            if (snapshot != null && snapshot.signature().equals(signature)) {
+                return Index.from(snapshot);
+            }
+        } catch (IOException e) {
+            System.err.println("读取语义索引失败: " + e.getMessage());
+        }
+        return new Index(signature);
+    }
+
+    private void persist(Index current) {
+        try {
+            EmbeddingStore.write(indexFile, current.snapshot());
+        } catch (IOException e) {
+            System.err.println("保存语义索引失败: " + e.getMessage());
+        }
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record NoteState(EmbeddingStore.Note note, List<Integer> nodes) {}
+
+    private record FileStamp(long modified, long size, String hash) {}
+
+    private record PendingPassage(PendingNote note, int index) {}
+
+    private static final class PendingNote {
+        private final EmbeddingStore.Note note;
+        private final List<String> texts;
+        private final float[][] vectors;
+        private int remaining;
+
+        PendingNote(EmbeddingStore.Note note, List<String> texts) {
+            this.note = note;
+            this.texts = texts;
+            this.vectors = new float[texts.size()][];
+            this.remaining = texts.size();
+        }
+    }
+
+    /**
+     * 内存索引：HNSW 节点编号到段落的映射，以及笔记到节点的映射。
+     * 只在扫描线程中修改，查询线程并发读取
+     */
+    private static final class Index {
+        private final String signature;
+        private final Map<Integer, EmbeddingStore.Passage> passages = new ConcurrentHashMap<>();
+        private final Map<String, NoteState> notes = new ConcurrentHashMap<>();
+        // 远程提供商的向量维度在首次向量化后才能确定
+        private volatile HnswIndex hnsw;
+        // 每次增删笔记递增，用于判断是否需要保存
+        private long version;
+
+        Index(String signature) {
+            this.signature = signature;
+        }
+
+        static Index from(EmbeddingStore.Snapshot snapshot) {
+            Index index = new Index(snapshot.signature());
+            Map<String, List<EmbeddingStore.Passage>> byNote = new LinkedHashMap<>();
+            for (EmbeddingStore.Note note : snapshot.notes()) {
+                byNote.put(note.noteId(), new ArrayList<>());
+            }
+            for (EmbeddingStore.Passage passage : snapshot.passages()) {
+                List<EmbeddingStore.Passage> list = byNote.get(passage.noteId());
+                if (list != null) {
+                    list.add(passage);
+                }
+            }
+            for (EmbeddingStore.Note note : snapshot.notes()) {
+                index.putNote(note, byNote.get(note.noteId()));
+            }
+            return index;
+        }
+
+        void putNote(EmbeddingStore.Note note, List<EmbeddingStore.Passage> notePassages) {
+            removeNote(note.noteId());
+            List<Integer> nodes = new ArrayList<>(notePassages.size());
+            for (EmbeddingStore.Passage passage : notePassages) {
+                if (hnsw == null) {
+                    hnsw = new HnswIndex(passage.vector().length);
+                }
+                int node = hnsw.add(passage.vector());
+                passages.put(node, passage);
+                nodes.add(node);
+            }
+            notes.put(note.noteId(), new NoteState(note, nodes));
+            version++;
+        }
+
+        void removeNote(String noteId) {
+            NoteState state = notes.remove(noteId);
+            if (state == null) {
+                return;
+            }
+            for (int node : state.nodes()) {
+                hnsw.remove(node);
+                passages.remove(node);
+            }
+            version++;
+        }
+
+        EmbeddingStore.Snapshot snapshot() {
+            List<EmbeddingStore.Note> noteList = notes.values().stream().map(NoteState::note).toList();
+            List<EmbeddingStore.Passage> passageList = passages.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(Map.Entry::getValue)
+                    .toList();
+            int dimensions = hnsw == null ? 0 : hnsw.dimensions();
+            return new EmbeddingStore.Snapshot(signature, dimensions, noteList, passageList);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.dto.AIResponse;
+import com.example.mdviewer.backend.dto.VaultChatResponse;
+import com.example.mdviewer.backend.dto.VaultCitationDto;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * 基于笔记库的对话：检索相关片段，按 Token 预算拼入提示词，并返回引用来源
+ */
+@Service
+public class VaultChatService {
+
+    private static final int SNIPPET_LENGTH = 160;
+
+    private final VaultIndexService vaultIndexService;
+    private final AIService aiService;
+
+    public VaultChatService(VaultIndexService vaultIndexService, AIService aiService) {
+        this.vaultIndexService = vaultIndexService;
+        this.aiService = aiService;
+    }
+
+    public VaultChatResponse chat(String message) {
+        if (message == null || message.isBlank()) {
+            return VaultChatResponse.of(AIResponse.error("消息不能为空"), List.of());
+        }
+        List<VaultIndexService.Retrieved> retrieved = vaultIndexService.retrieve(message);
+        List<String> sources = retrieved.stream()
+                .map(r -> "《" + r.passage().title() + "》\n" + r.passage().text())
+                .toList();
+        AIResponse response = aiService.chatWithSources(message, sources);
+        return VaultChatResponse.of(response, citations(retrieved));
+    }
+
+    private static List<VaultCitationDto> citations(List<VaultIndexService.Retrieved> retrieved) {
+        return retrieved.stream()
+                .map(r -> new VaultCitationDto(r.passage().noteId(), r.passage().title(),
+                        snippet(r.passage().text()), r.score()))
+                .toList();
+    }
+
+    private static String snippet(String text) {
+        String body = text.replaceAll("\\s+", " ").strip();
+        return body.length() <= SNIPPET_LENGTH ? body : body.substring(0, SNIPPET_LENGTH) + "…";
+    }
+}
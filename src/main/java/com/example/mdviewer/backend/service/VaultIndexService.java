@@ -0,0 +1,186 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.service.ai.Bm25Index;
+import com.example.mdviewer.backend.service.ai.MarkdownChunker;
+import com.example.mdviewer.backend.service.ai.TokenEstimator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 笔记库全文检索（BM25）
+ * 笔记按段落切分后建立内存倒排索引，后台定时按修改时间和大小增量更新，
+ * 查询时只做内存检索，并按 Token 预算挑选片段
+ */
+@Service
+public class VaultIndexService {
+
+    private final NotesService notesService;
+    private final AIProperties.VaultChat config;
+    private final Bm25Index index = new Bm25Index();
+    private final Map<Integer, Passage> passages = new ConcurrentHashMap<>();
+    private final Map<String, NoteEntry> notes = new ConcurrentHashMap<>();
+    private final ReentrantLock scanLock = new ReentrantLock();
+    // 索引与片段表一起更新；检索时持读锁，避免编号在检索和取片段之间被复用给其他片段
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean warmingUp = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    public VaultIndexService(NotesService notesService, AIProperties aiProperties) {
+        this.notesService = notesService;
+        this.config = aiProperties.getVaultChat();
+    }
+
+    /**
+     * 笔记片段
+     */
+    public record Passage(String noteId, String title, String text, int tokens) {}
+
+    /**
+     * 检索结果
+     */
+    public record Retrieved(Passage passage, double score) {}
+
+    /**
+     * 检索与问题最相关的片段，总 Token 数不超过配置的预算
+     */
+    public List<Retrieved> retrieve(String query) {
+        return retrieve(query, config.getContextTokens(), config.getMaxPassages());
+    }
+
+    public List<Retrieved> retrieve(String query, int tokenBudget, int maxPassages) {
+        if (!ready) {
+            // 索引尚未建立时在后台建立，本次不检索，按普通对话回答，不让请求等待全库扫描
+            warmUp();
+            return List.of();
+        }
+        List<Retrieved> selected = new ArrayList<>();
+        int remaining = tokenBudget;
+        indexLock.readLock().lock();
+        try {
+            for (Bm25Index.Hit hit : index.search(query, Math.max(1, maxPassages) * 3)) {
+                Passage passage = passages.get(hit.document());
+                // 放不下的片段跳过，继续尝试更短的
+                if (passage == null || passage.tokens() > remaining) {
+                    continue;
+                }
+                selected.add(new Retrieved(passage, hit.score()));
+                remaining -= passage.tokens();
+                if (selected.size() >= maxPassages) {
+                    break;
+                }
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        return selected;
+    }
+
+    /**
+     * 后台增量更新索引：只重新读取修改时间或大小变化的笔记
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${ai.vault-chat.refresh-interval:30s}")
+    public void refresh() {
+        scanLock.lock();
+        try {
+            Set<String> seen = new HashSet<>();
+            // 扫描时已读取大小和修改时间，未变化的笔记不再访问磁盘
+            for (VaultScanner.Note note : notesService.scanNotes()) {
+                Path file = note.path();
+                String noteId = notesService.noteIdFor(file);
+                seen.add(noteId);
+                try {
+                    long modified = note.lastModified().toMillis();
+                    NoteEntry entry = notes.get(noteId);
+                    if (entry != null && entry.modified() == modified && entry.size() == note.size()) {
+                        continue;
+                    }
+                    String content = Files.readString(file, StandardCharsets.UTF_8);
+                    indexNote(noteId, notesService.titleFor(file), content, modified, note.size());
+                } catch (IOException e) {
+                    // 笔记可能正在被移动或删除，下次扫描再处理
+                }
+            }
+            for (String noteId : List.copyOf(notes.keySet())) {
+                if (!seen.contains(noteId)) {
+                    removeNote(noteId);
+                }
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("更新笔记检索索引失败: " + e.getMessage());
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    private void warmUp() {
+        if (!warmingUp.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("vault-index-warmup").start(() -> {
+            try {
+                refresh();
+            } finally {
+                warmingUp.set(false);
+            }
+        });
+    }
+
+    private void indexNote(String noteId, String title, String content, long modified, long size) {
+        List<String> texts = new ArrayList<>();
+        for (MarkdownChunker.Chunk chunk : MarkdownChunker.split(content, Math.max(32, config.getPassageTokens()))) {
+            String text = chunk.text().strip();
+            if (!text.isEmpty()) {
+                texts.add(text);
+            }
+        }
+        indexLock.writeLock().lock();
+        try {
+            removeNote(noteId);
+            List<Integer> ids = new ArrayList<>(texts.size());
+            for (String text : texts) {
+                // 标题参与检索，提高按主题提问时的命中率
+                int id = index.add(title + "\n" + text);
+                passages.put(id, new Passage(noteId, title, text, TokenEstimator.estimate(text)));
+                ids.add(id);
+            }
+            notes.put(noteId, new NoteEntry(modified, size, ids));
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private void removeNote(String noteId) {
+        indexLock.writeLock().lock();
+        try {
+            NoteEntry entry = notes.remove(noteId);
+            if (entry == null) {
+                return;
+            }
+            for (int id : entry.passages()) {
+                index.remove(id);
+                passages.remove(id);
+            }
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private record NoteEntry(long modified, long size, List<Integer> passages) {}
+}
@@ -0,0 +1,177 @@
+package com.example.mdviewer.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 并行扫描笔记目录
+ * 每个目录用深度为 1 的 walkFileTree 列举，条目的属性只读取一次（类型、大小、修改时间都取自同一次 stat）；
+ * 子目录作为 fork/join 子任务并行扫描。以 . 开头的目录和文件（.mdviewer-backups 等）不进入。
+ * 跟随符号链接；指向上级目录的链接（按 fileKey 判断）不再进入，避免成环
+ */
+public final class VaultScanner {
+
+    private static final Set<FileVisitOption> FOLLOW_LINKS = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+    private static final Comparator<Path> BY_NAME =
+        Comparator.comparing(path -> path.getFileName().toString().toLowerCase(Locale.ROOT));
+
+    /**
+     * 扫描到的笔记文件
+     */
+    public record Note(Path path, long size, FileTime lastModified) {
+    }
+
+    /**
+     * 扫描到的目录，子目录和笔记均按名称（忽略大小写）排序
+     */
+    public record Folder(Path path, List<Folder> folders, List<Note> notes) {
+
+        /**
+         * 本目录及所有子目录下的笔记
+         */
+        public List<Note> allNotes() {
+            List<Note> result = new ArrayList<>();
+            collect(this, result);
+            return result;
+        }
+
+        private static void collect(Folder folder, List<Note> into) {
+            into.addAll(folder.notes());
+            for (Folder child : folder.folders()) {
+                collect(child, into);
+            }
+        }
+    }
+
+    /**
+     * @param entries 访问的条目总数（含隐藏条目和非笔记文件）
+     */
+    public record Result(Folder root, long entries) {
+    }
+
+    private final ForkJoinPool pool;
+    private final Predicate<Path> include;
+
+    /**
+     * @param parallelism 并行扫描的线程数
+     * @param include     需要收集的文件（如 Markdown 笔记）
+     */
+    public VaultScanner(int parallelism, Predicate<Path> include) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.include = include;
+    }
+
+    /**
+     * 扫描目录树；起始目录无法读取时抛出异常，其下无法读取的子目录按空目录处理
+     */
+    public Result scan(Path start) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(start, BasicFileAttributes.class);
+        if (!attributes.isDirectory()) {
+            throw new NotDirectoryException(start.toString());
+        }
+        List<Object> ancestors = attributes.fileKey() == null ? List.of() : List.of(attributes.fileKey());
+        LongAdder entries = new LongAdder();
+        try {
+            Folder root = pool.invoke(new ScanTask(start, true, ancestors, entries));
+            return new Result(root, entries.sum());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ScanTask extends RecursiveTask<Folder> {
+
+        private final Path dir;
+        private final boolean root;
+        // 从起始目录到本目录各级的 fileKey
+        private final List<Object> ancestors;
+        private final LongAdder entries;
+
+        ScanTask(Path dir, boolean root, List<Object> ancestors, LongAdder entries) {
+            this.dir = dir;
+            this.root = root;
+            this.ancestors = ancestors;
+            this.entries = entries;
+        }
+
+        @Override
+        protected Folder compute() {
+            List<Path> directories = new ArrayList<>();
+            List<Object> keys = new ArrayList<>();
+            List<Note> notes = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir, FOLLOW_LINKS, 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        entries.increment();
+                        if (file.getFileName().toString().startsWith(".")) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        if (attrs.isDirectory()) {
+                            if (attrs.fileKey() == null || !ancestors.contains(attrs.fileKey())) {
+                                directories.add(file);
+                                keys.add(attrs.fileKey());
+                            }
+                        } else if (attrs.isRegularFile() && include.test(file)) {
+                            notes.add(new Note(file, attrs.size(), attrs.lastModifiedTime()));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (root && file.equals(dir)) {
+                            throw exc;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path directory, IOException exc) throws IOException {
+                        if (exc != null && root) {
+                            throw exc;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<ScanTask> tasks = new ArrayList<>(directories.size());
+            for (int i = 0; i < directories.size(); i++) {
+                List<Object> path = ancestors;
+                if (keys.get(i) != null) {
+                    path = new ArrayList<>(ancestors);
+                    path.add(keys.get(i));
+                }
+                tasks.add(new ScanTask(directories.get(i), false, path, entries));
+            }
+            tasks.sort(Comparator.comparing(task -> task.dir, BY_NAME));
+            notes.sort(Comparator.comparing(Note::path, BY_NAME));
+            List<Folder> folders = new ArrayList<>(tasks.size());
+            for (ScanTask task : ForkJoinTask.invokeAll(tasks)) {
+                folders.add(task.join());
+            }
+            return new Folder(dir, folders, notes);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.mdviewer.backend.service.ai;
+
+/**
+ * 请求未能通过提供商准入控制（排队已满、等待超时或被中断）
+ */
+public class AIAdmissionException extends RuntimeException {
+    public AIAdmissionException(String message) {
+        super(message);
+    }
+}
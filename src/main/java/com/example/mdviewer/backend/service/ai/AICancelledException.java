@@ -0,0 +1,10 @@
+package com.example.mdviewer.backend.service.ai;
+
+/**
+ * 请求在等待或执行中被取消（用户取消、被同一请求键的新请求取代、超时或对冲落败），重试没有意义
+ */
+public class AICancelledException extends AIAdmissionException {
+    public AICancelledException() {
+        super("AI 请求已取消");
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AI 提供商 HTTP 客户端
+ * 每个提供商一个 JDK HttpClient（自带连接池与 keep-alive，优先协商 HTTP/2），
+ * 再包装成 RestTemplate 供同步调用使用
+ */
+@Component
+public class AIHttpClients {
+
+    private final AIProperties properties;
+    private final Map<String, ProviderClient> clients = new ConcurrentHashMap<>();
+    // HttpClient 的异步回调在虚拟线程上执行
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AIHttpClients(AIProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取提供商对应的 RestTemplate
+     */
+    public RestTemplate restTemplate(String provider) {
+        return client(provider).restTemplate();
+    }
+
+    /**
+     * 获取提供商对应的底层 HttpClient（用于异步或流式调用）
+     */
+    public HttpClient httpClient(String provider) {
+        return client(provider).httpClient();
+    }
+
+    private ProviderClient client(String provider) {
+        String key = provider == null || provider.isBlank() ? "default" : provider;
+        return clients.computeIfAbsent(key, ignored -> createClient());
+    }
+
+    private ProviderClient createClient() {
+        HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(properties.getConnectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(executor)
+            .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        return new ProviderClient(httpClient, new RestTemplate(requestFactory));
+    }
+
+    @PreDestroy
+    public void close() {
+        clients.values().forEach(client -> client.httpClient().close());
+        clients.clear();
+        executor.shutdownNow();
+    }
+
+    private record ProviderClient(HttpClient httpClient, RestTemplate restTemplate) {}
+}
@@ -0,0 +1,72 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.service.diagnostics.AICallTrace;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * AI 提供商调用指标
+ * ai.request：每次提供商调用（含对冲与重试中的每一次）的耗时，按提供商、模型、操作和结果区分；
+ * ai.tokens：估算的提示词与输出 Token 数。
+ * 每次调用同时生成 JFR 事件，耗时超过阈值时输出慢操作日志
+ */
+@Component
+public class AIMetrics {
+
+    private final MeterRegistry registry;
+    private final OperationTracer tracer;
+
+    public AIMetrics(MeterRegistry registry, OperationTracer tracer) {
+        this.registry = registry;
+        this.tracer = tracer;
+    }
+
+    /**
+     * 计时执行一次提供商调用；异常原样抛出，被取消的对冲请求结果记为 cancelled
+     */
+    public <T> T time(String provider, String model, String operation, int promptTokens, Supplier<T> call) {
+        AICallTrace trace = tracer.aiCall(provider, model, operation, promptTokens);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (CancellationException e) {
+            outcome = "cancelled";
+            throw e;
+        } finally {
+            long nanos = trace.finish(outcome);
+            Timer.builder("ai.request")
+                .description("AI 提供商调用耗时")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void tokens(String provider, String model, int prompt, int completion) {
+        tokenCounter(provider, model, "prompt").increment(prompt);
+        tokenCounter(provider, model, "completion").increment(completion);
+    }
+
+    private Counter tokenCounter(String provider, String model, String type) {
+        return Counter.builder("ai.tokens")
+            .description("估算的 AI Token 用量")
+            .baseUnit("tokens")
+            .tag("provider", provider)
+            .tag("model", model)
+            .tag("type", type)
+            .register(registry);
+    }
+}
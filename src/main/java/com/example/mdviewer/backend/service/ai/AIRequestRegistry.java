@@ -0,0 +1,140 @@
+package com.example.mdviewer.backend.service.ai;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在途 AI 请求登记
+ * 客户端用请求键（如输入框或面板的标识）标记请求：同一请求键的新请求会取消旧请求，
+ * 主动取消、超时或检测到客户端断开时中断执行线程，进而取消正在进行的上游 HTTP 调用
+ */
+@Component
+public class AIRequestRegistry {
+
+    /**
+     * 取消原因
+     */
+    public enum Reason {
+        SUPERSEDED,
+        DISCONNECTED,
+        TIMEOUT,
+        CANCELLED
+    }
+
+    private final Map<String, Handle> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final Map<Reason, AtomicLong> cancelled = new EnumMap<>(Reason.class);
+    private volatile long lastActivity = System.nanoTime();
+
+    public AIRequestRegistry() {
+        for (Reason reason : Reason.values()) {
+            cancelled.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * 在当前线程上登记一个请求，返回的句柄须在同一线程上关闭
+     * 请求键为空时不参与取代，但仍可因客户端断开而取消
+     */
+    public Handle register(String key) {
+        Handle handle = new Handle(key == null || key.isBlank() ? null : key, Thread.currentThread());
+        started.incrementAndGet();
+        running.incrementAndGet();
+        lastActivity = System.nanoTime();
+        if (handle.key != null) {
+            Handle previous = inFlight.put(handle.key, handle);
+            if (previous != null) {
+                previous.cancel(Reason.SUPERSEDED);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * 主动取消某个请求键下的在途请求
+     */
+    public boolean cancel(String key) {
+        Handle handle = inFlight.get(key);
+        return handle != null && handle.cancel(Reason.CANCELLED);
+    }
+
+    /**
+     * 没有在途请求，且最近 quiet 时间内没有请求开始或结束；后台任务据此判断是否空闲
+     */
+    public boolean isIdle(Duration quiet) {
+        return running.get() == 0 && System.nanoTime() - lastActivity >= quiet.toNanos();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inFlight", running.get());
+        stats.put("started", started.get());
+        stats.put("completed", completed.get());
+        Map<String, Long> byReason = new LinkedHashMap<>();
+        cancelled.forEach((reason, count) -> byReason.put(reason.name().toLowerCase(Locale.ROOT), count.get()));
+        stats.put("cancelled", byReason);
+        return stats;
+    }
+
+    /**
+     * 一个在途请求
+     */
+    public final class Handle implements AutoCloseable {
+        private final String key;
+        private final Thread thread;
+        private boolean active = true;
+        private Reason reason;
+
+        private Handle(String key, Thread thread) {
+            this.key = key;
+            this.thread = thread;
+        }
+
+        /**
+         * 取消请求：中断执行线程；请求已结束或已取消时不做任何事
+         */
+        public synchronized boolean cancel(Reason reason) {
+            if (!active || this.reason != null) {
+                return false;
+            }
+            this.reason = reason;
+            cancelled.get(reason).incrementAndGet();
+            thread.interrupt();
+            return true;
+        }
+
+        public synchronized boolean isCancelled() {
+            return reason != null;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (!active) {
+                    return;
+                }
+                active = false;
+                running.decrementAndGet();
+                lastActivity = System.nanoTime();
+                if (reason == null) {
+                    completed.incrementAndGet();
+                } else {
+                    // 清除取消时留下的中断标记，避免影响线程后续的工作
+                    Thread.interrupted();
+                }
+            }
+            if (key != null) {
+                inFlight.remove(key, this);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.config.NotesProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * AI 响应缓存
+ * 两级存储：内存 LRU + 笔记根目录下的 .ai-cache 目录（与 .ai-config.properties 同级），
+ * 以 (提供商, 模型, 操作, 规范化后的提示词哈希) 作为键，超过 TTL 的条目视为失效。
+ * 磁盘缓存定期清理，总大小超过 ai.cache.max-disk-size 时从最久未使用的条目开始删除
+ */
+@Component
+public class AIResponseCache {
+
+    private static final String CACHE_DIR_NAME = ".ai-cache";
+    private static final String ENTRY_SUFFIX = ".txt";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // 超过该时长的临时文件视为写入中断留下的残留
+    private static final long STALE_TEMP_MILLIS = 3_600_000;
+
+    private final AIProperties.Cache config;
+    private final Path cacheDir;
+    private final Map<String, Entry> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    // 最近一次清理后磁盘缓存的总字节数
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    public AIResponseCache(AIProperties properties, NotesProperties notesProperties) {
+        this.config = properties.getCache();
+        this.cacheDir = notesProperties.getRoot().resolve(CACHE_DIR_NAME);
+        int capacity = Math.max(1, config.getMaxEntries());
+        this.memory = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * 该操作是否走缓存（对话默认绕过缓存；内联补全使用 InlineSuggestionCache）
+     */
+    public boolean isCacheable(String operation) {
+        return config.isEnabled() && !"inline".equals(operation) && (config.isIncludeChat() || !"chat".equals(operation));
+    }
+
+    /**
+     * 计算缓存键
+     */
+    public String key(String provider, String model, String operation, String prompt) {
+        String raw = String.join("\u0000",
+            nullToEmpty(provider), nullToEmpty(model), nullToEmpty(operation), normalize(prompt));
+        return sha256(raw);
+    }
+
+    public Optional<String> get(String key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    memoryHits.incrementAndGet();
+                    return Optional.of(entry.value());
+                }
+                memory.remove(key);
+            }
+        }
+
+        Entry entry = readFromDisk(key, now);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        diskHits.incrementAndGet();
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        return Optional.of(entry.value());
+    }
+
+    public void put(String key, String value) {
+        if (value == null) {
+            return;
+        }
+        Entry entry = new Entry(value, System.currentTimeMillis() + config.getTtl().toMillis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writes.incrementAndGet();
+        writeToDisk(key, entry);
+    }
+
+    /**
+     * 清空内存和磁盘缓存
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            stream.forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // 个别文件删除失败不影响其他条目
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("清理 AI 缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清理磁盘缓存：删除过期条目和残留的临时文件，总大小仍超过上限时按最近使用时间从旧到新删除
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 600_000)
+    public void sweep() {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<DiskEntry> entries = new ArrayList<>();
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            stream.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    long modified = attributes.lastModifiedTime().toMillis();
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        if (modified < now - STALE_TEMP_MILLIS) {
+                            Files.deleteIfExists(path);
+                        }
+                    } else if (name.endsWith(ENTRY_SUFFIX)) {
+                        if (readExpiresAt(path) <= now) {
+                            Files.deleteIfExists(path);
+                            diskEvictions.incrementAndGet();
+                        } else {
+                            entries.add(new DiskEntry(path, attributes.size(), modified));
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // 文件可能刚被读取时删除，下次清理再处理
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("清理 AI 缓存失败: " + e.getMessage());
+            return;
+        }
+
+        long total = entries.stream().mapToLong(DiskEntry::size).sum();
+        long limit = config.getMaxDiskSize().toBytes();
+        if (total > limit) {
+            entries.sort(Comparator.comparingLong(DiskEntry::lastUsed));
+            for (DiskEntry entry : entries) {
+                if (total <= limit) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(entry.path());
+                    total -= entry.size();
+                    diskEvictions.incrementAndGet();
+                } catch (IOException ignored) {
+                    // 删除失败的条目保留到下次清理
+                }
+            }
+        }
+        diskBytes.set(total);
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public Map<String, Object> stats() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        int size;
+        synchronized (memory) {
+            size = memory.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("memoryEntries", size);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("writes", writes.get());
+        stats.put("diskBytes", diskBytes.get());
+        stats.put("diskEvictions", diskEvictions.get());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hits / total);
+        return stats;
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        Path file = cacheDir.resolve(key + ENTRY_SUFFIX);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            if (newline < 0) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            long expiresAt = Long.parseLong(content.substring(0, newline).trim());
+            if (expiresAt <= now) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            // 修改时间记录最近一次使用，清理时按它淘汰
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+            return new Entry(content.substring(newline + 1), expiresAt);
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path target = cacheDir.resolve(key + ENTRY_SUFFIX);
+            Path temp = Files.createTempFile(cacheDir, key, TEMP_SUFFIX);
+            Files.writeString(temp, entry.expiresAt() + "\n" + entry.value(), StandardCharsets.UTF_8);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("写入 AI 缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 只读取条目的第一行（过期时间），格式错误的条目视为已过期
+     */
+    private static long readExpiresAt(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            return line == null ? 0 : Long.parseLong(line.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 规范化提示词：统一换行、去掉行尾空白和首尾空白，避免无意义差异导致缓存未命中
+     */
+    private static String normalize(String prompt) {
+        if (prompt == null) {
+            return "";
+        }
+        return prompt.replace("\r\n", "\n").replaceAll("[ \\t]+\n", "\n").strip();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(String value, long expiresAt) {}
+
+    private record DiskEntry(Path path, long size, long lastUsed) {}
+}
@@ -0,0 +1,217 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存 BM25 倒排索引
+ * 英文按单词、中文按相邻二字切分，文档可按编号增删
+ * 删除的编号会被新文档复用（优先复用最小的），编号范围始终接近当前文档数，反复重建索引也不会增长
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "how", "in", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "which", "with");
+
+    // 词 -> (文档编号 -> 词频)
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<Integer, Map<String, Integer>> documents = new HashMap<>();
+    // 文档编号 -> 词数
+    private int[] lengths = new int[1024];
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 已释放、可复用的编号；均小于 nextId
+    private final BitSet free = new BitSet();
+    private int nextId;
+    private long totalLength;
+
+    /**
+     * 搜索结果：文档编号与相关度
+     */
+    public record Hit(int document, double score) {}
+
+    /**
+     * 添加文档，返回文档编号
+     */
+    public int add(String text) {
+        List<String> terms = tokenize(text);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            int id = allocateId();
+            frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, tf));
+            documents.put(id, frequencies);
+            if (id == lengths.length) {
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            lengths[id] = terms.size();
+            totalLength += terms.size();
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int allocateId() {
+        int id = free.nextSetBit(0);
+        if (id < 0) {
+            return nextId++;
+        }
+        free.clear(id);
+        return id;
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Map<String, Integer> frequencies = documents.remove(id);
+            if (frequencies == null) {
+                return;
+            }
+            for (String term : frequencies.keySet()) {
+                Map<Integer, Integer> docs = postings.get(term);
+                if (docs != null) {
+                    docs.remove(id);
+                    if (docs.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= lengths[id];
+            lengths[id] = 0;
+            free.set(id);
+            // 末尾的空闲编号直接收回，编号范围随文档数缩小
+            while (nextId > 0 && free.get(nextId - 1)) {
+                free.clear(--nextId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询相关度最高的 k 个文档，按相关度降序
+     */
+    public List<Hit> search(String query, int k) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        lock.readLock().lock();
+        try {
+            int count = documents.size();
+            if (count == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = Math.max(1, (double) totalLength / count);
+            // 编号复用，范围接近文档数，用数组累加得分，避免装箱
+            double[] scores = new double[nextId];
+            int[] touched = new int[Math.min(nextId, count)];
+            int touchedCount = 0;
+            for (String term : terms) {
+                Map<Integer, Integer> docs = postings.get(term);
+                if (docs == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (count - docs.size() + 0.5) / (docs.size() + 0.5));
+                for (Map.Entry<Integer, Integer> posting : docs.entrySet()) {
+                    int id = posting.getKey();
+                    int tf = posting.getValue();
+                    double norm = K1 * (1 - B + B * lengths[id] / averageLength);
+                    if (scores[id] == 0) {
+                        touched[touchedCount++] = id;
+                    }
+                    scores[id] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            PriorityQueue<Hit> top = new PriorityQueue<>((a, b) -> Double.compare(a.score(), b.score()));
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touched[i];
+                if (top.size() < k) {
+                    top.add(new Hit(id, scores[id]));
+                } else if (scores[id] > top.peek().score()) {
+                    top.poll();
+                    top.add(new Hit(id, scores[id]));
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分词：ASCII 字母数字按单词（转小写、去停用词），中日韩文字取相邻二字，单字成段时取单字
+     */
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isWordChar(c)) {
+                int start = i;
+                while (i < length && isWordChar(text.charAt(i))) {
+                    i++;
+                }
+                String word = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                    terms.add(word);
+                }
+            } else if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    terms.add(String.valueOf(c));
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    terms.add(text.substring(j, j + 2));
+                }
+            } else {
+                i++;
+            }
+        }
+        return terms;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 128 && Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.mdviewer.backend.service.ai;
+
+/**
+ * 对话中的一条消息
+ * role: user 或 assistant；tokens 为估算的 Token 数
+ */
+public record ChatTurn(String role, String content, int tokens) {
+
+    public static ChatTurn user(String content) {
+        return new ChatTurn("user", content, TokenEstimator.estimate(content));
+    }
+
+    public static ChatTurn assistant(String content) {
+        return new ChatTurn("assistant", content, TokenEstimator.estimate(content));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.mdviewer.backend.service.ai;
+
+/**
+ * 分块处理进度回调
+ */
+@FunctionalInterface
+public interface ChunkListener {
+    ChunkListener NONE = (index, completed, total) -> {
+    };
+
+    /**
+     * 第 index 块处理完成，此时共完成 completed / total 块
+     */
+    void onChunkDone(int index, int completed, int total);
+}
@@ -0,0 +1,107 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 向量索引的磁盘格式
+ * 单个二进制文件：文件头（魔数、版本、向量方案标识、维度），随后是笔记表和段落表，
+ * 向量以 float32 连续存放。写入先落临时文件再原子替换
+ */
+public final class EmbeddingStore {
+
+    private static final int MAGIC = 0x4D44564E;
+    private static final int VERSION = 1;
+
+    private EmbeddingStore() {
+    }
+
+    /**
+     * 已索引的笔记：内容哈希用于判断是否需要重新向量化
+     */
+    public record Note(String noteId, String title, String hash) {}
+
+    /**
+     * 笔记中的一个段落及其向量
+     */
+    public record Passage(String noteId, int chunk, String snippet, float[] vector) {}
+
+    public record Snapshot(String signature, int dimensions, List<Note> notes, List<Passage> passages) {}
+
+    /**
+     * 读取索引文件；文件不存在或格式不符时返回 null
+     */
+    public static Snapshot read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            String signature = in.readUTF();
+            int dimensions = in.readInt();
+
+            int noteCount = in.readInt();
+            List<Note> notes = new ArrayList<>(noteCount);
+            for (int i = 0; i < noteCount; i++) {
+                notes.add(new Note(in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+
+            int passageCount = in.readInt();
+            List<Passage> passages = new ArrayList<>(passageCount);
+            for (int i = 0; i < passageCount; i++) {
+                String noteId = in.readUTF();
+                int chunk = in.readInt();
+                String snippet = in.readUTF();
+                float[] vector = new float[dimensions];
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = in.readFloat();
+                }
+                passages.add(new Passage(noteId, chunk, snippet, vector));
+            }
+            return new Snapshot(signature, dimensions, notes, passages);
+        }
+    }
+
+    public static void write(Path file, Snapshot snapshot) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(snapshot.signature());
+                out.writeInt(snapshot.dimensions());
+
+                out.writeInt(snapshot.notes().size());
+                for (Note note : snapshot.notes()) {
+                    out.writeUTF(note.noteId());
+                    out.writeUTF(note.title());
+                    out.writeUTF(note.hash());
+                }
+
+                out.writeInt(snapshot.passages().size());
+                for (Passage passage : snapshot.passages()) {
+                    out.writeUTF(passage.noteId());
+                    out.writeInt(passage.chunk());
+                    out.writeUTF(passage.snippet());
+                    for (float v : passage.vector()) {
+                        out.writeFloat(v);
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
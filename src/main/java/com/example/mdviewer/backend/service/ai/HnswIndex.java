@@ -0,0 +1,282 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存 HNSW 近似最近邻索引（余弦相似度，向量需预先归一化）
+ * 节点只能追加；删除通过标记实现，查询时跳过，标记过多时由调用方重建
+ */
+public class HnswIndex {
+
+    private final int dimensions;
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private final double levelFactor;
+
+    private final List<float[]> vectors = new ArrayList<>();
+    // links.get(node)[level] = 邻居数组，第 0 位存放邻居数量
+    private final List<int[][]> links = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    public HnswIndex(int dimensions) {
+        this(dimensions, 16, 100);
+    }
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxLinksLevel0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+    }
+
+    /**
+     * 搜索结果：节点编号与相似度
+     */
+    public record Hit(int node, float score) {}
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size() - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已删除节点占比，用于决定是否重建
+     */
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return vectors.isEmpty() ? 0 : (double) deletedCount / vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 添加向量，返回节点编号
+     */
+    public int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimensions);
+        }
+        lock.writeLock().lock();
+        try {
+            int node = vectors.size();
+            int level = randomLevel();
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = new int[(l == 0 ? maxLinksLevel0 : m) + 1];
+            }
+            vectors.add(vector);
+            links.add(nodeLinks);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Hit> candidates = searchLayer(vector, current, efConstruction, l);
+                int maxLinks = l == 0 ? maxLinksLevel0 : m;
+                int count = Math.min(m, candidates.size());
+                for (int i = 0; i < count; i++) {
+                    int neighbor = candidates.get(i).node();
+                    connect(node, neighbor, l, maxLinks);
+                    connect(neighbor, node, l, maxLinks);
+                }
+                if (!candidates.isEmpty()) {
+                    current = candidates.get(0).node();
+                }
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 标记删除
+     */
+    public void remove(int node) {
+        lock.writeLock().lock();
+        try {
+            if (node >= 0 && node < vectors.size() && !deleted.get(node)) {
+                deleted.set(node);
+                deletedCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最相似的 k 个节点，按相似度降序
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || query.length != dimensions) {
+                return List.of();
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            // 为被删除节点预留余量
+            List<Hit> candidates = searchLayer(query, current, Math.max(ef, k) + Math.min(deletedCount, k), 0);
+            List<Hit> hits = new ArrayList<>(k);
+            for (Hit hit : candidates) {
+                if (!deleted.get(hit.node())) {
+                    hits.add(hit);
+                    if (hits.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(Math.max(r, Double.MIN_VALUE)) * levelFactor);
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = dot(query, vectors.get(current));
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links.get(current)[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float score = dot(query, vectors.get(neighbors[i]));
+                if (score > best) {
+                    best = score;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 在指定层做 ef 宽度的最佳优先搜索，结果按相似度降序
+     */
+    private List<Hit> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(Comparator.comparingDouble(Hit::score).reversed());
+        PriorityQueue<Hit> results = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        Hit first = new Hit(start, dot(query, vectors.get(start)));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Hit candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            int[][] nodeLinks = links.get(candidate.node());
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            int[] neighbors = nodeLinks[level];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = dot(query, vectors.get(neighbor));
+                if (results.size() < ef || score > results.peek().score()) {
+                    Hit hit = new Hit(neighbor, score);
+                    candidates.add(hit);
+                    results.add(hit);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Hit> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Hit::score).reversed());
+        return sorted;
+    }
+
+    /**
+     * 建立单向连接；邻居已满时淘汰与该节点最不相似的一个
+     */
+    private void connect(int from, int to, int level, int maxLinks) {
+        int[][] fromLinks = links.get(from);
+        if (level >= fromLinks.length) {
+            return;
+        }
+        int[] neighbors = fromLinks[level];
+        int count = neighbors[0];
+        for (int i = 1; i <= count; i++) {
+            if (neighbors[i] == to) {
+                return;
+            }
+        }
+        if (count < maxLinks) {
+            neighbors[count + 1] = to;
+            neighbors[0] = count + 1;
+            return;
+        }
+        float[] base = vectors.get(from);
+        int worst = -1;
+        float worstScore = dot(base, vectors.get(to));
+        for (int i = 1; i <= count; i++) {
+            float score = dot(base, vectors.get(neighbors[i]));
+            if (score < worstScore) {
+                worstScore = score;
+                worst = i;
+            }
+        }
+        if (worst > 0) {
+            neighbors[worst] = to;
+        }
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
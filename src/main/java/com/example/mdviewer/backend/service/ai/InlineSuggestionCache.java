@@ -0,0 +1,88 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 内联补全的前缀缓存
+ * 记录最近的建议及其光标前文本；用户继续按建议输入时，新的光标前文本 = 当时的文本 + 已输入的部分建议，
+ * 此时直接返回建议中尚未输入的剩余部分，无需再次请求提供商。
+ * 按光标前末尾若干字符（锚点）索引，请求方截取的上下文窗口起点变化不影响命中
+ */
+public class InlineSuggestionCache {
+
+    // 索引用的锚点长度
+    private static final int ANCHOR_CHARS = 48;
+    // 命中时额外校验的光标前文本长度
+    private static final int CONTEXT_CHARS = 256;
+
+    private final Map<String, Entry> entries;
+    private int longestSuggestion;
+    private long hits;
+    private long misses;
+
+    private record Entry(String context, String suffix, String suggestion) {}
+
+    public InlineSuggestionCache(int maxEntries) {
+        int capacity = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized void put(String prefix, String suffix, String suggestion) {
+        if (suggestion.isEmpty()) {
+            return;
+        }
+        int end = prefix.length();
+        entries.put(anchor(prefix, end), new Entry(prefix.substring(Math.max(0, end - CONTEXT_CHARS)), suffix, suggestion));
+        longestSuggestion = Math.max(longestSuggestion, suggestion.length());
+    }
+
+    /**
+     * 查找与当前光标前文本衔接的建议，返回尚未输入的剩余部分
+     */
+    public synchronized Optional<String> lookup(String prefix, String suffix) {
+        int maxTyped = Math.min(prefix.length(), longestSuggestion - 1);
+        for (int typed = 0; typed <= maxTyped; typed++) {
+            int end = prefix.length() - typed;
+            Entry entry = entries.get(anchor(prefix, end));
+            if (entry == null
+                || typed >= entry.suggestion().length()
+                || !entry.suffix().equals(suffix)
+                || !prefix.regionMatches(end, entry.suggestion(), 0, typed)
+                || !endsWith(prefix, end, entry.context())) {
+                continue;
+            }
+            hits++;
+            return Optional.of(entry.suggestion().substring(typed));
+        }
+        misses++;
+        return Optional.empty();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    private static String anchor(String prefix, int end) {
+        return prefix.substring(Math.max(0, end - ANCHOR_CHARS), end);
+    }
+
+    /**
+     * prefix 的前 end 个字符是否以 context 结尾；上下文窗口截得更短时只比较重叠部分
+     */
+    private static boolean endsWith(String prefix, int end, String context) {
+        int length = Math.min(end, context.length());
+        return prefix.regionMatches(end - length, context, context.length() - length, length);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 本地确定性向量化（演示模式与离线使用）
+ * 英文按单词、中日韩文字按二元组做特征哈希，投影到固定维度后归一化；相同文本总得到相同向量
+ */
+public final class LocalEmbedding {
+
+    private LocalEmbedding() {
+    }
+
+    public static float[] embed(String text, int dimensions) {
+        float[] vector = new float[dimensions];
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        char previousCjk = 0;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (isCjk(c)) {
+                flushWord(vector, word);
+                addFeature(vector, String.valueOf(c), 0.5f);
+                if (previousCjk != 0) {
+                    addFeature(vector, new String(new char[]{previousCjk, c}), 1f);
+                }
+                previousCjk = c;
+            } else if (Character.isLetterOrDigit(c)) {
+                previousCjk = 0;
+                word.append(c);
+            } else {
+                previousCjk = 0;
+                flushWord(vector, word);
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private static void flushWord(float[] vector, StringBuilder word) {
+        if (word.length() > 1) {
+            addFeature(vector, word.toString(), 1f);
+        }
+        word.setLength(0);
+    }
+
+    private static void addFeature(float[] vector, String feature, float weight) {
+        long hash = fnv1a(feature);
+        int index = (int) Math.floorMod(hash, (long) vector.length);
+        // 用哈希的另一位决定符号，减少不同特征碰撞时的相互抵消偏差
+        vector[index] += ((hash >>> 33) & 1) == 0 ? weight : -weight;
+    }
+
+    private static long fnv1a(String feature) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        return c >= 0x3040 && c <= 0x9FFF || c >= 0xAC00 && c <= 0xD7AF || c >= 0xF900 && c <= 0xFAFF;
+    }
+}
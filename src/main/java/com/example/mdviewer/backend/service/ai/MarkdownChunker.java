@@ -0,0 +1,152 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 分块
+ * 在标题和段落边界处切分，使每块估算 Token 数不超过预算；代码块单独成块且原样保留。
+ * 所有块按顺序拼接后与原文完全一致
+ */
+public final class MarkdownChunker {
+
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}#{1,6}(\\s.*)?\\R?$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,}|｀{3,}).*\\R?$");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[。！？；.!?;])");
+
+    private MarkdownChunker() {
+    }
+
+    /**
+     * 一个分块
+     * passthrough 为 true 表示代码块或空白，不需要交给 AI 处理
+     */
+    public record Chunk(String text, boolean passthrough) {}
+
+    public static List<Chunk> split(String markdown, int maxTokens) {
+        List<Chunk> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        for (Block block : parseBlocks(markdown)) {
+            if (block.code()) {
+                flush(chunks, current);
+                currentTokens = 0;
+                chunks.add(new Chunk(block.text(), true));
+                continue;
+            }
+            int tokens = TokenEstimator.estimate(block.text());
+            // 新标题开始时，如果当前块已过半预算，优先在标题处切开
+            boolean preferBreak = block.heading() && currentTokens > maxTokens / 2;
+            if (!current.isEmpty() && (currentTokens + tokens > maxTokens || preferBreak)) {
+                flush(chunks, current);
+                currentTokens = 0;
+            }
+            if (tokens <= maxTokens) {
+                current.append(block.text());
+                currentTokens += tokens;
+                continue;
+            }
+            // 单个段落超出预算：按行、再按句切分
+            for (String piece : splitOversized(block.text(), maxTokens)) {
+                int pieceTokens = TokenEstimator.estimate(piece);
+                if (!current.isEmpty() && currentTokens + pieceTokens > maxTokens) {
+                    flush(chunks, current);
+                    currentTokens = 0;
+                }
+                current.append(piece);
+                currentTokens += pieceTokens;
+            }
+        }
+        flush(chunks, current);
+        return chunks;
+    }
+
+    private static void flush(List<Chunk> chunks, StringBuilder current) {
+        if (current.isEmpty()) {
+            return;
+        }
+        String text = current.toString();
+        chunks.add(new Chunk(text, text.isBlank()));
+        current.setLength(0);
+    }
+
+    private static List<Block> parseBlocks(String markdown) {
+        List<Block> blocks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean currentHeading = false;
+        String fence = null;
+        for (String line : markdown.split("(?<=\n)")) {
+            if (fence != null) {
+                current.append(line);
+                String trimmed = line.strip();
+                char fenceChar = fence.charAt(0);
+                if (trimmed.startsWith(fence) && trimmed.chars().allMatch(c -> c == fenceChar)) {
+                    blocks.add(new Block(current.toString(), true, false));
+                    current.setLength(0);
+                    fence = null;
+                }
+                continue;
+            }
+            if (FENCE.matcher(line).matches()) {
+                if (!current.isEmpty()) {
+                    blocks.add(new Block(current.toString(), false, currentHeading));
+                    current.setLength(0);
+                }
+                String trimmed = line.strip();
+                int length = 0;
+                while (length < trimmed.length() && trimmed.charAt(length) == trimmed.charAt(0)) {
+                    length++;
+                }
+                fence = trimmed.substring(0, length);
+                current.append(line);
+                continue;
+            }
+            if (HEADING.matcher(line).matches()) {
+                if (!current.isEmpty()) {
+                    blocks.add(new Block(current.toString(), false, currentHeading));
+                    current.setLength(0);
+                }
+                currentHeading = true;
+                current.append(line);
+                continue;
+            }
+            current.append(line);
+            // 空行结束当前段落（空行本身归入前一段）
+            if (line.isBlank()) {
+                blocks.add(new Block(current.toString(), false, currentHeading));
+                current.setLength(0);
+                currentHeading = false;
+            }
+        }
+        if (!current.isEmpty()) {
+            // 未闭合的代码块同样按代码处理
+            blocks.add(new Block(current.toString(), fence != null, fence == null && currentHeading));
+        }
+        return blocks;
+    }
+
+    private static List<String> splitOversized(String text, int maxTokens) {
+        List<String> pieces = new ArrayList<>();
+        for (String line : text.split("(?<=\n)")) {
+            if (TokenEstimator.estimate(line) <= maxTokens) {
+                pieces.add(line);
+                continue;
+            }
+            StringBuilder piece = new StringBuilder();
+            for (String sentence : SENTENCE_END.split(line)) {
+                if (!piece.isEmpty() && TokenEstimator.estimate(piece + sentence) > maxTokens) {
+                    pieces.add(piece.toString());
+                    piece.setLength(0);
+                }
+                piece.append(sentence);
+            }
+            if (!piece.isEmpty()) {
+                pieces.add(piece.toString());
+            }
+        }
+        return pieces;
+    }
+
+    private record Block(String text, boolean code, boolean heading) {}
+}
@@ -0,0 +1,486 @@
+package com.example.mdviewer.backend.service.ai;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown 本地检查
+ * 检查不需要 AI 的机械性问题：多余空格、代码块围栏（未闭合、全角反引号）、链接语法和引用、中英文标点混用。
+ * 文档按段落和代码块切分，检查结果按块内容缓存，编辑时只有改动过的块需要重新检查；
+ * 相对链接的目标是否存在由调用方判断
+ */
+public class MarkdownLinter {
+
+    private static final Pattern LINK = Pattern.compile("(!?)\\[([^\\[\\]\\n]*)\\]( +)?\\(([^)\\n]*)(\\))?");
+    private static final Pattern REFERENCE = Pattern.compile("\\[([^\\[\\]\\n]+)\\]\\[([^\\[\\]\\n]*)\\]");
+    private static final Pattern DEFINITION = Pattern.compile("^ {0,3}\\[([^\\[\\]\\n]+)\\]:[ \\t]*(\\S*)");
+    private static final Pattern AUTOLINK = Pattern.compile("<[^<>\\s]+>|https?://[^\\s<>()]+");
+    private static final Pattern SCHEME = Pattern.compile("^[a-zA-Z][a-zA-Z0-9+.-]*:");
+
+    private static final String HALF_PUNCTUATION = ",.;:!?";
+    private static final String FULL_PUNCTUATION = "，。；：！？";
+
+    /**
+     * 一条诊断；offset、length 以 UTF-16 字符计，line、column 从 1 开始
+     * replacement 不为 null 时可以直接用它替换 [offset, offset + length) 完成修正
+     */
+    public record Diagnostic(String rule, String severity, int offset, int length, int line, int column,
+                             String message, String replacement) {
+
+        Diagnostic shift(int offsetDelta, int lineDelta) {
+            return new Diagnostic(rule, severity, offset + offsetDelta, length, line + lineDelta, column, message, replacement);
+        }
+    }
+
+    /**
+     * 文中的相对链接，位置指向链接地址
+     */
+    public record Link(String target, int offset, int length, int line, int column) {
+
+        Link shift(int offsetDelta, int lineDelta) {
+            return new Link(target, offset + offsetDelta, length, line + lineDelta, column);
+        }
+    }
+
+    /**
+     * 检查结果；prose 表示文中是否有需要 AI 检查的正文（代码块、链接地址等之外的文字）
+     */
+    public record Result(List<Diagnostic> diagnostics, List<Link> links, boolean prose) {}
+
+    /**
+     * [文字][引用] 形式的链接，label 为规范化后的引用名
+     */
+    private record Reference(String label, int offset, int length, int line, int column) {
+
+        Reference shift(int offsetDelta, int lineDelta) {
+            return new Reference(label, offset + offsetDelta, length, line + lineDelta, column);
+        }
+    }
+
+    /**
+     * 单个块的检查结果，位置相对于块的起点
+     */
+    private record BlockResult(List<Diagnostic> diagnostics, List<Link> links, List<Reference> references,
+                               Set<String> definitions, boolean prose) {}
+
+    private final Map<String, BlockResult> cache;
+    private long hits;
+    private long misses;
+
+    public MarkdownLinter(int maxBlocks) {
+        int capacity = Math.max(1, maxBlocks);
+        this.cache = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BlockResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public Result lint(String markdown) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+        List<Reference> references = new ArrayList<>();
+        Set<String> definitions = new HashSet<>();
+        boolean prose = false;
+
+        String[] lines = markdown.split("\n", -1);
+        int offset = 0;
+        int i = 0;
+        // 文首的 YAML 元数据原样跳过
+        if (lines.length > 1 && lines[0].strip().equals("---")) {
+            for (int j = 1; j < lines.length; j++) {
+                if (lines[j].strip().equals("---") || lines[j].strip().equals("...")) {
+                    for (int k = 0; k <= j; k++) {
+                        offset += lines[k].length() + 1;
+                    }
+                    i = j + 1;
+                    break;
+                }
+            }
+        }
+        while (i < lines.length) {
+            String fence = fenceMarker(lines[i]);
+            if (fence != null) {
+                int end = fenceBlock(lines, i, offset, fence, diagnostics);
+                for (; i < end; i++) {
+                    offset += lines[i].length() + 1;
+                }
+                continue;
+            }
+            int start = i;
+            int startOffset = offset;
+            StringBuilder block = new StringBuilder();
+            while (i < lines.length && fenceMarker(lines[i]) == null) {
+                block.append(lines[i]).append('\n');
+                offset += lines[i].length() + 1;
+                i++;
+                if (lines[i - 1].isBlank()) {
+                    break;
+                }
+            }
+            BlockResult result = lintBlock(block.toString());
+            for (Diagnostic diagnostic : result.diagnostics()) {
+                diagnostics.add(diagnostic.shift(startOffset, start));
+            }
+            for (Link link : result.links()) {
+                links.add(link.shift(startOffset, start));
+            }
+            for (Reference reference : result.references()) {
+                references.add(reference.shift(startOffset, start));
+            }
+            definitions.addAll(result.definitions());
+            prose |= result.prose();
+        }
+        // 引用式链接的定义可以出现在文中任何位置，汇总所有块之后再判断
+        for (Reference reference : references) {
+            if (!definitions.contains(reference.label())) {
+                diagnostics.add(new Diagnostic("link", "error", reference.offset(), reference.length(), reference.line(),
+                    reference.column(), "未找到链接引用 [" + reference.label() + "] 的定义", null));
+            }
+        }
+        diagnostics.sort((a, b) -> Integer.compare(a.offset(), b.offset()));
+        return new Result(diagnostics, links, prose);
+    }
+
+    /**
+     * 应用所有可自动修正的诊断；重叠的修正只保留靠前的一个
+     */
+    public static String applyFixes(String markdown, List<Diagnostic> diagnostics) {
+        StringBuilder fixed = new StringBuilder(markdown.length());
+        int position = 0;
+        for (Diagnostic diagnostic : fixes(diagnostics)) {
+            fixed.append(markdown, position, diagnostic.offset()).append(diagnostic.replacement());
+            position = diagnostic.offset() + diagnostic.length();
+        }
+        return fixed.append(markdown, position, markdown.length()).toString();
+    }
+
+    /**
+     * applyFixes 实际会应用的诊断：有替换内容且不与前一个修正重叠；diagnostics 须按 offset 排序
+     */
+    public static List<Diagnostic> fixes(List<Diagnostic> diagnostics) {
+        List<Diagnostic> fixes = new ArrayList<>();
+        int position = 0;
+        for (Diagnostic diagnostic : diagnostics) {
+            if (diagnostic.replacement() == null || diagnostic.offset() < position) {
+                continue;
+            }
+            fixes.add(diagnostic);
+            position = diagnostic.offset() + diagnostic.length();
+        }
+        return fixes;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedBlocks", cache.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    /**
+     * 检查代码块的围栏，返回代码块之后的行号
+     * 与 MainApp.normalizeMarkdown 一致，全角反引号视同反引号
+     */
+    private static int fenceBlock(String[] lines, int open, int offset, String marker, List<Diagnostic> diagnostics) {
+        char fenceChar = marker.charAt(0) == '｀' ? '`' : marker.charAt(0);
+        checkFullWidthFence(lines[open], open, offset, diagnostics);
+        int lineOffset = offset + lines[open].length() + 1;
+        for (int i = open + 1; i < lines.length; i++) {
+            String trimmed = lines[i].strip().replace('｀', '`');
+            if (trimmed.length() >= marker.length() && trimmed.chars().allMatch(c -> c == fenceChar)) {
+                checkFullWidthFence(lines[i], i, lineOffset, diagnostics);
+                return i + 1;
+            }
+            lineOffset += lines[i].length() + 1;
+        }
+        int indent = lines[open].indexOf(marker);
+        diagnostics.add(new Diagnostic("code-fence", "error", offset + indent, marker.length(), open + 1, indent + 1,
+            "代码块未闭合，之后的全部内容都会显示为代码", null));
+        return lines.length;
+    }
+
+    /**
+     * 行首（最多缩进 3 个空格）的代码块围栏标记，不是围栏时返回 null
+     */
+    private static String fenceMarker(String line) {
+        int start = 0;
+        while (start < 3 && start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+        if (start == line.length()) {
+            return null;
+        }
+        char c = line.charAt(start);
+        if (c != '`' && c != '~' && c != '｀') {
+            return null;
+        }
+        int end = start;
+        while (end < line.length() && line.charAt(end) == c) {
+            end++;
+        }
+        return end - start >= 3 ? line.substring(start, end) : null;
+    }
+
+    private static void checkFullWidthFence(String line, int index, int offset, List<Diagnostic> diagnostics) {
+        int start = line.indexOf('｀');
+        if (start < 0) {
+            return;
+        }
+        int end = start;
+        while (end < line.length() && (line.charAt(end) == '｀' || line.charAt(end) == '`')) {
+            end++;
+        }
+        diagnostics.add(new Diagnostic("code-fence", "warning", offset + start, end - start, index + 1, start + 1,
+            "代码块围栏使用了全角反引号", "`".repeat(end - start)));
+    }
+
+    private BlockResult lintBlock(String block) {
+        synchronized (this) {
+            BlockResult cached = cache.get(block);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        BlockResult result = check(block);
+        synchronized (this) {
+            cache.put(block, result);
+        }
+        return result;
+    }
+
+    private static BlockResult check(String block) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<Link> links = new ArrayList<>();
+        List<Reference> references = new ArrayList<>();
+        Set<String> definitions = new HashSet<>();
+        boolean prose = false;
+        boolean indentedCode = block.lines().allMatch(line -> line.isBlank() || line.startsWith("    ") || line.startsWith("\t"));
+        if (indentedCode) {
+            return new BlockResult(diagnostics, links, references, definitions, false);
+        }
+
+        int lineOffset = 0;
+        int lineIndex = 0;
+        for (String line : block.split("\n")) {
+            boolean[] masked = new boolean[line.length()];
+            maskCodeSpans(line, masked);
+
+            Matcher definition = DEFINITION.matcher(line);
+            if (definition.find()) {
+                definitions.add(label(definition.group(1)));
+                String target = definition.group(2);
+                mask(masked, definition.start(2), definition.end(2));
+                if (target.isEmpty()) {
+                    diagnostics.add(diagnostic("link", "warning", lineOffset, lineIndex, definition.start(1) - 1,
+                        definition.end() - definition.start(1) + 1, "链接地址为空", null));
+                } else if (isRelative(target)) {
+                    links.add(new Link(target, lineOffset + definition.start(2), target.length(), lineIndex + 1,
+                        definition.start(2) + 1));
+                }
+            }
+            checkLinks(line, masked, lineOffset, lineIndex, diagnostics, links);
+            checkReferences(line, masked, lineOffset, lineIndex, references);
+            Matcher autolink = AUTOLINK.matcher(line);
+            while (autolink.find()) {
+                if (!masked[autolink.start()]) {
+                    mask(masked, autolink.start(), autolink.end());
+                }
+            }
+
+            if (line.indexOf('|') < 0) {
+                checkSpaces(line, masked, lineOffset, lineIndex, diagnostics);
+            }
+            checkPunctuation(line, masked, lineOffset, lineIndex, diagnostics);
+            for (int i = 0; i < line.length() && !prose; i++) {
+                prose = !masked[i] && Character.isLetter(line.charAt(i));
+            }
+            lineOffset += line.length() + 1;
+            lineIndex++;
+        }
+        return new BlockResult(diagnostics, links, references, definitions, prose);
+    }
+
+    private static void checkLinks(String line, boolean[] masked, int lineOffset, int lineIndex,
+                                   List<Diagnostic> diagnostics, List<Link> links) {
+        Matcher link = LINK.matcher(line);
+        while (link.find()) {
+            if (masked[link.start()]) {
+                continue;
+            }
+            String destination = link.group(4);
+            String target = destination.strip();
+            if (target.startsWith("<") && target.indexOf('>') > 0) {
+                target = target.substring(1, target.indexOf('>'));
+            } else if (target.indexOf(' ') > 0) {
+                // 去掉地址后的标题
+                target = target.substring(0, target.indexOf(' '));
+            }
+            if (link.group(3) != null) {
+                // "[文字] (地址)" 不会被识别为链接；只在括号内像是地址时提示，避免误报普通的括号注释
+                if (!target.isEmpty() && destination.indexOf(' ') < 0 && (target.contains("/") || target.contains(".")
+                    || target.startsWith("#"))) {
+                    diagnostics.add(diagnostic("link", "warning", lineOffset, lineIndex, link.start(3),
+                        link.group(3).length(), "链接文字与地址之间不能有空格", ""));
+                    mask(masked, link.start(4), link.end(4));
+                }
+                continue;
+            }
+            mask(masked, link.start(4), link.end(4));
+            if (link.group(5) == null) {
+                diagnostics.add(diagnostic("link", "error", lineOffset, lineIndex, link.start(),
+                    link.end() - link.start(), "链接缺少右括号", null));
+                continue;
+            }
+            if (target.isEmpty()) {
+                diagnostics.add(diagnostic("link", "warning", lineOffset, lineIndex, link.start(),
+                    link.end() - link.start(), link.group(1).isEmpty() ? "链接地址为空" : "图片地址为空", null));
+            } else if (isRelative(target)) {
+                int start = link.start(4) + destination.indexOf(target);
+                links.add(new Link(target, lineOffset + start, target.length(), lineIndex + 1, start + 1));
+            }
+        }
+    }
+
+    /**
+     * 记录 [文字][引用] 和 [引用][] 形式的链接，引用的定义在整篇文档检查完后再核对
+     */
+    private static void checkReferences(String line, boolean[] masked, int lineOffset, int lineIndex,
+                                        List<Reference> references) {
+        Matcher reference = REFERENCE.matcher(line);
+        while (reference.find()) {
+            if (masked[reference.start()]) {
+                continue;
+            }
+            String name = reference.group(2).isBlank() ? reference.group(1) : reference.group(2);
+            references.add(new Reference(label(name), lineOffset + reference.start(), reference.end() - reference.start(),
+                lineIndex + 1, reference.start() + 1));
+        }
+    }
+
+    /**
+     * 行内连续的多个空格；行首缩进和行尾空格（硬换行）不算
+     */
+    private static void checkSpaces(String line, boolean[] masked, int lineOffset, int lineIndex,
+                                    List<Diagnostic> diagnostics) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        int end = line.length();
+        while (end > start && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) != ' ' || line.charAt(i + 1) != ' ' || masked[i]) {
+                continue;
+            }
+            int run = i;
+            while (line.charAt(run) == ' ') {
+                run++;
+            }
+            diagnostics.add(diagnostic("multiple-spaces", "warning", lineOffset, lineIndex, i, run - i,
+                "连续的多个空格", " "));
+            i = run;
+        }
+    }
+
+    /**
+     * 中文之间使用了半角标点，或英文单词之间使用了全角标点
+     */
+    private static void checkPunctuation(String line, boolean[] masked, int lineOffset, int lineIndex,
+                                         List<Diagnostic> diagnostics) {
+        for (int i = 1; i < line.length(); i++) {
+            if (masked[i]) {
+                continue;
+            }
+            char c = line.charAt(i);
+            char previous = line.charAt(i - 1);
+            boolean atEnd = i + 1 == line.length();
+            char next = atEnd ? 0 : line.charAt(i + 1);
+            int half = HALF_PUNCTUATION.indexOf(c);
+            if (half >= 0 && isCjk(previous) && (atEnd || isCjk(next) || Character.isWhitespace(next))) {
+                diagnostics.add(diagnostic("punctuation", "warning", lineOffset, lineIndex, i, 1,
+                    "中文之间应使用全角标点", String.valueOf(FULL_PUNCTUATION.charAt(half))));
+                continue;
+            }
+            int full = FULL_PUNCTUATION.indexOf(c);
+            if (full >= 0 && isAsciiLetter(previous) && isAsciiLetter(next)) {
+                diagnostics.add(diagnostic("punctuation", "warning", lineOffset, lineIndex, i, 1,
+                    "英文之间应使用半角标点", HALF_PUNCTUATION.charAt(full) + " "));
+            }
+        }
+    }
+
+    /**
+     * 屏蔽行内代码，其中的内容不参与检查
+     */
+    private static void maskCodeSpans(String line, boolean[] masked) {
+        int i = 0;
+        while (i < line.length()) {
+            if (line.charAt(i) != '`') {
+                i++;
+                continue;
+            }
+            int run = i;
+            while (run < line.length() && line.charAt(run) == '`') {
+                run++;
+            }
+            String marker = line.substring(i, run);
+            int close = line.indexOf(marker, run);
+            while (close >= 0 && close + marker.length() < line.length() && line.charAt(close + marker.length()) == '`') {
+                close = line.indexOf(marker, close + marker.length() + 1);
+            }
+            if (close < 0) {
+                i = run;
+                continue;
+            }
+            mask(masked, i, close + marker.length());
+            i = close + marker.length();
+        }
+    }
+
+    private static void mask(boolean[] masked, int start, int end) {
+        for (int i = start; i < end; i++) {
+            masked[i] = true;
+        }
+    }
+
+    private static Diagnostic diagnostic(String rule, String severity, int lineOffset, int lineIndex, int column,
+                                         int length, String message, String replacement) {
+        return new Diagnostic(rule, severity, lineOffset + column, length, lineIndex + 1, column + 1, message, replacement);
+    }
+
+    private static boolean isRelative(String target) {
+        return !target.startsWith("#") && !target.startsWith("//") && !SCHEME.matcher(target).find();
+    }
+
+    private static String label(String name) {
+        return name.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isCjk(char c) {
+        if (c < '⺀') {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 提供商准入控制
+ * 每个提供商独立的在途并发上限、请求数/Token 数令牌桶和有界等待队列，
+ * 遇到 429、5xx 或网络错误时按指数退避（带随机抖动，优先遵循 Retry-After）重试；
+ * Retry-After 要求的等待超过 retry-max-delay 时不再重试
+ */
+@Component
+public class ProviderAdmission {
+
+    private final AIProperties properties;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    public ProviderAdmission(AIProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 在准入控制下执行一次提供商调用，失败时自动重试
+     */
+    public <T> T execute(String provider, int estimatedTokens, Supplier<T> call) {
+        return execute(provider, estimatedTokens, () -> true, call);
+    }
+
+    /**
+     * 在准入控制下执行一次提供商调用
+     * canRetry 返回 false 时不再重试（例如流式调用已经向客户端输出了部分内容）
+     */
+    public <T> T execute(String provider, int estimatedTokens, BooleanSupplier canRetry, Supplier<T> call) {
+        Gate gate = gate(provider);
+        AIProperties.Limits limits = gate.limits;
+        for (int attempt = 0; ; attempt++) {
+            gate.acquire(estimatedTokens);
+            RuntimeException failure;
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                gate.release();
+            }
+            // 退避期间不占用在途名额
+            if (attempt >= limits.getMaxRetries() || !isRetryable(failure) || !canRetry.getAsBoolean()) {
+                throw failure;
+            }
+            long delay = backoff(limits, attempt, failure);
+            if (delay < 0) {
+                throw failure;
+            }
+            gate.retries.incrementAndGet();
+            sleep(delay);
+        }
+    }
+
+    /**
+     * 各提供商的排队与等待统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        gates.forEach((provider, gate) -> stats.put(provider, gate.stats()));
+        return stats;
+    }
+
+    private Gate gate(String provider) {
+        String key = provider == null || provider.isBlank() ? "default" : provider;
+        return gates.computeIfAbsent(key, name -> new Gate(properties.limitsFor(name)));
+    }
+
+    private boolean isRetryable(RuntimeException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof RestClientResponseException response) {
+            HttpStatusCode status = response.getStatusCode();
+            return status.value() == 429 || status.value() == 502 || status.value() == 503 || status.value() == 504;
+        }
+        return false;
+    }
+
+    /**
+     * 计算退避时间：有 Retry-After 时以其为准，超过最大退避时间时返回 -1（不再重试）；
+     * 否则为等量抖动的指数退避，在退避上限的一半到上限之间随机取值
+     */
+    private long backoff(AIProperties.Limits limits, int attempt, RuntimeException e) {
+        long maxDelay = limits.getRetryMaxDelay().toMillis();
+        if (e instanceof RestClientResponseException response) {
+            Long retryAfter = parseRetryAfter(response.getResponseHeaders());
+            if (retryAfter != null) {
+                return retryAfter > maxDelay ? -1 : Math.max(0, retryAfter);
+            }
+        }
+        long exponential = limits.getRetryBaseDelay().toMillis() << Math.min(attempt, 20);
+        long ceiling = Math.min(exponential, maxDelay);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private Long parseRetryAfter(HttpHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ignored) {
+            // 也可能是 HTTP 日期格式
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis();
+        } catch (DateTimeParseException ignored) {
+            return null;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AICancelledException();
+        }
+    }
+
+    /**
+     * 单个提供商的准入闸门
+     */
+    private static class Gate {
+        private final AIProperties.Limits limits;
+        private final Semaphore inFlight;
+        private final TokenBucket requestBucket;
+        private final TokenBucket tokenBucket;
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger maxQueued = new AtomicInteger();
+        private final AtomicLong admitted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong totalWaitMs = new AtomicLong();
+        private final AtomicLong maxWaitMs = new AtomicLong();
+
+        Gate(AIProperties.Limits limits) {
+            this.limits = limits;
+            this.inFlight = new Semaphore(Math.max(1, limits.getMaxInFlight()), true);
+            this.requestBucket = new TokenBucket(limits.getRequestsPerMinute());
+            this.tokenBucket = new TokenBucket(limits.getTokensPerMinute());
+        }
+
+        void acquire(int estimatedTokens) {
+            int depth = queued.incrementAndGet();
+            if (depth > limits.getMaxQueue()) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new AIAdmissionException("AI 请求排队已满，请稍后重试");
+            }
+            maxQueued.accumulateAndGet(depth, Math::max);
+
+            long start = System.nanoTime();
+            long deadline = start + limits.getMaxWait().toNanos();
+            boolean acquired = false;
+            boolean tookRequest = false;
+            boolean passed = false;
+            try {
+                if (!inFlight.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new AIAdmissionException("AI 请求等待超时，请稍后重试");
+                }
+                acquired = true;
+                requestBucket.take(1, deadline);
+                tookRequest = true;
+                tokenBucket.take(estimatedTokens, deadline);
+                passed = true;
+            } catch (InterruptedException e) {
+                // 对冲落败或用户取消时会中断等待中的线程
+                Thread.currentThread().interrupt();
+                throw new AICancelledException();
+            } finally {
+                queued.decrementAndGet();
+                // 超时、取消或其他异常都要归还已占用的并发名额，否则名额永久泄漏
+                if (!passed) {
+                    rejected.incrementAndGet();
+                    if (acquired) {
+                        inFlight.release();
+                    }
+                    // Token 额度不足被拒绝时，请求数额度没有被真正使用
+                    if (tookRequest) {
+                        requestBucket.refund(1);
+                    }
+                }
+            }
+
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            admitted.incrementAndGet();
+            totalWaitMs.addAndGet(waitedMs);
+            maxWaitMs.accumulateAndGet(waitedMs, Math::max);
+        }
+
+        void release() {
+            inFlight.release();
+        }
+
+        Map<String, Object> stats() {
+            long count = admitted.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("inFlight", Math.max(1, limits.getMaxInFlight()) - inFlight.availablePermits());
+            stats.put("queueDepth", queued.get());
+            stats.put("maxQueueDepth", maxQueued.get());
+            stats.put("admitted", count);
+            stats.put("rejected", rejected.get());
+            stats.put("retries", retries.get());
+            stats.put("avgWaitMs", count == 0 ? 0.0 : (double) totalWaitMs.get() / count);
+            stats.put("maxWaitMs", maxWaitMs.get());
+            return stats;
+        }
+    }
+
+    /**
+     * 按分钟补充的令牌桶，容量等于每分钟额度
+     */
+    private static class TokenBucket {
+        private final long capacity;
+        private final double refillPerNano;
+        private double available;
+        private long lastRefill;
+
+        TokenBucket(int perMinute) {
+            this.capacity = Math.max(1, perMinute);
+            this.refillPerNano = capacity / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * 取出 amount 个令牌，不足时等待补充，超过 deadline 抛出异常
+         */
+        void take(int amount, long deadline) throws InterruptedException {
+            double needed = Math.min(Math.max(0, amount), capacity);
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    available = Math.min(capacity, available + (now - lastRefill) * refillPerNano);
+                    lastRefill = now;
+                    if (available >= needed) {
+                        available -= needed;
+                        return;
+                    }
+                    waitNanos = (long) Math.ceil((needed - available) / refillPerNano);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (waitNanos > remaining) {
+                    throw new AIAdmissionException("AI 请求超出速率限制，请稍后重试");
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        /**
+         * 归还未使用的令牌
+         */
+        synchronized void refund(int amount) {
+            available = Math.min(capacity, available + Math.min(Math.max(0, amount), capacity));
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 多提供商的对冲请求与故障转移
+ * 按优先级依次尝试：当前提供商超过其近期延迟分位数（默认 p95）仍未应答时，向下一个提供商发出对冲请求，
+ * 先成功者胜出，其余请求被取消；某个提供商失败时立即转向下一个。
+ * 连续失败的提供商会被熔断一段时间，期满后放行一个探测请求，成功即恢复。
+ * 提供商正常应答但结果未被接受（如空回复、被过滤）时同样转向下一个，但只单独计数，不计入熔断
+ */
+@Component
+public class ProviderFailover {
+
+    private final AIProperties properties;
+    private final Map<String, Health> health = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 在单个提供商上的一次调用
+     * 流式调用在输出每段内容前调用 claim：返回 false 表示其他提供商已经胜出，应立即放弃本次调用
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run(String provider, BooleanSupplier claim) throws Exception;
+    }
+
+    public ProviderFailover(AIProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 按优先级在多个提供商上执行调用，返回第一个被 accept 的结果
+     * 非流式调用以完整结果定胜负；流式调用以第一段输出定胜负，之后不再切换，避免重复输出。
+     * 全部失败时返回最后一个结果或抛出最后一个异常
+     */
+    public <T> T execute(List<String> providers, boolean streaming, Attempt<T> attempt, Predicate<T> accept) {
+        AIProperties.Failover config = properties.getFailover();
+        int maxParallel = config.isHedgeEnabled() ? Math.max(1, config.getMaxParallel()) : 1;
+        Race<T> race = new Race<>();
+        int next = 0;
+        int active = 0;
+        long hedgeAt = Long.MAX_VALUE;
+        Run<T> last = null;
+        try {
+            while (true) {
+                Run<T> winner = race.winner.get();
+                if (winner != null) {
+                    return finish(race, winner);
+                }
+                if (active < maxParallel && next < providers.size() && (active == 0 || System.nanoTime() >= hedgeAt)) {
+                    String provider = providers.get(next++);
+                    Health providerHealth = health(provider);
+                    if (!providerHealth.tryAcquire(config)) {
+                        continue;
+                    }
+                    if (active > 0) {
+                        providerHealth.hedged.incrementAndGet();
+                    }
+                    launch(race, provider, providerHealth, streaming, attempt, accept);
+                    active++;
+                    hedgeAt = System.nanoTime() + providerHealth.hedgeDelayNanos(config, streaming);
+                    continue;
+                }
+                if (active == 0) {
+                    break;
+                }
+                Run<T> event = active < maxParallel && next < providers.size()
+                    ? race.events.poll(Math.max(0, hedgeAt - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    : race.events.take();
+                if (event != null && event.done && race.winner.get() == null) {
+                    last = event;
+                    active--;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AICancelledException();
+        } finally {
+            race.cancelLosers();
+        }
+        if (last == null) {
+            throw new AIAdmissionException("所有 AI 提供商均处于熔断状态，请稍后重试");
+        }
+        return outcome(last);
+    }
+
+    /**
+     * 更新配置后清空各提供商的熔断状态和延迟统计
+     */
+    public void reset() {
+        health.clear();
+    }
+
+    /**
+     * 各提供商的熔断状态、延迟分位数和对冲统计
+     */
+    public Map<String, Object> stats() {
+        AIProperties.Failover config = properties.getFailover();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        health.forEach((provider, providerHealth) -> stats.put(provider, providerHealth.stats(config)));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Health health(String provider) {
+        return health.computeIfAbsent(provider, name -> new Health(properties.getFailover().getLatencyWindow()));
+    }
+
+    private <T> void launch(Race<T> race, String provider, Health providerHealth, boolean streaming,
+                            Attempt<T> attempt, Predicate<T> accept) {
+        Run<T> run = new Run<>(provider, System.nanoTime());
+        race.runs.add(run);
+        run.future = executor.submit(() -> {
+            // 流式调用收到第一段输出即视为提供商健康，以首段延迟作为对冲依据
+            BooleanSupplier claim = () -> {
+                responded(run, providerHealth, streaming);
+                return race.claim(run);
+            };
+            try {
+                run.result = attempt.run(provider, claim);
+                if (accept.test(run.result)) {
+                    responded(run, providerHealth, streaming);
+                    race.claim(run);
+                } else {
+                    providerHealth.onRejected();
+                }
+            } catch (Exception e) {
+                run.failure = e;
+                if (run.responded || run.cancelled || e instanceof AIAdmissionException) {
+                    // 被取消、输掉竞争或本地排队失败，不计入提供商健康状况
+                    providerHealth.release();
+                } else {
+                    providerHealth.onFailure(properties.getFailover());
+                }
+            } finally {
+                run.done = true;
+                race.events.add(run);
+            }
+        });
+    }
+
+    private static void responded(Run<?> run, Health providerHealth, boolean streaming) {
+        if (!run.responded) {
+            run.responded = true;
+            providerHealth.onSuccess(System.nanoTime() - run.startedAt, streaming);
+        }
+    }
+
+    /**
+     * 胜者已确定：取消其余请求，流式调用等待胜者输出完毕
+     */
+    private <T> T finish(Race<T> race, Run<T> winner) throws InterruptedException {
+        race.cancelLosers();
+        health(winner.provider).wins.incrementAndGet();
+        try {
+            winner.future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            winner.cancelled = true;
+            winner.future.cancel(true);
+            throw e;
+        }
+        return outcome(winner);
+    }
+
+    private static <T> T outcome(Run<T> run) {
+        if (run.failure == null) {
+            return run.result;
+        }
+        if (run.failure instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw new IllegalStateException(run.failure.getMessage(), run.failure);
+    }
+
+    /**
+     * 一次调用中各提供商请求的竞争状态
+     */
+    private static class Race<T> {
+        private final List<Run<T>> runs = new ArrayList<>();
+        private final BlockingQueue<Run<T>> events = new LinkedBlockingQueue<>();
+        private final AtomicReference<Run<T>> winner = new AtomicReference<>();
+
+        boolean claim(Run<T> run) {
+            if (winner.compareAndSet(null, run)) {
+                events.add(run);
+                return true;
+            }
+            return winner.get() == run;
+        }
+
+        void cancelLosers() {
+            Run<T> won = winner.get();
+            for (Run<T> run : runs) {
+                if (run != won && !run.done) {
+                    run.cancelled = true;
+                    run.future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static class Run<T> {
+        private final String provider;
+        private final long startedAt;
+        private volatile Future<?> future;
+        private volatile boolean responded;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+        private volatile T result;
+        private volatile Exception failure;
+
+        Run(String provider, long startedAt) {
+            this.provider = provider;
+            this.startedAt = startedAt;
+        }
+    }
+
+    /**
+     * 单个提供商的健康状况：熔断器和近期延迟
+     */
+    private static class Health {
+        private final LatencyWindow callLatency;
+        private final LatencyWindow streamLatency;
+        private int consecutiveFailures;
+        // 熔断截止时间，0 表示未熔断
+        private long openUntil;
+        private boolean probing;
+
+        private final AtomicLong successes = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong opened = new AtomicLong();
+        private final AtomicLong hedged = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+
+        Health(int window) {
+            this.callLatency = new LatencyWindow(window);
+            this.streamLatency = new LatencyWindow(window);
+        }
+
+        /**
+         * 是否放行一个请求：未熔断时放行；熔断期满后只放行一个探测请求
+         */
+        synchronized boolean tryAcquire(AIProperties.Failover config) {
+            if (openUntil == 0) {
+                return true;
+            }
+            if (System.nanoTime() < openUntil || probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        synchronized void onSuccess(long latencyNanos, boolean streaming) {
+            successes.incrementAndGet();
+            consecutiveFailures = 0;
+            openUntil = 0;
+            probing = false;
+            (streaming ? streamLatency : callLatency).record(latencyNanos);
+        }
+
+        synchronized void onFailure(AIProperties.Failover config) {
+            failures.incrementAndGet();
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= config.getFailureThreshold()) {
+                if (openUntil == 0 || probing) {
+                    opened.incrementAndGet();
+                }
+                openUntil = System.nanoTime() + config.getOpenDuration().toNanos();
+            }
+            probing = false;
+        }
+
+        /**
+         * 提供商有应答但结果未被接受：不算成功，也不计入连续失败
+         */
+        synchronized void onRejected() {
+            rejected.incrementAndGet();
+            probing = false;
+        }
+
+        /**
+         * 请求未产生可判断健康状况的结果（被取消等），释放探测名额
+         */
+        synchronized void release() {
+            probing = false;
+        }
+
+        /**
+         * 对冲等待时间：样本足够时取延迟分位数，并限制在上下限之间
+         */
+        synchronized long hedgeDelayNanos(AIProperties.Failover config, boolean streaming) {
+            LatencyWindow window = streaming ? streamLatency : callLatency;
+            long delay = window.size() < config.getMinSamples()
+                ? config.getHedgeInitialDelay().toNanos()
+                : window.quantile(config.getHedgeQuantile());
+            return Math.clamp(delay, config.getHedgeMinDelay().toNanos(), config.getHedgeMaxDelay().toNanos());
+        }
+
+        synchronized Map<String, Object> stats(AIProperties.Failover config) {
+            String state = openUntil == 0 ? "closed" : System.nanoTime() < openUntil ? "open" : "half-open";
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("state", state);
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("successes", successes.get());
+            stats.put("failures", failures.get());
+            stats.put("rejected", rejected.get());
+            stats.put("opened", opened.get());
+            stats.put("hedged", hedged.get());
+            stats.put("wins", wins.get());
+            stats.put("hedgeDelayMs", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos(config, false)));
+            stats.put("streamHedgeDelayMs", TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos(config, true)));
+            return stats;
+        }
+    }
+
+    /**
+     * 最近若干次成功调用的延迟（环形缓冲）
+     */
+    private static class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int size;
+
+        LatencyWindow(int capacity) {
+            this.samples = new long[Math.max(1, capacity)];
+        }
+
+        void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long quantile(double quantile) {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * size) - 1;
+            return sorted[Math.clamp(index, 0, size - 1)];
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mdviewer.backend.service.ai;
+
+/**
+ * Token 数粗略估算
+ * 中日韩字符按 1 字 1 Token，其余字符按约 4 个字符 1 Token 计算，用于限流和预算控制
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x2E80 && c <= 0x9FFF || c >= 0xAC00 && c <= 0xD7AF || c >= 0xF900 && c <= 0xFAFF
+                || c >= 0xFF00 && c <= 0xFFEF) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+}
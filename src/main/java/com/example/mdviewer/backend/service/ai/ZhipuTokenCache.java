@@ -0,0 +1,88 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 智谱 AI JWT Token 缓存
+ * Token 有效期内重复使用，临近过期时才重新签名
+ */
+@Component
+public class ZhipuTokenCache {
+
+    private final AIProperties properties;
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+
+    public ZhipuTokenCache(AIProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * 获取可用的 Token，API Key 格式错误时返回 null
+     */
+    public String token(String apiKey) {
+        long now = System.currentTimeMillis();
+        long margin = properties.getTokenRefreshMargin().toMillis();
+        CachedToken cached = tokens.get(apiKey);
+        if (cached != null && now < cached.expiresAt() - margin) {
+            return cached.token();
+        }
+        CachedToken fresh = generate(apiKey, now);
+        if (fresh == null) {
+            tokens.remove(apiKey);
+            return null;
+        }
+        tokens.put(apiKey, fresh);
+        return fresh.token();
+    }
+
+    /**
+     * 生成智谱 AI JWT Token
+     * API Key 格式: {api_key_id}.{api_key_secret}
+     */
+    private CachedToken generate(String apiKey, long now) {
+        try {
+            String[] parts = apiKey.split("\\.");
+            if (parts.length != 2) {
+                return null;
+            }
+            
+            String apiKeyId = parts[0];
+            String apiKeySecret = parts[1];
+            
+            long exp = now + properties.getTokenTtl().toMillis();
+            
+            // JWT Header
+            String header = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                "{\"alg\":\"HS256\",\"sign_type\":\"SIGN\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8)
+            );
+            
+            // JWT Payload
+            String payload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                String.format("{\"api_key\":\"%s\",\"exp\":%d,\"timestamp\":%d}", apiKeyId, exp, now)
+                    .getBytes(StandardCharsets.UTF_8)
+            );
+            
+            // JWT Signature
+            String signContent = header + "." + payload;
+            Mac mac = Mac.getInstance("HmacSHA256");
+            SecretKeySpec secretKeySpec = new SecretKeySpec(apiKeySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+            mac.init(secretKeySpec);
+            byte[] signatureBytes = mac.doFinal(signContent.getBytes(StandardCharsets.UTF_8));
+            String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(signatureBytes);
+            
+            return new CachedToken(signContent + "." + signature, exp);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private record CachedToken(String token, long expiresAt) {}
+}
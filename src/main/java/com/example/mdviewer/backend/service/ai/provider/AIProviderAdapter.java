@@ -0,0 +1,39 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * AI 提供商适配器
+ * 负责一种接口格式的请求构造与响应解析；新增提供商只需注册一个实现为 Spring Bean，无需改动 AIService。
+ * HTTP 错误以 RestClientException 抛出（由准入控制判断是否重试），响应内容不可用时抛出 ProviderResponseException
+ */
+public interface AIProviderAdapter {
+
+    /**
+     * 是否处理该提供商
+     */
+    boolean supports(String provider);
+
+    /**
+     * 未配置模型时使用的对话模型
+     */
+    String defaultModel(String provider);
+
+    /**
+     * 未配置 ai.embedding.model 时使用的 Embedding 模型
+     */
+    String defaultEmbeddingModel(String provider);
+
+    ChatCompletion chat(ChatRequest request);
+
+    /**
+     * 流式对话，每段输出交给 onToken
+     */
+    void stream(ChatRequest request, Consumer<String> onToken);
+
+    /**
+     * 批量向量化，返回的向量与 texts 一一对应（未归一化）
+     */
+    List<float[]> embed(EmbeddingRequest request);
+}
@@ -0,0 +1,27 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 按提供商名称选择适配器：按 @Order 顺序取第一个支持的实现，OpenAI 兼容格式兜底
+ */
+@Component
+public class AIProviderAdapters {
+
+    private final List<AIProviderAdapter> adapters;
+
+    public AIProviderAdapters(List<AIProviderAdapter> adapters) {
+        this.adapters = adapters;
+    }
+
+    public AIProviderAdapter forProvider(String provider) {
+        for (AIProviderAdapter adapter : adapters) {
+            if (adapter.supports(provider)) {
+                return adapter;
+            }
+        }
+        throw new IllegalStateException("不支持的 AI 提供商: " + provider);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+/**
+ * 对话结果；finishReason 在提供商未返回时为 null
+ */
+public record ChatCompletion(String content, String finishReason) {}
@@ -0,0 +1,20 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+/**
+ * 发送给提供商的一条消息
+ * role: system, user 或 assistant
+ */
+public record ChatMessage(String role, String content) {
+
+    public static ChatMessage system(String content) {
+        return new ChatMessage("system", content);
+    }
+
+    public static ChatMessage user(String content) {
+        return new ChatMessage("user", content);
+    }
+
+    public static ChatMessage assistant(String content) {
+        return new ChatMessage("assistant", content);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import java.util.List;
+
+/**
+ * 对话请求，maxTokens 限制输出长度
+ */
+public record ChatRequest(ProviderEndpoint endpoint, List<ChatMessage> messages, int maxTokens) {}
@@ -0,0 +1,8 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import java.util.List;
+
+/**
+ * 批量向量化请求
+ */
+public record EmbeddingRequest(ProviderEndpoint endpoint, String model, List<String> texts) {}
@@ -0,0 +1,197 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import com.example.mdviewer.backend.service.ai.AIHttpClients;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Google Gemini：API Key 放在查询参数中，接口地址中的 {model} 替换为模型名
+ */
+@Component
+@Order(0)
+public class GeminiAdapter implements AIProviderAdapter {
+
+    private final AIHttpClients httpClients;
+
+    public GeminiAdapter(AIHttpClients httpClients) {
+        this.httpClients = httpClients;
+    }
+
+    @Override
+    public boolean supports(String provider) {
+        return "gemini".equals(provider);
+    }
+
+    @Override
+    public String defaultModel(String provider) {
+        return "gemini-1.5-flash";
+    }
+
+    @Override
+    public String defaultEmbeddingModel(String provider) {
+        return "text-embedding-004";
+    }
+
+    @Override
+    public ChatCompletion chat(ChatRequest request) {
+        ProviderEndpoint endpoint = request.endpoint();
+        String url = modelUrl(endpoint, endpoint.modelOr(defaultModel("gemini"))) + "?key=" + endpoint.apiKey();
+        Candidate candidate = ProviderHttp.post(httpClients.restTemplate("gemini"), url, requestBody(request), null, false,
+            body -> readCandidate(new JsonStreamReader(body), null));
+        if (candidate.text.isEmpty()) {
+            throw new ProviderResponseException(candidate.error != null ? "Gemini 返回错误: " + candidate.error : "Gemini 响应格式错误");
+        }
+        return new ChatCompletion(candidate.text.toString(), candidate.finishReason);
+    }
+
+    /**
+     * streamGenerateContent + alt=sse，每个事件都是一段 candidates
+     */
+    @Override
+    public void stream(ChatRequest request, Consumer<String> onToken) {
+        ProviderEndpoint endpoint = request.endpoint();
+        String url = modelUrl(endpoint, endpoint.modelOr(defaultModel("gemini")))
+            .replace(":generateContent", ":streamGenerateContent") + "?alt=sse&key=" + endpoint.apiKey();
+        ProviderHttp.post(httpClients.restTemplate("gemini"), url, requestBody(request), null, true, body -> {
+            ProviderHttp.readServerSentEvents(body, data -> {
+                Candidate candidate = readCandidate(new JsonStreamReader(data), onToken);
+                if (candidate.error != null) {
+                    throw new ProviderResponseException("Gemini 返回错误: " + candidate.error);
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 批量 Embedding 接口：batchEmbedContents
+     */
+    @Override
+    public List<float[]> embed(EmbeddingRequest request) {
+        ProviderEndpoint endpoint = request.endpoint();
+        String model = request.model();
+        String url = modelUrl(endpoint, model).replace(":generateContent", ":batchEmbedContents") + "?key=" + endpoint.apiKey();
+        JsonWriter json = new JsonWriter().beginObject().name("requests").beginArray();
+        for (String text : request.texts()) {
+            json.beginObject()
+                .name("model").value("models/" + model)
+                .name("content").beginObject()
+                .name("parts").beginArray().beginObject().name("text").value(text).endObject().endArray()
+                .endObject()
+                .endObject();
+        }
+        byte[] body = json.endArray().endObject().toBytes();
+
+        int count = request.texts().size();
+        return ProviderHttp.post(httpClients.restTemplate("gemini"), url, body, null, false, in -> {
+            JsonStreamReader reader = new JsonStreamReader(in);
+            float[][] vectors = new float[count][];
+            String[] error = {null};
+            reader.readObject(field -> {
+                switch (field) {
+                    case "embeddings" -> reader.readArray(i -> reader.readObject(itemField -> {
+                        if ("values".equals(itemField) && i < count) {
+                            vectors[i] = reader.readFloatArray();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }));
+                    case "error" -> error[0] = ProviderHttp.errorMessage(reader);
+                    default -> reader.skipValue();
+                }
+            });
+            if (error[0] != null) {
+                throw new ProviderResponseException("Gemini 返回错误: " + error[0]);
+            }
+            return ProviderHttp.vectors(vectors);
+        });
+    }
+
+    private static String modelUrl(ProviderEndpoint endpoint, String model) {
+        return endpoint.apiUrl().replace("{model}", model);
+    }
+
+    /**
+     * 请求体：system 消息放入 systemInstruction，assistant 角色对应 model
+     */
+    private static byte[] requestBody(ChatRequest request) {
+        StringBuilder system = new StringBuilder();
+        JsonWriter json = new JsonWriter().beginObject().name("contents").beginArray();
+        for (ChatMessage message : request.messages()) {
+            if ("system".equals(message.role())) {
+                system.append(message.content()).append('\n');
+                continue;
+            }
+            json.beginObject()
+                .name("role").value("assistant".equals(message.role()) ? "model" : "user")
+                .name("parts").beginArray().beginObject().name("text").value(message.content()).endObject().endArray()
+                .endObject();
+        }
+        json.endArray();
+        if (!system.isEmpty()) {
+            json.name("systemInstruction").beginObject()
+                .name("parts").beginArray().beginObject().name("text").value(system.toString().strip()).endObject().endArray()
+                .endObject();
+        }
+        json.name("generationConfig").beginObject().name("maxOutputTokens").value(request.maxTokens()).endObject();
+        return json.endObject().toBytes();
+    }
+
+    /**
+     * 第一个候选结果中需要的字段
+     */
+    private static final class Candidate {
+        final StringBuilder text = new StringBuilder();
+        String finishReason;
+        String error;
+    }
+
+    /**
+     * 读取 candidates[0].content.parts[*].text；onToken 不为空时每段文本读到即输出
+     */
+    private static Candidate readCandidate(JsonStreamReader json, Consumer<String> onToken) throws IOException {
+        Candidate candidate = new Candidate();
+        json.readObject(field -> {
+            switch (field) {
+                case "candidates" -> json.readArray(index -> {
+                    if (index > 0) {
+                        json.skipValue();
+                        return;
+                    }
+                    json.readObject(candidateField -> {
+                        switch (candidateField) {
+                            case "content" -> json.readObject(contentField -> {
+                                if ("parts".equals(contentField)) {
+                                    json.readArray(part -> json.readObject(partField -> {
+                                        if ("text".equals(partField)) {
+                                            String text = json.readString();
+                                            if (text != null) {
+                                                candidate.text.append(text);
+                                                if (onToken != null) {
+                                                    ProviderHttp.emit(text, onToken);
+                                                }
+                                            }
+                                        } else {
+                                            json.skipValue();
+                                        }
+                                    }));
+                                } else {
+                                    json.skipValue();
+                                }
+                            });
+                            case "finishReason" -> candidate.finishReason = json.readString();
+                            default -> json.skipValue();
+                        }
+                    });
+                });
+                case "error" -> candidate.error = ProviderHttp.errorMessage(json);
+                default -> json.skipValue();
+            }
+        });
+        return candidate;
+    }
+}
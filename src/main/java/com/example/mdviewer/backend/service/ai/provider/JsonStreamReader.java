@@ -0,0 +1,392 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 增量 JSON 读取器
+ * 边读取响应流边解析，调用方只读取需要的字段，其余值直接跳过，不构造中间的 Map 和 List。
+ * 浮点数组（Embedding）直接解析为 float[]，不逐个生成字符串
+ */
+public final class JsonStreamReader {
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * 对象中的一个字段：回调须读取或跳过该字段的值
+     */
+    @FunctionalInterface
+    public interface FieldHandler {
+        void field(String name) throws IOException;
+    }
+
+    /**
+     * 数组中的一个元素：回调须读取或跳过该元素
+     */
+    @FunctionalInterface
+    public interface ElementHandler {
+        void element(int index) throws IOException;
+    }
+
+    /**
+     * 响应内容不是合法的 JSON；与读取响应时的网络错误区分开
+     */
+    public static class MalformedJsonException extends IOException {
+        public MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    public JsonStreamReader(Reader in) {
+        this.in = in;
+        this.buffer = new char[8192];
+    }
+
+    public JsonStreamReader(String json) {
+        this.in = null;
+        this.buffer = json.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    /**
+     * 下一个值的首字符（跳过空白）：'{'、'['、'"'、数字或 't'/'f'/'n'；已到结尾时返回 -1
+     */
+    public int peek() throws IOException {
+        skipWhitespace();
+        return pos < limit || fill() ? buffer[pos] : -1;
+    }
+
+    /**
+     * 读取对象，逐个字段回调；值为 null 时返回 false
+     */
+    public boolean readObject(FieldHandler handler) throws IOException {
+        if (consumeNull()) {
+            return false;
+        }
+        expect('{');
+        if (peek() == '}') {
+            pos++;
+            return true;
+        }
+        while (true) {
+            if (peek() != '"') {
+                throw syntaxError("应为字段名");
+            }
+            String name = readString();
+            expect(':');
+            handler.field(name);
+            int next = peek();
+            pos++;
+            if (next == '}') {
+                return true;
+            }
+            if (next != ',') {
+                throw syntaxError("应为 ',' 或 '}'");
+            }
+        }
+    }
+
+    /**
+     * 读取数组，逐个元素回调；值为 null 时返回 false
+     */
+    public boolean readArray(ElementHandler handler) throws IOException {
+        if (consumeNull()) {
+            return false;
+        }
+        expect('[');
+        if (peek() == ']') {
+            pos++;
+            return true;
+        }
+        for (int index = 0; ; index++) {
+            handler.element(index);
+            int next = peek();
+            pos++;
+            if (next == ']') {
+                return true;
+            }
+            if (next != ',') {
+                throw syntaxError("应为 ',' 或 ']'");
+            }
+        }
+    }
+
+    /**
+     * 读取字符串；值为 null 时返回 null，为其他类型时跳过并返回 null
+     */
+    public String readString() throws IOException {
+        if (peek() != '"') {
+            skipValue();
+            return null;
+        }
+        pos++;
+        text.setLength(0);
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("字符串未结束");
+            }
+            // 连续的普通字符整段追加
+            int start = pos;
+            while (pos < limit && buffer[pos] != '"' && buffer[pos] != '\\') {
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (pos == limit) {
+                continue;
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    /**
+     * 读取数字；值为 null 或其他类型时跳过并返回 NaN
+     */
+    public double readDouble() throws IOException {
+        int c = peek();
+        if (c != '-' && (c < '0' || c > '9')) {
+            skipValue();
+            return Double.NaN;
+        }
+        return parseNumber();
+    }
+
+    /**
+     * 读取数字数组为 float[]；值为 null 时返回 null
+     */
+    public float[] readFloatArray() throws IOException {
+        float[][] values = {new float[256]};
+        int[] size = {0};
+        boolean present = readArray(index -> {
+            if (size[0] == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], size[0] * 2);
+            }
+            values[0][size[0]++] = (float) readDouble();
+        });
+        return present ? Arrays.copyOf(values[0], size[0]) : null;
+    }
+
+    /**
+     * 跳过下一个值（含嵌套结构），不保留其内容
+     */
+    public void skipValue() throws IOException {
+        int c = peek();
+        switch (c) {
+            case '{', '[' -> {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        skipString();
+                        continue;
+                    }
+                    pos++;
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    } else if (c == -1) {
+                        throw syntaxError("JSON 未结束");
+                    }
+                } while (depth > 0);
+            }
+            case '"' -> skipString();
+            case -1 -> throw syntaxError("JSON 未结束");
+            default -> skipLiteral();
+        }
+    }
+
+    private void skipString() throws IOException {
+        pos++;
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw syntaxError("字符串未结束");
+            }
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                if (pos == limit && !fill()) {
+                    throw syntaxError("字符串未结束");
+                }
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * 跳过数字、true、false 或 null
+     */
+    private void skipLiteral() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean consumeNull() throws IOException {
+        if (peek() != 'n') {
+            return false;
+        }
+        skipLiteral();
+        return true;
+    }
+
+    private char readEscape() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("字符串未结束");
+        }
+        char c = buffer[pos++];
+        return switch (c) {
+            case 'n' -> '\n';
+            case 't' -> '\t';
+            case 'r' -> '\r';
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (pos == limit && !fill()) {
+                        throw syntaxError("字符串未结束");
+                    }
+                    int digit = Character.digit(buffer[pos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("\\u 转义格式错误");
+                    }
+                    value = (value << 4) | digit;
+                }
+                // 代理对的两半分别追加，拼起来即为完整字符
+                yield (char) value;
+            }
+            default -> c;
+        };
+    }
+
+    /**
+     * 解析数字：有效数字不超过 15 位、指数较小时直接计算（结果与 Double.parseDouble 一致），否则回退到标准解析
+     */
+    private double parseNumber() throws IOException {
+        text.setLength(0);
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int exponent = 0;
+        boolean exact = true;
+        int state = 0; // 0 整数部分，1 小数部分，2 指数部分
+        boolean exponentNegative = false;
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c >= '0' && c <= '9') {
+                if (state == 2) {
+                    exponent = Math.min(exponent * 10 + (c - '0'), 10_000);
+                } else if (digits < 15) {
+                    if (mantissa != 0 || c != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (state == 1) {
+                        scale++;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else if (c == '-' && text.isEmpty()) {
+                negative = true;
+            } else if (c == '-' || c == '+') {
+                if (state != 2 || !endsWith('e', 'E')) {
+                    throw syntaxError("数字格式错误: " + text + c);
+                }
+                exponentNegative = c == '-';
+            } else if (c == '.') {
+                if (state != 0 || !endsWithDigit()) {
+                    throw syntaxError("数字格式错误: " + text + c);
+                }
+                state = 1;
+            } else if (c == 'e' || c == 'E') {
+                if (state == 2 || !endsWithDigit()) {
+                    throw syntaxError("数字格式错误: " + text + c);
+                }
+                state = 2;
+            } else {
+                break;
+            }
+            text.append(c);
+            pos++;
+        }
+        // 快速路径不经过 Double.parseDouble，格式须自行校验："1."、"1e"、"-" 均不完整
+        if (!endsWithDigit()) {
+            throw syntaxError("数字格式错误: " + text);
+        }
+        int power = (exponentNegative ? -exponent : exponent) - scale;
+        if (!exact || power < -22 || power > 22) {
+            try {
+                return Double.parseDouble(text.toString());
+            } catch (NumberFormatException e) {
+                throw syntaxError("数字格式错误: " + text);
+            }
+        }
+        double value = power < 0 ? mantissa / POWERS_OF_TEN[-power] : mantissa * POWERS_OF_TEN[power];
+        return negative ? -value : value;
+    }
+
+    private boolean endsWithDigit() {
+        return !text.isEmpty() && Character.isDigit(text.charAt(text.length() - 1));
+    }
+
+    private boolean endsWith(char first, char second) {
+        char last = text.isEmpty() ? 0 : text.charAt(text.length() - 1);
+        return last == first || last == second;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peek() != expected) {
+            throw syntaxError("应为 '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException("JSON 格式错误: " + message);
+    }
+}
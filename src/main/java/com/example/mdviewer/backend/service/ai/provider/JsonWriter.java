@@ -0,0 +1,119 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 生成请求体 JSON 的简单写入器，按调用顺序直接拼接，自动处理逗号和字符串转义
+ */
+final class JsonWriter {
+
+    private final StringBuilder out = new StringBuilder(256);
+    // 当前层级是否还没有写入任何成员
+    private boolean first = true;
+
+    JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    JsonWriter endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * 写入字段名，之后须紧跟一个值
+     */
+    JsonWriter name(String name) {
+        separate();
+        quote(name);
+        out.append(':');
+        first = true;
+        return this;
+    }
+
+    JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(double value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    byte[] toBytes() {
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (!first) {
+            out.append(',');
+        }
+    }
+
+    private void quote(String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
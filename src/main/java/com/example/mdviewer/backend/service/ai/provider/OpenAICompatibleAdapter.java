@@ -0,0 +1,190 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import com.example.mdviewer.backend.service.ai.AIHttpClients;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * OpenAI 兼容格式（OpenAI, DeepSeek, Moonshot, Qwen 等），未被其他适配器处理的提供商都按此格式调用
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class OpenAICompatibleAdapter implements AIProviderAdapter {
+
+    private static final double TEMPERATURE = 0.7;
+
+    private final AIHttpClients httpClients;
+
+    public OpenAICompatibleAdapter(AIHttpClients httpClients) {
+        this.httpClients = httpClients;
+    }
+
+    @Override
+    public boolean supports(String provider) {
+        return true;
+    }
+
+    @Override
+    public String defaultModel(String provider) {
+        return "gpt-3.5-turbo";
+    }
+
+    @Override
+    public String defaultEmbeddingModel(String provider) {
+        return "qwen".equals(provider) ? "text-embedding-v3" : "text-embedding-3-small";
+    }
+
+    /**
+     * Authorization 头使用的令牌，默认即 API Key
+     */
+    protected String bearerToken(String apiKey) {
+        return apiKey;
+    }
+
+    @Override
+    public ChatCompletion chat(ChatRequest request) {
+        ProviderEndpoint endpoint = request.endpoint();
+        Completion completion = ProviderHttp.post(httpClients.restTemplate(endpoint.provider()), endpoint.apiUrl(),
+            requestBody(request, false), bearerToken(endpoint.apiKey()), false, OpenAICompatibleAdapter::readCompletion);
+        if (completion.content == null) {
+            throw new ProviderResponseException(completion.error != null ? "AI 返回错误: " + completion.error : "AI 响应格式错误");
+        }
+        return new ChatCompletion(completion.content, completion.finishReason);
+    }
+
+    /**
+     * 逐条读取 SSE 中的 choices[0].delta.content
+     */
+    @Override
+    public void stream(ChatRequest request, Consumer<String> onToken) {
+        ProviderEndpoint endpoint = request.endpoint();
+        ProviderHttp.post(httpClients.restTemplate(endpoint.provider()), endpoint.apiUrl(), requestBody(request, true),
+            bearerToken(endpoint.apiKey()), true, body -> {
+                ProviderHttp.readServerSentEvents(body, data -> {
+                    Completion delta = readCompletion(new JsonStreamReader(data));
+                    if (delta.error != null) {
+                        throw new ProviderResponseException("AI 返回错误: " + delta.error);
+                    }
+                    ProviderHttp.emit(delta.content, onToken);
+                });
+                return null;
+            });
+    }
+
+    /**
+     * Embedding 接口地址由对话接口地址推导
+     */
+    @Override
+    public List<float[]> embed(EmbeddingRequest request) {
+        ProviderEndpoint endpoint = request.endpoint();
+        String url = endpoint.apiUrl().replace("/chat/completions", "/embeddings");
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("model").value(request.model())
+            .name("input").beginArray();
+        for (String text : request.texts()) {
+            json.value(text);
+        }
+        byte[] body = json.endArray().endObject().toBytes();
+
+        int count = request.texts().size();
+        return ProviderHttp.post(httpClients.restTemplate(endpoint.provider()), url, body,
+            bearerToken(endpoint.apiKey()), false, in -> readEmbeddings(new JsonStreamReader(in), count));
+    }
+
+    private byte[] requestBody(ChatRequest request, boolean stream) {
+        JsonWriter json = new JsonWriter().beginObject()
+            .name("model").value(request.endpoint().modelOr(defaultModel(request.endpoint().provider())))
+            .name("messages").beginArray();
+        for (ChatMessage message : request.messages()) {
+            json.beginObject().name("role").value(message.role()).name("content").value(message.content()).endObject();
+        }
+        json.endArray()
+            .name("max_tokens").value(request.maxTokens())
+            .name("temperature").value(TEMPERATURE);
+        if (stream) {
+            json.name("stream").value(true);
+        }
+        return json.endObject().toBytes();
+    }
+
+    /**
+     * 对话结果中需要的字段；非流式读取 message，流式读取 delta
+     */
+    private static final class Completion {
+        String content;
+        String finishReason;
+        String error;
+    }
+
+    private static Completion readCompletion(Reader body) throws IOException {
+        return readCompletion(new JsonStreamReader(body));
+    }
+
+    private static Completion readCompletion(JsonStreamReader json) throws IOException {
+        Completion completion = new Completion();
+        json.readObject(field -> {
+            switch (field) {
+                case "choices" -> json.readArray(index -> {
+                    if (index > 0) {
+                        json.skipValue();
+                        return;
+                    }
+                    json.readObject(choiceField -> {
+                        switch (choiceField) {
+                            case "message", "delta" -> json.readObject(messageField -> {
+                                if ("content".equals(messageField)) {
+                                    completion.content = json.readString();
+                                } else {
+                                    json.skipValue();
+                                }
+                            });
+                            case "finish_reason" -> completion.finishReason = json.readString();
+                            default -> json.skipValue();
+                        }
+                    });
+                });
+                case "error" -> completion.error = ProviderHttp.errorMessage(json);
+                default -> json.skipValue();
+            }
+        });
+        return completion;
+    }
+
+    /**
+     * data[*]：按 index 放回对应位置，缺少 index 时按出现顺序
+     */
+    private static List<float[]> readEmbeddings(JsonStreamReader json, int count) throws IOException {
+        float[][] vectors = new float[count][];
+        String[] error = {null};
+        json.readObject(field -> {
+            switch (field) {
+                case "data" -> json.readArray(i -> {
+                    int[] position = {i};
+                    float[][] vector = {null};
+                    json.readObject(itemField -> {
+                        switch (itemField) {
+                            case "index" -> position[0] = (int) json.readDouble();
+                            case "embedding" -> vector[0] = json.readFloatArray();
+                            default -> json.skipValue();
+                        }
+                    });
+                    if (position[0] >= 0 && position[0] < count) {
+                        vectors[position[0]] = vector[0];
+                    }
+                });
+                case "error" -> error[0] = ProviderHttp.errorMessage(json);
+                default -> json.skipValue();
+            }
+        });
+        if (error[0] != null) {
+            throw new ProviderResponseException("AI 返回错误: " + error[0]);
+        }
+        return ProviderHttp.vectors(vectors);
+    }
+}
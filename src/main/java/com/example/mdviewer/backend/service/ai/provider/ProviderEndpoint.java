@@ -0,0 +1,14 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+/**
+ * 提供商的连接信息；model 为空时使用适配器的默认模型
+ */
+public record ProviderEndpoint(String provider, String apiKey, String apiUrl, String model) {
+
+    /**
+     * 配置的模型，未配置时取 fallback
+     */
+    public String modelOr(String fallback) {
+        return model != null && !model.isBlank() ? model : fallback;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 适配器共用的 HTTP 调用：请求体直接写入字节，响应体以字符流交给调用方增量解析
+ */
+final class ProviderHttp {
+
+    /**
+     * 读取响应体；JSON 格式错误会转换为 ProviderResponseException
+     */
+    @FunctionalInterface
+    interface BodyReader<T> {
+        T read(Reader body) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SseHandler {
+        void data(String data) throws IOException;
+    }
+
+    private ProviderHttp() {
+    }
+
+    /**
+     * 发送 JSON 请求；bearerToken 为空时不带 Authorization 头
+     */
+    static <T> T post(RestTemplate restTemplate, String url, byte[] body, String bearerToken, boolean eventStream,
+                      BodyReader<T> reader) {
+        return restTemplate.execute(url, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (eventStream) {
+                request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+            }
+            if (bearerToken != null) {
+                request.getHeaders().setBearerAuth(bearerToken);
+            }
+            request.getHeaders().setContentLength(body.length);
+            request.getBody().write(body);
+        }, response -> {
+            try (Reader in = new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)) {
+                return reader.read(in);
+            } catch (JsonStreamReader.MalformedJsonException e) {
+                throw new ProviderResponseException("AI 响应格式错误: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * 逐行读取 SSE 响应，把每个 data 字段交给回调，遇到 [DONE] 结束
+     */
+    static void readServerSentEvents(Reader body, SseHandler onData) throws IOException {
+        BufferedReader reader = new BufferedReader(body);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) {
+                return;
+            }
+            if (!data.isEmpty()) {
+                onData.data(data);
+            }
+        }
+    }
+
+    /**
+     * 解析错误响应中的 error.message（OpenAI 与 Gemini 格式相同），没有时返回 null
+     */
+    static String errorMessage(JsonStreamReader json) throws IOException {
+        if (json.peek() == '"') {
+            return json.readString();
+        }
+        String[] message = {null};
+        json.readObject(field -> {
+            if ("message".equals(field)) {
+                message[0] = json.readString();
+            } else {
+                json.skipValue();
+            }
+        });
+        return message[0];
+    }
+
+    /**
+     * 检查每条文本都有对应的向量
+     */
+    static List<float[]> vectors(float[][] vectors) {
+        for (float[] vector : vectors) {
+            if (vector == null) {
+                throw new ProviderResponseException("Embedding 响应格式错误");
+            }
+        }
+        return Arrays.asList(vectors);
+    }
+
+    static void emit(String text, Consumer<String> onToken) {
+        if (text != null && !text.isEmpty()) {
+            onToken.accept(text);
+        }
+    }
+}
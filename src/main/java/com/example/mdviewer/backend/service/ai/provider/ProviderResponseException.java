@@ -0,0 +1,15 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+/**
+ * 提供商返回了无法使用的响应（格式错误、缺少内容或响应体中的错误信息），不会重试
+ */
+public class ProviderResponseException extends RuntimeException {
+
+    public ProviderResponseException(String message) {
+        super(message);
+    }
+
+    public ProviderResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
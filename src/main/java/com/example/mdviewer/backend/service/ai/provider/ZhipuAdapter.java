@@ -0,0 +1,45 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import com.example.mdviewer.backend.service.ai.AIHttpClients;
+import com.example.mdviewer.backend.service.ai.ZhipuTokenCache;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 智谱 AI (GLM)：接口为 OpenAI 兼容格式，使用 JWT 认证
+ */
+@Component
+@Order(0)
+public class ZhipuAdapter extends OpenAICompatibleAdapter {
+
+    private final ZhipuTokenCache zhipuTokens;
+
+    public ZhipuAdapter(AIHttpClients httpClients, ZhipuTokenCache zhipuTokens) {
+        super(httpClients);
+        this.zhipuTokens = zhipuTokens;
+    }
+
+    @Override
+    public boolean supports(String provider) {
+        return "zhipu".equals(provider);
+    }
+
+    @Override
+    public String defaultModel(String provider) {
+        return "glm-4-flash";
+    }
+
+    @Override
+    public String defaultEmbeddingModel(String provider) {
+        return "embedding-3";
+    }
+
+    @Override
+    protected String bearerToken(String apiKey) {
+        String token = zhipuTokens.token(apiKey);
+        if (token == null) {
+            throw new ProviderResponseException("智谱 API Key 格式错误，应为 {id}.{secret} 格式");
+        }
+        return token;
+    }
+}
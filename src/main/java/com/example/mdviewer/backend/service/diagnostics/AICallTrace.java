@@ -0,0 +1,46 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+/**
+ * 一次提供商调用的跟踪；结束时提交 JFR 事件，耗时超过阈值时输出日志
+ */
+public final class AICallTrace {
+
+    private final OperationTracer tracer;
+    private final AIProviderCallEvent event = new AIProviderCallEvent();
+    private final String provider;
+    private final String model;
+    private final String operation;
+    private final int promptTokens;
+    private final long start;
+
+    AICallTrace(OperationTracer tracer, String provider, String model, String operation, int promptTokens) {
+        this.tracer = tracer;
+        this.provider = provider;
+        this.model = model;
+        this.operation = operation;
+        this.promptTokens = promptTokens;
+        event.begin();
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * 结束跟踪，返回调用耗时（纳秒）
+     */
+    public long finish(String outcome) {
+        long nanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.provider = provider;
+            event.model = model;
+            event.operation = operation;
+            event.outcome = outcome;
+            event.promptTokens = promptTokens;
+            event.commit();
+        }
+        if (tracer.slowAi(nanos)) {
+            tracer.logSlow("AI " + operation, nanos, "provider=" + provider + " model=" + model
+                + " promptTokens=" + promptTokens + " outcome=" + outcome);
+        }
+        return nanos;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一次 AI 提供商调用（对冲与重试中的每一次各记一个事件），持续时间即调用耗时
+ */
+@Name("com.example.mdviewer.AIProviderCall")
+@Label("AI 提供商调用")
+@Category({"Markdown Viewer", "AI"})
+@StackTrace(false)
+class AIProviderCallEvent extends Event {
+
+    @Label("提供商")
+    String provider;
+
+    @Label("模型")
+    String model;
+
+    @Label("操作")
+    String operation;
+
+    @Label("结果")
+    String outcome;
+
+    @Label("提示词 Token 数（估算）")
+    int promptTokens;
+}
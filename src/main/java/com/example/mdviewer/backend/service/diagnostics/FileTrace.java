@@ -0,0 +1,80 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * 一次文件操作的跟踪；关闭时结束 JFR 事件，耗时超过阈值时输出日志
+ * 操作抛出异常而未调用 {@link #succeeded()} 时记为失败
+ */
+public final class FileTrace implements AutoCloseable {
+
+    private final OperationTracer tracer;
+    private final NotesFileEvent event = new NotesFileEvent();
+    private final String operation;
+    private final Path root;
+    private final Path path;
+    private final Function<Path, String> ids;
+    private final long start;
+    private long bytes;
+    private long entries;
+    private boolean succeeded;
+
+    FileTrace(OperationTracer tracer, String operation, Path root, Path path, Function<Path, String> ids) {
+        this.tracer = tracer;
+        this.operation = operation;
+        this.root = root;
+        this.path = path;
+        this.ids = ids;
+        event.begin();
+        this.start = System.nanoTime();
+    }
+
+    public void bytes(long bytes) {
+        this.bytes += bytes;
+    }
+
+    /**
+     * 遍历类操作每访问一个条目调用一次
+     */
+    public void entry() {
+        entries++;
+    }
+
+    public void entries(long entries) {
+        this.entries += entries;
+    }
+
+    public void succeeded() {
+        succeeded = true;
+    }
+
+    @Override
+    public void close() {
+        long nanos = System.nanoTime() - start;
+        event.end();
+        boolean commit = event.shouldCommit();
+        boolean slow = tracer.slowFile(nanos);
+        if (!commit && !slow) {
+            return;
+        }
+        Path relative = path.startsWith(root) ? root.relativize(path) : path;
+        String relativePath = relative.toString().replace('\\', '/');
+        int depth = relativePath.isEmpty() ? 0 : relative.getNameCount();
+        if (commit) {
+            event.operation = operation;
+            event.noteId = relativePath.isEmpty() ? null : ids.apply(relative);
+            event.path = relativePath;
+            event.pathDepth = depth;
+            event.bytes = bytes;
+            event.entries = entries;
+            event.failed = !succeeded;
+            event.commit();
+        }
+        if (slow) {
+            tracer.logSlow("文件 " + operation, nanos, "path=/" + relativePath + " depth=" + depth
+                + (bytes > 0 ? " bytes=" + bytes : "") + (entries > 0 ? " entries=" + entries : "")
+                + (succeeded ? "" : " 失败"));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import com.example.mdviewer.backend.dto.JfrRecordingDto;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 按需启停 JFR 录制
+ * 同一时间只有一个录制；录制到时或停止时写入配置目录下的 .jfr 文件，可用 JDK Mission Control 打开。
+ * 未录制时自定义事件不提交，运行时没有额外开销。
+ * 环境变量、系统属性和 JVM 启动参数中可能有 API Key，对应的事件不录制
+ */
+@Service
+public class JfrRecordingService {
+
+    private static final String PREFIX = "mdviewer-";
+    private static final String EXTENSION = ".jfr";
+    // 时间戳后带随机后缀，同一秒内开始的录制不会互相覆盖
+    private static final Pattern FILE_NAME = Pattern.compile("mdviewer-\\d{8}-\\d{6}(-[0-9a-f]{8})?\\.jfr");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final List<String> SENSITIVE_EVENTS = List.of(
+        "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    private final DiagnosticsProperties.Jfr properties;
+    private Recording recording;
+    private String recordingSettings;
+
+    public JfrRecordingService(DiagnosticsProperties properties) {
+        this.properties = properties.getJfr();
+    }
+
+    /**
+     * 开始录制
+     *
+     * @param settings JFR 配置名（default、profile），为空时使用配置的默认值
+     * @param duration 录制时长，为空或超过上限时使用 diagnostics.jfr.max-duration
+     */
+    public synchronized JfrRecordingDto start(String settings, Duration duration) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "已有录制在进行中");
+        }
+        closeRecording();
+        pruneRecordings();
+        String settingsName = settings == null || settings.isBlank() ? properties.getSettings() : settings.trim();
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settingsName);
+        } catch (IOException | ParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "未知的 JFR 配置: " + settingsName);
+        }
+        Duration maxDuration = properties.getMaxDuration();
+        Duration recordingDuration = duration == null || duration.isNegative() || duration.isZero()
+            || duration.compareTo(maxDuration) > 0 ? maxDuration : duration;
+        try {
+            Path directory = Files.createDirectories(properties.getDirectory());
+            Map<String, String> eventSettings = new HashMap<>(configuration.getSettings());
+            for (String event : SENSITIVE_EVENTS) {
+                eventSettings.put(event + "#enabled", "false");
+            }
+            Recording next = new Recording(eventSettings);
+            next.setName("mdviewer");
+            next.setToDisk(true);
+            next.setMaxSize(properties.getMaxSize());
+            next.setDuration(recordingDuration);
+            // 设置了目标文件的录制在到时或停止时自动写入
+            String suffix = UUID.randomUUID().toString().substring(0, 8);
+            next.setDestination(directory.resolve(PREFIX + LocalDateTime.now().format(FILE_TIME) + "-" + suffix + EXTENSION));
+            next.enable(NotesFileEvent.class);
+            next.enable(AIProviderCallEvent.class);
+            next.start();
+            recording = next;
+            recordingSettings = settingsName;
+            return toDto(next);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "启动 JFR 录制失败", e);
+        }
+    }
+
+    /**
+     * 停止录制并返回写入的文件；录制已到时自动结束的同样返回其文件
+     */
+    public synchronized JfrRecordingDto stop() {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "没有进行中的录制");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        JfrRecordingDto result = toDto(recording);
+        closeRecording();
+        pruneRecordings();
+        return result;
+    }
+
+    /**
+     * 当前录制的状态，没有录制时返回 null
+     */
+    public synchronized JfrRecordingDto current() {
+        return recording == null ? null : toDto(recording);
+    }
+
+    /**
+     * 已保存的录制文件，最近的在前
+     */
+    public List<JfrRecordingDto> recordings() {
+        List<JfrRecordingDto> result = new ArrayList<>();
+        for (Path file : recordingFiles()) {
+            result.add(new JfrRecordingDto(file.getFileName().toString(), "stopped", null, null,
+                file.toString(), sizeOf(file)));
+        }
+        return result;
+    }
+
+    /**
+     * 按文件名取录制文件，只接受本服务生成的文件名
+     */
+    public Path recordingFile(String name) {
+        if (name == null || !FILE_NAME.matcher(name).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "非法的录制文件名");
+        }
+        Path file = properties.getDirectory().resolve(name);
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "录制文件不存在");
+        }
+        return file;
+    }
+
+    private JfrRecordingDto toDto(Recording current) {
+        Path file = current.getDestination();
+        Instant startedAt = current.getStartTime();
+        String state = current.getState() == RecordingState.RUNNING ? "running" : "stopped";
+        long size = state.equals("running") ? current.getSize() : sizeOf(file);
+        return new JfrRecordingDto(file.getFileName().toString(), state, recordingSettings,
+            startedAt == null ? null : startedAt.toString(), file.toString(), size);
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            recordingSettings = null;
+        }
+    }
+
+    /**
+     * 只保留最近的 max-files 个录制文件
+     * 开始录制时和后台定时执行，到时自动结束或服务异常退出时留下的文件同样会被清理
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 600_000)
+    public void pruneRecordings() {
+        List<Path> files;
+        try {
+            files = recordingFiles();
+        } catch (ResponseStatusException e) {
+            System.err.println("清理 JFR 录制文件失败: " + e.getMessage());
+            return;
+        }
+        for (int i = Math.max(1, properties.getMaxFiles()); i < files.size(); i++) {
+            try {
+                Files.deleteIfExists(files.get(i));
+            } catch (IOException e) {
+                System.err.println("清理 JFR 录制文件失败: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> recordingFiles() {
+        Path directory = properties.getDirectory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + EXTENSION)) {
+            for (Path file : stream) {
+                if (FILE_NAME.matcher(file.getFileName().toString()).matches()) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "读取录制文件失败", e);
+        }
+        // 文件名中的时间戳按字典序即按时间排序
+        files.sort(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed());
+        return files;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
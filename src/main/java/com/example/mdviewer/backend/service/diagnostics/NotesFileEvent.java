@@ -0,0 +1,43 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 笔记目录上的一次文件操作，持续时间即操作耗时
+ * 没有进行中的录制时 begin/commit 几乎没有开销
+ */
+@Name("com.example.mdviewer.NotesFile")
+@Label("笔记文件操作")
+@Category({"Markdown Viewer", "Notes"})
+@StackTrace(false)
+class NotesFileEvent extends Event {
+
+    @Label("操作")
+    @Description("walk、list、read、write、move、delete、mkdirs")
+    String operation;
+
+    @Label("笔记 ID")
+    String noteId;
+
+    @Label("相对路径")
+    String path;
+
+    @Label("路径深度")
+    int pathDepth;
+
+    @Label("字节数")
+    @DataAmount
+    long bytes;
+
+    @Label("访问条目数")
+    long entries;
+
+    @Label("失败")
+    boolean failed;
+}
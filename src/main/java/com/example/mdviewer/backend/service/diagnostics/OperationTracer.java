@@ -0,0 +1,56 @@
+package com.example.mdviewer.backend.service.diagnostics;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/**
+ * 文件操作与 AI 提供商调用的跟踪入口
+ * 每次操作生成一个 JFR 事件（仅在有录制进行时提交），超过阈值的操作输出慢操作日志。
+ * 未录制且未超阈值时只有两次 System.nanoTime 的开销
+ */
+@Component
+public class OperationTracer {
+
+    private final long slowFileNanos;
+    private final long slowAiNanos;
+
+    public OperationTracer(DiagnosticsProperties properties) {
+        this.slowFileNanos = thresholdNanos(properties.getSlowFileThreshold().toNanos());
+        this.slowAiNanos = thresholdNanos(properties.getSlowAiThreshold().toNanos());
+    }
+
+    /**
+     * 开始跟踪一次文件操作，配合 try-with-resources 使用
+     *
+     * @param ids 由相对路径计算笔记 ID，只在需要提交事件或输出日志时调用
+     */
+    public FileTrace file(String operation, Path root, Path path, Function<Path, String> ids) {
+        return new FileTrace(this, operation, root, path, ids);
+    }
+
+    /**
+     * 开始跟踪一次提供商调用，调用结束后须调用 {@link AICallTrace#finish(String)}
+     */
+    public AICallTrace aiCall(String provider, String model, String operation, int promptTokens) {
+        return new AICallTrace(this, provider, model, operation, promptTokens);
+    }
+
+    boolean slowFile(long nanos) {
+        return nanos >= slowFileNanos;
+    }
+
+    boolean slowAi(long nanos) {
+        return nanos >= slowAiNanos;
+    }
+
+    void logSlow(String kind, long nanos, String detail) {
+        System.err.println("慢操作: " + kind + " 耗时 " + nanos / 1_000_000 + " ms " + detail);
+    }
+
+    private static long thresholdNanos(long nanos) {
+        return nanos <= 0 ? Long.MAX_VALUE : nanos;
+    }
+}
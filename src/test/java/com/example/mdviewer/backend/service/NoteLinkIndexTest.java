@@ -0,0 +1,156 @@
+package com.example.mdviewer.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NoteLinkIndexTest {
+
+    @TempDir
+    Path root;
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private final VaultScanner scanner = new VaultScanner(2, file -> file.toString().endsWith(".md"));
+    private NoteLinkIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NoteLinkIndex(root, file -> {
+            reads.incrementAndGet();
+            return Files.readString(file);
+        });
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private List<VaultScanner.Note> scan() throws IOException {
+        return scanner.scan(root).root().allNotes();
+    }
+
+    @Test
+    void findsNotesReferencingRenamedNote() throws IOException {
+        write("docs/target.md", "# Target");
+        write("a.md", "[t](docs/target.md)");
+        write("sub/b.md", "[[Target#Intro]]");
+        write("sub/c.md", "[t](../docs/target.md) [[sub/Other]]");
+        write("d.md", "[[docs/target|t]]");
+        write("e.md", "nothing here");
+        index.refresh(scan());
+
+        NoteLinks.Rename rename = new NoteLinks.Rename("docs/target.md", "docs/renamed.md", false, index.uniqueName("docs/target.md"));
+        assertEquals(Set.of("a.md", "d.md", "sub/b.md", "sub/c.md"), index.referencing(rename));
+        // 标题不唯一时 [[Target]] 不会被改写，无需读取
+        NoteLinks.Rename pathOnly = new NoteLinks.Rename("docs/target.md", "docs/renamed.md", false, false);
+        assertEquals(Set.of("a.md", "d.md", "sub/c.md"), index.referencing(pathOnly));
+    }
+
+    @Test
+    void findsNotesReferencingContentOfRenamedFolder() throws IOException {
+        write("docs/a.md", "# A");
+        write("docs/sub/b.md", "# B");
+        write("x.md", "[a](docs/a.md)");
+        write("y.md", "[[docs/sub/b]]");
+        write("z.md", "[other](docsx/a.md)");
+        index.refresh(scan());
+
+        assertEquals(Set.of("x.md", "y.md"), index.referencing(new NoteLinks.Rename("docs", "guide", true, false)));
+    }
+
+    @Test
+    void refreshOnlyRereadsChangedNotes() throws IOException {
+        write("target.md", "# Target");
+        write("a.md", "[t](target.md)");
+        write("b.md", "no links");
+        index.refresh(scan());
+        assertEquals(3, reads.get());
+
+        index.refresh(scan());
+        assertEquals(3, reads.get());
+
+        Path b = root.resolve("b.md");
+        Files.writeString(b, "now [t](target.md)");
+        Files.setLastModifiedTime(b, FileTime.fromMillis(Files.getLastModifiedTime(b).toMillis() + 2000));
+        Files.delete(root.resolve("a.md"));
+        index.refresh(scan());
+        assertEquals(4, reads.get());
+
+        NoteLinks.Rename rename = new NoteLinks.Rename("target.md", "renamed.md", false, true);
+        assertEquals(Set.of("b.md"), index.referencing(rename));
+    }
+
+    @Test
+    void updateRereadsOnlyMarkedNotesUntilInvalidated() throws IOException {
+        write("target.md", "# Target");
+        write("a.md", "[t](target.md)");
+        write("b.md", "no links");
+        AtomicInteger scans = new AtomicInteger();
+        Supplier<List<VaultScanner.Note>> scan = () -> {
+            scans.incrementAndGet();
+            try {
+                return scan();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        // 尚未建立时标记无效，第一次使用全量扫描
+        index.changed(root.resolve("a.md"));
+        index.update(scan);
+        assertEquals(1, scans.get());
+        assertEquals(3, reads.get());
+
+        write("b.md", "now [t](target.md)");
+        index.changed(root.resolve("b.md"));
+        Files.move(root.resolve("a.md"), root.resolve("moved.md"));
+        index.changed(root.resolve("a.md"));
+        index.changed(root.resolve("moved.md"));
+        index.update(scan);
+        assertEquals(1, scans.get());
+        assertEquals(5, reads.get());
+        NoteLinks.Rename rename = new NoteLinks.Rename("target.md", "renamed.md", false, true);
+        assertEquals(Set.of("b.md", "moved.md"), index.referencing(rename));
+
+        // 没有标记的修改要等到全量扫描才会发现
+        write("c.md", "[t](target.md)");
+        index.update(scan);
+        assertEquals(Set.of("b.md", "moved.md"), index.referencing(rename));
+
+        index.invalidate();
+        index.update(scan);
+        assertEquals(2, scans.get());
+        assertEquals(6, reads.get());
+        assertEquals(Set.of("b.md", "c.md", "moved.md"), index.referencing(rename));
+    }
+
+    @Test
+    void tracksWhetherTitlesAreUnique() throws IOException {
+        write("one/dup.md", "");
+        write("two/Dup.md", "");
+        write("single.md", "");
+        index.refresh(scan());
+
+        assertFalse(index.uniqueName("one/dup.md"));
+        assertTrue(index.uniqueName("single.md"));
+
+        Files.delete(root.resolve("two/Dup.md"));
+        index.refresh(scan());
+        assertTrue(index.uniqueName("one/dup.md"));
+    }
+}
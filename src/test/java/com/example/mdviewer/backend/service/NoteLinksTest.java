@@ -0,0 +1,97 @@
+package com.example.mdviewer.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NoteLinksTest {
+
+    private static NoteLinks.Rename note(String from, String to, boolean bareWiki) {
+        return new NoteLinks.Rename(from, to, false, bareWiki);
+    }
+
+    private static NoteLinks.Rename folder(String from, String to) {
+        return new NoteLinks.Rename(from, to, true, false);
+    }
+
+    @Test
+    void rewritesRelativeLinksAndKeepsAnchors() {
+        String content = "See [b](b.md#intro) and ![img](b.md?raw).\n\n[ref]: ./b.md\n";
+        String rewritten = NoteLinks.rewrite(content, "a/x.md", "a/x.md", note("a/b.md", "a/c.md", false));
+        assertEquals("See [b](c.md#intro) and ![img](c.md?raw).\n\n[ref]: c.md\n", rewritten);
+    }
+
+    @Test
+    void rewritesRelativeLinksAcrossFolders() {
+        String content = "[n](../notes/n.md) [root](/notes/n.md)";
+        String rewritten = NoteLinks.rewrite(content, "a/x.md", "a/x.md", note("notes/n.md", "archive/n.md", false));
+        assertEquals("[n](../archive/n.md) [root](/archive/n.md)", rewritten);
+    }
+
+    @Test
+    void encodesSpacesUnlessLinkIsBracketed() {
+        String content = "[plain](b.md) [angle](<b.md>)";
+        String rewritten = NoteLinks.rewrite(content, "x.md", "x.md", note("b.md", "new name.md", false));
+        assertEquals("[plain](new%20name.md) [angle](<new name.md>)", rewritten);
+    }
+
+    @Test
+    void rewritesWikiLinksKeepingHeadingAndAlias() {
+        String content = "[[B]] [[b#Heading|alias]] [[docs/B]] [[docs/B.md]]";
+        String rewritten = NoteLinks.rewrite(content, "x.md", "x.md", note("docs/B.md", "docs/C.md", true));
+        assertEquals("[[C]] [[C#Heading|alias]] [[docs/C]] [[docs/C.md]]", rewritten);
+    }
+
+    @Test
+    void leavesBareWikiLinksWhenTitleIsNotUnique() {
+        String content = "[[B]] [[docs/B]]";
+        String rewritten = NoteLinks.rewrite(content, "x.md", "x.md", note("docs/B.md", "docs/C.md", false));
+        assertEquals("[[B]] [[docs/C]]", rewritten);
+    }
+
+    @Test
+    void leavesUnrelatedLinksAndCodeUnchanged() {
+        String content = """
+                [other](other.md) [web](https://example.com/b.md) [[Other]]
+                `[b](b.md)` and `[[B]]`
+
+                ```
+                [b](b.md) [[B]]
+                ```
+                """;
+        assertNull(NoteLinks.rewrite(content, "x.md", "x.md", note("b.md", "c.md", true)));
+    }
+
+    @Test
+    void rewritesLinksIntoRenamedFolder() {
+        String content = "[a](docs/a.md) [deep](docs/sub/b.md#top) [[docs/sub/b]] [out](docsx/a.md)";
+        String rewritten = NoteLinks.rewrite(content, "x.md", "x.md", folder("docs", "guide"));
+        assertEquals("[a](guide/a.md) [deep](guide/sub/b.md#top) [[guide/sub/b]] [out](docsx/a.md)", rewritten);
+    }
+
+    @Test
+    void keepsLinksOfNotesMovedWithTheFolder() {
+        // 随文件夹移动的笔记之间、以及指向文件夹外的相对链接仍然有效
+        String content = "[sibling](b.md) [outside](../x.md)";
+        assertNull(NoteLinks.rewrite(content, "docs/a.md", "guide/a.md", folder("docs", "guide")));
+    }
+
+    @Test
+    void resolvesLinkTargets() {
+        assertEquals("a/b.md", NoteLinks.resolve("a/x.md", "b.md#intro"));
+        assertEquals("b.md", NoteLinks.resolve("a/x.md", "../b.md"));
+        assertEquals("b.md", NoteLinks.resolve("a/x.md", "/b.md"));
+        assertEquals("a/new name.md", NoteLinks.resolve("a/x.md", "new%20name.md"));
+        assertNull(NoteLinks.resolve("x.md", "../outside.md"));
+        assertNull(NoteLinks.resolve("x.md", "#heading"));
+    }
+
+    @Test
+    void indexKeysCoverRelativeAndWikiLinks() {
+        Set<String> keys = NoteLinks.keys("a/x.md", "[b](b.md) [[Docs/Guide.md|g]] `[[Code]]`");
+        assertEquals(Set.of("a/b.md", "[[docs/guide"), keys);
+    }
+}
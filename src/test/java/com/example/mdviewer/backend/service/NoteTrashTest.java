@@ -0,0 +1,114 @@
+package com.example.mdviewer.backend.service;
+
+import com.example.mdviewer.backend.config.DiagnosticsProperties;
+import com.example.mdviewer.backend.service.diagnostics.OperationTracer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NoteTrashTest {
+
+    @TempDir
+    Path root;
+
+    private NoteTrash trash;
+
+    @BeforeEach
+    void setUp() {
+        trash = new NoteTrash(root, new OperationTracer(new DiagnosticsProperties()), Path::toString);
+    }
+
+    private Path write(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    @Test
+    void movesNotesAndFoldersInAndListsNewestFirst() throws IOException {
+        Path note = write("docs/a.md", "A");
+        write("old/x.md", "X");
+        write("old/sub/y.md", "Y");
+
+        NoteTrash.Item first = trash.moveIn(note);
+        NoteTrash.Item second = trash.moveIn(root.resolve("old"));
+
+        assertFalse(Files.exists(note));
+        assertFalse(Files.exists(root.resolve("old")));
+        assertEquals("docs/a.md", first.path());
+        assertFalse(first.folder());
+        assertTrue(second.folder());
+        List<NoteTrash.Item> items = trash.list();
+        assertEquals(2, items.size());
+        assertTrue(!items.get(0).deletedAt().isBefore(items.get(1).deletedAt()));
+        assertEquals("Y", Files.readString(trash.get(second.id()).content().resolve("sub/y.md")));
+        assertNull(trash.get("not-a-uuid"));
+        assertNull(trash.get("../docs"));
+    }
+
+    @Test
+    void restoresToTheOriginalPath() throws IOException {
+        NoteTrash.Item note = trash.moveIn(write("docs/a.md", "A"));
+        write("old/x.md", "X");
+        NoteTrash.Item folder = trash.moveIn(root.resolve("old"));
+        Files.delete(root.resolve("docs"));
+
+        trash.restore(note, root.resolve(note.path()));
+        trash.restore(folder, root.resolve(folder.path()));
+
+        assertEquals("A", Files.readString(root.resolve("docs/a.md")));
+        assertEquals("X", Files.readString(root.resolve("old/x.md")));
+        assertTrue(trash.list().isEmpty());
+        assertNull(trash.get(note.id()));
+    }
+
+    @Test
+    void refusesToOverwriteWhatAppearedAtTheOriginalPath() throws IOException {
+        NoteTrash.Item note = trash.moveIn(write("a.md", "deleted"));
+        write("a.md", "recreated");
+        NoteTrash.Item folder = trash.moveIn(write("old/x.md", "X").getParent());
+        write("old/new.md", "new");
+
+        assertThrows(FileAlreadyExistsException.class, () -> trash.restore(note, root.resolve("a.md")));
+        assertThrows(FileAlreadyExistsException.class, () -> trash.restore(folder, root.resolve("old")));
+
+        assertEquals("recreated", Files.readString(root.resolve("a.md")));
+        assertEquals(List.of("new.md"), Files.list(root.resolve("old")).map(p -> p.getFileName().toString()).toList());
+        // 条目仍留在回收站，可以稍后恢复
+        assertEquals("deleted", Files.readString(trash.get(note.id()).content()));
+        assertEquals(2, trash.list().size());
+    }
+
+    @Test
+    void deletesAndPurgesExpiredItems() throws IOException {
+        NoteTrash.Item a = trash.moveIn(write("a.md", "A"));
+        NoteTrash.Item b = trash.moveIn(write("b.md", "B"));
+        write("c/x.md", "X");
+        trash.moveIn(root.resolve("c"));
+
+        trash.delete(a);
+        assertNull(trash.get(a.id()));
+        assertEquals(2, trash.list().size());
+
+        assertEquals(0, trash.purge(b.deletedAt(), 2));
+        assertEquals(2, trash.purge(Instant.now().plusSeconds(1), 2));
+        assertTrue(trash.list().isEmpty());
+        try (var entries = Files.list(root.resolve(NoteTrash.DIR))) {
+            assertEquals(List.of(".purging"), entries.map(p -> p.getFileName().toString()).toList());
+        }
+        assertTrue(Files.list(root.resolve(NoteTrash.DIR).resolve(".purging")).findAny().isEmpty());
+    }
+}
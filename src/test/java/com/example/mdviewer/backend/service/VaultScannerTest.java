@@ -0,0 +1,117 @@
+package com.example.mdviewer.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VaultScannerTest {
+
+    @TempDir
+    Path root;
+
+    private final VaultScanner scanner = new VaultScanner(4, path -> path.getFileName().toString().endsWith(".md"));
+
+    private Path write(String path, String content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, content);
+    }
+
+    private List<String> names(List<VaultScanner.Note> notes) {
+        return notes.stream().map(note -> root.relativize(note.path()).toString().replace('\\', '/')).toList();
+    }
+
+    @Test
+    void buildsASortedTreeOfNotesAndSkipsHiddenEntries() throws IOException {
+        write("b.md", "B");
+        write("A.md", "A");
+        write("image.png", "png");
+        write(".hidden.md", "H");
+        write(".mdviewer-backups/old.md", "old");
+        write("Zeta/z.md", "Z");
+        write("alpha/x.md", "X");
+        write("alpha/nested/y.md", "Y");
+        Files.createDirectories(root.resolve("empty"));
+
+        VaultScanner.Result result = scanner.scan(root);
+
+        VaultScanner.Folder tree = result.root();
+        assertEquals(root, tree.path());
+        assertEquals(List.of("A.md", "b.md"), names(tree.notes()));
+        assertEquals(List.of("alpha", "empty", "Zeta"),
+            tree.folders().stream().map(folder -> folder.path().getFileName().toString()).toList());
+        VaultScanner.Folder alpha = tree.folders().get(0);
+        assertEquals(List.of("alpha/x.md"), names(alpha.notes()));
+        assertEquals(List.of("alpha/nested/y.md"), names(alpha.folders().get(0).notes()));
+        assertTrue(tree.folders().get(1).notes().isEmpty());
+        assertEquals(List.of("A.md", "b.md", "alpha/x.md", "alpha/nested/y.md", "Zeta/z.md"), names(tree.allNotes()));
+        // 根目录 8 个条目，alpha 2 个，nested、Zeta 各 1 个；隐藏目录不进入
+        assertEquals(12, result.entries());
+    }
+
+    @Test
+    void recordsSizeAndModificationTimeFromTheScan() throws IOException {
+        Path note = write("docs/note.md", "中文内容");
+        FileTime modified = FileTime.from(Instant.parse("2024-05-01T10:00:00Z"));
+        Files.setLastModifiedTime(note, modified);
+
+        VaultScanner.Note scanned = scanner.scan(root).root().allNotes().get(0);
+
+        assertEquals(note, scanned.path());
+        assertEquals(Files.size(note), scanned.size());
+        assertEquals(modified, scanned.lastModified());
+    }
+
+    @Test
+    void scansWideAndDeepTreesCompletely() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 5; j++) {
+                write("d" + i + "/e" + j + "/n.md", "n");
+            }
+            write("d" + i + "/top.md", "t");
+        }
+
+        VaultScanner.Result result = scanner.scan(root);
+
+        assertEquals(120, result.root().allNotes().size());
+        assertEquals(20 + 20 * 6 + 100, result.entries());
+    }
+
+    @Test
+    void followsLinkedFoldersButNotLinksBackToAnAncestor() throws IOException {
+        Path outside = Files.createTempDirectory("vault-linked");
+        try {
+            Files.writeString(outside.resolve("linked.md"), "L");
+            write("docs/a.md", "A");
+            Files.createSymbolicLink(root.resolve("docs/loop"), root);
+            Files.createSymbolicLink(root.resolve("shared"), outside);
+
+            VaultScanner.Result result = scanner.scan(root);
+
+            assertEquals(List.of("docs/a.md", "shared/linked.md"), names(result.root().allNotes()));
+        } finally {
+            Files.deleteIfExists(outside.resolve("linked.md"));
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    @Test
+    void rejectsAMissingOrNonDirectoryStart() throws IOException {
+        Path file = write("a.md", "A");
+
+        assertThrows(NotDirectoryException.class, () -> scanner.scan(file));
+        assertThrows(NoSuchFileException.class, () -> scanner.scan(root.resolve("missing")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.config.NotesProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AIResponseCacheTest {
+
+    @TempDir
+    Path root;
+
+    private final AIProperties properties = new AIProperties();
+    private final NotesProperties notesProperties = new NotesProperties();
+    private Path cacheDir;
+
+    @BeforeEach
+    void setUp() {
+        notesProperties.setRoot(root);
+        cacheDir = root.resolve(".ai-cache");
+    }
+
+    private AIResponseCache newCache() {
+        return new AIResponseCache(properties, notesProperties);
+    }
+
+    private Path entry(String key) {
+        return cacheDir.resolve(key + ".txt");
+    }
+
+    private void age(Path file, long minutes) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - minutes * 60_000));
+    }
+
+    @Test
+    void readsEntriesBackFromDisk() {
+        AIResponseCache cache = newCache();
+        String key = cache.key("openai", "gpt", "translate", "hello  \r\nworld ");
+        cache.put(key, "你好\n世界");
+
+        AIResponseCache restarted = newCache();
+        assertEquals(key, restarted.key("openai", "gpt", "translate", "hello\nworld"));
+        assertEquals(Optional.of("你好\n世界"), restarted.get(key));
+    }
+
+    @Test
+    void sweepDeletesExpiredEntriesAndStaleTempFiles() throws IOException {
+        AIResponseCache cache = newCache();
+        String live = cache.key("openai", "gpt", "summarize", "live");
+        cache.put(live, "live");
+        Path expired = entry(cache.key("openai", "gpt", "summarize", "expired"));
+        Files.writeString(expired, (System.currentTimeMillis() - 1) + "\nold");
+        Path malformed = entry(cache.key("openai", "gpt", "summarize", "malformed"));
+        Files.writeString(malformed, "not a timestamp");
+        Path staleTemp = cacheDir.resolve("abc123.tmp");
+        Files.writeString(staleTemp, "partial");
+        age(staleTemp, 120);
+        Path writingTemp = cacheDir.resolve("def456.tmp");
+        Files.writeString(writingTemp, "partial");
+
+        cache.sweep();
+
+        assertTrue(Files.exists(entry(live)));
+        assertFalse(Files.exists(expired));
+        assertFalse(Files.exists(malformed));
+        assertFalse(Files.exists(staleTemp));
+        assertTrue(Files.exists(writingTemp));
+        assertEquals(2L, cache.stats().get("diskEvictions"));
+    }
+
+    @Test
+    void sweepEvictsLeastRecentlyUsedEntriesOverTheSizeLimit() throws IOException {
+        AIResponseCache cache = newCache();
+        String a = cache.key("openai", "gpt", "translate", "a");
+        String b = cache.key("openai", "gpt", "translate", "b");
+        String c = cache.key("openai", "gpt", "translate", "c");
+        String value = "x".repeat(1000);
+        cache.put(a, value);
+        cache.put(b, value);
+        cache.put(c, value);
+        age(entry(a), 30);
+        age(entry(b), 20);
+        age(entry(c), 10);
+        long entrySize = Files.size(entry(a));
+
+        // 从磁盘读取 a 会刷新它的使用时间，b 成为最久未使用的条目
+        assertEquals(Optional.of(value), newCache().get(a));
+        properties.getCache().setMaxDiskSize(DataSize.ofBytes(entrySize * 2));
+        cache.sweep();
+
+        assertTrue(Files.exists(entry(a)));
+        assertFalse(Files.exists(entry(b)));
+        assertTrue(Files.exists(entry(c)));
+        assertEquals(entrySize * 2, cache.stats().get("diskBytes"));
+    }
+}
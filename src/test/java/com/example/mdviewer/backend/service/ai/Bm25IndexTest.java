@@ -0,0 +1,87 @@
+package com.example.mdviewer.backend.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private static List<Integer> documents(List<Bm25Index.Hit> hits) {
+        return hits.stream().map(Bm25Index.Hit::document).toList();
+    }
+
+    @Test
+    void tokenizesWordsAndCjkBigrams() {
+        assertEquals(List.of("quick", "brown", "fox", "中文", "文检", "检索", "和", "a1"),
+            Bm25Index.tokenize("The Quick-brown fox, 中文检索 和 a1 x"));
+        assertEquals(List.of(), Bm25Index.tokenize(null));
+    }
+
+    @Test
+    void ranksByTermFrequencyAndDocumentLength() {
+        Bm25Index index = new Bm25Index();
+        int streams = index.add("java streams tutorial");
+        int python = index.add("python tutorial");
+        int concurrency = index.add("java java concurrency");
+
+        assertEquals(List.of(concurrency, streams), documents(index.search("java", 10)));
+        assertEquals(List.of(python, streams), documents(index.search("tutorial", 10)));
+        assertEquals(List.of(concurrency), documents(index.search("Java", 1)));
+        assertTrue(index.search("the of", 10).isEmpty());
+        assertTrue(index.search("rust", 10).isEmpty());
+    }
+
+    @Test
+    void matchesChineseQueriesByBigram() {
+        Bm25Index index = new Bm25Index();
+        index.add("向量检索的实现");
+        int target = index.add("全文检索使用倒排索引");
+
+        List<Bm25Index.Hit> hits = index.search("倒排索引怎么做", 10);
+        assertEquals(target, hits.get(0).document());
+        assertEquals(1, hits.size());
+    }
+
+    @Test
+    void removedDocumentsStopMatchingAndTheirIdsAreReused() {
+        Bm25Index index = new Bm25Index();
+        int a = index.add("alpha shared");
+        int b = index.add("beta shared");
+        int c = index.add("gamma shared");
+
+        index.remove(b);
+        index.remove(b);
+        assertEquals(2, index.size());
+        assertEquals(List.of(a, c), documents(index.search("shared", 10)).stream().sorted().toList());
+        assertTrue(index.search("beta", 10).isEmpty());
+
+        int reused = index.add("delta shared");
+        assertEquals(b, reused);
+        assertEquals(List.of(reused), documents(index.search("delta", 10)));
+        assertTrue(index.search("beta", 10).isEmpty());
+    }
+
+    @Test
+    void idsStayWithinTheDocumentCountAcrossRebuilds() {
+        Bm25Index index = new Bm25Index();
+        List<Integer> ids = new ArrayList<>();
+        for (int round = 0; round < 200; round++) {
+            for (int id : ids) {
+                index.remove(id);
+            }
+            ids.clear();
+            for (int i = 0; i < 50; i++) {
+                int id = index.add("r" + round + "p" + i + " common");
+                assertTrue(id < 50, "编号应被复用: " + id);
+                ids.add(id);
+            }
+        }
+        assertEquals(50, index.size());
+        assertEquals(50, index.search("common", 100).size());
+        assertEquals(1, index.search("r199p7", 100).size());
+    }
+}
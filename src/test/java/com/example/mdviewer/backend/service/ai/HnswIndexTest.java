@@ -0,0 +1,127 @@
+package com.example.mdviewer.backend.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    private final Random random = new Random(42);
+
+    private float[] randomUnitVector() {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private List<float[]> fill(HnswIndex index, int count) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] vector = randomUnitVector();
+            assertEquals(i, index.add(vector));
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    @Test
+    void emptyIndexAndMismatchedDimensions() {
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        assertTrue(index.search(randomUnitVector(), 5, 10).isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> index.add(new float[DIMENSIONS + 1]));
+        index.add(randomUnitVector());
+        assertTrue(index.search(new float[DIMENSIONS - 1], 5, 10).isEmpty());
+    }
+
+    @Test
+    void findsEachStoredVectorAsItsOwnNearestNeighbor() {
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        List<float[]> vectors = fill(index, 500);
+
+        for (int node = 0; node < vectors.size(); node += 7) {
+            List<HnswIndex.Hit> hits = index.search(vectors.get(node), 5, 50);
+            assertEquals(node, hits.get(0).node());
+            assertEquals(1f, hits.get(0).score(), 1e-5f);
+            for (int i = 1; i < hits.size(); i++) {
+                assertTrue(hits.get(i - 1).score() >= hits.get(i).score(), "结果应按相似度降序");
+            }
+        }
+    }
+
+    @Test
+    void recallMatchesBruteForce() {
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        List<float[]> vectors = fill(index, 2000);
+        int k = 10;
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector();
+            Set<Integer> exact = new HashSet<>(IntStream.range(0, vectors.size()).boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> dot(query, vectors.get(i))).reversed())
+                .limit(k)
+                .toList());
+            for (HnswIndex.Hit hit : index.search(query, k, 100)) {
+                if (exact.contains(hit.node())) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries * k);
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void skipsRemovedNodes() {
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        List<float[]> vectors = fill(index, 200);
+        for (int node = 0; node < 50; node++) {
+            index.remove(node);
+        }
+        index.remove(0);
+        index.remove(-1);
+        index.remove(10_000);
+
+        assertEquals(150, index.size());
+        assertEquals(0.25, index.deletedRatio(), 1e-9);
+        for (int node = 0; node < 50; node += 5) {
+            List<HnswIndex.Hit> hits = index.search(vectors.get(node), 10, 50);
+            assertEquals(10, hits.size());
+            for (HnswIndex.Hit hit : hits) {
+                assertFalse(hit.node() < 50, "已删除的节点不应出现在结果中: " + hit.node());
+            }
+        }
+        // 新增节点使用新编号，删除的编号不会复用
+        assertEquals(200, index.add(randomUnitVector()));
+    }
+}
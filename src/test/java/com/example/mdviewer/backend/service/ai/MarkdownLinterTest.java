@@ -0,0 +1,112 @@
+package com.example.mdviewer.backend.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarkdownLinterTest {
+
+    private final MarkdownLinter linter = new MarkdownLinter(64);
+
+    private static List<String> rules(MarkdownLinter.Result result) {
+        return result.diagnostics().stream().map(MarkdownLinter.Diagnostic::rule).toList();
+    }
+
+    @Test
+    void fixesSpacesAndMixedPunctuation() {
+        String text = "第一句,第二句\nhello，world  again\n";
+        MarkdownLinter.Result result = linter.lint(text);
+
+        assertEquals(List.of("punctuation", "punctuation", "multiple-spaces"), rules(result));
+        MarkdownLinter.Diagnostic comma = result.diagnostics().get(0);
+        assertEquals(3, comma.offset());
+        assertEquals(1, comma.line());
+        assertEquals(4, comma.column());
+        assertEquals("，", comma.replacement());
+        MarkdownLinter.Diagnostic spaces = result.diagnostics().get(2);
+        assertEquals(2, spaces.line());
+        assertEquals(12, spaces.column());
+        assertEquals("第一句，第二句\nhello, world again\n", MarkdownLinter.applyFixes(text, result.diagnostics()));
+    }
+
+    @Test
+    void leavesIndentationHardBreaksAndTablesAlone() {
+        String text = "  缩进的行  \n| a  | b |\n";
+        assertTrue(linter.lint(text).diagnostics().isEmpty());
+    }
+
+    @Test
+    void ignoresCodeSpansCodeBlocksAndFrontMatter() {
+        String text = "---\ntitle: a  b\n---\n用 `a,b  c` 表示\n\n```java\nint a,b;  // 中文,注释\n```\n\n    indented  code\n";
+        MarkdownLinter.Result result = linter.lint(text);
+
+        assertTrue(result.diagnostics().isEmpty(), String.valueOf(result.diagnostics()));
+        assertTrue(result.prose());
+    }
+
+    @Test
+    void reportsProseOnlyOutsideCodeAndLinkTargets() {
+        assertFalse(linter.lint("```\ncode only\n```\n").prose());
+        assertFalse(linter.lint("`x` , [](docs/a.md) https://example.com/path\n").prose());
+        assertTrue(linter.lint("[文档](docs/a.md)\n").prose());
+    }
+
+    @Test
+    void checksCodeFences() {
+        MarkdownLinter.Result unclosed = linter.lint("正文\n\n```js\nlet a  = 1\n");
+        assertEquals(List.of("code-fence"), rules(unclosed));
+        assertEquals("error", unclosed.diagnostics().get(0).severity());
+        assertEquals(3, unclosed.diagnostics().get(0).line());
+
+        String fullWidth = "｀｀｀\ncode\n｀｀｀\n";
+        MarkdownLinter.Result result = linter.lint(fullWidth);
+        assertEquals(2, result.diagnostics().size());
+        assertEquals("```\ncode\n```\n", MarkdownLinter.applyFixes(fullWidth, result.diagnostics()));
+    }
+
+    @Test
+    void checksLinksAndReferences() {
+        String text = "[缺括号](docs/a.md\n[空]()\n[有空格] (docs/b.md)\n"
+            + "见 [资料][ref] 和 [未定义][missing]\n\n[ref]: ../c.md\n"
+            + "![图](img/x.png \"标题\") [外部](https://example.com) [锚点](#top)\n";
+        MarkdownLinter.Result result = linter.lint(text);
+
+        List<String> messages = result.diagnostics().stream().map(MarkdownLinter.Diagnostic::message).toList();
+        assertEquals(List.of("链接缺少右括号", "链接地址为空", "链接文字与地址之间不能有空格", "未找到链接引用 [missing] 的定义"),
+            messages);
+        assertEquals(List.of("../c.md", "img/x.png"), result.links().stream().map(MarkdownLinter.Link::target).toList());
+        MarkdownLinter.Link image = result.links().get(1);
+        assertEquals(text.indexOf("img/x.png"), image.offset());
+        assertEquals(7, image.line());
+        assertEquals("[有空格](docs/b.md)", MarkdownLinter.applyFixes("[有空格] (docs/b.md)", linter.lint("[有空格] (docs/b.md)").diagnostics()));
+    }
+
+    @Test
+    void fixesListsExactlyTheDiagnosticsThatApplyFixesUses() {
+        List<MarkdownLinter.Diagnostic> diagnostics = List.of(
+            new MarkdownLinter.Diagnostic("a", "warning", 0, 3, 1, 1, "", "X"),
+            new MarkdownLinter.Diagnostic("b", "warning", 1, 1, 1, 2, "", "Y"),
+            new MarkdownLinter.Diagnostic("c", "error", 4, 1, 1, 5, "", null),
+            new MarkdownLinter.Diagnostic("d", "warning", 5, 1, 1, 6, "", ""));
+
+        List<MarkdownLinter.Diagnostic> fixes = MarkdownLinter.fixes(diagnostics);
+        assertEquals(List.of("a", "d"), fixes.stream().map(MarkdownLinter.Diagnostic::rule).toList());
+        assertEquals("X dd", MarkdownLinter.applyFixes("abc dXd", diagnostics));
+        assertTrue(MarkdownLinter.fixes(List.of(diagnostics.get(2))).isEmpty());
+    }
+
+    @Test
+    void reusesResultsForUnchangedBlocks() {
+        String first = "第一段  文字\n\n第二段,内容\n";
+        linter.lint(first);
+        MarkdownLinter.Result edited = linter.lint(first + "\n第三段\n");
+
+        assertEquals(2L, linter.stats().get("hits"));
+        assertEquals(List.of("multiple-spaces", "punctuation"), rules(edited));
+        assertEquals(first.indexOf(','), edited.diagnostics().get(1).offset());
+    }
+}
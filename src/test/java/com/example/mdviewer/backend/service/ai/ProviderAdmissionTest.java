@@ -0,0 +1,241 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderAdmissionTest {
+
+    private final AIProperties properties = new AIProperties();
+    private final AIProperties.Limits limits = properties.getLimits();
+    private final ProviderAdmission admission = new ProviderAdmission(properties);
+
+    private static RestClientResponseException tooManyRequests(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null);
+    }
+
+    /**
+     * 占住一个在途名额直到 release 被触发
+     */
+    private static Supplier<String> hold(CountDownLatch holding, CountDownLatch release) {
+        return () -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> stats(String provider) {
+        return (Map<String, Object>) admission.stats().get(provider);
+    }
+
+    @Test
+    void capsCallsInFlight() throws Exception {
+        limits.setMaxInFlight(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(() -> admission.execute("openai", 10, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(30);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return "ok";
+                })));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("ok", future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, peak.get());
+        assertEquals(6L, stats("openai").get("admitted"));
+        assertEquals(0, stats("openai").get("inFlight"));
+    }
+
+    @Test
+    void rejectsWhenTheQueueIsFullAndWhenTheWaitTimesOut() throws Exception {
+        limits.setMaxInFlight(1);
+        limits.setMaxQueue(1);
+        limits.setMaxWait(Duration.ofMillis(200));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> admission.execute("openai", 1, hold(holding, release)));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+            Future<?> waiting = executor.submit(() -> admission.execute("openai", 1, () -> "second"));
+            while (!Integer.valueOf(1).equals(stats("openai").get("queueDepth"))) {
+                Thread.sleep(1);
+            }
+
+            AIAdmissionException full = assertThrows(AIAdmissionException.class,
+                () -> admission.execute("openai", 1, () -> "third"));
+            assertEquals("AI 请求排队已满，请稍后重试", full.getMessage());
+            Exception timeout = assertThrows(Exception.class, () -> waiting.get(5, TimeUnit.SECONDS));
+            assertEquals("AI 请求等待超时，请稍后重试", timeout.getCause().getMessage());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        assertEquals(2L, stats("openai").get("rejected"));
+        assertEquals(0, stats("openai").get("inFlight"));
+    }
+
+    @Test
+    void interruptedWaitReleasesItsSlot() throws Exception {
+        limits.setMaxInFlight(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<RuntimeException> cancelled = new AtomicReference<>();
+        Thread holder = new Thread(() -> admission.execute("openai", 1, hold(holding, release)));
+        holder.start();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        Thread waiter = new Thread(() -> {
+            try {
+                admission.execute("openai", 1, () -> "never");
+            } catch (RuntimeException e) {
+                cancelled.set(e);
+            }
+        });
+        waiter.start();
+        while (!Integer.valueOf(1).equals(stats("openai").get("queueDepth"))) {
+            Thread.sleep(1);
+        }
+
+        waiter.interrupt();
+        waiter.join(5000);
+        release.countDown();
+        holder.join(5000);
+
+        assertTrue(cancelled.get() instanceof AICancelledException);
+        assertEquals(0, stats("openai").get("inFlight"));
+        assertEquals("ok", admission.execute("openai", 1, () -> "ok"));
+    }
+
+    @Test
+    void refundsTheRequestTokenWhenTheTokenBudgetRejects() {
+        limits.setRequestsPerMinute(2);
+        limits.setTokensPerMinute(100);
+        limits.setMaxWait(Duration.ofMillis(20));
+
+        assertEquals("a", admission.execute("openai", 100, () -> "a"));
+        AIAdmissionException e = assertThrows(AIAdmissionException.class,
+            () -> admission.execute("openai", 50, () -> "b"));
+        assertEquals("AI 请求超出速率限制，请稍后重试", e.getMessage());
+        // 被拒绝的请求没有消耗请求数额度，第二个请求名额仍然可用
+        assertEquals("c", admission.execute("openai", 0, () -> "c"));
+    }
+
+    @Test
+    void retriesRetryableFailuresHonoringRetryAfter() {
+        limits.setRetryBaseDelay(Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = admission.execute("openai", 1, () -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                throw tooManyRequests("0");
+            }
+            if (call == 2) {
+                throw HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Unavailable", new HttpHeaders(), null, null);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2L, stats("openai").get("retries"));
+    }
+
+    @Test
+    void givesUpWhenRetryAfterExceedsTheMaximumDelay() {
+        limits.setRetryMaxDelay(Duration.ofSeconds(20));
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.nanoTime();
+
+        RestClientResponseException e = assertThrows(RestClientResponseException.class,
+            () -> admission.execute("openai", 1, () -> {
+                calls.incrementAndGet();
+                throw tooManyRequests("120");
+            }));
+
+        assertEquals(429, e.getStatusCode().value());
+        assertEquals(1, calls.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void doesNotRetryClientErrorsOrWhenTheCallerForbidsIt() {
+        limits.setRetryBaseDelay(Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> admission.execute("openai", 1, () -> {
+            calls.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", new HttpHeaders(), null, null);
+        }));
+        assertThrows(RestClientResponseException.class, () -> admission.execute("openai", 1, () -> false, () -> {
+            calls.incrementAndGet();
+            throw tooManyRequests(null);
+        }));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void keepsSeparateLimitsPerProvider() throws Exception {
+        AIProperties.Limits strict = new AIProperties.Limits();
+        strict.setMaxInFlight(1);
+        strict.setMaxWait(Duration.ofMillis(50));
+        properties.setProviderLimits(Map.of("zhipu", strict));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> admission.execute("zhipu", 1, hold(holding, release)));
+        holder.start();
+        try {
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+            assertThrows(AIAdmissionException.class, () -> admission.execute("zhipu", 1, () -> "blocked"));
+            assertEquals("ok", admission.execute("openai", 1, () -> "ok"));
+        } finally {
+            release.countDown();
+            holder.join(5000);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.mdviewer.backend.service.ai;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderFailoverTest {
+
+    private final AIProperties properties = new AIProperties();
+    private final AIProperties.Failover config = properties.getFailover();
+    private final ProviderFailover failover = new ProviderFailover(properties);
+
+    @AfterEach
+    void tearDown() {
+        failover.shutdown();
+    }
+
+    private static Object stat(Map<String, Object> stats, String provider, String key) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> providerStats = (Map<String, Object>) stats.get(provider);
+        return providerStats.get(key);
+    }
+
+    private String call(List<String> providers, ProviderFailover.Attempt<String> attempt) {
+        return failover.execute(providers, false, attempt, result -> !result.isEmpty());
+    }
+
+    @Test
+    void failsOverToTheNextProviderInOrder() {
+        List<String> tried = new CopyOnWriteArrayList<>();
+        String result = call(List.of("a", "b", "c"), (provider, claim) -> {
+            tried.add(provider);
+            if (provider.equals("a")) {
+                throw new IllegalStateException("down");
+            }
+            return "from " + provider;
+        });
+
+        assertEquals("from b", result);
+        assertEquals(List.of("a", "b"), tried);
+        Map<String, Object> stats = failover.stats();
+        assertEquals(1L, stat(stats, "a", "failures"));
+        assertEquals(1L, stat(stats, "b", "successes"));
+        assertEquals(1L, stat(stats, "b", "wins"));
+        assertFalse(stats.containsKey("c"));
+    }
+
+    @Test
+    void throwsTheLastFailureWhenEveryProviderFails() {
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> call(List.of("a", "b"), (provider, claim) -> {
+                throw new IllegalStateException(provider + " down");
+            }));
+        assertEquals("b down", failure.getMessage());
+    }
+
+    @Test
+    void rejectedResultsMoveOnWithoutCountingAsFailures() {
+        String result = call(List.of("a", "b"), (provider, claim) -> "");
+
+        assertEquals("", result);
+        Map<String, Object> stats = failover.stats();
+        assertEquals(1L, stat(stats, "a", "rejected"));
+        assertEquals(0L, stat(stats, "a", "failures"));
+        assertEquals(0, stat(stats, "a", "consecutiveFailures"));
+        assertEquals("closed", stat(stats, "a", "state"));
+    }
+
+    @Test
+    void opensTheCircuitAfterRepeatedFailuresAndProbesAfterItExpires() throws InterruptedException {
+        config.setFailureThreshold(2);
+        config.setOpenDuration(Duration.ofMillis(200));
+        AtomicBoolean healthy = new AtomicBoolean(false);
+        ProviderFailover.Attempt<String> attempt = (provider, claim) -> {
+            if (provider.equals("a") && !healthy.get()) {
+                throw new IllegalStateException("down");
+            }
+            return provider;
+        };
+
+        call(List.of("a", "b"), attempt);
+        call(List.of("a", "b"), attempt);
+        assertEquals("open", stat(failover.stats(), "a", "state"));
+        assertEquals(1L, stat(failover.stats(), "a", "opened"));
+
+        List<String> tried = new CopyOnWriteArrayList<>();
+        assertEquals("b", call(List.of("a", "b"), (provider, claim) -> {
+            tried.add(provider);
+            return attempt.run(provider, claim);
+        }));
+        assertEquals(List.of("b"), tried);
+        assertThrows(AIAdmissionException.class, () -> call(List.of("a"), attempt));
+
+        Thread.sleep(250);
+        assertEquals("half-open", stat(failover.stats(), "a", "state"));
+        // 探测失败立即重新熔断
+        assertEquals("b", call(List.of("a", "b"), attempt));
+        assertEquals("open", stat(failover.stats(), "a", "state"));
+        assertEquals(2L, stat(failover.stats(), "a", "opened"));
+
+        Thread.sleep(250);
+        healthy.set(true);
+        assertEquals("a", call(List.of("a", "b"), attempt));
+        assertEquals("closed", stat(failover.stats(), "a", "state"));
+        assertEquals(0, stat(failover.stats(), "a", "consecutiveFailures"));
+    }
+
+    @Test
+    void hedgesASlowProviderAndCancelsTheLoser() throws InterruptedException {
+        config.setHedgeInitialDelay(Duration.ofMillis(50));
+        config.setHedgeMinDelay(Duration.ofMillis(10));
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+        String result = call(List.of("slow", "fast"), (provider, claim) -> {
+            if (provider.equals("slow")) {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    slowCancelled.countDown();
+                    throw e;
+                }
+            }
+            return provider;
+        });
+
+        assertEquals("fast", result);
+        assertTrue(slowCancelled.await(5, TimeUnit.SECONDS));
+        Map<String, Object> stats = failover.stats();
+        assertEquals(1L, stat(stats, "fast", "hedged"));
+        assertEquals(1L, stat(stats, "fast", "wins"));
+        // 被取消的请求不计入熔断
+        assertEquals(0L, stat(stats, "slow", "failures"));
+    }
+
+    @Test
+    void doesNotHedgeWhenDisabled() {
+        config.setHedgeEnabled(false);
+        config.setHedgeInitialDelay(Duration.ofMillis(10));
+        config.setHedgeMinDelay(Duration.ofMillis(10));
+        List<String> tried = new CopyOnWriteArrayList<>();
+        String result = call(List.of("slow", "fast"), (provider, claim) -> {
+            tried.add(provider);
+            Thread.sleep(100);
+            return provider;
+        });
+
+        assertEquals("slow", result);
+        assertEquals(List.of("slow"), tried);
+    }
+
+    @Test
+    void streamingKeepsTheFirstProviderToProduceOutput() throws InterruptedException {
+        config.setHedgeInitialDelay(Duration.ofMillis(20));
+        config.setHedgeMinDelay(Duration.ofMillis(10));
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        AtomicReference<Boolean> lateClaim = new AtomicReference<>();
+        CountDownLatch lateChecked = new CountDownLatch(1);
+        List<String> output = new CopyOnWriteArrayList<>();
+        String result = failover.execute(List.of("a", "b"), true, (provider, claim) -> {
+            if (provider.equals("a")) {
+                // 超过对冲等待时间才开始输出，b 已被启动
+                Thread.sleep(100);
+                assertTrue(claim.getAsBoolean());
+                firstClaimed.countDown();
+                output.add("a1");
+                output.add("a2");
+                return "a";
+            }
+            // 不响应取消，确保在 a 胜出后仍会尝试认领
+            while (firstClaimed.getCount() > 0) {
+                Thread.onSpinWait();
+            }
+            lateClaim.set(claim.getAsBoolean());
+            lateChecked.countDown();
+            return "b";
+        }, result1 -> true);
+
+        assertEquals("a", result);
+        assertEquals(List.of("a1", "a2"), output);
+        assertTrue(lateChecked.await(5, TimeUnit.SECONDS));
+        assertFalse(lateClaim.get());
+    }
+
+    @Test
+    void interruptedCallerIsReportedAsCancelled() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch providerCancelled = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                call(List.of("a"), (provider, claim) -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        providerCancelled.countDown();
+                        throw e;
+                    }
+                    return provider;
+                });
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(5000);
+
+        assertTrue(thrown.get() instanceof AICancelledException);
+        assertTrue(providerCancelled.await(5, TimeUnit.SECONDS));
+        assertEquals(0L, stat(failover.stats(), "a", "failures"));
+    }
+
+    @Test
+    void resetClearsHealthAndStatistics() {
+        config.setFailureThreshold(1);
+        call(List.of("a", "b"), (provider, claim) -> {
+            if (provider.equals("a")) {
+                throw new IllegalStateException("down");
+            }
+            return provider;
+        });
+        assertEquals("open", stat(failover.stats(), "a", "state"));
+
+        failover.reset();
+
+        assertTrue(failover.stats().isEmpty());
+        assertEquals("a", call(List.of("a"), (provider, claim) -> provider));
+    }
+}
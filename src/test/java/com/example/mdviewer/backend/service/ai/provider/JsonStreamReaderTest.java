@@ -0,0 +1,187 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamReaderTest {
+
+    /**
+     * 每次只返回一个字符，让每个 token 都跨越缓冲区边界
+     */
+    private static Reader trickle(String json) {
+        return new Reader() {
+            private int pos;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (pos == json.length()) {
+                    return -1;
+                }
+                buffer[offset] = json.charAt(pos++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static List<JsonStreamReader> readers(String json) {
+        return List.of(new JsonStreamReader(json), new JsonStreamReader(new StringReader(json)),
+            new JsonStreamReader(trickle(json)));
+    }
+
+    @Test
+    void decodesEscapesAndSurrogatePairs() throws IOException {
+        String json = "\"a\\\"b\\\\c\\/d\\n\\t\\r\\b\\f \\u4e2d\\u6587 \\ud83d\\ude00 \\u00E9\"";
+        for (JsonStreamReader reader : readers(json)) {
+            String value = reader.readString();
+            assertEquals("a\"b\\c/d\n\t\r\b\f 中文 \uD83D\uDE00 é", value);
+            assertEquals("😀", value.substring(value.indexOf('\uD83D'), value.indexOf('\uD83D') + 2));
+            assertEquals(-1, reader.peek());
+        }
+    }
+
+    @Test
+    void fastPathNumbersMatchDoubleParseDouble() throws IOException {
+        List<String> numbers = new ArrayList<>(List.of(
+            "0", "-0", "1", "-1", "0.1", "0.3", "-0.000123", "3.141592653589793", "123456789012345",
+            "1234567890123456789", "1e22", "1e23", "1.5e-7", "2E+3", "-4.25e-2", "1e-300", "1.7976931348623157e308",
+            "0.00000000000000000000001", "9007199254740993", "123.456e-20"));
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            numbers.add(Float.toString(random.nextFloat() * 2 - 1));
+            numbers.add(Double.toString(random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20)));
+        }
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < numbers.size(); i++) {
+            json.append(i == 0 ? "" : ", ").append(numbers.get(i));
+        }
+        json.append(']');
+        for (JsonStreamReader reader : readers(json.toString())) {
+            List<Double> values = new ArrayList<>();
+            reader.readArray(index -> values.add(reader.readDouble()));
+            assertEquals(numbers.size(), values.size());
+            for (int i = 0; i < numbers.size(); i++) {
+                assertEquals(Double.doubleToLongBits(Double.parseDouble(numbers.get(i))),
+                    Double.doubleToLongBits(values.get(i)), numbers.get(i));
+            }
+        }
+    }
+
+    @Test
+    void readsFloatArraysLongerThanTheBuffer() throws IOException {
+        float[] expected = new float[3000];
+        StringBuilder json = new StringBuilder("{\"embedding\": [");
+        Random random = new Random(7);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = random.nextFloat() - 0.5f;
+            json.append(i == 0 ? "" : ",").append(expected[i]);
+        }
+        json.append("], \"index\": 0}");
+        for (JsonStreamReader reader : readers(json.toString())) {
+            float[][] embedding = new float[1][];
+            reader.readObject(name -> {
+                if (name.equals("embedding")) {
+                    embedding[0] = reader.readFloatArray();
+                } else {
+                    reader.skipValue();
+                }
+            });
+            assertArrayEquals(expected, embedding[0]);
+        }
+    }
+
+    @Test
+    void readsStringsLongerThanTheBuffer() throws IOException {
+        String content = "中文段落\\n".repeat(3000);
+        String json = "{\"content\": \"" + content + "\"}";
+        for (JsonStreamReader reader : readers(json)) {
+            String[] value = new String[1];
+            reader.readObject(name -> value[0] = reader.readString());
+            assertEquals("中文段落\n".repeat(3000), value[0]);
+        }
+    }
+
+    @Test
+    void skipsUnreadValuesAndHandlesNulls() throws IOException {
+        String json = """
+            {"id": "x", "nested": {"a": [1, {"b": "}]\\"["}], "c": null}, "flag": true,
+             "empty": [], "obj": {}, "missing": null, "list": null, "text": "ok"}
+            """;
+        for (JsonStreamReader reader : readers(json)) {
+            Map<String, Object> fields = new HashMap<>();
+            assertTrue(reader.readObject(name -> {
+                switch (name) {
+                    case "missing" -> fields.put(name, reader.readObject(ignored -> { }));
+                    case "list" -> fields.put(name, reader.readFloatArray() == null);
+                    case "empty" -> fields.put(name, reader.readArray(index -> reader.skipValue()));
+                    case "text", "id" -> fields.put(name, reader.readString());
+                    case "flag" -> fields.put(name, reader.readString());
+                    default -> reader.skipValue();
+                }
+            }));
+            assertEquals("x", fields.get("id"));
+            assertEquals("ok", fields.get("text"));
+            assertEquals(false, fields.get("missing"));
+            assertEquals(true, fields.get("list"));
+            assertEquals(true, fields.get("empty"));
+            assertTrue(fields.containsKey("flag"));
+            assertNull(fields.get("flag"));
+            assertEquals(-1, reader.peek());
+        }
+    }
+
+    @Test
+    void nonNumbersReadAsNaN() throws IOException {
+        for (JsonStreamReader reader : readers("[\"1\", null, true, 2]")) {
+            List<Double> values = new ArrayList<>();
+            reader.readArray(index -> values.add(reader.readDouble()));
+            assertTrue(values.get(0).isNaN());
+            assertTrue(values.get(1).isNaN());
+            assertTrue(values.get(2).isNaN());
+            assertEquals(2.0, values.get(3).doubleValue());
+        }
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        for (String json : List.of("{\"a\": \"open", "{\"a\" 1}", "{\"a\": 1 \"b\": 2}", "[1 2]", "{1: 2}",
+            "\"\\u12G4\"", "{\"a\": [1, 2", "[1.2.3]", "[1e5e2]", "[1-2]", "[1.]",
+            "[1e]", "[-]", "[1e+]", "[-.5]")) {
+            for (JsonStreamReader reader : readers(json)) {
+                assertThrows(JsonStreamReader.MalformedJsonException.class, () -> {
+                    switch (reader.peek()) {
+                        case '{' -> reader.readObject(name -> reader.skipValue());
+                        case '[' -> reader.readArray(index -> reader.readDouble());
+                        default -> reader.readString();
+                    }
+                }, json);
+            }
+        }
+    }
+
+    @Test
+    void emptyInputEndsImmediately() throws IOException {
+        for (JsonStreamReader reader : readers("  \n\t ")) {
+            assertEquals(-1, reader.peek());
+        }
+        assertFalse(new JsonStreamReader("null").readArray(index -> { }));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.mdviewer.backend.service.ai.provider;
+
+import com.example.mdviewer.backend.config.AIProperties;
+import com.example.mdviewer.backend.service.ai.AIHttpClients;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用本地假提供商验证 OpenAI 兼容格式的 SSE 流式调用
+ */
+class OpenAICompatibleStreamTest {
+
+    @FunctionalInterface
+    private interface Script {
+        void play(OutputStream out) throws Exception;
+    }
+
+    private final AIHttpClients httpClients = new AIHttpClients(new AIProperties());
+    private final OpenAICompatibleAdapter adapter = new OpenAICompatibleAdapter(httpClients);
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> accept = new AtomicReference<>();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        httpClients.close();
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 启动假提供商：记录请求，按脚本逐段写出 SSE 响应
+     */
+    private ChatRequest fakeProvider(Script script) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            accept.set(exchange.getRequestHeaders().getFirst("Accept"));
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                script.play(out);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        ProviderEndpoint endpoint = new ProviderEndpoint("openai", "test-key", url, "fake-model");
+        return new ChatRequest(endpoint, List.of(ChatMessage.user("你好")), 100);
+    }
+
+    private static void send(OutputStream out, byte[] bytes, int from, int to) throws IOException {
+        out.write(bytes, from, to - from);
+        out.flush();
+    }
+
+    private static void send(OutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        send(out, bytes, 0, bytes.length);
+    }
+
+    @Test
+    void forwardsTokensBeforeTheStreamEnds() throws IOException {
+        CountDownLatch firstToken = new CountDownLatch(1);
+        AtomicBoolean forwardedEarly = new AtomicBoolean();
+        String prefix = "data: {\"choices\":[{\"delta\":{\"content\":\"";
+        ChatRequest request = fakeProvider(out -> {
+            send(out, "data: {\"choices\":[{\"delta\":{\"role\":\"assistant\"}}]}\n\n");
+            send(out, prefix + "你好\"}}]}\n\n");
+            // 客户端收到第一段后才继续发送：整段缓冲再解析的实现会在这里等到超时
+            forwardedEarly.set(firstToken.await(5, TimeUnit.SECONDS));
+            // 一个事件拆成多次写入，且拆在多字节字符中间
+            byte[] split = (prefix + "，世界\"},\"finish_reason\":null}]}\n\n").getBytes(StandardCharsets.UTF_8);
+            int middle = prefix.getBytes(StandardCharsets.UTF_8).length + 1;
+            send(out, split, 0, 12);
+            send(out, split, 12, middle);
+            send(out, split, middle, split.length);
+            send(out, ": keep-alive\n\n");
+            send(out, "data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n");
+            send(out, "data: [DONE]\n\n");
+            send(out, prefix + "不应输出\"}}]}\n\n");
+        });
+
+        List<String> tokens = new ArrayList<>();
+        adapter.stream(request, token -> {
+            tokens.add(token);
+            firstToken.countDown();
+        });
+
+        assertEquals(List.of("你好", "，世界"), tokens);
+        assertTrue(forwardedEarly.get(), "第一个 token 应在响应结束前转发");
+        assertTrue(requestBody.get().contains("\"stream\":true"));
+        assertTrue(requestBody.get().contains("\"model\":\"fake-model\""));
+        assertEquals("text/event-stream", accept.get());
+        assertEquals("Bearer test-key", authorization.get());
+    }
+
+    @Test
+    void reportsErrorEventsInTheStream() throws IOException {
+        ChatRequest request = fakeProvider(out -> {
+            send(out, "data: {\"choices\":[{\"delta\":{\"content\":\"部分\"}}]}\n\n");
+            send(out, "data: {\"error\":{\"message\":\"quota exceeded\",\"type\":\"insufficient_quota\"}}\n\n");
+        });
+
+        List<String> tokens = new ArrayList<>();
+        ProviderResponseException e = assertThrows(ProviderResponseException.class,
+            () -> adapter.stream(request, tokens::add));
+
+        assertEquals("AI 返回错误: quota exceeded", e.getMessage());
+        assertEquals(List.of("部分"), tokens);
+    }
+
+    @Test
+    void reportsMalformedEventsAsProviderErrors() throws IOException {
+        ChatRequest request = fakeProvider(out -> send(out, "data: {\"choices\":[{\"delta\":{\"content\":\n\n"));
+
+        assertThrows(ProviderResponseException.class, () -> adapter.stream(request, token -> { }));
+    }
+}